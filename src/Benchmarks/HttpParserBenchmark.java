@@ -0,0 +1,141 @@
+package Benchmarks;
+
+import Http.HttpParseException;
+import Http.HttpRequest;
+import Http.HttpRequestParser;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * A class that compares the old parseUrlRequest (BufferedReader and jsonData += char)
+ * with the HttpRequestParser on the same requests, for a small and a big json body.
+ * Run: java -cp "out:lib/*" Benchmarks.HttpParserBenchmark [iterations]
+ *
+ * @author Hassan Chadad
+ */
+public class HttpParserBenchmark {
+
+    private static long blackHole; // keeps the results used so the JIT doesn't remove the work
+
+    /**
+     * main method that warms up both parsers then prints the average time of one parse
+     *
+     * @param args - number of measured iterations (default 20000)
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        for (int bodySize : new int[]{64, 4 * 1024, 64 * 1024}) {
+            byte[] request = buildRequest(bodySize);
+            int runs = Math.max(10, iterations * 64 / bodySize); // the old parser is too slow for many big bodies
+            run("legacy", request, runs / 2, false); // warm up
+            run("parser", request, runs / 2, true);
+            long legacy = run("legacy", request, runs, false);
+            long parser = run("parser", request, runs, true);
+            System.out.printf("body %6d bytes: legacy %10d ns/op, parser %8d ns/op (%.1fx)%n",
+                    bodySize, legacy, parser, (double) legacy / parser);
+        }
+        System.out.println(blackHole == 42 ? "" : "done");
+    }
+
+    /**
+     * A method that parses the request the given number of times and returns the average time
+     *
+     * @param name
+     * @param request
+     * @param runs
+     * @param useParser - true for HttpRequestParser, false for the old parseUrlRequest
+     * @return nano seconds per parse
+     * @throws Exception
+     */
+    private static long run(String name, byte[] request, int runs, boolean useParser) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            if (useParser)
+                blackHole += parse(request);
+            else
+                blackHole += legacyParse(request);
+        }
+        return (System.nanoTime() - start) / runs;
+    }
+
+    /**
+     * A method that parses the request with HttpRequestParser and reads its body
+     *
+     * @param request
+     * @return body length
+     * @throws HttpParseException
+     */
+    private static int parse(byte[] request) throws HttpParseException {
+        HttpRequest httpRequest = HttpRequestParser.parse(ByteBuffer.wrap(request));
+        return httpRequest.getBody().length() + httpRequest.getCookie().length();
+    }
+
+    /**
+     * A copy of the parseUrlRequest that was used by the handlers before HttpRequestParser
+     *
+     * @param request
+     * @return body length
+     * @throws IOException
+     */
+    private static int legacyParse(byte[] request) throws IOException {
+        BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(request)));
+        ArrayList<String> requestList = new ArrayList<>();
+        String jsonData = "";
+        String clientHost = "";
+        int contentLength = 0;
+        String input = bufferedReader.readLine();
+        while (bufferedReader.ready() && input != null) {
+            requestList.add(input);
+            input = bufferedReader.readLine();
+            if (input.equals(""))
+                break;
+        }
+        for (String s : requestList) {
+            if (s.startsWith("Cookie") || s.startsWith("cookie")) {
+                String[] temp = s.split(":");
+                clientHost = temp[1].trim() + ":" + temp[2] + ":" + temp[3].trim();
+                break;
+            }
+        }
+        for (String s : requestList) {
+            if (s.startsWith("Content-Length") || s.contains("content-length")) {
+                String[] temp = s.split(":");
+                contentLength = Integer.parseInt(temp[1].replace(" ", "").trim());
+                break;
+            }
+        }
+        requestList.add(input);
+        for (int i = 0; i < contentLength; i++) {
+            char charByte = (char) bufferedReader.read();
+            jsonData += charByte;
+        }
+        return jsonData.length() + clientHost.length();
+    }
+
+    /**
+     * A method that builds a POST /create request like the ones sent by the front end
+     *
+     * @param bodySize - approximate number of bytes of the json body
+     * @return request bytes
+     */
+    private static byte[] buildRequest(int bodySize) {
+        StringBuilder body = new StringBuilder("{\"userid\":1,\"eventname\":\"");
+        while (body.length() < bodySize - 20)
+            body.append('a');
+        body.append("\",\"numtickets\":100}");
+        String request = "POST /create HTTP/1.1\r\n" +
+                "Host: localhost:2370\r\n" +
+                "Cookie: http://localhost:4370\r\n" +
+                "Content-Type: application/json\r\n" +
+                "Content-Length: " + body.length() + "\r\n" +
+                "\r\n" + body;
+        return request.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,159 @@
+package Benchmarks;
+
+import Http.BinaryCodec;
+import Http.Compression;
+import Http.HttpRequest;
+import Http.HttpRequestParser;
+import Http.HttpResponse;
+import Http.NioServer;
+import Http.PooledHttpClient;
+import Http.ReplicationChannel;
+import Http.RequestProcessor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A class that compares the HTTP/JSON and the binary (BinaryCodec) encodings of the /create operations
+ * replicated by the primary to a secondary: the bytes sent on the wire in both directions,
+ * the time to encode and decode a request and encode its response, and the round trips per second
+ * on one keep-alive connection to a local NioServer.
+ * Run: java -cp "out:lib/*" Benchmarks.InternalCodecBenchmark [operations] [port]
+ *
+ * @author Hassan Chadad
+ */
+public class InternalCodecBenchmark {
+
+    private static final String COOKIE = "http://localhost:2370"; // host of the primary
+    private static final String HOST = "localhost:2371"; // host of the secondary
+    private static long blackHole; // keeps the results used so the JIT doesn't remove the work
+
+    /**
+     * main method that prints the results of both encodings
+     *
+     * @param args - number of operations (default 20000) and port of the local server (default 2399)
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 2399;
+        BinaryCodec.configure(new String[]{"-protocol", "binary"});
+
+        long jsonBytes = jsonWire(operations, false), binaryBytes = binaryWire(operations, false);
+        System.out.printf("wire  : json %8.1f bytes/op, binary %6.1f bytes/op (%.1fx smaller)%n",
+                (double) jsonBytes / operations, (double) binaryBytes / operations, (double) jsonBytes / binaryBytes);
+
+        for (int i = 0; i < 5; i++) { // warm up
+            jsonWire(operations, true);
+            binaryWire(operations, true);
+        }
+        long start = System.nanoTime();
+        jsonWire(operations, true);
+        long json = (System.nanoTime() - start) / operations;
+        start = System.nanoTime();
+        binaryWire(operations, true);
+        long binary = (System.nanoTime() - start) / operations;
+        System.out.printf("codec : json %8d ns/op,    binary %6d ns/op (%.1fx)%n", json, binary, (double) json / binary);
+
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        new NioServer(port, 1, workers, new RequestProcessor() {
+            @Override
+            public HttpResponse process(HttpRequest request) {
+                blackHole += request.getBody().length();
+                return HttpResponse.fromResult("").addHeader(ReplicationChannel.OPERATION_HEADER, blackHole + "");
+            }
+        }).start();
+        String url = "http://localhost:" + port;
+        Thread.sleep(200);
+        roundTrips(url, null, operations); // warm up
+        roundTrips(url, BinaryCodec.PROTOCOL, operations);
+        double jsonRate = roundTrips(url, null, operations);
+        double binaryRate = roundTrips(url, BinaryCodec.PROTOCOL, operations);
+        System.out.printf("loop  : json %8.0f ops/sec, binary %6.0f ops/sec (%.1fx)%n", jsonRate, binaryRate, binaryRate / jsonRate);
+        System.out.println(blackHole == 42 ? "" : "done");
+        System.exit(0);
+    }
+
+    /**
+     * A method that encodes the operations as HTTP requests and responses like the services send them,
+     * and decodes the requests with HttpRequestParser
+     *
+     * @param operations
+     * @param decode     - false to only count the bytes
+     * @return bytes written in both directions
+     * @throws IOException
+     */
+    private static long jsonWire(int operations, boolean decode) throws IOException {
+        long bytes = 0;
+        for (int i = 0; i < operations; i++) {
+            byte[] body = body(i).getBytes(StandardCharsets.UTF_8);
+            byte[] request = ("POST /create HTTP/1.1\r\nHost: " + HOST + "\r\nCookie: " + COOKIE
+                    + "\r\nContent-Type: application/json\r\nAccept-Encoding: " + Compression.ACCEPT
+                    + "\r\nContent-Length: " + body.length + "\r\n\r\n" + new String(body, StandardCharsets.UTF_8))
+                    .getBytes(StandardCharsets.UTF_8);
+            if (decode)
+                blackHole += HttpRequestParser.parse(ByteBuffer.wrap(request)).getBody().length();
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            HttpResponse.fromResult("").addHeader(ReplicationChannel.OPERATION_HEADER, (i + 1) + "").writeTo(response, true);
+            bytes += request.length + response.size();
+        }
+        return bytes;
+    }
+
+    /**
+     * A method that encodes the operations as binary frames on one connection (one codec per side),
+     * and decodes the requests
+     *
+     * @param operations
+     * @param decode     - false to only count the bytes
+     * @return bytes written in both directions
+     * @throws IOException
+     */
+    private static long binaryWire(int operations, boolean decode) throws IOException {
+        BinaryCodec primary = new BinaryCodec();
+        BinaryCodec secondary = new BinaryCodec();
+        long bytes = 0;
+        for (int i = 0; i < operations; i++) {
+            ByteArrayOutputStream request = new ByteArrayOutputStream();
+            primary.writeRequest(request, "POST", "/create", COOKIE, body(i));
+            if (decode)
+                blackHole += secondary.readRequest(ByteBuffer.wrap(request.toByteArray())).getBody().length();
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            secondary.writeResponse(response, HttpResponse.fromResult("").addHeader(ReplicationChannel.OPERATION_HEADER, (i + 1) + ""));
+            bytes += request.size() + response.size();
+        }
+        return bytes;
+    }
+
+    /**
+     * A method that sends the operations one after the other to the local server with the PooledHttpClient
+     *
+     * @param url
+     * @param protocol - "binary" or null for HTTP/JSON
+     * @param operations
+     * @return operations per second
+     * @throws IOException
+     */
+    private static double roundTrips(String url, String protocol, int operations) throws IOException {
+        BinaryCodec.negotiate(url, protocol);
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++)
+            blackHole += PooledHttpClient.getInstance().send(url + "/create", "POST", body(i), COOKIE).getStatusCode();
+        return operations / ((System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * A method that builds the body of a replicated /create operation
+     *
+     * @param i - number of the operation
+     * @return json body
+     */
+    private static String body(int i) {
+        return "{\"userid\":" + (i % 100 + 1) + ",\"eventname\":\"Concert " + (i % 50) + "\",\"numtickets\":100,"
+                + "\"eventid\":" + (i + 1) + ",\"operationId\":" + (i + 1) + "}";
+    }
+}
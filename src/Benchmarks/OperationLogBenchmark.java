@@ -0,0 +1,107 @@
+package Benchmarks;
+
+import Http.OperationLog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A class that measures the write throughput of the operation log (OperationLog) under each "-walSync" policy:
+ * always (the threads that wait at the same time share one force), every N ms and none.
+ * Each thread appends /purchase operations and syncs after each one like a request thread of the services,
+ * then the log is replayed to check that every record was written.
+ * Run: java -cp "out:lib/*" Benchmarks.OperationLogBenchmark [operations] [threads] [directory]
+ *
+ * @author Hassan Chadad
+ */
+public class OperationLogBenchmark {
+
+    /**
+     * main method that prints the results of each policy
+     *
+     * @param args - number of operations (default 20000), threads (default 16) and directory of the log files
+     *             (default the temporary directory)
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        Path directory = Paths.get(args.length > 2 ? args[2] : System.getProperty("java.io.tmpdir"));
+
+        run(directory, "none", operations, threads); // warm up
+        for (String policy : new String[]{"always", "10", "2", "none"})
+            run(directory, policy, operations, threads);
+        for (String policy : new String[]{"always", "none"})
+            run(directory, policy, operations / 4, 1); // one writer, every force is paid by one operation
+    }
+
+    /**
+     * A method that appends the operations from several threads to a new log and prints the throughput
+     *
+     * @param directory
+     * @param policy     - always, none or ms
+     * @param operations
+     * @param threads
+     * @throws Exception
+     */
+    private static void run(Path directory, String policy, int operations, int threads) throws Exception {
+        Path file = directory.resolve("operation-log-benchmark.wal");
+        Files.deleteIfExists(file);
+        final OperationLog operationLog = new OperationLog(file, OperationLog.parseSync(policy));
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(threads);
+        final int total = operations;
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        int i;
+                        while ((i = next.getAndIncrement()) < total)
+                            operationLog.sync(operationLog.append(i, "purchase/" + (i % 500 + 1), body(i)));
+                    } catch (IOException e) {
+                        failed.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long syncs = operationLog.getSyncs();
+        long bytes = operationLog.getSize();
+        operationLog.close();
+
+        final AtomicInteger replayed = new AtomicInteger();
+        OperationLog check = new OperationLog(file, OperationLog.NONE);
+        check.replay(new OperationLog.Replayer() {
+            @Override
+            public void replay(int operationId, String path, String jsonData) {
+                replayed.incrementAndGet();
+            }
+        });
+        check.close();
+        Files.deleteIfExists(file);
+
+        System.out.printf("%-7s %2d threads: %9.0f ops/sec, %6.1f MB/sec, %6d forces (%5.1f ops/force), replayed %d%s%n",
+                policy, threads, operations / seconds, bytes / seconds / (1 << 20), syncs,
+                syncs == 0 ? 0.0 : (double) operations / syncs, replayed.get(), failed.get() > 0 ? " FAILED" : "");
+    }
+
+    /**
+     * A method that builds the body of a logged /purchase operation
+     *
+     * @param i - number of the operation
+     * @return json body
+     */
+    private static String body(int i) {
+        return "{\"userid\":" + (i % 100 + 1) + ",\"eventid\":" + (i % 500 + 1) + ",\"tickets\":2,\"operationId\":" + i + "}";
+    }
+}
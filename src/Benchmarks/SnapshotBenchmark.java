@@ -0,0 +1,105 @@
+package Benchmarks;
+
+import EventService.EventServiceDetails;
+import Http.OperationLog;
+import Http.Snapshot;
+import org.json.simple.parser.JSONParser;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * A class that measures how long an event member with a big events map takes to be ready after a restart:
+ * it fills the events map and the tickets of the users, takes a snapshot (time the operations are paused and
+ * time to write it), loads it back through the MappedByteBuffer, and compares with the json lists
+ * (getAllLists, the body of the STATE record of the operation log) parsed again.
+ * Run: java -Xmx4g -cp "out:lib/*" Benchmarks.SnapshotBenchmark [events] [users] [directory]
+ *
+ * @author Hassan Chadad
+ */
+public class SnapshotBenchmark {
+
+    /**
+     * main method that prints the results
+     *
+     * @param args - number of events (default 1000000), users with tickets (default 100000) and directory of the files
+     *             (default the temporary directory)
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int users = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        Path directory = Paths.get(args.length > 2 ? args[2] : System.getProperty("java.io.tmpdir"));
+        Path file = directory.resolve("snapshot-benchmark.wal");
+        Path snapshotFile = directory.resolve("snapshot-benchmark.wal.snapshot");
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(snapshotFile);
+
+        final EventServiceDetails eventServiceDetails = EventServiceDetails.getInstance("localhost:0", "localhost:0", 0, "localhost:0");
+        fill(eventServiceDetails, events, users);
+        final OperationLog operationLog = new OperationLog(file, OperationLog.NONE);
+        operationLog.append(0, "create", "{\"operationId\":0}"); // the snapshot is taken only if something was logged
+
+        Snapshot snapshot = new Snapshot(operationLog, new Snapshot.Source() {
+            @Override
+            public Snapshot.Copy copy() {
+                return eventServiceDetails.copyLists(operationLog);
+            }
+        });
+        for (int i = 0; i < 3; i++) { // the first ones warm up
+            operationLog.append(i + 1, "create", "{\"operationId\":" + (i + 1) + "}");
+            snapshot.take();
+        }
+        System.out.printf("snapshot: %,d events, %,d users, %.1f MB%n", events, users, Files.size(snapshotFile) / 1048576.0);
+
+        for (int i = 0; i < 3; i++) {
+            eventServiceDetails.updateEventMap(new TreeMap<Integer, String[]>(), new TreeMap<Integer, SortedMap<Integer, Integer>>());
+            long start = System.nanoTime();
+            new Snapshot(operationLog, null).load(new Snapshot.Loader() {
+                @Override
+                public void load(ByteBuffer buffer) {
+                    eventServiceDetails.loadLists(buffer);
+                }
+            });
+            System.out.printf("snapshot load: %6d ms, %,d events%n", (System.nanoTime() - start) / 1000000,
+                    eventServiceDetails.getEventsJsonList(false).size());
+        }
+
+        for (int i = 0; i < 2; i++) {
+            long start = System.nanoTime();
+            String lists = eventServiceDetails.getAllLists();
+            long built = System.nanoTime();
+            new JSONParser().parse(lists);
+            System.out.printf("json lists: built in %6d ms, parsed in %6d ms, %.1f MB%n", (built - start) / 1000000,
+                    (System.nanoTime() - built) / 1000000, lists.length() / 1048576.0);
+        }
+        operationLog.close();
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(snapshotFile);
+    }
+
+    /**
+     * A method that fills the events map and the tickets of the users
+     *
+     * @param eventServiceDetails
+     * @param events
+     * @param users
+     */
+    private static void fill(EventServiceDetails eventServiceDetails, int events, int users) {
+        SortedMap<Integer, String[]> eventMap = new TreeMap<>();
+        for (int i = 1; i <= events; i++)
+            eventMap.put(i, new String[]{"event " + i, (i % users + 1) + "", "1000", (i % 7) + ""});
+        SortedMap<Integer, SortedMap<Integer, Integer>> ticketMap = new TreeMap<>();
+        for (int i = 1; i <= users; i++) {
+            SortedMap<Integer, Integer> tickets = new TreeMap<>();
+            for (int j = 0; j < 5; j++)
+                tickets.put((i * 31 + j * 7919) % events + 1, j + 1);
+            ticketMap.put(i, tickets);
+        }
+        eventServiceDetails.updateEventMap(eventMap, ticketMap);
+    }
+}
@@ -0,0 +1,88 @@
+package EventService;
+
+import Http.Router;
+
+/**
+ * An enum of all the api requests handled by the event service.
+ * Each api has its method and path, and internal apis are the ones sent by the other services (not the clients).
+ * The router is built once from these values and is used by the GeneralRequestHandler to find the api of a request.
+ *
+ * @author Hassan Chadad
+ */
+public enum Api {
+
+    /* client apis */
+    LIST("GET", "/list", false),
+    GET_EVENT("GET", "/{eventId}", false),
+    SEARCH("POST", "/search", false),
+    CREATE("POST", "/create", false),
+    PURCHASE("POST", "/purchase/{eventId}", false),
+    UPDATE("POST", "/update/{eventId}", false),
+    DELETE("POST", "/{eventId}/delete", false),
+    RETURN_TICKETS("POST", "/tickets/{tickets}/return", false),
+    BATCH("POST", "/batch", false), // operations replicated together by the primary, applied by the secondaries
+    NOOP("POST", "/noop", false), // operation aborted by the primary, the secondaries only move past its ID
+
+    /* internal apis */
+    ALIVE("GET", "/alive", true),
+    ELECTION("GET", "/election", true),
+    SPREAD_EVENTS("GET", "/spreadEvents", true),
+    NEW_FE("GET", "/newFE", true),
+    ALL_LISTS("POST", "/allLists", true),
+    LISTS_CHUNK("POST", "/listsChunk", true), // part of the lists sent to a new member, before the last /allLists
+    ADD_MEMBER("POST", "/addMember", true),
+    NEW_PRIMARY("POST", "/newPrimary", true),
+    ADD_FRONT_END("POST", "/addFrontEnd", true),
+    UPDATE_EVENT_MAP("POST", "/updateEventMap", true),
+    SET_USER_PRIMARY("POST", "/setUserPrimary", true),
+    INVALIDATE_USERS("POST", "/invalidateUsers", true),
+    REPLICATION_LAG("GET", "/replicationLag", true),
+    READ_HOSTS("GET", "/readHosts", true); // secondaries the front ends send the reads to
+
+    private final String method;
+    private final String pattern;
+    private final boolean internal;
+
+    /**
+     * Constructor
+     *
+     * @param method
+     * @param pattern
+     * @param internal - true if the api is sent by a service
+     */
+    Api(String method, String pattern, boolean internal) {
+        this.method = method;
+        this.pattern = pattern;
+        this.internal = internal;
+    }
+
+    /**
+     * Get method
+     *
+     * @return true if the api is sent by a service
+     */
+    public boolean isInternal() {
+        return internal;
+    }
+
+    /**
+     * A method that checks if the api only reads the events, a front end can send it to a secondary
+     *
+     * @return true for list, get event and search
+     */
+    public boolean isRead() {
+        return this == LIST || this == GET_EVENT || this == SEARCH;
+    }
+
+    /**
+     * A method that builds the router of all the apis
+     *
+     * @return router
+     */
+    public static Router<Api> router() {
+        Router<Api> router = new Router<>();
+        for (Api api : values())
+            router.add(api.method, api.pattern, api);
+        return router;
+    }
+}
@@ -1,624 +1,992 @@
-package EventService;
-
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-
-import java.util.SortedMap;
-import java.util.TreeMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
-/**
- * A class that handles all the requests sent by the clients only and returns the response back.
- *
- * @author Hassan Chadad
- */
-public class ClientRequestParser {
-
-    private String jsonData;
-    private EventServiceDetails eventServiceDetails;
-    private final static Logger log = LogManager.getRootLogger(); // Log Object to print to the System.out.println file
-
-    /**
-     * Constructor
-     *
-     * @param jsonData
-     */
-    public ClientRequestParser(String jsonData) {
-        this.jsonData = jsonData;
-        eventServiceDetails = EventServiceDetails.getInstance("", "", 0, "");
-    }
-
-    /**
-     * A method that checks if the method is GET/POST and sends the request to the appropriate function
-     * If the method is POST and the member is primary then it will add the current thread and give it an operation ID
-     *
-     * @param headerAttr
-     * @return response from method called
-     */
-    public String parse(String[] headerAttr) {
-        if (headerAttr[0].equals("GET"))
-            return handleGetMethods(headerAttr[1]);
-        else if (headerAttr[0].equals("POST")) {
-            return handlePostMethods(headerAttr[1]);
-        } else
-            return "400";
-    }
-
-    /**
-     * A method that handles GET requests and checks the api and sends the request to the appropriate method
-     * then returns the response of the method called
-     *
-     * @param apiReq
-     * @return response
-     */
-    private String handleGetMethods(String apiReq) {
-        if (apiReq.equals("list")) {
-            return eventServiceDetails.getEventList();
-        } else { // return event with eventId
-            try {
-                return eventServiceDetails.getEvent(Integer.parseInt(apiReq));
-            } catch (Exception e) {
-                return "400";
-            }
-        }
-    }
-
-    /**
-     * A method that handles POST requests and checks the api and sends the request to the appropriate method
-     * then returns the response of the method called
-     *
-     * @param apiReq
-     * @return
-     */
-    private String handlePostMethods(String apiReq) {
-        if (apiReq.startsWith("search")) // this doesn't require locking operation (not passing to secondaries)
-            return searchEvent();
-        else {
-            if (eventServiceDetails.isPrimary()) {
-                eventServiceDetails.lockOperationThread();
-                eventServiceDetails.addOperationThread(this);
-            }
-            if (apiReq.equals("create"))
-                return createEvent(apiReq);
-            else if (apiReq.startsWith("purchase/"))
-                return purchaseTickets(apiReq);
-            else if (apiReq.startsWith("update/"))
-                return updateEvent(apiReq);
-            else if (apiReq.matches("[\\d]+/delete"))
-                return deleteEvent(apiReq);
-            else if (apiReq.matches("tickets/[\\d]+/return"))
-                return returnTickets(apiReq);
-            else
-                return "400";
-        }
-    }
-
-    /**
-     * A thread safe method that parses the jsonData and passes the extracted values to searchEvent method and return
-     * a string of all matched events.
-     *
-     * @return matched event map JSON format
-     */
-    private String searchEvent() {
-        try {
-            JSONParser parser = new JSONParser();
-            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
-
-            String keywords = (String) jsonObject.get("keywords");
-            String availJson = (String) jsonObject.get("avail");
-            int avail = Integer.parseInt(availJson);
-            keywords = keywords.trim();
-            return eventServiceDetails.searchEvents(keywords, avail);
-        } catch (Exception e) {
-            return "400";
-        }
-    }
-
-    /**
-     * A thread safe method that creates a new event and adds it to the EventMap,
-     * then if the member is primary it passes the client request to all secondaries with the operation ID and waits for
-     * a response back. On success the primary deletes the operation thread, while secondary increments operation ID
-     * Then it returns a response to the client.
-     *
-     * @param request
-     * @return event ID json format (success) - 400 (failure)
-     */
-    private String createEvent(String request) {
-        boolean success = false;
-        int opId = -1;
-        try {
-            eventServiceDetails.lockWriteLock();
-            JSONParser parser = new JSONParser();
-            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
-
-            long jsonOperId = -1;
-            if (!eventServiceDetails.isPrimary()) { // if secondary
-                jsonOperId = (Long) jsonObject.get("operationId"); // get operation ID
-                blockThread((int) jsonOperId);
-            }
-
-            long userId = (Long) jsonObject.get("userid");
-            String eventName = (String) jsonObject.get("eventname");
-            long numTickets = (Long) jsonObject.get("numtickets");
-            if (eventName.length() == 0)
-                return "400";
-            if (numTickets <= 0)
-                return "400";
-
-            /* for demonstration purpose only */
-            if (!eventServiceDetails.isPrimary())
-                System.out.println("/create excuted of id " + eventServiceDetails.getOperationId());
-            else {
-                opId = eventServiceDetails.getOperationIdForCurrent(this);
-                System.out.println("/create excuted of id " + opId);
-            }
-            /* ----------------------- */
-
-            String url = eventServiceDetails.getPrimaryUserHost() + "/" + userId;
-            RequestSender requestSender = new RequestSender();
-            if (requestSender.sendRequestBool(url, "GET", "")) { // check if user exists
-                String result = eventServiceDetails.createEvent(eventName, userId + "", numTickets + "");
-                if (result.equals("400"))
-                    return "400";
-                if (eventServiceDetails.isPrimary()) {
-                    opId = eventServiceDetails.getOperationIdForCurrent(this);
-                    if (opId > -1) {
-                        jsonObject.put("operationId", opId);
-                        sendMultiRequests(request, "POST", jsonObject.toJSONString());
-                        success = true;
-                    }
-                } else {
-                    eventServiceDetails.incrementOperationId();
-                    success = true;
-                }
-                return result;
-            } else {
-                return "400";
-            }
-        } catch (Exception e) {
-            log.debug(e);
-            return "400";
-        } finally {
-            try {
-                if (!success) // if primary failed to execute the operation, it will delete it and decrement
-                    rollBackOperationId(opId);
-                eventServiceDetails.unlockWriteLock(); // release the lock
-                if (eventServiceDetails.isPrimary()) {
-                    eventServiceDetails.unlockOperationThread();
-                }
-            } catch (Exception e) {
-                log.debug(e);
-            }
-        }
-
-    }
-
-    /**
-     * A thread safe method that deletes an event from the EventMap, then if the member is primary it sends a user a delete request
-     * then it passes the client request to all secondaries with the operation ID and waits for a response back.
-     * On success the primary deletes the operation thread, while secondary increments operation ID
-     * Then it returns a response to the client.
-     *
-     * @param request
-     * @return event ID json format (success) - 400 (failure)
-     */
-    private String deleteEvent(String request) {
-        boolean success = false;
-        int opId = -1;
-        try {
-            eventServiceDetails.lockWriteLock();
-            JSONParser parser = new JSONParser();
-            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
-
-            String[] reqArray = request.split("/");
-            int eventId = Integer.parseInt(reqArray[0]);
-            long jsonOperId = -1;
-            if (!eventServiceDetails.isPrimary()) { // if secondary
-                jsonOperId = (Long) jsonObject.get("operationId"); // get operation ID
-                blockThread((int) jsonOperId);
-            }
-
-            long userId = (Long) jsonObject.get("userid");
-            if (userId <= 0)
-                return "400";
-
-            /* for demonstration purpose only */
-            if (!eventServiceDetails.isPrimary())
-                System.out.println("/delete event excuted of id " + eventServiceDetails.getOperationId());
-            else {
-                opId = eventServiceDetails.getOperationIdForCurrent(this);
-                System.out.println("/delete event excuted of id " + opId);
-            }
-            /* ----------------------- */
-
-            RequestSender requestSender = new RequestSender();
-            SortedMap<Integer, String[]> backupMap = eventServiceDetails.deleteEvent(eventId, userId + "");
-            if (backupMap == null)
-                return "400";
-            boolean userTicketDeleteReq = true;
-            String url = eventServiceDetails.getPrimaryUserHost() + "/delete-tickets";
-            if (eventServiceDetails.isPrimary()) { // prevent secondaries from updating user tickets on purchase
-                JSONObject jsonPar = new JSONObject();
-                jsonPar.put("eventid", eventId);
-                userTicketDeleteReq = requestSender.sendRequestBool(url, "POST", jsonPar.toJSONString());
-            }
-            if (userTicketDeleteReq) { // all users deleted the tickets for the deleted event
-                if (eventServiceDetails.isPrimary()) {
-                    if (opId > -1) {
-                        jsonObject.put("operationId", opId);
-                        sendMultiRequests(request, "POST", jsonObject.toJSONString());
-                        success = true;
-                    }
-                } else {
-                    eventServiceDetails.incrementOperationId();
-                    success = true;
-                }
-                return "";
-            } else { // if I wasn't able to delete tickets in the user then restore previous event
-                eventServiceDetails.restoreBackupEvent(backupMap);
-                return "400";
-            }
-        } catch (Exception e) {
-            log.debug(e);
-            return "400";
-        } finally {
-            try {
-                if (!success) // if primary failed to execute the operation, it will delete it and decrement
-                    rollBackOperationId(opId);
-                eventServiceDetails.unlockWriteLock(); // release the lock
-                if (eventServiceDetails.isPrimary()) {
-                    eventServiceDetails.unlockOperationThread();
-                }
-            } catch (Exception e) {
-                log.debug(e);
-            }
-        }
-    }
-
-    /**
-     * A thread safe method that creates a new event and adds it to the EventMap,
-     * then if the member is primary it passes the client request to all secondaries with the operation ID and waits for
-     * a response back. On success the primary deletes the operation thread, while secondary increments operation ID
-     * Then it returns a response to the client.
-     *
-     * @param request
-     * @return event ID json format (success) - 400 (failure)
-     */
-    private String updateEvent(String request) {
-        boolean success = false;
-        int opId = -1;
-        try {
-            eventServiceDetails.lockWriteLock();
-            JSONParser parser = new JSONParser();
-            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
-
-            long jsonOperId = -1;
-            if (!eventServiceDetails.isPrimary()) { // if secondary
-                jsonOperId = (Long) jsonObject.get("operationId"); // get operation ID
-                blockThread((int) jsonOperId);
-            }
-
-            String[] requestArray = request.split("/");
-            int eventId = Integer.parseInt(requestArray[1]);
-            long userId = (Long) jsonObject.get("userid");
-
-            // check if the user sent at least 1 attribute to update, if not then return 400
-            if (jsonObject.get("eventname") == null && jsonObject.get("additionaltickets") == null)
-                return "400";
-
-            String eventName = "";
-            if (jsonObject.get("eventname") != null) { // check if the client sent an eventname, it means s/he wants to update it
-                eventName = (String) jsonObject.get("eventname");
-                eventName = eventName.trim();
-                if (eventName.length() == 0)
-                    return "400";
-            }
-
-            long additionalTickets = 0;
-            if (jsonObject.get("additionaltickets") != null) { // check if the client sent an tickets, it means s/he wants to add more tickets
-                additionalTickets = (Long) jsonObject.get("additionaltickets");
-                if (additionalTickets <= 0)
-                    return "400";
-            }
-
-            /* for demonstration purpose only */
-            if (!eventServiceDetails.isPrimary())
-                System.out.println("/update excuted of id " + eventServiceDetails.getOperationId());
-            else {
-                opId = eventServiceDetails.getOperationIdForCurrent(this);
-                System.out.println("/update excuted of id " + opId);
-            }
-            /* ----------------------- */
-
-            String url = eventServiceDetails.getPrimaryUserHost() + "/" + userId;
-            RequestSender requestSender = new RequestSender();
-            if (requestSender.sendRequestBool(url, "GET", "")) { // check if user exists
-                String result = eventServiceDetails.updateEvent(eventId, eventName, userId + "", (int) additionalTickets);
-                if (result.equals("400"))
-                    return "400";
-                if (eventServiceDetails.isPrimary()) {
-                    opId = eventServiceDetails.getOperationIdForCurrent(this);
-                    if (opId > -1) {
-                        jsonObject.put("operationId", opId);
-                        sendMultiRequests(request, "POST", jsonObject.toJSONString());
-                        success = true;
-                    }
-                } else {
-                    eventServiceDetails.incrementOperationId();
-                    success = true;
-                }
-                return result;
-            } else {
-                return "400";
-            }
-        } catch (Exception e) {
-            log.debug(e);
-            return "400";
-        } finally {
-            try {
-                if (!success) // if primary failed to execute the operation, it will delete it and decrement
-                    rollBackOperationId(opId);
-                eventServiceDetails.unlockWriteLock(); // release the lock
-                if (eventServiceDetails.isPrimary()) {
-                    eventServiceDetails.unlockOperationThread();
-                }
-            } catch (Exception e) {
-                log.debug(e);
-            }
-        }
-
-    }
-
-    /**
-     * A thread safe method that updates the tickets of an event. Then on success it will pass the purchase request
-     * to the secondaries otherwise it will rollback.
-     *
-     * @param request
-     * @return empty string (success) - 400 (failure)
-     */
-    private String purchaseTickets(String request) {
-        boolean success = false;
-        int key = -1;
-        int operId = -1;
-        try {
-            JSONParser parser = new JSONParser();
-            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
-
-            long jsonOperId = -1;
-            if (!eventServiceDetails.isPrimary()) { // if secondary then get operation ID
-                jsonOperId = (Long) jsonObject.get("operationId");
-                blockThread((int) jsonOperId);
-            }
-
-            long userId = (Long) jsonObject.get("userid");
-            long jsonEventId = (Long) jsonObject.get("eventid");
-            long purchasedTickets = (Long) jsonObject.get("tickets");
-
-            if (!eventServiceDetails.lockEventListWriteLock((int) jsonEventId)) // lock the purchase on specific event
-                return "400";
-            key = (int) jsonEventId;
-
-            String requestEventId = request.replace("purchase/", ""); // remove part to get ID
-
-            if (Integer.parseInt(requestEventId) != jsonEventId) // check if event id in API = event id in JSON body
-                return "400";
-            String userHost = eventServiceDetails.getPrimaryUserHost();
-            String url = userHost + "/" + userId;
-            RequestSender requestSender = new RequestSender();
-            if (requestSender.sendRequestBool(url, "GET", "")) { // check if user exists
-                int requestEventIdInt = Integer.parseInt(requestEventId);
-                url = userHost + "/" + userId + "/tickets/add";
-                JSONObject jsonPar = new JSONObject();
-                jsonPar.put("eventid", requestEventIdInt);
-                jsonPar.put("tickets", purchasedTickets);
-
-                    /* for demonstration purpose only */
-                if (!eventServiceDetails.isPrimary())
-                    System.out.println("/purchase excuted of id " + eventServiceDetails.getOperationId());
-                else {
-                    operId = eventServiceDetails.getOperationIdForCurrent(this);
-                    System.out.println("/purchase excuted of id " + operId);
-                }
-                // purchase is successfully added in the event map
-                if (eventServiceDetails.purchaseTickets(requestEventIdInt, (int) purchasedTickets,(int)userId).equals("")) {
-                    boolean userPurchaseReq = true;
-                    if (eventServiceDetails.isPrimary()) // prevent secondaries from updating user tickets on purchase
-                        userPurchaseReq = requestSender.sendRequestBool(url, "POST", jsonPar.toJSONString());
-                    if (userPurchaseReq) { // update purchase in user
-                        if (eventServiceDetails.isPrimary()) {
-                            int opId = eventServiceDetails.getOperationIdForCurrent(this);
-                            if (opId > -1) {
-                                jsonObject.put("operationId", opId);
-                                sendMultiRequests(request, "POST", jsonObject.toJSONString());
-                                success = true;
-                            }
-                        } else {
-                            eventServiceDetails.incrementOperationId();
-                            success = true;
-                        }
-                        return "";
-                    } else { // if I wasn't able to update the user then roll back tickets
-                        eventServiceDetails.rollBackTickets(requestEventIdInt, (int) purchasedTickets, (int) userId).equals("");
-                        return "400";
-                    }
-                } else
-                    return "400";
-            } else
-                return "400";
-        } catch (Exception e) {
-            return "400";
-        } finally {
-            try {
-                if (!success)
-                    rollBackOperationId(operId);
-                eventServiceDetails.unlockEventListWriteLock(key);
-                if (eventServiceDetails.isPrimary()) {
-                    eventServiceDetails.unlockOperationThread();
-                }
-            } catch (Exception e) {
-                log.debug(e);
-            }
-        }
-    }
-
-    /**
-     * A thread safe method that adds back tickets to an event. Then on success it will pass the purchase request
-     * to the secondaries otherwise it will rollback.
-     *
-     * @param request
-     * @return empty string (success) - 400 (failure)
-     */
-    private String returnTickets(String request) {
-        boolean success = false;
-        int key = -1;
-        int operId = -1;
-        try {
-            JSONParser parser = new JSONParser();
-            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
-
-            long jsonOperId = -1;
-            if (!eventServiceDetails.isPrimary()) { // if secondary then get operation ID
-                jsonOperId = (Long) jsonObject.get("operationId");
-                blockThread((int) jsonOperId);
-            }
-
-            String[] reqArray = request.split("/");
-            int tickets = Integer.parseInt(reqArray[1]);
-
-            long eventId = (Long) jsonObject.get("eventid");
-            long userId = (Long) jsonObject.get("userid");
-            if (!eventServiceDetails.lockEventListWriteLock((int) eventId)) // lock the return of tickets on specific event
-                return "400";
-            key = (int) eventId;
-
-            /* for demonstration purpose only */
-            if (!eventServiceDetails.isPrimary())
-                System.out.println("/return tickets excuted of id " + eventServiceDetails.getOperationId());
-            else {
-                operId = eventServiceDetails.getOperationIdForCurrent(this);
-                System.out.println("/return tickets excuted of id " + operId);
-            }
-            // purchase is successfully added in the event map
-            if (eventServiceDetails.rollBackTickets((int) eventId, tickets, (int) userId).equals("")) {
-                if (eventServiceDetails.isPrimary()) {
-                    int opId = eventServiceDetails.getOperationIdForCurrent(this);
-                    if (opId > -1) {
-                        jsonObject.put("operationId", opId);
-                        sendMultiRequests(request, "POST", jsonObject.toJSONString());
-                        success = true;
-                    }
-                } else {
-                    eventServiceDetails.incrementOperationId();
-                    success = true;
-                }
-                return "";
-            } else
-                return "400";
-        } catch (Exception e) {
-            return "400";
-        } finally {
-            try {
-                if (!success)
-                    rollBackOperationId(operId);
-                eventServiceDetails.unlockEventListWriteLock(key);
-                if (eventServiceDetails.isPrimary()) {
-                    eventServiceDetails.unlockOperationThread();
-                }
-            } catch (Exception e) {
-                log.debug(e);
-            }
-        }
-    }
-
-    /**
-     * A method that checks if the operation id sent in the json is the same as the current operation ID in member details,
-     * if it is not then it will wait to be notified in the future
-     *
-     * @param jsonOperId
-     */
-    private synchronized void blockThread(int jsonOperId) {
-        try {
-            log.debug("json is " + jsonOperId + "\n" + eventServiceDetails.getOperationId());
-            while (eventServiceDetails.getOperationId() != jsonOperId) { // wait for your turn
-                wait();
-                log.debug("I am awake so check again");
-            }
-        } catch (Exception e) {
-            log.debug("Request from FE 124" + e);
-        }
-    }
-
-    /**
-     * A method that notifies the thread to wake it up
-     */
-    public synchronized void wakeThread() {
-        notify();
-    }
-
-    /**
-     * A method that passes the client url to all the seconday members to guarantee replication
-     *
-     * @param url
-     * @param method
-     * @param jsonData
-     * @throws Exception
-     */
-    private synchronized void sendMultiRequests(String url, String method, String jsonData) throws Exception {
-        ExecutorService threads = Executors.newCachedThreadPool();
-        SortedMap<Integer, String> map = eventServiceDetails.getMembershipMap();
-        if (map.size() > 1) { // one is the primary so everything after one will be secondary
-            log.debug(url + " start sending operation to all members / size" + map.size());
-            SortedMap<Integer, ThreadRequestSender> threadRequestSenderMap = new TreeMap<>();
-            String myHost = eventServiceDetails.getHost();
-            for (int key : map.keySet()) {
-                    /* skip sending to myself */
-                if (!myHost.equals(map.get(key))) {
-                    //log.debug(map.get(key) + url + "," + method + "," + jsonData);
-                    ThreadRequestSender threadRequestSender = new ThreadRequestSender(map.get(key) + "/" + url, method, jsonData, this, "client");
-                    threadRequestSenderMap.put(key, threadRequestSender);
-                    threads.submit(threadRequestSender);
-                }
-
-            }
-            while (true && threadRequestSenderMap.size() > 0) {
-                boolean responded = true;
-                for (int key : threadRequestSenderMap.keySet()) {
-                    String response = threadRequestSenderMap.get(key).getResponse();
-                    if (response.equals("no")) {
-                        responded = false;
-                        break;
-                    } else if (response.equals("error")) { // member is dead
-                        eventServiceDetails.deleteMember(map.get(key)); // delete member
-                        System.out.println(map.get(key) + " is dead.");
-                        break;
-                    }
-                }
-                if (responded)
-                    break;
-                wait();
-            }
-        }
-        log.debug("All Members replied to " + url);
-    }
-
-    /**
-     * A method that decrements the operation ID because the request failed to execute.
-     * It is only accessed by the primary.
-     */
-    private void rollBackOperationId(int id) {
-        if (eventServiceDetails.isPrimary())
-            eventServiceDetails.decrementOperationId(id);
-    }
-
-    /**
-     * A method that wakes the thread up.
-     * Since thread will be in different objects then there is no way for 2 threads to be at 2 different methods
-     * at the same object, that is why notifyALL
-     */
-    public synchronized void wake() {
-        this.notifyAll();
-    }
-}
+package EventService;
+
+import Http.AckPolicy;
+import Http.GroupCommit;
+import Http.HttpResponse;
+import Http.JsonBody;
+import Http.JsonStreamWriter;
+import Http.OperationLog;
+import Http.ReplicationChannel;
+import Http.RetryPolicy;
+import Http.RouteMatch;
+import Http.Router;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * A class that handles all the requests sent by the clients only and returns the response back.
+ *
+ * @author Hassan Chadad
+ */
+public class ClientRequestParser {
+
+    private String jsonData;
+    private EventServiceDetails eventServiceDetails;
+    private SortedMap<Integer, String> replicatedMembers; // members the operation was streamed to ("-replication stream")
+    private CompletableFuture<Map<Integer, String>> replication; // their replies, waited after the locks are released
+    private CompletableFuture<Void> commit; // round of the operation ("-batchSize"), waited after the locks are released
+    private int partition = -1; // partition of the operation ("-partitions"), -1 if it needs all the partitions
+    private long[] sequences; // sequences of the operation in its partition(s), null without partitions
+    private long logged = -1; // end of the operation in the operation log ("-wal"), written to the disk after the locks are released
+    private final static Router<Api> router = Api.router(); // finds the apis of the operations of a round
+    private final static GroupCommit groupCommit = new GroupCommit(new GroupCommit.Replicator() {
+        @Override
+        public CompletableFuture<?> replicate(List<GroupCommit.Operation> round) throws Exception {
+            return replicateRound(round);
+        }
+    });
+    private final static Logger log = LogManager.getRootLogger(); // Log Object to print to the System.out.println file
+
+    /**
+     * Constructor
+     *
+     * @param jsonData
+     */
+    public ClientRequestParser(String jsonData) {
+        this.jsonData = jsonData;
+        eventServiceDetails = EventServiceDetails.getInstance("", "", 0, "");
+    }
+
+    /**
+     * A method that sends the request to the appropriate function depending on the api found by the router.
+     * If the api modifies the events and the member is primary then it will add the current thread and give it an operation ID,
+     * if the member is secondary the operation is applied in the order the primary executed it (apply queue)
+     *
+     * @param route
+     * @return response from method called
+     */
+    public String parse(RouteMatch<Api> route) {
+        String apiReq = route.getPath();
+        switch (route.getHandler()) {
+            case GET_EVENT: // return event with eventId
+                return eventServiceDetails.getEvent(route.getInt("eventId"));
+            case BATCH: // operations replicated together by the primary
+                return applyBatch();
+            case NOOP: // only sent by the primary to the secondaries
+                if (eventServiceDetails.isPrimary())
+                    return "400";
+                break;
+            default:
+                break;
+        }
+        String response;
+        if (eventServiceDetails.isPrimary()) {
+            partition = partitionOf(route);
+            eventServiceDetails.lockOperationThread(partition);
+            eventServiceDetails.lockSnapshotReadLock();
+            try {
+                eventServiceDetails.addOperationThread(this);
+                if (eventServiceDetails.getPartitions() > 1)
+                    sequences = eventServiceDetails.nextSequences(partition);
+                response = execute(route);
+            } finally {
+                eventServiceDetails.unlockSnapshotReadLock();
+            }
+        } else
+            response = applyInOrder(route);
+        syncLog(); // while the secondaries apply the operation
+        if (replication != null) // the operation was streamed, wait for the secondaries now that the next operations can start
+            checkReplies(replicatedMembers, replication.join(), apiReq); // at most the AckPolicy deadline, the late secondaries are dropped
+        if (commit != null) // the operation was added to a round, the client is answered when the round is replicated
+            commit.join(); // each round completes at most after the AckPolicy deadline
+        return response;
+    }
+
+    /**
+     * A method that executes an operation that modifies the events
+     *
+     * @param route
+     * @return response from method called
+     */
+    private String execute(RouteMatch<Api> route) {
+        String apiReq = route.getPath();
+        String response;
+        switch (route.getHandler()) {
+            case CREATE:
+                response = createEvent(apiReq);
+                break;
+            case PURCHASE:
+                response = purchaseTickets(apiReq, route.getInt("eventId"));
+                break;
+            case UPDATE:
+                response = updateEvent(apiReq, route.getInt("eventId"));
+                break;
+            case DELETE:
+                response = deleteEvent(apiReq, route.getInt("eventId"));
+                break;
+            case RETURN_TICKETS:
+                response = returnTickets(apiReq, route.getInt("tickets"));
+                break;
+            case NOOP:
+                response = skipOperation(apiReq);
+                break;
+            default:
+                response = "400";
+        }
+        return response;
+    }
+
+    /**
+     * A method that applies the no-op the primary sent for an operation it aborted, the secondary only moves to the
+     * next operation. It is only accessed by the secondaries.
+     *
+     * @param request
+     * @return empty string (success) - 400 (failure)
+     */
+    private String skipOperation(String request) {
+        try {
+            JSONParser parser = new JSONParser();
+            logOperation(request, (JSONObject) parser.parse(jsonData));
+            operationApplied();
+            return "";
+        } catch (Exception e) {
+            log.debug(e);
+            return "400";
+        }
+    }
+
+    /**
+     * A method that appends an applied operation to the operation log ("-wal") while the operation holds its locks,
+     * so the log has the order the operations were applied in
+     *
+     * @param request
+     * @param jsonObject - operation with its operation ID
+     */
+    private void logOperation(String request, JSONObject jsonObject) {
+        OperationLog operationLog = OperationLog.getDefault();
+        if (operationLog == null)
+            return;
+        try {
+            int opId = ((Number) jsonObject.get("operationId")).intValue();
+            logged = operationLog.append(opId, request, jsonObject.toJSONString());
+        } catch (IOException e) {
+            log.debug(e);
+            System.out.println("Unable to write " + request + " to the operation log");
+        }
+    }
+
+    /**
+     * A method that writes the logged operation to the disk, depending on the "-walSync" policy it waits till it is
+     * on the disk. It is called after the locks are released so the operations waiting at the same time share one write.
+     */
+    private void syncLog() {
+        if (logged < 0)
+            return;
+        try {
+            OperationLog.getDefault().sync(logged);
+        } catch (IOException e) {
+            log.debug(e);
+            System.out.println("Unable to sync the operation log");
+        }
+    }
+
+    /**
+     * A method that applies an operation read from the operation log when the service starts, before it accepts
+     * requests. Only the events map of this member changes (the user service has its own log), then the operation ID
+     * and the sequences move to the next operation like on a secondary.
+     *
+     * @param path     - client api without the first slash
+     * @param jsonData - operation with its operation ID
+     * @throws Exception if the operation is unknown
+     */
+    static void replay(String path, String jsonData) throws Exception {
+        EventServiceDetails eventServiceDetails = EventServiceDetails.getInstance("", "", 0, "");
+        RouteMatch<Api> route = router.match("POST", path);
+        if (route == null)
+            throw new IOException("Unknown operation " + path);
+        JSONParser parser = new JSONParser();
+        JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
+        switch (route.getHandler()) {
+            case CREATE:
+                eventServiceDetails.createEvent((String) jsonObject.get("eventname"), jsonObject.get("userid") + "",
+                        jsonObject.get("numtickets") + "");
+                break;
+            case PURCHASE:
+                eventServiceDetails.purchaseTickets(route.getInt("eventId"), ((Long) jsonObject.get("tickets")).intValue(),
+                        ((Long) jsonObject.get("userid")).intValue());
+                break;
+            case UPDATE:
+                String eventName = jsonObject.get("eventname") == null ? "" : ((String) jsonObject.get("eventname")).trim();
+                Long additionalTickets = (Long) jsonObject.get("additionaltickets");
+                eventServiceDetails.updateEvent(route.getInt("eventId"), eventName, jsonObject.get("userid") + "",
+                        additionalTickets == null ? 0 : additionalTickets.intValue());
+                break;
+            case DELETE:
+                eventServiceDetails.deleteEvent(route.getInt("eventId"), jsonObject.get("userid") + "");
+                break;
+            case RETURN_TICKETS:
+                eventServiceDetails.rollBackTickets(((Long) jsonObject.get("eventid")).intValue(), route.getInt("tickets"),
+                        ((Long) jsonObject.get("userid")).intValue());
+                break;
+            default: // noop
+                break;
+        }
+        ClientRequestParser replayed = new ClientRequestParser(jsonData);
+        replayed.readSequences(jsonObject);
+        replayed.operationApplied();
+    }
+
+    /**
+     * A method called by a secondary that adds an operation sent by the primary to the apply queue of its partition
+     * (or of the operation IDs) and waits till the applier thread executed it after the operations before it.
+     * An operation the secondary already applied (sent again after a failure) is not executed again.
+     *
+     * @param route
+     * @return response of the operation - 400 if it has no operation ID
+     */
+    private String applyInOrder(final RouteMatch<Api> route) {
+        try {
+            JSONParser parser = new JSONParser();
+            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
+            readSequences(jsonObject);
+            Long operationId = (Long) jsonObject.get("operationId");
+            if (operationId == null) // not sent by the primary
+                return "400";
+            return eventServiceDetails.apply(partition, sequences, operationId.intValue(), new Callable<String>() {
+                @Override
+                public String call() {
+                    eventServiceDetails.lockSnapshotReadLock();
+                    try {
+                        return execute(route);
+                    } finally {
+                        eventServiceDetails.unlockSnapshotReadLock();
+                    }
+                }
+            });
+        } catch (Exception e) {
+            log.debug(e);
+            return "400";
+        }
+    }
+
+    /**
+     * A method that returns the response of the apis that list events (list and search).
+     * The events are written to the client while iterating instead of building the whole json array first.
+     * These apis don't require locking operation (not passing to secondaries).
+     *
+     * @param route
+     * @return streamed response - 400 response if the search data is wrong - null if the api doesn't list events
+     */
+    public HttpResponse stream(RouteMatch<Api> route) {
+        switch (route.getHandler()) {
+            case LIST:
+                return HttpResponse.stream(new JsonBody() {
+                    @Override
+                    public void writeTo(JsonStreamWriter json) throws IOException {
+                        eventServiceDetails.writeEventList(json);
+                    }
+                });
+            case SEARCH:
+                final SortedMap<Integer, String[]> events = searchEvent();
+                if (events == null)
+                    return HttpResponse.badRequest();
+                return HttpResponse.stream(new JsonBody() {
+                    @Override
+                    public void writeTo(JsonStreamWriter json) throws IOException {
+                        EventServiceDetails.writeEvents(json, events);
+                    }
+                });
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * A thread safe method that parses the jsonData and passes the extracted values to searchEvents method and return
+     * all matched events.
+     *
+     * @return matched event map - null if the json data is wrong
+     */
+    private SortedMap<Integer, String[]> searchEvent() {
+        try {
+            JSONParser parser = new JSONParser();
+            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
+
+            String keywords = (String) jsonObject.get("keywords");
+            String availJson = (String) jsonObject.get("avail");
+            int avail = Integer.parseInt(availJson);
+            keywords = keywords.trim();
+            return eventServiceDetails.searchEvents(keywords, avail);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * A thread safe method that creates a new event and adds it to the EventMap,
+     * then if the member is primary it passes the client request to all secondaries with the operation ID and waits for
+     * a response back. On success the primary deletes the operation thread, while secondary increments operation ID
+     * Then it returns a response to the client.
+     *
+     * @param request
+     * @return event ID json format (success) - 400 (failure)
+     */
+    private String createEvent(String request) {
+        boolean success = false;
+        int opId = -1;
+        try {
+            JSONParser parser = new JSONParser();
+            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
+
+            eventServiceDetails.lockWriteLock();
+
+            long userId = (Long) jsonObject.get("userid");
+            String eventName = (String) jsonObject.get("eventname");
+            long numTickets = (Long) jsonObject.get("numtickets");
+            if (eventName.length() == 0)
+                return "400";
+            if (numTickets <= 0)
+                return "400";
+
+            /* for demonstration purpose only */
+            if (!eventServiceDetails.isPrimary())
+                System.out.println("/create excuted of id " + eventServiceDetails.getOperationId());
+            else {
+                opId = eventServiceDetails.getOperationIdForCurrent(this);
+                System.out.println("/create excuted of id " + opId);
+            }
+            /* ----------------------- */
+
+            if (userExists(userId)) {
+                String result = eventServiceDetails.createEvent(eventName, userId + "", numTickets + "");
+                if (result.equals("400"))
+                    return "400";
+                if (eventServiceDetails.isPrimary()) {
+                    opId = eventServiceDetails.getOperationIdForCurrent(this);
+                    if (opId > -1) {
+                        jsonObject.put("operationId", opId);
+                        putSequences(jsonObject);
+                        logOperation(request, jsonObject);
+                        sendMultiRequests(request, "POST", jsonObject.toJSONString(), opId);
+                        success = true;
+                    }
+                } else {
+                    logOperation(request, jsonObject);
+                    operationApplied();
+                    success = true;
+                }
+                return result;
+            } else {
+                return "400";
+            }
+        } catch (Exception e) {
+            log.debug(e);
+            return "400";
+        } finally {
+            try {
+                if (!success) // if primary failed to execute the operation, it will replicate a no-op instead
+                    abortOperation();
+                eventServiceDetails.unlockWriteLock(); // release the lock
+                if (eventServiceDetails.isPrimary()) {
+                    eventServiceDetails.unlockOperationThread(partition);
+                }
+            } catch (Exception e) {
+                log.debug(e);
+            }
+        }
+
+    }
+
+    /**
+     * A thread safe method that deletes an event from the EventMap, then if the member is primary it sends a user a delete request
+     * then it passes the client request to all secondaries with the operation ID and waits for a response back.
+     * On success the primary deletes the operation thread, while secondary increments operation ID
+     * Then it returns a response to the client.
+     *
+     * @param request
+     * @param eventId
+     * @return event ID json format (success) - 400 (failure)
+     */
+    private String deleteEvent(String request, int eventId) {
+        boolean success = false;
+        int opId = -1;
+        try {
+            JSONParser parser = new JSONParser();
+            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
+
+            eventServiceDetails.lockWriteLock();
+
+            long userId = (Long) jsonObject.get("userid");
+            if (userId <= 0)
+                return "400";
+
+            /* for demonstration purpose only */
+            if (!eventServiceDetails.isPrimary())
+                System.out.println("/delete event excuted of id " + eventServiceDetails.getOperationId());
+            else {
+                opId = eventServiceDetails.getOperationIdForCurrent(this);
+                System.out.println("/delete event excuted of id " + opId);
+            }
+            /* ----------------------- */
+
+            RequestSender requestSender = new RequestSender();
+            SortedMap<Integer, String[]> backupMap = eventServiceDetails.deleteEvent(eventId, userId + "");
+            if (backupMap == null)
+                return "400";
+            boolean userTicketDeleteReq = true;
+            String url = eventServiceDetails.getPrimaryUserHost() + "/delete-tickets";
+            if (eventServiceDetails.isPrimary()) { // prevent secondaries from updating user tickets on purchase
+                JSONObject jsonPar = new JSONObject();
+                jsonPar.put("eventid", eventId);
+                userTicketDeleteReq = requestSender.sendRequestBool(url, "POST", jsonPar.toJSONString());
+            }
+            if (userTicketDeleteReq) { // all users deleted the tickets for the deleted event
+                if (eventServiceDetails.isPrimary()) {
+                    if (opId > -1) {
+                        jsonObject.put("operationId", opId);
+                        putSequences(jsonObject);
+                        logOperation(request, jsonObject);
+                        sendMultiRequests(request, "POST", jsonObject.toJSONString(), opId);
+                        success = true;
+                    }
+                } else {
+                    logOperation(request, jsonObject);
+                    operationApplied();
+                    success = true;
+                }
+                return "";
+            } else { // if I wasn't able to delete tickets in the user then restore previous event
+                eventServiceDetails.restoreBackupEvent(backupMap);
+                return "400";
+            }
+        } catch (Exception e) {
+            log.debug(e);
+            return "400";
+        } finally {
+            try {
+                if (!success) // if primary failed to execute the operation, it will replicate a no-op instead
+                    abortOperation();
+                eventServiceDetails.unlockWriteLock(); // release the lock
+                if (eventServiceDetails.isPrimary()) {
+                    eventServiceDetails.unlockOperationThread(partition);
+                }
+            } catch (Exception e) {
+                log.debug(e);
+            }
+        }
+    }
+
+    /**
+     * A thread safe method that creates a new event and adds it to the EventMap,
+     * then if the member is primary it passes the client request to all secondaries with the operation ID and waits for
+     * a response back. On success the primary deletes the operation thread, while secondary increments operation ID
+     * Then it returns a response to the client.
+     *
+     * @param request
+     * @param eventId
+     * @return event ID json format (success) - 400 (failure)
+     */
+    private String updateEvent(String request, int eventId) {
+        boolean success = false;
+        int opId = -1;
+        try {
+            JSONParser parser = new JSONParser();
+            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
+
+            eventServiceDetails.lockWriteLock();
+
+            long userId = (Long) jsonObject.get("userid");
+
+            // check if the user sent at least 1 attribute to update, if not then return 400
+            if (jsonObject.get("eventname") == null && jsonObject.get("additionaltickets") == null)
+                return "400";
+
+            String eventName = "";
+            if (jsonObject.get("eventname") != null) { // check if the client sent an eventname, it means s/he wants to update it
+                eventName = (String) jsonObject.get("eventname");
+                eventName = eventName.trim();
+                if (eventName.length() == 0)
+                    return "400";
+            }
+
+            long additionalTickets = 0;
+            if (jsonObject.get("additionaltickets") != null) { // check if the client sent an tickets, it means s/he wants to add more tickets
+                additionalTickets = (Long) jsonObject.get("additionaltickets");
+                if (additionalTickets <= 0)
+                    return "400";
+            }
+
+            /* for demonstration purpose only */
+            if (!eventServiceDetails.isPrimary())
+                System.out.println("/update excuted of id " + eventServiceDetails.getOperationId());
+            else {
+                opId = eventServiceDetails.getOperationIdForCurrent(this);
+                System.out.println("/update excuted of id " + opId);
+            }
+            /* ----------------------- */
+
+            if (userExists(userId)) {
+                String result = eventServiceDetails.updateEvent(eventId, eventName, userId + "", (int) additionalTickets);
+                if (result.equals("400"))
+                    return "400";
+                if (eventServiceDetails.isPrimary()) {
+                    opId = eventServiceDetails.getOperationIdForCurrent(this);
+                    if (opId > -1) {
+                        jsonObject.put("operationId", opId);
+                        putSequences(jsonObject);
+                        logOperation(request, jsonObject);
+                        sendMultiRequests(request, "POST", jsonObject.toJSONString(), opId);
+                        success = true;
+                    }
+                } else {
+                    logOperation(request, jsonObject);
+                    operationApplied();
+                    success = true;
+                }
+                return result;
+            } else {
+                return "400";
+            }
+        } catch (Exception e) {
+            log.debug(e);
+            return "400";
+        } finally {
+            try {
+                if (!success) // if primary failed to execute the operation, it will replicate a no-op instead
+                    abortOperation();
+                eventServiceDetails.unlockWriteLock(); // release the lock
+                if (eventServiceDetails.isPrimary()) {
+                    eventServiceDetails.unlockOperationThread(partition);
+                }
+            } catch (Exception e) {
+                log.debug(e);
+            }
+        }
+
+    }
+
+    /**
+     * A thread safe method that updates the tickets of an event. Then on success it will pass the purchase request
+     * to the secondaries otherwise it will rollback.
+     *
+     * @param request
+     * @param requestEventId - event id in the api
+     * @return empty string (success) - 400 (failure)
+     */
+    private String purchaseTickets(String request, int requestEventId) {
+        boolean success = false;
+        int key = -1;
+        int operId = -1;
+        try {
+            JSONParser parser = new JSONParser();
+            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
+
+            long userId = (Long) jsonObject.get("userid");
+            long jsonEventId = (Long) jsonObject.get("eventid");
+            long purchasedTickets = (Long) jsonObject.get("tickets");
+
+            if (!eventServiceDetails.lockEventListWriteLock((int) jsonEventId)) // lock the purchase on specific event
+                return "400";
+            key = (int) jsonEventId;
+
+            if (requestEventId != jsonEventId) // check if event id in API = event id in JSON body
+                return "400";
+            // the user service checks that the user exists while it holds the lock of the user and adds the tickets,
+            // so the purchase needs a single round trip, the secondaries apply what the primary already validated
+            String url = eventServiceDetails.getPrimaryUserHost() + "/" + userId + "/tickets/add";
+            RequestSender requestSender = new RequestSender();
+            JSONObject jsonPar = new JSONObject();
+            jsonPar.put("eventid", requestEventId);
+            jsonPar.put("tickets", purchasedTickets);
+
+                /* for demonstration purpose only */
+            if (!eventServiceDetails.isPrimary())
+                System.out.println("/purchase excuted of id " + eventServiceDetails.getOperationId());
+            else {
+                operId = eventServiceDetails.getOperationIdForCurrent(this);
+                System.out.println("/purchase excuted of id " + operId);
+            }
+            // purchase is successfully added in the event map
+            if (eventServiceDetails.purchaseTickets(requestEventId, (int) purchasedTickets,(int)userId).equals("")) {
+                boolean userPurchaseReq = true;
+                if (eventServiceDetails.isPrimary()) // prevent secondaries from updating user tickets on purchase
+                    userPurchaseReq = requestSender.sendRequestBool(url, "POST", jsonPar.toJSONString());
+                if (userPurchaseReq) { // update purchase in user
+                    if (eventServiceDetails.isPrimary()) {
+                        eventServiceDetails.addKnownUser(userId); // the user service found the user
+                        int opId = eventServiceDetails.getOperationIdForCurrent(this);
+                        if (opId > -1) {
+                            jsonObject.put("operationId", opId);
+                            putSequences(jsonObject);
+                            logOperation(request, jsonObject);
+                            sendMultiRequests(request, "POST", jsonObject.toJSONString(), opId);
+                            success = true;
+                        }
+                    } else {
+                        logOperation(request, jsonObject);
+                        operationApplied();
+                        success = true;
+                    }
+                    return "";
+                } else { // if I wasn't able to update the user then roll back tickets
+                    eventServiceDetails.rollBackTickets(requestEventId, (int) purchasedTickets, (int) userId).equals("");
+                    return "400";
+                }
+            } else
+                return "400";
+        } catch (Exception e) {
+            return "400";
+        } finally {
+            try {
+                if (!success)
+                    abortOperation();
+                eventServiceDetails.unlockEventListWriteLock(key);
+                if (eventServiceDetails.isPrimary()) {
+                    eventServiceDetails.unlockOperationThread(partition);
+                }
+            } catch (Exception e) {
+                log.debug(e);
+            }
+        }
+    }
+
+    /**
+     * A thread safe method that adds back tickets to an event. Then on success it will pass the purchase request
+     * to the secondaries otherwise it will rollback.
+     *
+     * @param request
+     * @param tickets - number of tickets in the api
+     * @return empty string (success) - 400 (failure)
+     */
+    private String returnTickets(String request, int tickets) {
+        boolean success = false;
+        int key = -1;
+        int operId = -1;
+        try {
+            JSONParser parser = new JSONParser();
+            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
+
+            long eventId = (Long) jsonObject.get("eventid");
+            long userId = (Long) jsonObject.get("userid");
+            if (!eventServiceDetails.lockEventListWriteLock((int) eventId)) // lock the return of tickets on specific event
+                return "400";
+            key = (int) eventId;
+
+            /* for demonstration purpose only */
+            if (!eventServiceDetails.isPrimary())
+                System.out.println("/return tickets excuted of id " + eventServiceDetails.getOperationId());
+            else {
+                operId = eventServiceDetails.getOperationIdForCurrent(this);
+                System.out.println("/return tickets excuted of id " + operId);
+            }
+            // purchase is successfully added in the event map
+            if (eventServiceDetails.rollBackTickets((int) eventId, tickets, (int) userId).equals("")) {
+                if (eventServiceDetails.isPrimary()) {
+                    int opId = eventServiceDetails.getOperationIdForCurrent(this);
+                    if (opId > -1) {
+                        jsonObject.put("operationId", opId);
+                        putSequences(jsonObject);
+                        logOperation(request, jsonObject);
+                        sendMultiRequests(request, "POST", jsonObject.toJSONString(), opId);
+                        success = true;
+                    }
+                } else {
+                    logOperation(request, jsonObject);
+                    operationApplied();
+                    success = true;
+                }
+                return "";
+            } else
+                return "400";
+        } catch (Exception e) {
+            return "400";
+        } finally {
+            try {
+                if (!success)
+                    abortOperation();
+                eventServiceDetails.unlockEventListWriteLock(key);
+                if (eventServiceDetails.isPrimary()) {
+                    eventServiceDetails.unlockOperationThread(partition);
+                }
+            } catch (Exception e) {
+                log.debug(e);
+            }
+        }
+    }
+
+    /**
+     * A method that checks if a user exists, the user service is asked only if the user is not in the cache
+     * of known users (a repeat buyer doesn't cost a request)
+     *
+     * @param userId
+     * @return true if the user exists
+     */
+    private boolean userExists(long userId) {
+        if (eventServiceDetails.isKnownUser(userId))
+            return true;
+        RequestSender requestSender = new RequestSender();
+        if (!requestSender.sendRequestBool(eventServiceDetails.getPrimaryUserHost() + "/" + userId, "GET", ""))
+            return false;
+        eventServiceDetails.addKnownUser(userId);
+        return true;
+    }
+
+    /**
+     * A method that returns the partition of an operation on the primary, the operations on an event use the partition
+     * of the event and the ones that add or remove events (create, delete) need all the partitions so they are ordered
+     * with every operation
+     *
+     * @param route
+     * @return partition - -1 if the operation needs all the partitions or there is only one
+     */
+    private int partitionOf(RouteMatch<Api> route) {
+        if (eventServiceDetails.getPartitions() == 1)
+            return -1;
+        try {
+            switch (route.getHandler()) {
+                case PURCHASE:
+                case UPDATE:
+                    return eventServiceDetails.partitionOf(route.getInt("eventId"));
+                case RETURN_TICKETS:
+                    JSONObject jsonObject = (JSONObject) new JSONParser().parse(jsonData);
+                    return eventServiceDetails.partitionOf(((Long) jsonObject.get("eventid")).intValue());
+                default:
+                    return -1;
+            }
+        } catch (Exception e) { // the operation fails later, order it with everything
+            return -1;
+        }
+    }
+
+    /**
+     * A method that adds the partition and the sequences of the operation to the json passed to the secondaries
+     *
+     * @param jsonObject
+     */
+    private void putSequences(JSONObject jsonObject) {
+        if (sequences == null)
+            return;
+        JSONArray array = new JSONArray();
+        for (long sequence : sequences)
+            array.add(sequence);
+        jsonObject.put("partition", partition);
+        jsonObject.put("sequences", array);
+    }
+
+    /**
+     * A method that reads the partition and the sequences of an operation sent by the primary
+     *
+     * @param jsonObject
+     * @return true if the primary uses partitions
+     */
+    private boolean readSequences(JSONObject jsonObject) {
+        JSONArray array = (JSONArray) jsonObject.get("sequences");
+        if (array == null)
+            return false;
+        partition = ((Long) jsonObject.get("partition")).intValue();
+        sequences = new long[array.size()];
+        for (int i = 0; i < sequences.length; i++)
+            sequences[i] = (Long) array.get(i);
+        return true;
+    }
+
+    /**
+     * A method called by a secondary after applying an operation, it increments the operation ID
+     * and the sequences of the partition(s) of the operation
+     */
+    private void operationApplied() {
+        if (sequences != null)
+            eventServiceDetails.advanceSequences(partition);
+        eventServiceDetails.incrementOperationId();
+    }
+
+    /**
+     * A method that passes the client url to all the seconday members to guarantee replication.
+     * In stream mode the operation is written to the replication channel of each secondary and the replies are waited
+     * by parse after the operation releases its locks, so the next operations are pipelined behind it.
+     * The client is answered when the secondaries required by the AckPolicy applied the operation.
+     * With group commit the operation is added to the next round and parse waits for the round the same way.
+     *
+     * @param url
+     * @param method
+     * @param jsonData
+     * @param operationId
+     * @throws Exception
+     */
+    private void sendMultiRequests(String url, String method, String jsonData, int operationId) throws Exception {
+        SortedMap<Integer, String> map = eventServiceDetails.getMembershipMap();
+        if (map.size() > 1 && GroupCommit.isEnabled()) { // sent with the other operations of its round
+            commit = groupCommit.add(operationId, url, jsonData);
+            return;
+        }
+        if (map.size() > 1) { // one is the primary so everything after one will be secondary
+            log.debug(url + " start sending operation to all members / size" + map.size());
+            Map<Integer, CompletableFuture<String>> replies = new LinkedHashMap<>();
+            String myHost = eventServiceDetails.getHost();
+            for (int key : map.keySet()) {
+                    /* skip sending to myself */
+                if (!myHost.equals(map.get(key))) {
+                    //log.debug(map.get(key) + url + "," + method + "," + jsonData);
+                    if (ReplicationChannel.isEnabled())
+                        replies.put(key, ReplicationChannel.get(map.get(key)).send("/" + url, jsonData, myHost));
+                    else
+                        replies.put(key, AsyncRequestSender.sendInternalRequest(map.get(key) + "/" + url, method, jsonData));
+                }
+            }
+            if (ReplicationChannel.isEnabled()) {
+                replicatedMembers = map;
+                replication = AckPolicy.await(map, replies, lateReplies(map, url));
+                return;
+            }
+            checkReplies(map, AckPolicy.await(map, replies, lateReplies(map, url)).join(), url);
+        }
+        log.debug("All Members replied to " + url);
+    }
+
+    /**
+     * A method that sends a round of operations to all the secondary members, one request per secondary.
+     * A round of one operation is sent as its client request, a bigger one is sent to the batch api.
+     * The replies are checked when the secondaries required by the AckPolicy replied.
+     *
+     * @param round - operations in operation ID order
+     * @return future completed after the replies are checked
+     * @throws Exception
+     */
+    private static CompletableFuture<?> replicateRound(List<GroupCommit.Operation> round) throws Exception {
+        EventServiceDetails eventServiceDetails = EventServiceDetails.getInstance("", "", 0, "");
+        final SortedMap<Integer, String> map = eventServiceDetails.getMembershipMap();
+        GroupCommit.Operation last = round.get(round.size() - 1);
+        final String url = round.size() == 1 ? last.getPath() : GroupCommit.PATH;
+        String jsonData = round.size() == 1 ? last.getJsonData() : GroupCommit.toJson(round);
+        log.debug(url + " start sending " + round.size() + " operations to all members / size" + map.size());
+        Map<Integer, CompletableFuture<String>> replies = new LinkedHashMap<>();
+        String myHost = eventServiceDetails.getHost();
+        for (int key : map.keySet()) {
+            if (!myHost.equals(map.get(key))) {
+                if (ReplicationChannel.isEnabled())
+                    replies.put(key, ReplicationChannel.get(map.get(key)).send("/" + url, jsonData, myHost));
+                else
+                    replies.put(key, AsyncRequestSender.sendInternalRequest(map.get(key) + "/" + url, "POST", jsonData));
+            }
+        }
+        return AckPolicy.await(map, replies, lateReplies(map, url)).thenAccept(new Consumer<Map<Integer, String>>() {
+            @Override
+            public void accept(Map<Integer, String> responses) {
+                checkReplies(map, responses, url);
+            }
+        });
+    }
+
+    /**
+     * A method that applies the operations of a round sent by the primary, one after the other in the order of their
+     * operation IDs. The apply queue skips the operations already applied, so a round sent again after a failure is applied once.
+     * It is only accessed by the secondaries.
+     *
+     * @return empty string (success) - 400 (failure)
+     */
+    private String applyBatch() {
+        if (eventServiceDetails.isPrimary())
+            return "400";
+        try {
+            JSONParser parser = new JSONParser();
+            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
+            return applyOperations((JSONArray) jsonObject.get("operations"));
+        } catch (Exception e) {
+            log.debug(e);
+            return "400";
+        }
+    }
+
+    /**
+     * A method that applies operations sent by the primary one after the other: the operations of a round, or the ones
+     * a member that joins again missed. The operation log is synced once for all of them.
+     * It is only accessed by the secondaries.
+     *
+     * @param operations - [{"path", "data"}]
+     * @return empty string (success) - 400 (failure)
+     */
+    String applyOperations(JSONArray operations) {
+        for (Object item : operations) {
+            JSONObject operation = (JSONObject) item;
+            JSONObject data = (JSONObject) operation.get("data");
+            RouteMatch<Api> route = router.match("POST", (String) operation.get("path"));
+            if (route == null || route.getHandler() == Api.BATCH)
+                return "400";
+            ClientRequestParser operationParser = new ClientRequestParser(data.toJSONString());
+            String response = operationParser.applyInOrder(route);
+            logged = Math.max(logged, operationParser.logged);
+            if (response.equals("400"))
+                return "400";
+        }
+        syncLog(); // once for all the operations
+        return "";
+    }
+
+    /**
+     * A method that returns the checker of the replies that come after the client was answered (AckPolicy)
+     *
+     * @param map - members the operation was sent to
+     * @param url
+     * @return checker of the late replies
+     */
+    private static Consumer<Map<Integer, String>> lateReplies(final SortedMap<Integer, String> map, final String url) {
+        return new Consumer<Map<Integer, String>>() {
+            @Override
+            public void accept(Map<Integer, String> responses) {
+                checkReplies(map, responses, url);
+            }
+        };
+    }
+
+    /**
+     * A method that checks the replies of the secondaries, if the response was an error it means that the member
+     * is dead so delete it. A member that was never ready (retries exhausted) or rejected the operation missed it,
+     * so it is dropped too.
+     *
+     * @param map       - members the operation was sent to
+     * @param responses - member key -> reply
+     * @param url
+     */
+    private static void checkReplies(SortedMap<Integer, String> map, Map<Integer, String> responses, String url) {
+        EventServiceDetails eventServiceDetails = EventServiceDetails.getInstance("", "", 0, "");
+        for (int key : responses.keySet()) {
+            if ("error".equals(responses.get(key))) { // member is dead
+                eventServiceDetails.deleteMember(map.get(key)); // delete member
+                ReplicationChannel.close(map.get(key));
+                AckPolicy.remove(map.get(key));
+                System.out.println(map.get(key) + " is dead.");
+            } else if (RetryPolicy.EXHAUSTED.equals(responses.get(key))) { // member is out of sync
+                eventServiceDetails.deleteMember(map.get(key)); // delete member
+                ReplicationChannel.close(map.get(key));
+                AckPolicy.remove(map.get(key));
+                System.out.println(map.get(key) + " did not apply " + url + ", it is dropped.");
+            }
+        }
+    }
+
+    /**
+     * A method called when the request failed to execute. The operation ID and the sequences of the operation are
+     * never given again (the next operations may already have theirs), so the primary replicates a no-op with them
+     * and the secondaries apply the next operations without waiting for this one.
+     * It is only accessed by the primary.
+     */
+    private void abortOperation() {
+        if (!eventServiceDetails.isPrimary())
+            return;
+        int opId = eventServiceDetails.getOperationIdForCurrent(this);
+        if (opId < 0)
+            return;
+        eventServiceDetails.removeOperationThread(opId);
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("operationId", opId);
+        putSequences(jsonObject);
+        logOperation("noop", jsonObject);
+        try {
+            sendMultiRequests("noop", "POST", jsonObject.toJSONString(), opId);
+        } catch (Exception e) {
+            log.debug(e);
+        }
+    }
+}
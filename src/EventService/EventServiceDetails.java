@@ -1,1109 +1,1879 @@
-package EventService;
-
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.JSONValue;
-
-import java.util.ArrayList;
-import java.util.SortedMap;
-import java.util.TreeMap;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-
-/**
- * A singleton class that contains all the details about an event member
- *
- * @author Hassan Chadad
- */
-public class EventServiceDetails {
-
-    private static volatile EventServiceDetails instance;
-
-    private boolean isPrimary; // when service is primary this is true
-    private boolean newPrimaryElected; // variable to check if new primary elected
-    private int port; // current service port
-    private int eventId; // event id auto incremented
-    private int memberId; // auto incremented
-    private int operationId; // this is timestamp (operation ID)
-    private String host, primaryUserHost; // current service host
-    private String primaryEventHost;
-    private SortedMap<Integer, String> membershipMap; // map storing all members with their IDs.
-    private ArrayList<String> frontEndList; // list of front ends
-    private SortedMap<Integer, ClientRequestParser> operationMap; // map to handle multiple operation threads
-    private SortedMap<Integer, String[]> eventMap; // save created events' info in a map
-    private SortedMap<Integer, SortedMap<Integer, Integer>> userTicketMap; // save users' tickets in a map <userid, <eventid, nb of Tickets>>
-    private ReentrantReadWriteLock readWriteLockMember; // to ensure thread safety on member map
-    private ReentrantReadWriteLock readWriteLockFE; // to ensure thread safety on Front end list
-    private ReentrantReadWriteLock readWriteLockEventMap; // to ensure thread safety on event map
-    private SortedMap<Integer, ReentrantReadWriteLock> eventMapLocks; // to ensure thread safety on different level of accessing event map
-    private ReentrantReadWriteLock readWriteLockOperation; // to ensure thread safety on operation
-    private ReentrantReadWriteLock readWriteLockOperationThread; // to ensure thread safety on executing operation threads
-    private final static Logger log = LogManager.getRootLogger(); // Log Object to print to the file
-
-    /**
-     * Private Constructor
-     *
-     * @param host
-     * @param primaryEventHost
-     * @param port
-     */
-    private EventServiceDetails(String host, String primaryEventHost, int port, String primaryUserHost) {
-        this.port = port;
-        this.host = host;
-        this.primaryEventHost = primaryEventHost;
-        this.primaryUserHost = primaryUserHost;
-        isPrimary = false;
-        newPrimaryElected = true;
-        memberId = 0;
-        operationId = 0;
-        eventId = 0;
-        operationMap = new TreeMap<>();
-        membershipMap = new TreeMap<>();
-        frontEndList = new ArrayList<>();
-        eventMap = new TreeMap<>();
-        userTicketMap = new TreeMap<>();
-        eventMapLocks = new TreeMap<>();
-        readWriteLockMember = new ReentrantReadWriteLock();
-        readWriteLockFE = new ReentrantReadWriteLock();
-        readWriteLockOperation = new ReentrantReadWriteLock();
-        readWriteLockEventMap = new ReentrantReadWriteLock();
-        readWriteLockOperationThread = new ReentrantReadWriteLock();
-    }
-
-    /**
-     * A method that guarantees singleton mechanism
-     *
-     * @param host
-     * @param primaryEventHost
-     * @param port
-     * @return
-     */
-    public static EventServiceDetails getInstance(String host, String primaryEventHost, int port, String primaryUserHost) {
-        if (instance == null) {
-            synchronized (EventServiceDetails.class) {
-                if (instance == null)
-                    instance = new EventServiceDetails(host, primaryEventHost, port, primaryUserHost);
-            }
-        }
-        return instance;
-    }
-
-    /**
-     * Set method
-     *
-     * @param status for isPrimary
-     */
-    public void setPrimary(boolean status) {
-        isPrimary = status;
-    }
-
-    /**
-     * Get method
-     *
-     * @return isPrimary
-     */
-    public boolean isPrimary() {
-        return isPrimary;
-    }
-
-    /**
-     * Get method
-     *
-     * @return port
-     */
-    public int getPort() {
-        return port;
-    }
-
-    /**
-     * Get method
-     *
-     * @return host
-     */
-    public String getHost() {
-        return host;
-    }
-
-    /**
-     * Get method
-     *
-     * @return primaryEvent Host
-     */
-    public String getPrimaryUserHost() {
-        return primaryUserHost;
-    }
-
-    /**
-     * Set method
-     *
-     * @param primaryUserHost
-     */
-    public void setPrimaryUserHost(String primaryUserHost) {
-        this.primaryUserHost = primaryUserHost;
-    }
-
-    /**
-     * A thread safe Get method
-     *
-     * @return newPrimaryElected
-     */
-    public synchronized boolean isNewPrimaryElected() {
-        return newPrimaryElected;
-    }
-
-    /**
-     * A thread safe Set method for newPrimaryElected
-     *
-     * @param status
-     */
-    public synchronized void setNewPrimaryElected(boolean status) {
-        newPrimaryElected = status;
-    }
-
-    /* Operation Code */
-
-    /**
-     * A thread safe method that increments the operation ID and wakes the thread waiting on the new
-     * incremented ID
-     */
-    public void incrementOperationId() {
-        try {
-            readWriteLockOperation.writeLock().lock();
-            operationId++;
-            if (operationMap.get(operationId) != null)
-                operationMap.get(operationId).wakeThread(); // throws error if ID > size
-        } catch (Exception e) {
-            log.debug(e);
-        } finally {
-            readWriteLockOperation.writeLock().unlock();
-        }
-    }
-
-    /**
-     * A thread safe method that decrements operation ID if operation failed
-     */
-    public void decrementOperationId(int opId) {
-        readWriteLockOperation.writeLock().lock();
-        operationMap.remove(opId);
-        System.out.println("Deleting operation " + opId); // for demonstration
-        operationId--;
-        if (operationId < 0)
-            operationId = 0;
-        readWriteLockOperation.writeLock().unlock();
-    }
-
-    /**
-     * A thread safe Set method for operation ID
-     *
-     * @param id
-     */
-    public void setOperationId(int id) {
-        readWriteLockOperation.writeLock().lock();
-        operationId = id;
-        System.out.println("OperationId is reset");
-        readWriteLockOperation.writeLock().unlock();
-    }
-
-    /**
-     * A thread safe Get method
-     *
-     * @return operation ID
-     */
-    public int getOperationId() {
-        try {
-            readWriteLockOperation.readLock().lock();
-            return operationId;
-        } catch (Exception e) {
-            log.debug(e);
-            return -1;
-        } finally {
-            readWriteLockOperation.readLock().unlock();
-        }
-    }
-
-    /**
-     * A thread safe method that parses the last operation ID in a JSONArray and return it
-     *
-     * @return JSONArray
-     */
-    private JSONArray getOperationIdJson() {
-        try {
-            readWriteLockOperation.readLock().lock();
-            JSONArray jsonArray = new JSONArray();
-            JSONObject jsonObject = new JSONObject();
-            jsonObject.put("id", operationId);
-            jsonArray.add(jsonObject); // add json object to json list
-            return jsonArray;
-        } catch (Exception e) {
-            log.debug(e);
-            return null;
-        } finally {
-            readWriteLockOperation.readLock().unlock();
-        }
-    }
-
-    /**
-     * A thread safe method that checks the clientRequestParser object in operationMap
-     * and returns its key (operation ID) on match
-     *
-     * @param clientRequestParser
-     * @return operation ID of specific clientRequestParser object
-     */
-    public int getOperationIdForCurrent(ClientRequestParser clientRequestParser) {
-        try {
-            readWriteLockOperation.readLock().lock();
-            for (int id : operationMap.keySet()) {
-                if (clientRequestParser.equals(operationMap.get(id)))
-                    return id;
-            }
-            return -1;
-        } catch (Exception e) {
-            log.debug(e);
-            return -1;
-        } finally {
-            readWriteLockOperation.readLock().unlock();
-        }
-    }
-
-    /**
-     * A thread safe method that adds the clientRequestParser object to the operationMap
-     * with the current operation ID as a key. Then it increments the operation ID.
-     *
-     * @param clientRequestParser
-     */
-    public void addOperationThread(ClientRequestParser clientRequestParser) {
-        try {
-            readWriteLockOperation.writeLock().lock();
-            operationMap.put(operationId, clientRequestParser);
-            operationId++;
-        } catch (Exception e) {
-            log.debug(e);
-        } finally {
-            readWriteLockOperation.writeLock().unlock();
-        }
-    }
-
-    /**
-     * A method that locks the operationThread lock for primary user
-     */
-    public void lockOperationThread() {
-        try {
-            readWriteLockOperationThread.writeLock().lock();
-        } catch (Exception e) {
-            log.debug(e);
-        }
-    }
-
-    /**
-     * A method that unlocks the operationThread lock for primary user
-     */
-    public void unlockOperationThread() {
-        try {
-            readWriteLockOperationThread.writeLock().unlock();
-        } catch (Exception e) {
-            log.debug(e);
-        }
-    }
-
-    /* End of Operation Code */
-
-    /* Event Code */
-
-    /**
-     * A method that calls getEventsJsonList and return the json array string format
-     *
-     * @return json array string format
-     */
-    public String getEventList() {
-        try {
-            JSONArray jsonArray = getEventsJsonList(false);
-            return jsonArray.toJSONString(); // return json list as string
-        } catch (Exception e) {
-            return "400";
-        }
-    }
-
-    /**
-     * A thread safe method that gets a specific event from event map and parse it in
-     * json object and returns the json string
-     *
-     * @param reqEventId
-     * @return json string format
-     */
-    public String getEvent(int reqEventId) {
-        try {
-            readWriteLockEventMap.readLock().lock();
-            lockEventListReadLock(reqEventId);
-            JSONObject jsonObject = new JSONObject();
-            if (eventMap.get(reqEventId) != null) {
-                String eventName = eventMap.get(reqEventId)[0];
-                String userId = eventMap.get(reqEventId)[1];
-                String availTickets = eventMap.get(reqEventId)[2];
-                String purchTickets = eventMap.get(reqEventId)[3];
-                // create json object
-                jsonObject.put("eventid", reqEventId);
-                jsonObject.put("eventname", eventName);
-                jsonObject.put("userid", Integer.parseInt(userId));
-                jsonObject.put("avail", Integer.parseInt(availTickets));
-                jsonObject.put("purchased", Integer.parseInt(purchTickets));
-                return jsonObject.toJSONString(); // return json object as string
-            } else
-                return "400";
-        } catch (Exception e) {
-            return "400";
-        } finally {
-            eventMapLocks.get(reqEventId).readLock().unlock();
-            readWriteLockEventMap.readLock().unlock();
-        }
-    }
-
-    /**
-     * A thread safe method that gets all the events from Event Map and parse them in json array
-     * and return the json array
-     *
-     * @return json array string format
-     */
-    public JSONArray getEventsJsonList(boolean withTickets) {
-        JSONArray jsonArray = new JSONArray();
-        try {
-            readWriteLockEventMap.readLock().lock();
-            for (int key : eventMapLocks.keySet()) // lock all readlocks in eventMapLock
-                eventMapLocks.get(key).readLock().lock();
-            for (int key : eventMap.keySet()) { // iterate through event map
-                String eventName = eventMap.get(key)[0];
-                String userId = eventMap.get(key)[1];
-                String availTickets = eventMap.get(key)[2];
-                String purchTickets = eventMap.get(key)[3];
-                // create json object
-                JSONObject jsonObject = new JSONObject();
-                jsonObject.put("eventid", key);
-                jsonObject.put("avail", Integer.parseInt(availTickets));
-                jsonObject.put("purchased", Integer.parseInt(purchTickets));
-                jsonObject.put("userid", Integer.parseInt(userId));
-                jsonObject.put("eventname", eventName);
-                if (withTickets) {
-                    SortedMap<Integer, Integer> userEventTickets = userTicketMap.get(key);
-                    JSONArray userTicketJsonArray = new JSONArray();
-                    if (userEventTickets != null) {
-                        for (int event : userEventTickets.keySet()) {
-                            JSONObject eventJsonObject = new JSONObject();
-                            eventJsonObject.put("eventid", event);
-                            eventJsonObject.put("ticketnb", userEventTickets.get(event));
-                            userTicketJsonArray.add(eventJsonObject);
-                        }
-                    }
-                    jsonObject.put("tickets", userTicketJsonArray);
-                }
-                jsonArray.add(jsonObject); // add json object to json list
-            }
-            return jsonArray; // return json list as string
-        } catch (Exception e) {
-            return jsonArray;
-        } finally {
-            for (int key : eventMapLocks.keySet()) // unlock all readlocks in eventListLock
-                eventMapLocks.get(key).readLock().unlock();
-            readWriteLockEventMap.readLock().unlock();
-        }
-    }
-
-    /**
-     * A thread safe method that search for events using Lucene and return a map containing matched events
-     *
-     * @return json array string format
-     */
-    public String searchEvents(String keywords, int avail) {
-        JSONArray jsonArray = new JSONArray();
-        try {
-            readWriteLockEventMap.readLock().lock();
-            for (int key : eventMapLocks.keySet()) // lock all readlocks in eventMapLock
-                eventMapLocks.get(key).readLock().lock();
-
-            if (eventMap.size() > 0) {
-                SortedMap<Integer, String[]> map = new TreeMap<>();
-                for (int key : eventMap.keySet()) { // create a copy of eventMap
-                    String[] value = new String[4];
-                    value[0] = eventMap.get(key)[0];
-                    value[1] = eventMap.get(key)[1];
-                    value[2] = eventMap.get(key)[2];
-                    value[3] = eventMap.get(key)[3];
-                    map.put(key, value);
-                }
-
-                LuceneSearch luceneSearch = LuceneSearch.getInstance();
-                SortedMap<Integer, String[]> searchedEventMap = luceneSearch.search(map, keywords, avail, map.size() + 10);
-
-                for (int key : searchedEventMap.keySet()) { // iterate through event map
-                    String eventName = searchedEventMap.get(key)[0];
-                    String userId = searchedEventMap.get(key)[1];
-                    String availTickets = searchedEventMap.get(key)[2];
-                    String purchTickets = searchedEventMap.get(key)[3];
-                    // create json object
-                    JSONObject jsonObject = new JSONObject();
-                    jsonObject.put("eventid", key);
-                    jsonObject.put("avail", Integer.parseInt(availTickets));
-                    jsonObject.put("purchased", Integer.parseInt(purchTickets));
-                    jsonObject.put("userid", Integer.parseInt(userId));
-                    jsonObject.put("eventname", eventName);
-                    jsonArray.add(jsonObject); // add json object to json list
-                }
-            }
-            return jsonArray.toJSONString(); // return json list as string
-        } catch (Exception e) {
-            return jsonArray.toJSONString();
-        } finally {
-            for (int key : eventMapLocks.keySet()) // unlock all readlocks in eventListLock
-                eventMapLocks.get(key).readLock().unlock();
-            readWriteLockEventMap.readLock().unlock();
-        }
-    }
-
-    /**
-     * A method that creates a ReentrantReadWriteLock for an event and adds it to eventMapLocks if it doesn't exist
-     * and locks the read lock.
-     *
-     * @param key - event ID
-     */
-    private void lockEventListReadLock(int key) {
-        if (eventMapLocks.get(key) != null)
-            eventMapLocks.get(key).readLock().lock();
-        else {
-            ReentrantReadWriteLock readWriteLock1 = new ReentrantReadWriteLock();
-            readWriteLock1.readLock().lock();
-            eventMapLocks.put(key, readWriteLock1);
-        }
-    }
-
-    /**
-     * A thread safe method that creates an event and adds it to the eventMap.
-     * On success, it returns json string format of the new created event ID
-     *
-     * @param eventName
-     * @param userId
-     * @param numTickets
-     * @return json string of event ID
-     */
-    public String createEvent(String eventName, String userId, String numTickets) {
-        try {
-            JSONObject responseJson = new JSONObject();
-            for (int key : eventMap.keySet()) {
-                if (eventMap.get(key)[0].equals(eventName) && eventMap.get(key)[1].equals(userId)) // check if same event created by same user
-                    return "400";
-            }
-            eventId++; // increment event id
-
-            /* eventParam are {event name, creator id, total tickets, purchased tickets} */
-            String[] eventParam = {eventName, userId + "", numTickets + "", "0"};
-
-            eventMap.put(eventId, eventParam); // create event and add it to the map
-            responseJson.put("eventid", eventId); // create json response
-            return responseJson.toJSONString();
-        } catch (Exception e) {
-            return "400";
-        }
-    }
-
-    /**
-     * A thread safe method that takes event id and user id then deletes an event with the eventid
-     * from the eventMap. It also checks if the user sent is the same as the creator.
-     *
-     * @param userId
-     * @param eventId
-     * @return empty string (success) - 400 (failure)
-     */
-    public SortedMap<Integer, String[]> deleteEvent(int eventId, String userId) {
-        try {
-            SortedMap<Integer, String[]> backupEventMap = new TreeMap<>();
-            JSONObject responseJson = new JSONObject();
-            if (eventMap.get(eventId) == null) // check if event exists in eventMap
-                return null;
-            if (!eventMap.get(eventId)[1].equals(userId)) // check if userid is the creator id
-                return null;
-            for (int key : eventMap.keySet()) { // create a backup of eventMap
-                String[] value = new String[4];
-                value[0] = eventMap.get(key)[0];
-                value[1] = eventMap.get(key)[1];
-                value[2] = eventMap.get(key)[2];
-                value[3] = eventMap.get(key)[3];
-                backupEventMap.put(key, value);
-            }
-            eventMap.remove(eventId);
-            return backupEventMap;
-        } catch (Exception e) {
-            return null;
-        }
-    }
-
-    /**
-     * A thread safe method that restores the backup event Map to the initial eventMap
-     *
-     * @return empty string (success) - 400 (failure)
-     */
-    public String restoreBackupEvent(SortedMap<Integer, String[]> backupEventMap) {
-        try {
-            for (int key : backupEventMap.keySet()) {
-                String[] value = new String[4];
-                value[0] = backupEventMap.get(key)[0];
-                value[1] = backupEventMap.get(key)[1];
-                value[2] = backupEventMap.get(key)[2];
-                value[3] = backupEventMap.get(key)[3];
-                eventMap.put(key, value);
-            }
-            return "";
-        } catch (Exception e) {
-            return "400";
-        }
-    }
-
-    /**
-     * A thread safe method that update an event.
-     * On success, it returns json string format of the new created event ID
-     *
-     * @param eventName
-     * @param userId
-     * @param additionalTickets
-     * @return json string of event ID
-     */
-    public String updateEvent(int eventId, String eventName, String userId, int additionalTickets) {
-        try {
-            if (eventMap.get(eventId) == null) // event doesn't exist
-                return "400";
-            if (!eventMap.get(eventId)[1].equals(userId)) // check if the user sent is the creator, if not return 400
-                return "400";
-
-            String[] eventParam = eventMap.get(eventId);
-            if (eventName.length() > 0) { // it means the client sent a new event name
-                for (int id : eventMap.keySet()) { // check if the user created a different event with the same name
-                    if (eventMap.get(id)[1].equals(userId) && eventMap.get(id)[0].equals(eventName) && id != eventId)
-                        return "400";
-                }
-                eventParam[0] = eventName;
-            }
-            if (additionalTickets > 0) { // it means the client sent additional tickets
-                int tickets = Integer.parseInt(eventParam[2]);
-                tickets += additionalTickets;
-                eventParam[2] = tickets + "";
-            }
-            eventMap.put(eventId, eventParam); // update event's parameter
-
-            return "";
-        } catch (Exception e) {
-            return "400";
-        }
-    }
-
-    /**
-     * A method that locks the write lock of readWriteLockEventMap
-     */
-    public void lockWriteLock() {
-        readWriteLockEventMap.writeLock().lock();
-    }
-
-    /**
-     * A method that unlocks the write lock of readWriteLockEventMap
-     */
-    public void unlockWriteLock() {
-        readWriteLockEventMap.writeLock().unlock();
-    }
-
-    /**
-     * A thread safe method that updates the tickets in a specific event
-     *
-     * @param eventId
-     * @param purchasedTickets
-     * @return empty string on success or 400 if failed
-     */
-    public String purchaseTickets(int eventId, int purchasedTickets, int userId) {
-        int availableTickets = Integer.parseInt(eventMap.get(eventId)[2]);
-
-        if (purchasedTickets > availableTickets || purchasedTickets < 1) // purchased tickets = 0 or greater than available
-            return "400";
-
-        availableTickets -= purchasedTickets;
-        purchasedTickets += Integer.parseInt(eventMap.get(eventId)[3]);
-        String eventName = eventMap.get(eventId)[0];
-        String creatorId = eventMap.get(eventId)[1];
-        String[] eventParam = {eventName, creatorId, availableTickets + "", purchasedTickets + ""};
-        eventMap.replace(eventId, eventParam);
-
-        SortedMap<Integer, Integer> ticketsMap = userTicketMap.get(userId);
-        if (ticketsMap == null) { // check if user's ticket map is empty ( user didn't purchase before)
-            ticketsMap = new TreeMap<>();
-            ticketsMap.put(eventId, purchasedTickets);
-        } else {
-            if (ticketsMap.get(eventId) != null) { // check if the eventId for new tickets exists so I will update the entry and not put
-                int allTickets = ticketsMap.get(eventId) + purchasedTickets;
-                ticketsMap.put(eventId, allTickets);
-            } else
-                ticketsMap.put(eventId, purchasedTickets);
-        }
-        userTicketMap.put(userId, ticketsMap);
-        return "";
-    }
-
-    /**
-     * A thread safe method that resets the tickets to their initial value before calling
-     * purchaseTickets method in a specific event.
-     *
-     * @param id - event id
-     * @param purchasedTickets
-     * @return empty string on success
-     */
-    public String rollBackTickets(int id, int purchasedTickets, int userId) {
-        if(userTicketMap.get(userId).get(id) != null) {
-            int availableTickets = Integer.parseInt(eventMap.get(id)[2]);
-            availableTickets += purchasedTickets;
-            purchasedTickets = Integer.parseInt(eventMap.get(id)[3]) - purchasedTickets;
-            String eventName = eventMap.get(id)[0];
-            String creatorId = eventMap.get(id)[1];
-            String[] eventParam = {eventName, creatorId, availableTickets + "", purchasedTickets + ""};
-            eventMap.replace(id, eventParam);
-            if(userTicketMap.get(userId) != null) {
-                if(userTicketMap.get(userId).get(id) != null)
-                    userTicketMap.get(userId).remove(id);
-            }
-        }
-        return "";
-    }
-
-    /**
-     * A method that checks if the event exists in the event map then that waits till readWriteLockEventMap
-     * write lock is not held by another thread. Then it creates a ReentrantReadWriteLock for a specific event
-     * and locks its write lock and adds it to the eventMapLocks if it doesn't exist.
-     *
-     * @param key
-     * @return true if event exists otherwise false
-     */
-    public boolean lockEventListWriteLock(int key) {
-        if (eventMap.get(key) != null) {
-            while (readWriteLockEventMap.writeLock().isHeldByCurrentThread()) {
-            } // wait till writelock is unlocked
-            if (eventMapLocks.get(key) != null)
-                eventMapLocks.get(key).writeLock().lock();
-            else {
-                ReentrantReadWriteLock readWriteLock1 = new ReentrantReadWriteLock();
-                readWriteLock1.writeLock().lock();
-                eventMapLocks.put(key, readWriteLock1);
-            }
-            return true;
-        } else
-            return false;
-    }
-
-    /**
-     * A method that unlocks write lock of specific event in eventMapLocks
-     *
-     * @param key - event ID
-     */
-    public void unlockEventListWriteLock(int key) {
-        if (eventMapLocks.get(key) != null)
-            eventMapLocks.get(key).writeLock().unlock();
-    }
-
-    /**
-     * A thread safe method that updates the current event Map with the map sent to it
-     * and assigns the eventID as last key if map size > 0 or 0 if the map is empty
-     *
-     * @param map
-     * @return true (success) - false (failure)
-     */
-    public boolean updateEventMap(SortedMap<Integer, String[]> map,
-                                  SortedMap<Integer,SortedMap<Integer, Integer>> ticketMap) {
-        try {
-            readWriteLockEventMap.writeLock().lock();
-            eventMap.clear();
-            eventMap.putAll(map);
-            if (eventMap.size() > 0)
-                eventId = eventMap.lastKey();
-            else
-                eventId = 0;
-            userTicketMap.clear();
-            userTicketMap.putAll(ticketMap);
-            return true;
-        } catch (Exception e) {
-            return false;
-        } finally {
-            readWriteLockEventMap.writeLock().unlock();
-        }
-    }
-
-    /* End of Event Code */
-
-    /* Member Code */
-
-    /**
-     * A thread safe method that checks if the given host exists in the member map
-     * if it doesn't exist then add the host with member ID as a key to member map.
-     * Otherwise, it means it existed before so it failed and joined back. So get the key of the existed host
-     * then remove it from the map and add it at the end.
-     * Then increment the memberID.
-     *
-     * @param host
-     * @return true (success) - false (failure)
-     */
-    public boolean addNewMember(String host) {
-        try {
-            readWriteLockMember.writeLock().lock();
-            // check if the host already exists in the map
-            boolean exists = false;
-            for (int key : membershipMap.keySet()) {
-                if (membershipMap.get(key).equals(host)) {
-                    exists = true;
-                    break;
-                }
-            }
-            if (!exists) {
-                membershipMap.put(memberId, host);
-                memberId++;
-            } else { // it existed before but failed and returned back
-                int index = -1;
-                for (int key : membershipMap.keySet()) {
-                    if (membershipMap.get(key).equals(host)) {
-                        index = key;
-                        break;
-                    }
-                }
-                removeMember(index);
-                membershipMap.put(memberId, host);
-                memberId++;
-            }
-            /* for demonstration */
-            System.out.println("#######################");
-            for (int key : membershipMap.keySet())
-                System.out.println(membershipMap.get(key));
-            System.out.println("#######################");
-            /* ------------------ */
-            return true;
-        } catch (Exception e) {
-            return false;
-        } finally {
-            readWriteLockMember.writeLock().unlock();
-        }
-    }
-
-    /**
-     * A thread safe method that returns a map of membership Map
-     *
-     * @return membership map
-     */
-    public SortedMap<Integer, String> getMembershipMap() {
-        try {
-            readWriteLockMember.readLock().lock();
-            SortedMap<Integer, String> temp = new TreeMap<>();
-            for (int key : membershipMap.keySet()) {
-                String host = membershipMap.get(key);
-                temp.put(key, host);
-            }
-            return temp;
-        } catch (Exception e) {
-            return null;
-        } finally {
-            readWriteLockMember.readLock().unlock();
-        }
-    }
-
-    /**
-     * A thread safe method that saves all the members before a specific host in a map
-     * and return it.
-     *
-     * @param host
-     * @return map
-     */
-    public SortedMap<Integer, String> getMemberMapLowerThanHost(String host) {
-        try {
-            readWriteLockMember.readLock().lock();
-            SortedMap<Integer, String> temp = new TreeMap<>();
-            for (int key : membershipMap.keySet()) {
-                if (membershipMap.get(key).equals(host)) // when I reach the sent host it means I added all previous elements
-                    break;
-                String memberHost = membershipMap.get(key);
-                temp.put(key, memberHost);
-            }
-            return temp;
-        } catch (Exception e) {
-            return null;
-        } finally {
-            readWriteLockMember.readLock().unlock();
-        }
-    }
-
-    /**
-     * A thread safe method that gets all members in memberMap and parse them in
-     * jsonArray and return it.
-     *
-     * @return memberJsonArray
-     */
-    private JSONArray getMemberMapJSON() {
-        JSONArray membershipJsonArray = new JSONArray();
-        try {
-            readWriteLockMember.readLock().lock();
-            for (int key : membershipMap.keySet()) { // iterate through memberList
-                // create json object
-                JSONObject jsonObject = new JSONObject();
-                jsonObject.put("id", key);
-                jsonObject.put("memberHost", membershipMap.get(key));
-                membershipJsonArray.add(jsonObject); // add json object to json list
-            }
-            return membershipJsonArray;
-        } catch (Exception e) {
-            return membershipJsonArray;
-        } finally {
-            readWriteLockMember.readLock().unlock();
-        }
-    }
-
-    /**
-     * A thread safe method that updates the current memberMap with the send map
-     *
-     * @param map
-     * @return true : success - false : failure
-     */
-    public boolean updateMemberList(SortedMap<Integer, String> map) {
-        try {
-            readWriteLockMember.writeLock().lock();
-            membershipMap.clear();
-            membershipMap.putAll(map);
-            memberId = membershipMap.lastKey() + 1;
-            return true;
-        } catch (Exception e) {
-            return false;
-        } finally {
-            readWriteLockMember.writeLock().unlock();
-        }
-    }
-
-    /**
-     * A method that removes a member if it exists in the memberMap
-     * then it re-orders all the members in the map to make the member ID in sequence
-     * Ex: previous memberMap after remving memberID 2 will be 1,3,4,5,6
-     * so after re-ordering it will be 1,2,3,4,5
-     *
-     * @param id member ID
-     * @throws Exception
-     */
-    private void removeMember(int id) throws Exception {
-        if (membershipMap.get(id) != null) {
-            membershipMap.remove(id);
-
-            /* organize memberIds again in sequential order */
-            ArrayList<String> members = new ArrayList<>();
-            for (int key : membershipMap.keySet()) // copy all members from map to arrayList
-                members.add(membershipMap.get(key));
-            membershipMap.clear(); // clear member map
-            for (int i = 0; i < members.size(); i++) { // copy all members from list to map
-                membershipMap.put(i, members.get(i));
-            }
-            memberId = membershipMap.lastKey() + 1;
-        }
-    }
-
-    /**
-     * A thread safe method that locks the write lock for member and calls removeMember
-     *
-     * @param host
-     */
-    public void deleteMember(String host) {
-        try {
-            readWriteLockMember.writeLock().lock();
-            int index = -1;
-            for (int id : membershipMap.keySet()) {
-                if (host.equals(membershipMap.get(id))) {
-                    index = id;
-                    break;
-                }
-            }
-            if (index != -1)
-                removeMember(index);
-        } catch (Exception e) {
-        } finally {
-            readWriteLockMember.writeLock().unlock();
-        }
-    }
-
-    /**
-     * A thread safe method that gets the new primary host then checks if the host exists.
-     * if the primary exists, then remove all members in memberMap that are before the primary host since this host is elected
-     * means that all previous members didn't reply (dead)
-     * Otherwise, add the primary as the first member in the memberMap.
-     * Finally, updates all primary variables.
-     *
-     * @param newPrimaryHost
-     * @return true (success) - false (failure)
-     */
-    public boolean updatePrimary(String newPrimaryHost) {
-        try {
-            readWriteLockMember.writeLock().lock();
-            int found = -1;
-            SortedMap<Integer, String> temp = new TreeMap<>();
-            for (int key : membershipMap.keySet())
-                temp.put(key, membershipMap.get(key));
-            for (int key : temp.keySet()) {
-                if (temp.get(key).equals(newPrimaryHost)) {
-                    found = key;
-                    break;
-                }
-            }
-            if (found != -1) {
-                // since primary now is elected then remove all previous nodes
-                for (int key : temp.keySet()) {
-                    if (key == found)
-                        break;
-                    membershipMap.remove(key);
-                }
-            } else {
-                ArrayList<String> members = new ArrayList<>();
-                for (int key : temp.keySet()) // copy all members from map to list
-                    members.add(temp.get(key));
-                members.add(0, newPrimaryHost); // add new primary at the beginning of the list
-                membershipMap.clear(); // clear map
-                for (int i = 0; i < members.size(); i++) // copy all members from list to map
-                    membershipMap.put(i, members.get(i));
-                memberId = membershipMap.lastKey() + 1;
-            }
-            synchronized (this) {
-                if (newPrimaryHost.equals(host))
-                    isPrimary = true;
-                newPrimaryElected = true;
-                primaryEventHost = newPrimaryHost;
-            }
-            return true;
-        } catch (Exception e) {
-            log.debug(e);
-            return false;
-        } finally {
-            readWriteLockMember.writeLock().unlock();
-        }
-    }
-
-    /* End of Member Code */
-
-    /* FrontEnd Code */
-
-    /**
-     * A thread safe method that adds the host to the frontend list if it doesn't exist in the list
-     *
-     * @param host - new FE host
-     */
-    public void addFrontEnd(String host) {
-        readWriteLockFE.writeLock().lock();
-        boolean exists = false;
-        for (String h : frontEndList) {
-            if (h.equals(host)) {
-                exists = true;
-                break;
-            }
-        }
-        if (!exists) {
-            frontEndList.add(host);
-        }
-        readWriteLockFE.writeLock().unlock();
-    }
-
-    /**
-     * A thread safe method that updates the frontEnd list with the given list
-     *
-     * @param list
-     * @return true (success) - false (failure)
-     */
-    public boolean updateFrontEndList(ArrayList<String> list) {
-        try {
-            readWriteLockFE.writeLock().lock();
-            frontEndList.clear();
-            frontEndList = list;
-            return true;
-        } catch (Exception e) {
-            return false;
-        } finally {
-            readWriteLockFE.writeLock().unlock();
-        }
-    }
-
-    /**
-     * A thread safe method that gets all FE hosts from the list and parses them in
-     * JsonArray and returns it
-     *
-     * @return jsonArray
-     */
-    private JSONArray getFrontEndJsonArray() {
-        JSONArray frontEndJsonArray = new JSONArray();
-        try {
-            readWriteLockFE.readLock().lock();
-            for (int i = 0; i < frontEndList.size(); i++) { // iterate through memberList
-                // create json object
-                JSONObject jsonObject = new JSONObject();
-                jsonObject.put("frontEndHost", frontEndList.get(i));
-                frontEndJsonArray.add(jsonObject); // add json object to json list
-            }
-            return frontEndJsonArray;
-        } catch (Exception e) {
-            return frontEndJsonArray;
-        } finally {
-            readWriteLockFE.readLock().unlock();
-        }
-    }
-
-    /**
-     * A thread safe method that return a FE list
-     *
-     * @return FE list
-     */
-    public ArrayList<String> getFrontEndArrayList() {
-        ArrayList<String> list = new ArrayList<>();
-        try {
-            readWriteLockFE.readLock().lock();
-            for (String member : frontEndList)
-                list.add(member);
-            return list;
-        } catch (Exception e) {
-            return list;
-        } finally {
-            readWriteLockFE.readLock().unlock();
-        }
-    }
-
-    /**
-     * A thread safe method that deletes a FE element by its index from the list
-     *
-     * @param host
-     */
-    public void deleteFrontEndElement(String host) {
-        try {
-            readWriteLockFE.writeLock().lock();
-            int index = -1;
-            for (int i = 0; i < frontEndList.size(); i++) {
-                if (frontEndList.get(i).equals(host)) {
-                    index = i;
-                    break;
-                }
-            }
-            if (index != -1)
-                frontEndList.remove(index);
-        } catch (Exception e) {
-            log.debug("deleting FE " + e);
-        } finally {
-            readWriteLockFE.writeLock().unlock();
-        }
-    }
-
-    /* ENd of FrontEnd Code */
-
-    /**
-     * A method called by the primary only that parses the frontend list, membership list, and events map
-     * in a json list and return it as a json format string
-     *
-     * @return json string format
-     */
-    public String getAllLists() {
-        try {
-            SortedMap<String, JSONArray> map = new TreeMap<>();
-            map.put("members", getMemberMapJSON());
-            map.put("fe", getFrontEndJsonArray());
-            map.put("events", getEventsJsonList(true));
-            map.put("operation", getOperationIdJson());
-            String jsonText = JSONValue.toJSONString(map);
-            return jsonText;
-        } catch (Exception e) {
-            return "";
-        }
-    }
-}
+package EventService;
+
+import Http.AckPolicy;
+import Http.ApplyQueue;
+import Http.BinaryCodec;
+import Http.JsonStreamWriter;
+import Http.OperationLog;
+import Http.Snapshot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+
+/**
+ * A singleton class that contains all the details about an event member
+ *
+ * @author Hassan Chadad
+ */
+public class EventServiceDetails {
+
+    private static volatile EventServiceDetails instance;
+    private static long userCacheTtl = 30000; // ms a user id found in the user service is trusted, 0 disables the cache
+    private static int userCacheSize = 10000; // user ids kept, the least recently used one is removed first
+    private static int initialPartitions = 1; // operation sequences, 1 means every operation is in one global order
+
+    private boolean isPrimary; // when service is primary this is true
+    private boolean newPrimaryElected; // variable to check if new primary elected
+    private boolean ready; // true once a secondary received the lists of the primary, it can answer the reads then
+    private int port; // current service port
+    private int eventId; // event id auto incremented
+    private int memberId; // auto incremented
+    private int operationId; // this is timestamp (operation ID)
+    private String host, primaryUserHost; // current service host
+    private String primaryEventHost;
+    private SortedMap<Integer, String> membershipMap; // map storing all members with their IDs.
+    private ArrayList<String> frontEndList; // list of front ends
+    private SortedMap<Integer, ClientRequestParser> operationMap; // map to handle multiple operation threads
+    private SortedMap<Integer, String[]> eventMap; // save created events' info in a map
+    private SortedMap<Integer, SortedMap<Integer, Integer>> userTicketMap; // save users' tickets in a map <userid, <eventid, nb of Tickets>>
+    private ReentrantReadWriteLock readWriteLockMember; // to ensure thread safety on member map
+    private ReentrantReadWriteLock readWriteLockFE; // to ensure thread safety on Front end list
+    private ReentrantReadWriteLock readWriteLockEventMap; // to ensure thread safety on event map
+    private SortedMap<Integer, ReentrantReadWriteLock> eventMapLocks; // to ensure thread safety on different level of accessing event map
+    private ReentrantReadWriteLock readWriteLockOperation; // to ensure thread safety on operation
+    private ApplyQueue operationQueue; // operations applied by a secondary in operation ID order
+    private LinkedHashMap<Long, Long> knownUsers; // user id -> time it was found in the user service, in access order
+    private ReentrantLock userCacheLock; // to ensure thread safety on known users, a get changes the access order
+    private ReentrantLock userTicketLock; // to ensure thread safety on the tickets of the users, updated by the purchases of all the partitions
+    private ReentrantReadWriteLock readWriteLockOperationThread; // to ensure thread safety on executing operation threads
+    private ReentrantReadWriteLock readWriteLockSnapshot; // read by the operations, written while the lists are copied for a snapshot
+    private long[] sequences; // per partition: next sequence on the primary, number of operations applied on a secondary
+    private ReentrantLock[] partitionLocks; // held by the primary while it executes an operation of the partition
+    private ApplyQueue[] partitionQueues; // operations of each partition applied by a secondary in sequence order
+    private final static Logger log = LogManager.getRootLogger(); // Log Object to print to the file
+
+    /**
+     * Private Constructor
+     *
+     * @param host
+     * @param primaryEventHost
+     * @param port
+     */
+    private EventServiceDetails(String host, String primaryEventHost, int port, String primaryUserHost) {
+        this.port = port;
+        this.host = host;
+        this.primaryEventHost = primaryEventHost;
+        this.primaryUserHost = primaryUserHost;
+        isPrimary = false;
+        newPrimaryElected = true;
+        memberId = 0;
+        operationId = 0;
+        eventId = 0;
+        operationMap = new TreeMap<>();
+        membershipMap = new TreeMap<>();
+        frontEndList = new ArrayList<>();
+        eventMap = new TreeMap<>();
+        userTicketMap = new TreeMap<>();
+        eventMapLocks = new ConcurrentSkipListMap<>(); // the operations of different partitions add locks at the same time
+        readWriteLockMember = new ReentrantReadWriteLock();
+        readWriteLockFE = new ReentrantReadWriteLock();
+        readWriteLockOperation = new ReentrantReadWriteLock();
+        operationQueue = new ApplyQueue(new LongSupplier() {
+            @Override
+            public long getAsLong() {
+                return getOperationId();
+            }
+        });
+        readWriteLockEventMap = new ReentrantReadWriteLock();
+        readWriteLockOperationThread = new ReentrantReadWriteLock();
+        readWriteLockSnapshot = new ReentrantReadWriteLock();
+        setSequences(new long[initialPartitions]);
+        userCacheLock = new ReentrantLock();
+        userTicketLock = new ReentrantLock();
+        knownUsers = new LinkedHashMap<Long, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > userCacheSize;
+            }
+        };
+    }
+
+    /**
+     * A method that reads the user cache arguments of the service before the instance is created:
+     * "-userCacheTtl" (ms, 0 disables the cache) and "-userCacheSize" (user ids)
+     *
+     * @param args - service arguments
+     */
+    public static void configureUserCache(String[] args) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equalsIgnoreCase("-userCacheTtl"))
+                userCacheTtl = Math.max(0, Long.parseLong(args[i + 1]));
+            if (args[i].equalsIgnoreCase("-userCacheSize"))
+                userCacheSize = Math.max(1, Integer.parseInt(args[i + 1]));
+        }
+    }
+
+    /**
+     * A method that reads the "-partitions" argument of the service before the instance is created.
+     * Each partition (eventId modulo partitions) has its own operation sequence, so the operations on events of
+     * different partitions are executed by the primary and applied by the secondaries at the same time.
+     * A new member uses the partitions of the primary it joins.
+     *
+     * @param args - service arguments
+     */
+    public static void configurePartitions(String[] args) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equalsIgnoreCase("-partitions"))
+                initialPartitions = Math.max(1, Integer.parseInt(args[i + 1]));
+        }
+    }
+
+    /**
+     * A method that guarantees singleton mechanism
+     *
+     * @param host
+     * @param primaryEventHost
+     * @param port
+     * @return
+     */
+    public static EventServiceDetails getInstance(String host, String primaryEventHost, int port, String primaryUserHost) {
+        if (instance == null) {
+            synchronized (EventServiceDetails.class) {
+                if (instance == null)
+                    instance = new EventServiceDetails(host, primaryEventHost, port, primaryUserHost);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Set method
+     *
+     * @param status for isPrimary
+     */
+    public void setPrimary(boolean status) {
+        isPrimary = status;
+    }
+
+    /**
+     * Get method
+     *
+     * @return isPrimary
+     */
+    public boolean isPrimary() {
+        return isPrimary;
+    }
+
+    /**
+     * Get method
+     *
+     * @return port
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Get method
+     *
+     * @return host
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Get method
+     *
+     * @return primaryEvent Host
+     */
+    public String getPrimaryUserHost() {
+        return primaryUserHost;
+    }
+
+    /**
+     * Set method
+     *
+     * @param primaryUserHost
+     */
+    public void setPrimaryUserHost(String primaryUserHost) {
+        this.primaryUserHost = primaryUserHost;
+        invalidateUsers(null); // the new primary may not have all the users of the old one
+    }
+
+    /**
+     * A thread safe Get method
+     *
+     * @return newPrimaryElected
+     */
+    public synchronized boolean isNewPrimaryElected() {
+        return newPrimaryElected;
+    }
+
+    /**
+     * A thread safe Get method
+     *
+     * @return ready
+     */
+    public synchronized boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * A thread safe Set method for ready
+     *
+     * @param status
+     */
+    public synchronized void setReady(boolean status) {
+        ready = status;
+    }
+
+    /**
+     * A thread safe Set method for newPrimaryElected
+     *
+     * @param status
+     */
+    public synchronized void setNewPrimaryElected(boolean status) {
+        newPrimaryElected = status;
+    }
+
+    /* Operation Code */
+
+    /**
+     * A thread safe method that increments the operation ID, the apply queue then runs the next operation
+     */
+    public void incrementOperationId() {
+        try {
+            readWriteLockOperation.writeLock().lock();
+            operationId++;
+        } catch (Exception e) {
+            log.debug(e);
+        } finally {
+            readWriteLockOperation.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A thread safe method that removes an operation that failed, its operation ID and sequences are not given again
+     *
+     * @param opId
+     */
+    public void removeOperationThread(int opId) {
+        try {
+            readWriteLockOperation.writeLock().lock();
+            operationMap.remove(opId);
+            System.out.println("Deleting operation " + opId); // for demonstration
+        } finally {
+            readWriteLockOperation.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A thread safe Set method for operation ID
+     *
+     * @param id
+     */
+    public void setOperationId(int id) {
+        readWriteLockOperation.writeLock().lock();
+        operationId = id;
+        System.out.println("OperationId is reset");
+        readWriteLockOperation.writeLock().unlock();
+        operationQueue.wake();
+    }
+
+    /**
+     * A method called by a secondary that applies an operation sent by the primary after the operations before it.
+     * The operation is added to the apply queue of its partition (or to the one of the operation IDs without partitions)
+     * and the calling thread waits till the applier thread ran it. An operation that needs all the partitions is added
+     * to every queue, the last applier that reaches it runs it while the other ones wait.
+     *
+     * @param partition   - -1 for all the partitions
+     * @param next        - sequences of the operation, null if the primary doesn't use partitions
+     * @param operationId
+     * @param task        - applies the operation
+     * @return result of the operation, empty string if it was already applied
+     * @throws Exception
+     */
+    public String apply(int partition, long[] next, int operationId, final Callable<String> task) throws Exception {
+        if (next == null)
+            return operationQueue.apply(operationId, task);
+        ApplyQueue[] queues;
+        try {
+            readWriteLockOperation.readLock().lock();
+            queues = partitionQueues;
+        } finally {
+            readWriteLockOperation.readLock().unlock();
+        }
+        if (partition >= 0)
+            return queues[partition].apply(next[0], task);
+        final String[] result = new String[1];
+        final Exception[] error = new Exception[1];
+        final CyclicBarrier barrier = new CyclicBarrier(queues.length, new Runnable() {
+            @Override
+            public void run() { // run by the last applier, the other ones wait for it
+                try {
+                    result[0] = task.call();
+                } catch (Exception e) {
+                    error[0] = e;
+                }
+            }
+        });
+        Callable<String> arrive = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                barrier.await();
+                if (error[0] != null)
+                    throw error[0];
+                return result[0];
+            }
+        };
+        CompletableFuture<String> first = null;
+        for (int i = 0; i < queues.length; i++) {
+            CompletableFuture<String> applied = queues[i].submit(next[i], arrive);
+            if (first == null)
+                first = applied;
+        }
+        return ApplyQueue.await(first);
+    }
+
+    /**
+     * A method that returns the state of the apply queues of a secondary:
+     * {"queued":2,"gapMs":35} - queued operations and ms since the oldest gap opened
+     *
+     * @return json
+     */
+    public String getApplyQueueJson() {
+        ArrayList<ApplyQueue> queues = new ArrayList<>();
+        queues.add(operationQueue);
+        try {
+            readWriteLockOperation.readLock().lock();
+            queues.addAll(Arrays.asList(partitionQueues));
+        } finally {
+            readWriteLockOperation.readLock().unlock();
+        }
+        long queued = 0, gap = 0;
+        for (ApplyQueue queue : queues) {
+            queued += queue.getQueued();
+            gap = Math.max(gap, queue.getGapMs());
+        }
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("queued", queued);
+        jsonObject.put("gapMs", gap);
+        return jsonObject.toJSONString();
+    }
+
+    /**
+     * A thread safe Get method
+     *
+     * @return operation ID
+     */
+    public int getOperationId() {
+        try {
+            readWriteLockOperation.readLock().lock();
+            return operationId;
+        } catch (Exception e) {
+            log.debug(e);
+            return -1;
+        } finally {
+            readWriteLockOperation.readLock().unlock();
+        }
+    }
+
+    /**
+     * A thread safe method that parses the last operation ID in a JSONArray and return it
+     *
+     * @return JSONArray
+     */
+    private JSONArray getOperationIdJson() {
+        try {
+            readWriteLockOperation.readLock().lock();
+            return getOperationIdJson(operationId, sequences);
+        } catch (Exception e) {
+            log.debug(e);
+            return null;
+        } finally {
+            readWriteLockOperation.readLock().unlock();
+        }
+    }
+
+    /**
+     * A method that returns the operation ID and the sequences as a json list
+     *
+     * @param operationId
+     * @param sequences   - sent only if the primary uses partitions
+     * @return json list
+     */
+    private static JSONArray getOperationIdJson(int operationId, long[] sequences) {
+        JSONArray jsonArray = new JSONArray();
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("id", operationId);
+        if (sequences.length > 1) {
+            JSONArray partitionSequences = new JSONArray();
+            for (long sequence : sequences)
+                partitionSequences.add(sequence);
+            jsonObject.put("sequences", partitionSequences);
+        }
+        jsonArray.add(jsonObject); // add json object to json list
+        return jsonArray;
+    }
+
+    /**
+     * A thread safe method that checks the clientRequestParser object in operationMap
+     * and returns its key (operation ID) on match
+     *
+     * @param clientRequestParser
+     * @return operation ID of specific clientRequestParser object
+     */
+    public int getOperationIdForCurrent(ClientRequestParser clientRequestParser) {
+        try {
+            readWriteLockOperation.readLock().lock();
+            for (int id : operationMap.keySet()) {
+                if (clientRequestParser.equals(operationMap.get(id)))
+                    return id;
+            }
+            return -1;
+        } catch (Exception e) {
+            log.debug(e);
+            return -1;
+        } finally {
+            readWriteLockOperation.readLock().unlock();
+        }
+    }
+
+    /**
+     * A thread safe method that adds the clientRequestParser object to the operationMap
+     * with the current operation ID as a key. Then it increments the operation ID.
+     *
+     * @param clientRequestParser
+     */
+    public void addOperationThread(ClientRequestParser clientRequestParser) {
+        try {
+            readWriteLockOperation.writeLock().lock();
+            operationMap.put(operationId, clientRequestParser);
+            operationId++;
+        } catch (Exception e) {
+            log.debug(e);
+        } finally {
+            readWriteLockOperation.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A method that locks the operationThread lock for primary user, an operation of a partition
+     * only excludes the operations of its partition and the ones that need all the partitions (ex: create)
+     *
+     * @param partition - -1 for an operation that needs all the partitions
+     */
+    public void lockOperationThread(int partition) {
+        if (partition < 0) {
+            lockOperationThread();
+            return;
+        }
+        readWriteLockOperationThread.readLock().lock();
+        partitionLocks[partition].lock();
+    }
+
+    /**
+     * A method that unlocks the operationThread lock of a partition for primary user
+     *
+     * @param partition - -1 for an operation that needs all the partitions
+     */
+    public void unlockOperationThread(int partition) {
+        if (partition < 0) {
+            unlockOperationThread();
+            return;
+        }
+        try {
+            partitionLocks[partition].unlock();
+            readWriteLockOperationThread.readLock().unlock();
+        } catch (Exception e) {
+            log.debug(e);
+        }
+    }
+
+    /**
+     * A thread safe Get method
+     *
+     * @return number of partitions
+     */
+    public int getPartitions() {
+        try {
+            readWriteLockOperation.readLock().lock();
+            return sequences.length;
+        } finally {
+            readWriteLockOperation.readLock().unlock();
+        }
+    }
+
+    /**
+     * A method that returns the partition of an event
+     *
+     * @param eventId
+     * @return partition
+     */
+    public int partitionOf(int eventId) {
+        return Math.floorMod(eventId, getPartitions());
+    }
+
+    /**
+     * A thread safe method called by the primary that gives the next sequence of a partition to an operation,
+     * or the next sequence of every partition to an operation that needs all of them
+     *
+     * @param partition - -1 for all the partitions
+     * @return sequences of the operation
+     */
+    public long[] nextSequences(int partition) {
+        try {
+            readWriteLockOperation.writeLock().lock();
+            if (partition >= 0)
+                return new long[]{sequences[partition]++};
+            long[] next = sequences.clone();
+            for (int i = 0; i < sequences.length; i++)
+                sequences[i]++;
+            return next;
+        } finally {
+            readWriteLockOperation.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A thread safe method called by a secondary after applying an operation of a partition (or of all of them),
+     * the apply queue of the partition then runs the next operation
+     *
+     * @param partition - -1 for all the partitions
+     */
+    public void advanceSequences(int partition) {
+        try {
+            readWriteLockOperation.writeLock().lock();
+            for (int i = 0; i < sequences.length; i++) {
+                if (partition < 0 || partition == i)
+                    sequences[i]++;
+            }
+        } finally {
+            readWriteLockOperation.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A thread safe Set method for the sequences of the partitions, a new member takes the ones of the primary
+     *
+     * @param next
+     */
+    public void setSequences(long[] next) {
+        ApplyQueue[] queues;
+        try {
+            readWriteLockOperation.writeLock().lock();
+            if (partitionLocks == null || partitionLocks.length != next.length) {
+                partitionLocks = new ReentrantLock[next.length];
+                partitionQueues = new ApplyQueue[next.length];
+                for (int i = 0; i < next.length; i++) {
+                    partitionLocks[i] = new ReentrantLock();
+                    final int partition = i;
+                    partitionQueues[i] = new ApplyQueue(new LongSupplier() {
+                        @Override
+                        public long getAsLong() {
+                            return getSequence(partition);
+                        }
+                    });
+                }
+            }
+            sequences = next.clone();
+            queues = partitionQueues;
+        } finally {
+            readWriteLockOperation.writeLock().unlock();
+        }
+        for (ApplyQueue queue : queues)
+            queue.wake();
+    }
+
+    /**
+     * A thread safe Get method
+     *
+     * @return next sequence of every partition
+     */
+    public long[] getSequences() {
+        try {
+            readWriteLockOperation.readLock().lock();
+            return sequences.clone();
+        } finally {
+            readWriteLockOperation.readLock().unlock();
+        }
+    }
+
+    /**
+     * A thread safe Get method
+     *
+     * @param partition
+     * @return next sequence of the partition
+     */
+    private long getSequence(int partition) {
+        try {
+            readWriteLockOperation.readLock().lock();
+            return sequences[partition];
+        } finally {
+            readWriteLockOperation.readLock().unlock();
+        }
+    }
+
+    /**
+     * A method that locks the operationThread lock for primary user
+     */
+    public void lockOperationThread() {
+        try {
+            readWriteLockOperationThread.writeLock().lock();
+        } catch (Exception e) {
+            log.debug(e);
+        }
+    }
+
+    /**
+     * A method that unlocks the operationThread lock for primary user
+     */
+    public void unlockOperationThread() {
+        try {
+            readWriteLockOperationThread.writeLock().unlock();
+        } catch (Exception e) {
+            log.debug(e);
+        }
+    }
+
+    /**
+     * A method that locks the read lock of readWriteLockSnapshot, held by an operation from the time it gets its
+     * operation ID till it is logged so a snapshot never has half of an operation
+     */
+    public void lockSnapshotReadLock() {
+        readWriteLockSnapshot.readLock().lock();
+    }
+
+    /**
+     * A method that unlocks the read lock of readWriteLockSnapshot
+     */
+    public void unlockSnapshotReadLock() {
+        readWriteLockSnapshot.readLock().unlock();
+    }
+
+    /**
+     * A method that locks the write lock of readWriteLockSnapshot, it waits for the operations that have an operation
+     * ID and are not logged yet and pauses the next ones
+     */
+    public void lockSnapshotWriteLock() {
+        readWriteLockSnapshot.writeLock().lock();
+    }
+
+    /**
+     * A method that unlocks the write lock of readWriteLockSnapshot
+     */
+    public void unlockSnapshotWriteLock() {
+        readWriteLockSnapshot.writeLock().unlock();
+    }
+
+    /* End of Operation Code */
+
+    /* Event Code */
+
+    /**
+     * A method that writes all the events to the json writer as a json array while iterating over the event map.
+     * The locks of an event are held only while its values are read, so a slow client never blocks the writers
+     * and no json object is created per event.
+     *
+     * @param json
+     * @throws IOException
+     */
+    public void writeEventList(JsonStreamWriter json) throws IOException {
+        int[] keys;
+        readWriteLockEventMap.readLock().lock();
+        try {
+            keys = new int[eventMap.size()];
+            int i = 0;
+            for (int key : eventMap.keySet())
+                keys[i++] = key;
+        } finally {
+            readWriteLockEventMap.readLock().unlock();
+        }
+        json.beginArray();
+        for (int key : keys) {
+            String[] event = readEvent(key);
+            if (event != null) // null if deleted after the keys were copied
+                writeEvent(json, key, event);
+        }
+        json.endArray();
+    }
+
+    /**
+     * A thread safe method that returns a copy of the values of an event
+     *
+     * @param key - event ID
+     * @return event values (name, userId, avail, purchased) - null if not found
+     */
+    private String[] readEvent(int key) {
+        readWriteLockEventMap.readLock().lock();
+        ReentrantReadWriteLock eventLock = eventMapLocks.get(key);
+        if (eventLock != null)
+            eventLock.readLock().lock();
+        try {
+            String[] event = eventMap.get(key);
+            return event == null ? null : event.clone();
+        } finally {
+            if (eventLock != null)
+                eventLock.readLock().unlock();
+            readWriteLockEventMap.readLock().unlock();
+        }
+    }
+
+    /**
+     * A method that writes the events of a map (ex: result of a search) to the json writer as a json array
+     *
+     * @param json
+     * @param map  - eventId -> event values (name, userId, avail, purchased)
+     * @throws IOException
+     */
+    public static void writeEvents(JsonStreamWriter json, SortedMap<Integer, String[]> map) throws IOException {
+        json.beginArray();
+        for (int key : map.keySet())
+            writeEvent(json, key, map.get(key));
+        json.endArray();
+    }
+
+    /**
+     * A method that writes one event as a json object
+     *
+     * @param json
+     * @param key   - event ID
+     * @param event - event values (name, userId, avail, purchased)
+     * @throws IOException
+     */
+    private static void writeEvent(JsonStreamWriter json, int key, String[] event) throws IOException {
+        json.beginObject()
+                .field("eventid", key)
+                .field("eventname", event[0])
+                .field("userid", Integer.parseInt(event[1]))
+                .field("avail", Integer.parseInt(event[2]))
+                .field("purchased", Integer.parseInt(event[3]))
+                .endObject();
+    }
+
+    /**
+     * A thread safe method that gets a specific event from event map and parse it in
+     * json object and returns the json string
+     *
+     * @param reqEventId
+     * @return json string format
+     */
+    public String getEvent(int reqEventId) {
+        try {
+            readWriteLockEventMap.readLock().lock();
+            lockEventListReadLock(reqEventId);
+            JSONObject jsonObject = new JSONObject();
+            if (eventMap.get(reqEventId) != null) {
+                String eventName = eventMap.get(reqEventId)[0];
+                String userId = eventMap.get(reqEventId)[1];
+                String availTickets = eventMap.get(reqEventId)[2];
+                String purchTickets = eventMap.get(reqEventId)[3];
+                // create json object
+                jsonObject.put("eventid", reqEventId);
+                jsonObject.put("eventname", eventName);
+                jsonObject.put("userid", Integer.parseInt(userId));
+                jsonObject.put("avail", Integer.parseInt(availTickets));
+                jsonObject.put("purchased", Integer.parseInt(purchTickets));
+                return jsonObject.toJSONString(); // return json object as string
+            } else
+                return "400";
+        } catch (Exception e) {
+            return "400";
+        } finally {
+            eventMapLocks.get(reqEventId).readLock().unlock();
+            readWriteLockEventMap.readLock().unlock();
+        }
+    }
+
+    /**
+     * A thread safe method that gets all the events from Event Map and parse them in json array
+     * and return the json array
+     *
+     * @return json array string format
+     */
+    public JSONArray getEventsJsonList(boolean withTickets) {
+        JSONArray jsonArray = new JSONArray();
+        try {
+            readWriteLockEventMap.readLock().lock();
+            for (int key : eventMapLocks.keySet()) // lock all readlocks in eventMapLock
+                eventMapLocks.get(key).readLock().lock();
+            for (int key : eventMap.keySet()) { // iterate through event map
+                String eventName = eventMap.get(key)[0];
+                String userId = eventMap.get(key)[1];
+                String availTickets = eventMap.get(key)[2];
+                String purchTickets = eventMap.get(key)[3];
+                // create json object
+                JSONObject jsonObject = new JSONObject();
+                jsonObject.put("eventid", key);
+                jsonObject.put("avail", Integer.parseInt(availTickets));
+                jsonObject.put("purchased", Integer.parseInt(purchTickets));
+                jsonObject.put("userid", Integer.parseInt(userId));
+                jsonObject.put("eventname", eventName);
+                if (withTickets) {
+                    SortedMap<Integer, Integer> userEventTickets = userTicketMap.get(key);
+                    JSONArray userTicketJsonArray = new JSONArray();
+                    if (userEventTickets != null) {
+                        for (int event : userEventTickets.keySet()) {
+                            JSONObject eventJsonObject = new JSONObject();
+                            eventJsonObject.put("eventid", event);
+                            eventJsonObject.put("ticketnb", userEventTickets.get(event));
+                            userTicketJsonArray.add(eventJsonObject);
+                        }
+                    }
+                    jsonObject.put("tickets", userTicketJsonArray);
+                }
+                jsonArray.add(jsonObject); // add json object to json list
+            }
+            return jsonArray; // return json list as string
+        } catch (Exception e) {
+            return jsonArray;
+        } finally {
+            for (int key : eventMapLocks.keySet()) // unlock all readlocks in eventListLock
+                eventMapLocks.get(key).readLock().unlock();
+            readWriteLockEventMap.readLock().unlock();
+        }
+    }
+
+    /**
+     * A thread safe method that search for events using Lucene and return a map containing matched events.
+     * The locks are released before the result is written to the client.
+     *
+     * @param keywords
+     * @param avail
+     * @return matched events (eventId -> name, userId, avail, purchased)
+     */
+    public SortedMap<Integer, String[]> searchEvents(String keywords, int avail) {
+        try {
+            readWriteLockEventMap.readLock().lock();
+            for (int key : eventMapLocks.keySet()) // lock all readlocks in eventMapLock
+                eventMapLocks.get(key).readLock().lock();
+
+            if (eventMap.size() > 0) {
+                SortedMap<Integer, String[]> map = new TreeMap<>();
+                for (int key : eventMap.keySet()) // create a copy of eventMap
+                    map.put(key, eventMap.get(key).clone());
+
+                LuceneSearch luceneSearch = LuceneSearch.getInstance();
+                return luceneSearch.search(map, keywords, avail, map.size() + 10);
+            }
+            return new TreeMap<>();
+        } catch (Exception e) {
+            return new TreeMap<>();
+        } finally {
+            for (int key : eventMapLocks.keySet()) // unlock all readlocks in eventListLock
+                eventMapLocks.get(key).readLock().unlock();
+            readWriteLockEventMap.readLock().unlock();
+        }
+    }
+
+    /**
+     * A method that creates a ReentrantReadWriteLock for an event and adds it to eventMapLocks if it doesn't exist
+     * and locks the read lock.
+     *
+     * @param key - event ID
+     */
+    private void lockEventListReadLock(int key) {
+        if (eventMapLocks.get(key) != null)
+            eventMapLocks.get(key).readLock().lock();
+        else {
+            ReentrantReadWriteLock readWriteLock1 = new ReentrantReadWriteLock();
+            readWriteLock1.readLock().lock();
+            eventMapLocks.put(key, readWriteLock1);
+        }
+    }
+
+    /**
+     * A thread safe method that creates an event and adds it to the eventMap.
+     * On success, it returns json string format of the new created event ID
+     *
+     * @param eventName
+     * @param userId
+     * @param numTickets
+     * @return json string of event ID
+     */
+    public String createEvent(String eventName, String userId, String numTickets) {
+        try {
+            JSONObject responseJson = new JSONObject();
+            for (int key : eventMap.keySet()) {
+                if (eventMap.get(key)[0].equals(eventName) && eventMap.get(key)[1].equals(userId)) // check if same event created by same user
+                    return "400";
+            }
+            eventId++; // increment event id
+
+            /* eventParam are {event name, creator id, total tickets, purchased tickets} */
+            String[] eventParam = {eventName, userId + "", numTickets + "", "0"};
+
+            eventMap.put(eventId, eventParam); // create event and add it to the map
+            responseJson.put("eventid", eventId); // create json response
+            return responseJson.toJSONString();
+        } catch (Exception e) {
+            return "400";
+        }
+    }
+
+    /**
+     * A thread safe method that takes event id and user id then deletes an event with the eventid
+     * from the eventMap. It also checks if the user sent is the same as the creator.
+     *
+     * @param userId
+     * @param eventId
+     * @return empty string (success) - 400 (failure)
+     */
+    public SortedMap<Integer, String[]> deleteEvent(int eventId, String userId) {
+        try {
+            SortedMap<Integer, String[]> backupEventMap = new TreeMap<>();
+            JSONObject responseJson = new JSONObject();
+            if (eventMap.get(eventId) == null) // check if event exists in eventMap
+                return null;
+            if (!eventMap.get(eventId)[1].equals(userId)) // check if userid is the creator id
+                return null;
+            for (int key : eventMap.keySet()) { // create a backup of eventMap
+                String[] value = new String[4];
+                value[0] = eventMap.get(key)[0];
+                value[1] = eventMap.get(key)[1];
+                value[2] = eventMap.get(key)[2];
+                value[3] = eventMap.get(key)[3];
+                backupEventMap.put(key, value);
+            }
+            eventMap.remove(eventId);
+            return backupEventMap;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * A thread safe method that restores the backup event Map to the initial eventMap
+     *
+     * @return empty string (success) - 400 (failure)
+     */
+    public String restoreBackupEvent(SortedMap<Integer, String[]> backupEventMap) {
+        try {
+            for (int key : backupEventMap.keySet()) {
+                String[] value = new String[4];
+                value[0] = backupEventMap.get(key)[0];
+                value[1] = backupEventMap.get(key)[1];
+                value[2] = backupEventMap.get(key)[2];
+                value[3] = backupEventMap.get(key)[3];
+                eventMap.put(key, value);
+            }
+            return "";
+        } catch (Exception e) {
+            return "400";
+        }
+    }
+
+    /**
+     * A thread safe method that update an event.
+     * On success, it returns json string format of the new created event ID
+     *
+     * @param eventName
+     * @param userId
+     * @param additionalTickets
+     * @return json string of event ID
+     */
+    public String updateEvent(int eventId, String eventName, String userId, int additionalTickets) {
+        try {
+            if (eventMap.get(eventId) == null) // event doesn't exist
+                return "400";
+            if (!eventMap.get(eventId)[1].equals(userId)) // check if the user sent is the creator, if not return 400
+                return "400";
+
+            String[] eventParam = eventMap.get(eventId).clone(); // the array in the map never changes, a snapshot shares it
+            if (eventName.length() > 0) { // it means the client sent a new event name
+                for (int id : eventMap.keySet()) { // check if the user created a different event with the same name
+                    if (eventMap.get(id)[1].equals(userId) && eventMap.get(id)[0].equals(eventName) && id != eventId)
+                        return "400";
+                }
+                eventParam[0] = eventName;
+            }
+            if (additionalTickets > 0) { // it means the client sent additional tickets
+                int tickets = Integer.parseInt(eventParam[2]);
+                tickets += additionalTickets;
+                eventParam[2] = tickets + "";
+            }
+            eventMap.put(eventId, eventParam); // update event's parameter
+
+            return "";
+        } catch (Exception e) {
+            return "400";
+        }
+    }
+
+    /**
+     * A method that locks the write lock of readWriteLockEventMap
+     */
+    public void lockWriteLock() {
+        readWriteLockEventMap.writeLock().lock();
+    }
+
+    /**
+     * A method that unlocks the write lock of readWriteLockEventMap if the current thread holds it
+     */
+    public void unlockWriteLock() {
+        if (readWriteLockEventMap.writeLock().isHeldByCurrentThread())
+            readWriteLockEventMap.writeLock().unlock();
+    }
+
+    /**
+     * A thread safe method that updates the tickets in a specific event
+     *
+     * @param eventId
+     * @param purchasedTickets
+     * @return empty string on success or 400 if failed
+     */
+    public String purchaseTickets(int eventId, int purchasedTickets, int userId) {
+        int availableTickets = Integer.parseInt(eventMap.get(eventId)[2]);
+
+        if (purchasedTickets > availableTickets || purchasedTickets < 1) // purchased tickets = 0 or greater than available
+            return "400";
+
+        availableTickets -= purchasedTickets;
+        purchasedTickets += Integer.parseInt(eventMap.get(eventId)[3]);
+        String eventName = eventMap.get(eventId)[0];
+        String creatorId = eventMap.get(eventId)[1];
+        String[] eventParam = {eventName, creatorId, availableTickets + "", purchasedTickets + ""};
+        eventMap.replace(eventId, eventParam);
+
+        try {
+            userTicketLock.lock();
+            SortedMap<Integer, Integer> ticketsMap = userTicketMap.get(userId);
+            if (ticketsMap == null) { // check if user's ticket map is empty ( user didn't purchase before)
+                ticketsMap = new TreeMap<>();
+                ticketsMap.put(eventId, purchasedTickets);
+            } else {
+                if (ticketsMap.get(eventId) != null) { // check if the eventId for new tickets exists so I will update the entry and not put
+                    int allTickets = ticketsMap.get(eventId) + purchasedTickets;
+                    ticketsMap.put(eventId, allTickets);
+                } else
+                    ticketsMap.put(eventId, purchasedTickets);
+            }
+            userTicketMap.put(userId, ticketsMap);
+        } finally {
+            userTicketLock.unlock();
+        }
+        return "";
+    }
+
+    /**
+     * A thread safe method that resets the tickets to their initial value before calling
+     * purchaseTickets method in a specific event.
+     *
+     * @param id - event id
+     * @param purchasedTickets
+     * @return empty string on success
+     */
+    public String rollBackTickets(int id, int purchasedTickets, int userId) {
+        try {
+            userTicketLock.lock();
+            if(userTicketMap.get(userId).get(id) != null) {
+                int availableTickets = Integer.parseInt(eventMap.get(id)[2]);
+                availableTickets += purchasedTickets;
+                purchasedTickets = Integer.parseInt(eventMap.get(id)[3]) - purchasedTickets;
+                String eventName = eventMap.get(id)[0];
+                String creatorId = eventMap.get(id)[1];
+                String[] eventParam = {eventName, creatorId, availableTickets + "", purchasedTickets + ""};
+                eventMap.replace(id, eventParam);
+                if(userTicketMap.get(userId) != null) {
+                    if(userTicketMap.get(userId).get(id) != null)
+                        userTicketMap.get(userId).remove(id);
+                }
+            }
+        } finally {
+            userTicketLock.unlock();
+        }
+        return "";
+    }
+
+    /**
+     * A method that checks if the event exists in the event map then that waits till readWriteLockEventMap
+     * write lock is not held by another thread. Then it creates a ReentrantReadWriteLock for a specific event
+     * and locks its write lock and adds it to the eventMapLocks if it doesn't exist.
+     *
+     * @param key
+     * @return true if event exists otherwise false
+     */
+    public boolean lockEventListWriteLock(int key) {
+        if (eventMap.get(key) != null) {
+            while (readWriteLockEventMap.writeLock().isHeldByCurrentThread()) {
+            } // wait till writelock is unlocked
+            if (eventMapLocks.get(key) != null)
+                eventMapLocks.get(key).writeLock().lock();
+            else {
+                ReentrantReadWriteLock readWriteLock1 = new ReentrantReadWriteLock();
+                readWriteLock1.writeLock().lock();
+                eventMapLocks.put(key, readWriteLock1);
+            }
+            return true;
+        } else
+            return false;
+    }
+
+    /**
+     * A method that unlocks write lock of specific event in eventMapLocks
+     *
+     * @param key - event ID
+     */
+    public void unlockEventListWriteLock(int key) {
+        if (eventMapLocks.get(key) != null)
+            eventMapLocks.get(key).writeLock().unlock();
+    }
+
+    /**
+     * A thread safe method that updates the current event Map with the map sent to it
+     * and assigns the eventID as last key if map size > 0 or 0 if the map is empty
+     *
+     * @param map
+     * @return true (success) - false (failure)
+     */
+    public boolean updateEventMap(SortedMap<Integer, String[]> map,
+                                  SortedMap<Integer,SortedMap<Integer, Integer>> ticketMap) {
+        try {
+            readWriteLockEventMap.writeLock().lock();
+            eventMap.clear();
+            eventMap.putAll(map);
+            if (eventMap.size() > 0)
+                eventId = eventMap.lastKey();
+            else
+                eventId = 0;
+            userTicketMap.clear();
+            userTicketMap.putAll(ticketMap);
+            return true;
+        } catch (Exception e) {
+            return false;
+        } finally {
+            readWriteLockEventMap.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A method that copies the events, the tickets of the users, the operation ID and the sequences at one point in
+     * time (used by the snapshots and the lists sent to a new member). The operations are paused only during the copy
+     * in memory, never while it is written.
+     *
+     * @param operationLog - its end is the position of the copy, null if the service doesn't log its operations
+     * @return copy of the lists
+     */
+    Lists copyState(OperationLog operationLog) {
+        try {
+            lockSnapshotWriteLock();
+            readWriteLockEventMap.readLock().lock(); // the lists received from the primary are not installed during the copy
+            SortedMap<Integer, SortedMap<Integer, Integer>> tickets = new TreeMap<>(userTicketMap);
+            for (Map.Entry<Integer, SortedMap<Integer, Integer>> entry : tickets.entrySet())
+                entry.setValue(new TreeMap<>(entry.getValue()));
+            return new Lists(new TreeMap<>(eventMap), // the arrays of the events are replaced, never changed
+                    tickets, eventId, getOperationId(), getSequences(), operationLog == null ? -1 : operationLog.getSize());
+        } finally {
+            readWriteLockEventMap.readLock().unlock();
+            unlockSnapshotWriteLock();
+        }
+    }
+
+    /**
+     * A method that replaces the events, the tickets of the users, the operation ID and the sequences
+     * (snapshot loaded when the service starts, or lists received from the primary)
+     *
+     * @param events
+     * @param tickets
+     * @param lastEventId  - last event ID given, the last events may have been deleted
+     * @param operationId
+     * @param sequences
+     * @return true on success
+     */
+    public boolean installState(SortedMap<Integer, String[]> events, SortedMap<Integer, SortedMap<Integer, Integer>> tickets,
+                                int lastEventId, int operationId, long[] sequences) {
+        boolean result = updateEventMap(events, tickets);
+        try {
+            readWriteLockEventMap.writeLock().lock();
+            eventId = lastEventId;
+        } finally {
+            readWriteLockEventMap.writeLock().unlock();
+        }
+        setSequences(sequences);
+        setOperationId(operationId);
+        return result;
+    }
+
+    /**
+     * A method called by the snapshot thread that copies the lists (copyState), they are written to the disk after the
+     * operations resumed.
+     * Layout: [operation ID][partitions][sequences][event ID][events][id, name, creator, total, purchased]...
+     * [users][id, events][event id, tickets]...
+     *
+     * @param operationLog - its end is the position of the copy
+     * @return copy of the lists
+     */
+    public Snapshot.Copy copyLists(OperationLog operationLog) {
+        final Lists lists = copyState(operationLog);
+        return new Snapshot.Copy(lists.position) {
+            @Override
+            public void writeTo(DataOutputStream out) throws IOException {
+                out.writeInt(lists.operationId);
+                out.writeInt(lists.sequences.length);
+                for (long sequence : lists.sequences)
+                    out.writeLong(sequence);
+                out.writeInt(lists.eventId);
+                out.writeInt(lists.events.size());
+                for (Map.Entry<Integer, String[]> entry : lists.events.entrySet()) {
+                    String[] eventParam = entry.getValue();
+                    out.writeInt(entry.getKey());
+                    Snapshot.putString(out, eventParam[0]);
+                    Snapshot.putString(out, eventParam[1]);
+                    out.writeInt(Integer.parseInt(eventParam[2]));
+                    out.writeInt(Integer.parseInt(eventParam[3]));
+                }
+                out.writeInt(lists.tickets.size());
+                for (Map.Entry<Integer, SortedMap<Integer, Integer>> entry : lists.tickets.entrySet()) {
+                    out.writeInt(entry.getKey());
+                    out.writeInt(entry.getValue().size());
+                    for (Map.Entry<Integer, Integer> userTickets : entry.getValue().entrySet()) {
+                        out.writeInt(userTickets.getKey());
+                        out.writeInt(userTickets.getValue());
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * A method called when the service starts that restores the lists written by copyLists
+     *
+     * @param buffer - mapped snapshot file after its header
+     */
+    public void loadLists(ByteBuffer buffer) {
+        int lastOperationId = buffer.getInt();
+        long[] lastSequences = new long[buffer.getInt()];
+        for (int i = 0; i < lastSequences.length; i++)
+            lastSequences[i] = buffer.getLong();
+        int lastEventId = buffer.getInt();
+        SortedMap<Integer, String[]> events = new TreeMap<>();
+        for (int i = buffer.getInt(); i > 0; i--) {
+            int key = buffer.getInt();
+            String[] eventParam = {Snapshot.getString(buffer), Snapshot.getString(buffer), buffer.getInt() + "", buffer.getInt() + ""};
+            events.put(key, eventParam);
+        }
+        SortedMap<Integer, SortedMap<Integer, Integer>> tickets = new TreeMap<>();
+        for (int i = buffer.getInt(); i > 0; i--) {
+            int key = buffer.getInt();
+            SortedMap<Integer, Integer> userTickets = new TreeMap<>();
+            for (int j = buffer.getInt(); j > 0; j--)
+                userTickets.put(buffer.getInt(), buffer.getInt());
+            tickets.put(key, userTickets);
+        }
+        installState(events, tickets, lastEventId, lastOperationId, lastSequences);
+    }
+
+    /* End of Event Code */
+
+    /* Member Code */
+
+    /**
+     * A thread safe method that checks if the given host exists in the member map
+     * if it doesn't exist then add the host with member ID as a key to member map.
+     * Otherwise, it means it existed before so it failed and joined back. So get the key of the existed host
+     * then remove it from the map and add it at the end.
+     * Then increment the memberID.
+     *
+     * @param host
+     * @return true (success) - false (failure)
+     */
+    public boolean addNewMember(String host) {
+        try {
+            readWriteLockMember.writeLock().lock();
+            // check if the host already exists in the map
+            boolean exists = false;
+            for (int key : membershipMap.keySet()) {
+                if (membershipMap.get(key).equals(host)) {
+                    exists = true;
+                    break;
+                }
+            }
+            if (!exists) {
+                membershipMap.put(memberId, host);
+                memberId++;
+            } else { // it existed before but failed and returned back
+                int index = -1;
+                for (int key : membershipMap.keySet()) {
+                    if (membershipMap.get(key).equals(host)) {
+                        index = key;
+                        break;
+                    }
+                }
+                removeMember(index);
+                membershipMap.put(memberId, host);
+                memberId++;
+            }
+            /* for demonstration */
+            System.out.println("#######################");
+            for (int key : membershipMap.keySet())
+                System.out.println(membershipMap.get(key));
+            System.out.println("#######################");
+            /* ------------------ */
+            return true;
+        } catch (Exception e) {
+            return false;
+        } finally {
+            readWriteLockMember.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A thread safe method that returns a map of membership Map
+     *
+     * @return membership map
+     */
+    public SortedMap<Integer, String> getMembershipMap() {
+        try {
+            readWriteLockMember.readLock().lock();
+            SortedMap<Integer, String> temp = new TreeMap<>();
+            for (int key : membershipMap.keySet()) {
+                String host = membershipMap.get(key);
+                temp.put(key, host);
+            }
+            return temp;
+        } catch (Exception e) {
+            return null;
+        } finally {
+            readWriteLockMember.readLock().unlock();
+        }
+    }
+
+    /**
+     * A thread safe method that saves all the members before a specific host in a map
+     * and return it.
+     *
+     * @param host
+     * @return map
+     */
+    public SortedMap<Integer, String> getMemberMapLowerThanHost(String host) {
+        try {
+            readWriteLockMember.readLock().lock();
+            SortedMap<Integer, String> temp = new TreeMap<>();
+            for (int key : membershipMap.keySet()) {
+                if (membershipMap.get(key).equals(host)) // when I reach the sent host it means I added all previous elements
+                    break;
+                String memberHost = membershipMap.get(key);
+                temp.put(key, memberHost);
+            }
+            return temp;
+        } catch (Exception e) {
+            return null;
+        } finally {
+            readWriteLockMember.readLock().unlock();
+        }
+    }
+
+    /**
+     * A thread safe method that gets all members in memberMap and parse them in
+     * jsonArray and return it.
+     *
+     * @return memberJsonArray
+     */
+    private JSONArray getMemberMapJSON() {
+        JSONArray membershipJsonArray = new JSONArray();
+        try {
+            readWriteLockMember.readLock().lock();
+            for (int key : membershipMap.keySet()) { // iterate through memberList
+                // create json object
+                JSONObject jsonObject = new JSONObject();
+                jsonObject.put("id", key);
+                jsonObject.put("memberHost", membershipMap.get(key));
+                if (BinaryCodec.accepts(membershipMap.get(key)))
+                    jsonObject.put("protocol", BinaryCodec.PROTOCOL);
+                membershipJsonArray.add(jsonObject); // add json object to json list
+            }
+            return membershipJsonArray;
+        } catch (Exception e) {
+            return membershipJsonArray;
+        } finally {
+            readWriteLockMember.readLock().unlock();
+        }
+    }
+
+    /**
+     * A thread safe method that updates the current memberMap with the send map
+     *
+     * @param map
+     * @return true : success - false : failure
+     */
+    public boolean updateMemberList(SortedMap<Integer, String> map) {
+        try {
+            readWriteLockMember.writeLock().lock();
+            membershipMap.clear();
+            membershipMap.putAll(map);
+            memberId = membershipMap.lastKey() + 1;
+            return true;
+        } catch (Exception e) {
+            return false;
+        } finally {
+            readWriteLockMember.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A method that removes a member if it exists in the memberMap
+     * then it re-orders all the members in the map to make the member ID in sequence
+     * Ex: previous memberMap after remving memberID 2 will be 1,3,4,5,6
+     * so after re-ordering it will be 1,2,3,4,5
+     *
+     * @param id member ID
+     * @throws Exception
+     */
+    private void removeMember(int id) throws Exception {
+        if (membershipMap.get(id) != null) {
+            membershipMap.remove(id);
+
+            /* organize memberIds again in sequential order */
+            ArrayList<String> members = new ArrayList<>();
+            for (int key : membershipMap.keySet()) // copy all members from map to arrayList
+                members.add(membershipMap.get(key));
+            membershipMap.clear(); // clear member map
+            for (int i = 0; i < members.size(); i++) { // copy all members from list to map
+                membershipMap.put(i, members.get(i));
+            }
+            memberId = membershipMap.lastKey() + 1;
+        }
+    }
+
+    /**
+     * A thread safe method that locks the write lock for member and calls removeMember
+     *
+     * @param host
+     */
+    public void deleteMember(String host) {
+        try {
+            readWriteLockMember.writeLock().lock();
+            int index = -1;
+            for (int id : membershipMap.keySet()) {
+                if (host.equals(membershipMap.get(id))) {
+                    index = id;
+                    break;
+                }
+            }
+            if (index != -1)
+                removeMember(index);
+        } catch (Exception e) {
+        } finally {
+            readWriteLockMember.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A thread safe method that gets the new primary host then checks if the host exists.
+     * if the primary exists, then remove all members in memberMap that are before the primary host since this host is elected
+     * means that all previous members didn't reply (dead)
+     * Otherwise, add the primary as the first member in the memberMap.
+     * Finally, updates all primary variables.
+     *
+     * @param newPrimaryHost
+     * @return true (success) - false (failure)
+     */
+    public boolean updatePrimary(String newPrimaryHost) {
+        try {
+            readWriteLockMember.writeLock().lock();
+            int found = -1;
+            SortedMap<Integer, String> temp = new TreeMap<>();
+            for (int key : membershipMap.keySet())
+                temp.put(key, membershipMap.get(key));
+            for (int key : temp.keySet()) {
+                if (temp.get(key).equals(newPrimaryHost)) {
+                    found = key;
+                    break;
+                }
+            }
+            if (found != -1) {
+                // since primary now is elected then remove all previous nodes
+                for (int key : temp.keySet()) {
+                    if (key == found)
+                        break;
+                    membershipMap.remove(key);
+                }
+            } else {
+                ArrayList<String> members = new ArrayList<>();
+                for (int key : temp.keySet()) // copy all members from map to list
+                    members.add(temp.get(key));
+                members.add(0, newPrimaryHost); // add new primary at the beginning of the list
+                membershipMap.clear(); // clear map
+                for (int i = 0; i < members.size(); i++) // copy all members from list to map
+                    membershipMap.put(i, members.get(i));
+                memberId = membershipMap.lastKey() + 1;
+            }
+            synchronized (this) {
+                if (newPrimaryHost.equals(host))
+                    isPrimary = true;
+                newPrimaryElected = true;
+                primaryEventHost = newPrimaryHost;
+            }
+            return true;
+        } catch (Exception e) {
+            log.debug(e);
+            return false;
+        } finally {
+            readWriteLockMember.writeLock().unlock();
+        }
+    }
+
+    /* End of Member Code */
+
+    /* FrontEnd Code */
+
+    /**
+     * A thread safe method that adds the host to the frontend list if it doesn't exist in the list
+     *
+     * @param host - new FE host
+     */
+    public void addFrontEnd(String host) {
+        readWriteLockFE.writeLock().lock();
+        boolean exists = false;
+        for (String h : frontEndList) {
+            if (h.equals(host)) {
+                exists = true;
+                break;
+            }
+        }
+        if (!exists) {
+            frontEndList.add(host);
+        }
+        readWriteLockFE.writeLock().unlock();
+    }
+
+    /**
+     * A thread safe method that updates the frontEnd list with the given list
+     *
+     * @param list
+     * @return true (success) - false (failure)
+     */
+    public boolean updateFrontEndList(ArrayList<String> list) {
+        try {
+            readWriteLockFE.writeLock().lock();
+            frontEndList.clear();
+            frontEndList = list;
+            return true;
+        } catch (Exception e) {
+            return false;
+        } finally {
+            readWriteLockFE.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A thread safe method that gets all FE hosts from the list and parses them in
+     * JsonArray and returns it
+     *
+     * @return jsonArray
+     */
+    private JSONArray getFrontEndJsonArray() {
+        JSONArray frontEndJsonArray = new JSONArray();
+        try {
+            readWriteLockFE.readLock().lock();
+            for (int i = 0; i < frontEndList.size(); i++) { // iterate through memberList
+                // create json object
+                JSONObject jsonObject = new JSONObject();
+                jsonObject.put("frontEndHost", frontEndList.get(i));
+                frontEndJsonArray.add(jsonObject); // add json object to json list
+            }
+            return frontEndJsonArray;
+        } catch (Exception e) {
+            return frontEndJsonArray;
+        } finally {
+            readWriteLockFE.readLock().unlock();
+        }
+    }
+
+    /**
+     * A thread safe method that return a FE list
+     *
+     * @return FE list
+     */
+    public ArrayList<String> getFrontEndArrayList() {
+        ArrayList<String> list = new ArrayList<>();
+        try {
+            readWriteLockFE.readLock().lock();
+            for (String member : frontEndList)
+                list.add(member);
+            return list;
+        } catch (Exception e) {
+            return list;
+        } finally {
+            readWriteLockFE.readLock().unlock();
+        }
+    }
+
+    /**
+     * A thread safe method that deletes a FE element by its index from the list
+     *
+     * @param host
+     */
+    public void deleteFrontEndElement(String host) {
+        try {
+            readWriteLockFE.writeLock().lock();
+            int index = -1;
+            for (int i = 0; i < frontEndList.size(); i++) {
+                if (frontEndList.get(i).equals(host)) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index != -1)
+                frontEndList.remove(index);
+        } catch (Exception e) {
+            log.debug("deleting FE " + e);
+        } finally {
+            readWriteLockFE.writeLock().unlock();
+        }
+    }
+
+    /* ENd of FrontEnd Code */
+
+    /* User Cache Code */
+
+    /**
+     * A thread safe method that checks if a user was found in the user service less than userCacheTtl ago.
+     * The user service never deletes a user, so only the ids found are kept and an expired one is removed.
+     *
+     * @param userId
+     * @return true if the user exists, false if the user service must be asked
+     */
+    public boolean isKnownUser(long userId) {
+        if (userCacheTtl == 0)
+            return false;
+        try {
+            userCacheLock.lock();
+            Long checked = knownUsers.get(userId);
+            if (checked == null)
+                return false;
+            if (System.currentTimeMillis() - checked > userCacheTtl) {
+                knownUsers.remove(userId);
+                return false;
+            }
+            return true;
+        } finally {
+            userCacheLock.unlock();
+        }
+    }
+
+    /**
+     * A thread safe method that adds a user found in the user service, the least recently used one is removed
+     * when the cache is full
+     *
+     * @param userId
+     */
+    public void addKnownUser(long userId) {
+        if (userCacheTtl == 0)
+            return;
+        try {
+            userCacheLock.lock();
+            knownUsers.put(userId, System.currentTimeMillis());
+        } finally {
+            userCacheLock.unlock();
+        }
+    }
+
+    /**
+     * A thread safe method that removes users from the cache, called when the user primary pushes an invalidation
+     * or changes
+     *
+     * @param userIds - null removes all the users
+     */
+    public void invalidateUsers(Collection<Long> userIds) {
+        try {
+            userCacheLock.lock();
+            if (userIds == null)
+                knownUsers.clear();
+            else
+                knownUsers.keySet().removeAll(userIds);
+        } finally {
+            userCacheLock.unlock();
+        }
+    }
+
+    /* End of User Cache Code */
+
+    /**
+     * A method called by the primary only that parses the frontend list, membership list, and events map
+     * in a json list and return it as a json format string
+     *
+     * @return json string format
+     */
+    public String getAllLists() {
+        try {
+            SortedMap<String, JSONArray> map = new TreeMap<>();
+            map.put("members", getMemberMapJSON());
+            map.put("fe", getFrontEndJsonArray());
+            map.put("events", getEventsJsonList(true));
+            map.put("operation", getOperationIdJson());
+            String jsonText = JSONValue.toJSONString(map);
+            return jsonText;
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    /**
+     * A method called by the primary only that returns the secondaries the front ends can send the reads to:
+     * {"ordered":true,"members":[{"host":"...","lagMs":35}]}
+     * lagMs is the age of the oldest operation the secondary didn't acknowledge. Ordered is false if the primary
+     * uses partitions, the operation ID of a secondary is then the number of operations it applied, not the ID
+     * before which every operation is applied.
+     *
+     * @return json string format
+     */
+    public String getReadHostsJson() {
+        JSONArray members = new JSONArray();
+        for (String member : getMembershipMap().values()) {
+            if (member.equals(host))
+                continue;
+            JSONObject jsonObject = new JSONObject();
+            jsonObject.put("host", member);
+            jsonObject.put("lagMs", AckPolicy.getLagMs(member));
+            members.add(jsonObject);
+        }
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("ordered", getPartitions() == 1);
+        jsonObject.put("members", members);
+        return jsonObject.toJSONString();
+    }
+
+    /**
+     * A method called by the primary only that parses the frontend list, membership list, and the operations a member
+     * that joins again missed in a json list and return it as a json format string
+     *
+     * @param operations - [{"path", "data"}] in the order the primary applied them
+     * @return json string format
+     */
+    public String getCatchUpLists(JSONArray operations) {
+        try {
+            SortedMap<String, JSONArray> map = new TreeMap<>();
+            map.put("members", getMemberMapJSON());
+            map.put("fe", getFrontEndJsonArray());
+            map.put("operations", operations);
+            return JSONValue.toJSONString(map);
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    /**
+     * A method called by the primary only that returns the next chunk of the lists sent to a new member as a json
+     * format string: up to size events, then up to size users with their tickets once all the events were sent
+     *
+     * @param transfer - ID of the transfer, the member drops the chunks of an older transfer
+     * @param chunk    - number of the chunks sent before this one
+     * @param events   - events of the copy not sent yet
+     * @param tickets  - users of the copy not sent yet
+     * @param size     - maximum number of events or users in the chunk
+     * @return json string format
+     */
+    public String getListsChunk(long transfer, int chunk, Iterator<Map.Entry<Integer, String[]>> events,
+                                Iterator<Map.Entry<Integer, SortedMap<Integer, Integer>>> tickets, int size) {
+        JSONArray eventsArray = new JSONArray();
+        while (events.hasNext() && eventsArray.size() < size) {
+            Map.Entry<Integer, String[]> entry = events.next();
+            JSONObject jsonObject = new JSONObject();
+            jsonObject.put("eventid", entry.getKey());
+            jsonObject.put("eventname", entry.getValue()[0]);
+            jsonObject.put("userid", Integer.parseInt(entry.getValue()[1]));
+            jsonObject.put("avail", Integer.parseInt(entry.getValue()[2]));
+            jsonObject.put("purchased", Integer.parseInt(entry.getValue()[3]));
+            eventsArray.add(jsonObject);
+        }
+        JSONArray ticketsArray = new JSONArray();
+        while (!events.hasNext() && tickets.hasNext() && ticketsArray.size() < size) {
+            Map.Entry<Integer, SortedMap<Integer, Integer>> entry = tickets.next();
+            JSONArray userTicketJsonArray = new JSONArray();
+            for (Map.Entry<Integer, Integer> userTickets : entry.getValue().entrySet()) {
+                JSONObject eventJsonObject = new JSONObject();
+                eventJsonObject.put("eventid", userTickets.getKey());
+                eventJsonObject.put("ticketnb", userTickets.getValue());
+                userTicketJsonArray.add(eventJsonObject);
+            }
+            JSONObject jsonObject = new JSONObject();
+            jsonObject.put("userid", entry.getKey());
+            jsonObject.put("tickets", userTicketJsonArray);
+            ticketsArray.add(jsonObject);
+        }
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("transfer", transfer);
+        jsonObject.put("chunk", chunk);
+        jsonObject.put("events", eventsArray);
+        jsonObject.put("tickets", ticketsArray);
+        return jsonObject.toJSONString();
+    }
+
+    /**
+     * A method called by the primary only that returns the last message of a transfer as a json format string:
+     * frontend list, membership list, operation ID and sequences of the copy, and the number of chunks sent
+     *
+     * @param lists    - copy sent in chunks
+     * @param transfer - ID of the transfer
+     * @param chunks   - number of chunks sent
+     * @return json string format
+     */
+    public String getTransferLists(Lists lists, long transfer, int chunks) {
+        JSONObject transferJson = new JSONObject();
+        transferJson.put("id", transfer);
+        transferJson.put("chunks", chunks);
+        transferJson.put("eventid", lists.eventId);
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("members", getMemberMapJSON());
+        jsonObject.put("fe", getFrontEndJsonArray());
+        jsonObject.put("operation", getOperationIdJson(lists.operationId, lists.sequences));
+        jsonObject.put("transfer", transferJson);
+        return jsonObject.toJSONString();
+    }
+
+    /**
+     * A class that holds a copy of the events and the tickets of the users at one point in time (copyState)
+     */
+    static class Lists {
+
+        final SortedMap<Integer, String[]> events;
+        final SortedMap<Integer, SortedMap<Integer, Integer>> tickets;
+        final int eventId; // last event ID given
+        final int operationId;
+        final long[] sequences;
+        final long position; // end of the operation log, -1 if the service doesn't log its operations
+
+        /**
+         * Constructor
+         *
+         * @param events
+         * @param tickets
+         * @param eventId
+         * @param operationId
+         * @param sequences
+         * @param position
+         */
+        Lists(SortedMap<Integer, String[]> events, SortedMap<Integer, SortedMap<Integer, Integer>> tickets, int eventId,
+              int operationId, long[] sequences, long position) {
+            this.events = events;
+            this.tickets = tickets;
+            this.eventId = eventId;
+            this.operationId = operationId;
+            this.sequences = sequences;
+            this.position = position;
+        }
+    }
+}
@@ -1,139 +1,268 @@
-package EventService;
-
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-import org.json.simple.JSONObject;
-
-import java.io.IOException;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
-/**
- * Event service main class that receives all the HTTP requests and sends them
- * as threads to the Request Handler class.
- * It guarantees thread-safe concept.
- *
- * @author Hassan Chadad
- */
-public class EventsServiceHandler extends Thread {
-
-    private static String eventPrimaryHost;
-    private static String userPrimaryHost;
-    private static EventServiceDetails eventServiceDetails; // eventServiceDetails object access by other classes
-    private static LuceneSearch luceneSearch;
-    private static Election election; // election object accessed by other classes
-    private final static Logger log = LogManager.getRootLogger(); // Log Object to print to the System.out.println file
-
-    /**
-     * main method that gets all the hosts from the args array and create election object and eventServiceDetails object
-     * and adds the hosts to it.
-     * Then it calls startServer and addService methods.
-     *
-     * @param args
-     */
-    public static void main(String[] args) {
-        try {
-            eventPrimaryHost = "http://";
-            userPrimaryHost = "http://";
-            String host = "http://";
-            int port = 0;
-            for (int i = 0; i < args.length; i += 2) {
-                if (args[i].equalsIgnoreCase("-host"))
-                    host += args[i + 1];
-                if (args[i].equalsIgnoreCase("-primaryE"))
-                    eventPrimaryHost += args[i + 1];
-                if (args[i].equalsIgnoreCase("-primaryU"))
-                    userPrimaryHost += args[i + 1];
-            }
-            String[] temp = host.split(":"); // split in order to get the port
-            port = Integer.parseInt(temp[2]);
-
-            eventServiceDetails = EventServiceDetails.getInstance(host, eventPrimaryHost, port, userPrimaryHost);
-            election = Election.getInstance();
-            luceneSearch = LuceneSearch.getInstance();
-
-            new EventsServiceHandler().startServer();
-            new EventsServiceHandler().addService();
-        } catch (Exception e) {
-            log.debug(e);
-            System.exit(0);
-        }
-    }
-
-    /**
-     * A method that starts the Event Service and accepts client requests,
-     * then assign a new thread to work for each client connected
-     */
-    public void startServer() {
-        final ExecutorService threads = Executors.newCachedThreadPool();
-
-        Runnable serverTask = new Runnable() {
-
-            @Override
-            public void run() {
-                try {
-                    ServerSocket welcomingSocket = new ServerSocket(eventServiceDetails.getPort());
-                    System.out.println("Waiting for clients to connect...");
-                    while (true) {
-                        Socket clientSocket = welcomingSocket.accept();
-                        threads.submit(new GeneralRequestHandler(clientSocket, userPrimaryHost));
-                    }
-                } catch (IOException e) {
-                    log.debug("Unable to process client request");
-                }
-            }
-        };
-        Thread serverThread = new Thread(serverTask);
-        serverThread.start();
-    }
-
-    /**
-     * After opening the server for listening, this method will check if the current service is primary or secondary
-     * by calling isPrimary method.
-     * If this is the primary then it's host will be added to the memberMap and the primary variable will be set to true
-     * Otherwise, this service will send an addMember request to the primary (as a registration) and gets all the data from it
-     * including (FE list, membersMap, operation ID, EventMap). Upon success, this service will start sending heartbeat
-     * messages to everyone in the membersMap
-     */
-    private void addService() {
-        String host = eventServiceDetails.getHost();
-        if (isPrimary(host)) {
-            eventServiceDetails.setPrimary(true);
-            eventServiceDetails.addNewMember(host);
-            System.out.println("I am primary. HaHaHa");
-        } else {
-            //log.debug("I am secondary so I will send for primary to add me : host " + host);
-            System.out.println("I am secondary :(");
-            RequestSender requestSender = new RequestSender();
-            JSONObject jsonObject = new JSONObject();
-            jsonObject.put("memberHost", host);
-            boolean response = requestSender.sendRequestBool(eventPrimaryHost + "/addMember", "POST", jsonObject.toJSONString());
-            if (response) {
-                System.out.println("All data replicated..");
-                System.out.println("I am added");
-                log.debug("All lists from primary \n" + eventServiceDetails.getAllLists() + "\n---------------------");
-                InternalRequestParser internalRequestParser = new InternalRequestParser();
-                internalRequestParser.startHeartBeat();
-            } else {
-                System.out.println("Wasn't added.");
-                System.exit(0);
-            }
-        }
-    }
-
-    /**
-     * A method that compares the current host with event primary host
-     * and return true on match otherwise false.
-     *
-     * @param host - current
-     * @return true/false
-     */
-    private boolean isPrimary(String host) {
-        if (eventPrimaryHost.equals(host))
-            return true;
-        return false;
-    }
-}
-
+package EventService;
+
+import Http.AckPolicy;
+import Http.AdmissionController;
+import Http.BinaryCodec;
+import Http.ExecutionMode;
+import Http.GroupCommit;
+import Http.HttpRequest;
+import Http.HttpResponse;
+import Http.NioServer;
+import Http.OperationLog;
+import Http.PooledHttpClient;
+import Http.ReplicationChannel;
+import Http.RequestProcessor;
+import Http.RetryPolicy;
+import Http.Snapshot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Event service main class that receives all the HTTP requests and sends them
+ * as threads to the Request Handler class.
+ * It guarantees thread-safe concept.
+ *
+ * @author Hassan Chadad
+ */
+public class EventsServiceHandler extends Thread {
+
+    private static String eventPrimaryHost;
+    private static String userPrimaryHost;
+    private static EventServiceDetails eventServiceDetails; // eventServiceDetails object access by other classes
+    private static LuceneSearch luceneSearch;
+    private static Election election; // election object accessed by other classes
+    private static String serverMode = "blocking"; // "nio" starts the selector based server
+    private static int ioThreads = 2; // number of event loop threads in nio mode
+    private static int workerThreads = 64; // number of threads executing requests in nio mode
+    private final static Logger log = LogManager.getRootLogger(); // Log Object to print to the System.out.println file
+
+    /**
+     * main method that gets all the hosts from the args array and create election object and eventServiceDetails object
+     * and adds the hosts to it.
+     * Then it calls startServer and addService methods.
+     *
+     * @param args
+     */
+    public static void main(String[] args) {
+        try {
+            eventPrimaryHost = "http://";
+            userPrimaryHost = "http://";
+            String host = "http://";
+            int port = 0;
+            for (int i = 0; i < args.length; i += 2) {
+                if (args[i].equalsIgnoreCase("-host"))
+                    host += args[i + 1];
+                if (args[i].equalsIgnoreCase("-server"))
+                    serverMode = args[i + 1];
+                if (args[i].equalsIgnoreCase("-ioThreads"))
+                    ioThreads = Integer.parseInt(args[i + 1]);
+                if (args[i].equalsIgnoreCase("-workers"))
+                    workerThreads = Integer.parseInt(args[i + 1]);
+                if (args[i].equalsIgnoreCase("-threads"))
+                    ExecutionMode.setVirtual(args[i + 1].equalsIgnoreCase("virtual"));
+                if (args[i].equalsIgnoreCase("-senderThreads"))
+                    ExecutionMode.setSenderThreads(Integer.parseInt(args[i + 1]));
+                if (args[i].equalsIgnoreCase("-primaryE"))
+                    eventPrimaryHost += args[i + 1];
+                if (args[i].equalsIgnoreCase("-primaryU"))
+                    userPrimaryHost += args[i + 1];
+            }
+            AdmissionController.configure(args); // -maxConcurrency, -queueDepth and -latencyTarget
+            PooledHttpClient.configure(args); // -connectTimeout, -readTimeout and -maxConnections
+            RetryPolicy.configure(args); // -retryBaseDelay, -retryMaxDelay, -retryAttempts and -retryDeadline
+            AckPolicy.configure(args); // -ackPolicy all|majority|N
+            ReplicationChannel.configure(args); // -replication stream|request
+            GroupCommit.configure(args); // -batchSize and -batchLinger
+            BinaryCodec.configure(args); // -protocol binary|json
+            EventServiceDetails.configureUserCache(args); // -userCacheTtl and -userCacheSize
+            EventServiceDetails.configurePartitions(args); // -partitions
+            OperationLog.configure(args); // -wal and -walSync always|none|ms
+            Snapshot.configure(args); // -snapshotInterval ms
+            BinaryCodec.negotiate(host, BinaryCodec.PROTOCOL); // sent in the member list
+            BinaryCodec.negotiate(userPrimaryHost, BinaryCodec.PROTOCOL); // goes back to json if it answers with HTTP
+            String[] temp = host.split(":"); // split in order to get the port
+            port = Integer.parseInt(temp[2]);
+
+            eventServiceDetails = EventServiceDetails.getInstance(host, eventPrimaryHost, port, userPrimaryHost);
+            election = Election.getInstance();
+            luceneSearch = LuceneSearch.getInstance();
+            replayOperationLog();
+
+            if (serverMode.equalsIgnoreCase("nio"))
+                new EventsServiceHandler().startNioServer();
+            else
+                new EventsServiceHandler().startServer();
+            new EventsServiceHandler().addService();
+        } catch (Exception e) {
+            log.debug(e);
+            System.exit(0);
+        }
+    }
+
+    /**
+     * A method that rebuilds the events map from the operation log ("-wal") before the service accepts requests:
+     * it loads the last snapshot then replays the records appended after it, and starts taking snapshots.
+     * A secondary replaces it by the lists of the primary when it joins.
+     *
+     * @throws Exception
+     */
+    private static void replayOperationLog() throws Exception {
+        final OperationLog operationLog = OperationLog.getDefault();
+        if (operationLog == null)
+            return;
+        long start = System.currentTimeMillis();
+        Snapshot snapshot = new Snapshot(operationLog, new Snapshot.Source() {
+            @Override
+            public Snapshot.Copy copy() {
+                return eventServiceDetails.copyLists(operationLog);
+            }
+        });
+        long position = snapshot.load(new Snapshot.Loader() {
+            @Override
+            public void load(ByteBuffer buffer) {
+                eventServiceDetails.loadLists(buffer);
+            }
+        });
+        if (position >= 0)
+            System.out.println("Loaded the snapshot in " + (System.currentTimeMillis() - start) + " ms, operation ID "
+                    + eventServiceDetails.getOperationId());
+        int records = operationLog.replay(position, new OperationLog.Replayer() {
+            @Override
+            public void replay(int operationId, String path, String jsonData) throws Exception {
+                if (OperationLog.STATE.equals(path))
+                    new InternalRequestParser().restoreLists((JSONObject) new JSONParser().parse(jsonData));
+                else
+                    ClientRequestParser.replay(path, jsonData);
+            }
+        });
+        System.out.println("Replayed " + records + " records of the operation log in "
+                + (System.currentTimeMillis() - start) + " ms, operation ID " + eventServiceDetails.getOperationId());
+        snapshot.start();
+    }
+
+    /**
+     * A method that starts the Event Service and accepts client requests,
+     * then assign a new thread to work for each client connected
+     */
+    public void startServer() {
+        final ExecutorService threads = ExecutionMode.getExecutor();
+
+        Runnable serverTask = new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    ServerSocket welcomingSocket = new ServerSocket(eventServiceDetails.getPort());
+                    System.out.println("Waiting for clients to connect...");
+                    while (true) {
+                        Socket clientSocket = welcomingSocket.accept();
+                        threads.submit(new GeneralRequestHandler(clientSocket, userPrimaryHost));
+                    }
+                } catch (IOException e) {
+                    log.debug("Unable to process client request");
+                }
+            }
+        };
+        Thread serverThread = new Thread(serverTask);
+        serverThread.start();
+    }
+
+    /**
+     * A method that starts the non blocking server. The event loop threads read the requests and a fixed pool
+     * of workers executes them, so idle connections don't hold any thread.
+     *
+     * @throws IOException
+     */
+    public void startNioServer() throws IOException {
+        ExecutorService workers = ExecutionMode.newWorkers(workerThreads);
+        RequestProcessor processor = new RequestProcessor() {
+
+            @Override
+            public HttpResponse process(HttpRequest request) {
+                return new GeneralRequestHandler(userPrimaryHost).respond(request);
+            }
+        };
+        new NioServer(eventServiceDetails.getPort(), ioThreads, workers, processor).start();
+    }
+
+    /**
+     * After opening the server for listening, this method will check if the current service is primary or secondary
+     * by calling isPrimary method.
+     * If this is the primary then it's host will be added to the memberMap and the primary variable will be set to true
+     * Otherwise, this service will send an addMember request to the primary (as a registration) and gets all the data from it
+     * including (FE list, membersMap, operation ID, EventMap), or only the operations it missed if it replayed its operation log.
+     * Upon success, this service will start sending heartbeat
+     * messages to everyone in the membersMap
+     */
+    private void addService() {
+        String host = eventServiceDetails.getHost();
+        if (isPrimary(host)) {
+            eventServiceDetails.setPrimary(true);
+            eventServiceDetails.addNewMember(host);
+            System.out.println("I am primary. HaHaHa");
+        } else {
+            //log.debug("I am secondary so I will send for primary to add me : host " + host);
+            System.out.println("I am secondary :(");
+            RequestSender requestSender = new RequestSender();
+            JSONObject jsonObject = new JSONObject();
+            jsonObject.put("memberHost", host);
+            if (BinaryCodec.isEnabled())
+                jsonObject.put("protocol", BinaryCodec.PROTOCOL);
+            putReplayedOperations(jsonObject);
+            boolean response = requestSender.sendRequestBool(eventPrimaryHost + "/addMember", "POST", jsonObject.toJSONString());
+            if (response) {
+                System.out.println("All data replicated..");
+                System.out.println("I am added");
+                log.debug("Lists from primary received, operation ID " + eventServiceDetails.getOperationId());
+                eventServiceDetails.setReady(true); // the front ends can send the reads to this member now
+                InternalRequestParser internalRequestParser = new InternalRequestParser();
+                internalRequestParser.startHeartBeat();
+            } else {
+                System.out.println("Wasn't added.");
+                System.exit(0);
+            }
+        }
+    }
+
+    /**
+     * A method that adds the operation ID and the sequences replayed from the operation log to the addMember request,
+     * the primary then sends only the operations after them if its own log still has them
+     *
+     * @param jsonObject
+     */
+    private void putReplayedOperations(JSONObject jsonObject) {
+        if (OperationLog.getDefault() == null)
+            return; // the member starts empty, it gets all the lists
+        jsonObject.put("operationId", eventServiceDetails.getOperationId());
+        long[] sequences = eventServiceDetails.getSequences();
+        if (sequences.length > 1) {
+            JSONArray array = new JSONArray();
+            for (long sequence : sequences)
+                array.add(sequence);
+            jsonObject.put("sequences", array);
+        }
+    }
+
+    /**
+     * A method that compares the current host with event primary host
+     * and return true on match otherwise false.
+     *
+     * @param host - current
+     * @return true/false
+     */
+    private boolean isPrimary(String host) {
+        if (eventPrimaryHost.equals(host))
+            return true;
+        return false;
+    }
+}
+
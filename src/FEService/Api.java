@@ -0,0 +1,70 @@
+package FEService;
+
+import Http.Router;
+
+/**
+ * An enum of all the api requests handled by the front end.
+ * Client apis are sent to the event or user service, the primary apis are sent by the primaries of the services.
+ * The router is built once from these values and is used by the RequestHandler to find the api of a request.
+ *
+ * @author Hassan Chadad
+ */
+public enum Api {
+
+    /* events service apis */
+    EVENTS("POST", "/events"),
+    CREATE_EVENT("POST", "/events/create"),
+    SEARCH_EVENTS("POST", "/events/search"),
+    UPDATE_EVENT("POST", "/events/update/{eventId}"),
+    GET_EVENT("POST", "/events/{eventId}"),
+    DELETE_EVENT("POST", "/events/{eventId}/delete"),
+    PURCHASE("POST", "/events/{eventId}/purchase/{userId}"),
+
+    /* users service apis */
+    CREATE_USER("POST", "/users/create"),
+    GET_USER("GET", "/users/{userId}"),
+    TRANSFER_TICKETS("POST", "/users/{userId}/tickets/transfer"),
+    RETURN_TICKETS("POST", "/users/tickets/{userId}/return"),
+    LOGIN("POST", "/users/login"),
+    LOGOUT("POST", "/users/logout"),
+
+    /* apis sent by the primaries, any method */
+    NEW_EVENT_PRIMARY(null, "/primary/newEventPrimary"),
+    NEW_USER_PRIMARY(null, "/primary/newUserPrimary"),
+    CHECK_FE(null, "/primary/checkFE");
+
+    private final String method;
+    private final String pattern;
+
+    /**
+     * Constructor
+     *
+     * @param method  - null for any method
+     * @param pattern
+     */
+    Api(String method, String pattern) {
+        this.method = method;
+        this.pattern = pattern;
+    }
+
+    /**
+     * A method that checks if the api is sent by the primary of a service
+     *
+     * @return true for the primary apis - false for the client apis
+     */
+    public boolean isFromPrimary() {
+        return method == null;
+    }
+
+    /**
+     * A method that builds the router of all the apis
+     *
+     * @return router
+     */
+    public static Router<Api> router() {
+        Router<Api> router = new Router<>();
+        for (Api api : values())
+            router.add(api.method, api.pattern, api);
+        return router;
+    }
+}
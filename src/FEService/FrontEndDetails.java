@@ -1,71 +1,112 @@
-package FEService;
-
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-
-/**
- * A class that stores all the details of a frontEnd service
- *
- * @author Hassan Chadad
- */
-public class FrontEndDetails {
-
-    private String host, eventPrimaryHost, userPrimaryHost;
-    private final static Logger log = LogManager.getRootLogger(); // Log Object to print to the System.out.println file
-
-    /**
-     * Constructor
-     *
-     * @param host
-     * @param eventPrimaryHost
-     * @param userPrimaryHost
-     */
-    public FrontEndDetails(String host, String eventPrimaryHost, String userPrimaryHost) {
-        this.host = "http://" + host;
-        this.eventPrimaryHost = eventPrimaryHost;
-        this.userPrimaryHost = userPrimaryHost;
-    }
-
-    /**
-     * A synchronized method that sets the value of eventPrimaryHost
-     *
-     * @param eventPrimaryHost
-     */
-    public synchronized void setEventPrimaryHost(String eventPrimaryHost) {
-        this.eventPrimaryHost = eventPrimaryHost;
-    }
-
-    /**
-     * A synchronized method that gets the value of eventPrimaryHost
-     */
-    public synchronized String getEventPrimaryHost() {
-        return eventPrimaryHost;
-    }
-
-    /**
-     * A synchronized method that sets the value of userPrimaryHost
-     *
-     * @param userPrimaryHost
-     */
-    public synchronized void setUserPrimaryHost(String userPrimaryHost) {
-        this.userPrimaryHost = userPrimaryHost;
-    }
-
-    /**
-     * Get method
-     *
-     * @return userPrimaryHost
-     */
-    public synchronized String getUserPrimaryHost() {
-        return userPrimaryHost;
-    }
-
-    /**
-     * Get method
-     *
-     * @return host
-     */
-    public String getHost() {
-        return host;
-    }
-}
+package FEService;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class that stores all the details of a frontEnd service
+ *
+ * @author Hassan Chadad
+ */
+public class FrontEndDetails {
+
+    private String host, eventPrimaryHost, userPrimaryHost;
+    private List<String> eventReadHosts = new ArrayList<>(); // secondaries the event reads are sent to, empty for the primary
+    private boolean orderedReads; // true if the operation ID of a secondary is the ID before which every operation is applied
+    private int nextRead; // round robin over the read hosts
+    private final static Logger log = LogManager.getRootLogger(); // Log Object to print to the System.out.println file
+
+    /**
+     * Constructor
+     *
+     * @param host
+     * @param eventPrimaryHost
+     * @param userPrimaryHost
+     */
+    public FrontEndDetails(String host, String eventPrimaryHost, String userPrimaryHost) {
+        this.host = "http://" + host;
+        this.eventPrimaryHost = eventPrimaryHost;
+        this.userPrimaryHost = userPrimaryHost;
+    }
+
+    /**
+     * A synchronized method that sets the value of eventPrimaryHost
+     *
+     * @param eventPrimaryHost
+     */
+    public synchronized void setEventPrimaryHost(String eventPrimaryHost) {
+        this.eventPrimaryHost = eventPrimaryHost;
+    }
+
+    /**
+     * A synchronized method that gets the value of eventPrimaryHost
+     */
+    public synchronized String getEventPrimaryHost() {
+        return eventPrimaryHost;
+    }
+
+    /**
+     * A synchronized method that sets the value of userPrimaryHost
+     *
+     * @param userPrimaryHost
+     */
+    public synchronized void setUserPrimaryHost(String userPrimaryHost) {
+        this.userPrimaryHost = userPrimaryHost;
+    }
+
+    /**
+     * Get method
+     *
+     * @return userPrimaryHost
+     */
+    public synchronized String getUserPrimaryHost() {
+        return userPrimaryHost;
+    }
+
+    /**
+     * A synchronized method that sets the secondaries the event reads are sent to
+     *
+     * @param hosts   - secondaries close enough to the primary
+     * @param ordered - true if their operation IDs can be compared with the ones of the clients
+     */
+    public synchronized void setEventReadHosts(List<String> hosts, boolean ordered) {
+        eventReadHosts = hosts;
+        orderedReads = ordered;
+    }
+
+    /**
+     * A synchronized method that removes a secondary that didn't answer a read till the next refresh of the read hosts
+     *
+     * @param host
+     */
+    public synchronized void removeEventReadHost(String host) {
+        List<String> hosts = new ArrayList<>(eventReadHosts);
+        hosts.remove(host);
+        eventReadHosts = hosts;
+    }
+
+    /**
+     * A synchronized method that returns the next secondary to send an event read to
+     *
+     * @param minOperationId - operation ID the client already saw, 0 if it didn't send one
+     * @return host of the secondary, or null if the primary must answer the read
+     */
+    public synchronized String getEventReadHost(long minOperationId) {
+        if (eventReadHosts.isEmpty() || (minOperationId > 0 && !orderedReads))
+            return null;
+        nextRead = (nextRead + 1) % eventReadHosts.size();
+        return eventReadHosts.get(nextRead);
+    }
+
+    /**
+     * Get method
+     *
+     * @return host
+     */
+    public String getHost() {
+        return host;
+    }
+}
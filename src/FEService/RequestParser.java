@@ -1,339 +1,323 @@
-package FEService;
-
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.net.HttpURLConnection;
-import java.net.URL;
-
-/**
- * A class the parses the request and sends it to the appropriate service
- *
- * @author Hassan Chadad
- */
-public class RequestParser {
-
-    private String method, url, jsonData;
-    private FrontEndDetails frontEndDetails;
-    private final static Logger log = LogManager.getRootLogger(); // Log Object to print to the debug.log file
-
-    /**
-     * Constructor
-     *
-     * @param jsonData
-     * @param frontEndDetails
-     */
-    public RequestParser(String jsonData, FrontEndDetails frontEndDetails) {
-        this.jsonData = jsonData;
-        this.frontEndDetails = frontEndDetails;
-        method = "GET";
-        url = "";
-    }
-
-    /**
-     * A method that sends the request depending on the api to the appropriate method
-     * to excute it and returns back the response
-     *
-     * @param headerAttr
-     * @return response
-     */
-    public String parse(String[] headerAttr) {
-        if (headerAttr[1].equals("primary/newEventPrimary")) { // this api is sent from the primary
-            return updateEventPrimary(jsonData);
-        } else if (headerAttr[1].equals("primary/newUserPrimary")) { // this api is sent from the primary
-            return updateUserPrimary(jsonData);
-        } else if (headerAttr[1].equals("primary/checkFE")) { // this api is sent from the primary to check if FE is still alive
-            return "";
-        } else { // this api is for users or events service
-            if (session_alive(headerAttr[1])) // check if session timed out or not
-                return handleRequest(headerAttr);
-            JSONObject jsonObject = new JSONObject();
-            jsonObject.put("error", "User not logged in!");
-            return jsonObject.toJSONString();
-        }
-    }
-
-    /**
-     * A method that parses the jsonData to get the new primary event host and updates it in its details. Then it sends the event primary
-     * a request to update the user primary host.
-     * this method is only called when the new elected primary sends it's host to the front end to update it in its details.
-     *
-     * @param jsonData - contains primary event host
-     * @return response (empty string on successful of update, otherwise 400 if an error occured)
-     */
-    private String updateEventPrimary(String jsonData) {
-        try {
-            JSONParser parser = new JSONParser();
-            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
-            String host = (String) jsonObject.get("host");
-            frontEndDetails.setEventPrimaryHost(host);
-            sendPrimariesToHost();
-            return "";
-        } catch (Exception e) {
-            return "400";
-        }
-    }
-
-    /**
-     * A method that parses the jsonData to get the new primary user host and updates it in its details. Then it sends the user primary
-     * a request to update the event primary host.
-     * this method is only called when the new elected primary sends it's host to the front end to update it in its details.
-     *
-     * @param jsonData - contains primary user host
-     * @return response (empty string on successful of update, otherwise 400 if an error occured)
-     */
-    private String updateUserPrimary(String jsonData) {
-        try {
-            JSONParser parser = new JSONParser();
-            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
-            String host = (String) jsonObject.get("host");
-            frontEndDetails.setUserPrimaryHost(host);
-            sendPrimariesToHost();
-            return "";
-        } catch (Exception e) {
-            return "400";
-        }
-    }
-
-    /**
-     * A method that sends a primary update request to the event service to update the user primary host
-     * and to the user service to update the event primary host.
-     */
-    private void sendPrimariesToHost () {
-        /* Send to user the event primary host */
-        String api = frontEndDetails.getUserPrimaryHost() + "/setEventPrimary";
-        JSONObject jsonHost = new JSONObject();
-        jsonHost.put("host", frontEndDetails.getEventPrimaryHost());
-        sendRequest(api, "POST", jsonHost.toJSONString());
-        /* Send to event the user primary host */
-        api = frontEndDetails.getEventPrimaryHost() + "/setUserPrimary";
-        jsonHost.clear();
-        jsonHost.put("host", frontEndDetails.getUserPrimaryHost());
-        sendRequest(api, "POST", jsonHost.toJSONString());
-    }
-
-    /**
-     * A method that parses the url in the headerAttr array and sends the request to the appropriate
-     * service depending on it and waits for a response to return back.
-     *
-     * @param headerAttr
-     * @return response returned from the request sent to user/event service
-     */
-    private String handleRequest(String[] headerAttr) {
-        if (headerAttr[0].startsWith("POST"))
-            method = "POST";
-        if (headerAttr[1].startsWith("events")) {
-            url = frontEndDetails.getEventPrimaryHost(); // change this to mc01.cs.usfca.edu
-            headerAttr[1] = headerAttr[1].replace("events", "");
-            log.debug("new :" + method + "hello");
-            if (headerAttr[1].length() == 0) { // initially it was /events
-                if (method.equals("POST")) {
-                    method = "GET";
-                    url += "/list";
-                } else
-                    return "400";
-            } else if (headerAttr[1].equals("/create")) { // Create event
-                if (method.equals("POST")) {
-                    url += "/create";
-                } else
-                    return "400";
-            } else if (headerAttr[1].equals("/search")) { // search for events
-                if (method.equals("POST")) {
-                    url += "/search";
-                } else
-                    return "400";
-            } else {
-                if (headerAttr[1].matches("/update/[\\d]+")) { // update event
-                    if (method.equals("POST"))
-                        url += headerAttr[1];
-                    else
-                        return "400";
-                } else if (headerAttr[1].matches("/[\\d]+")) { // Get one event
-                    if (method.equals("POST")) {
-                        method = "GET";
-                        url += headerAttr[1];
-                    } else
-                        return "400";
-                } else if (headerAttr[1].matches("/[\\d]+/delete")) { // delete an event
-                    if (method.equals("POST")) {
-                        url += headerAttr[1];
-                    } else
-                        return "400";
-                } else if (headerAttr[1].matches("/[\\d]+/purchase/[\\d]+")) {
-                    if (method.equals("POST")) {
-                        try {
-                            String[] attr = headerAttr[1].split("/");
-                            url += "/purchase/" + attr[1];
-                            JSONParser parser = new JSONParser();
-                            JSONObject reqJsonObject = (JSONObject) parser.parse(jsonData);
-                            long tickets = (Long) reqJsonObject.get("tickets");
-                            JSONObject jsonObject = new JSONObject();
-                            jsonObject.put("eventid", Integer.parseInt(attr[1]));
-                            jsonObject.put("userid", Integer.parseInt(attr[3]));
-                            jsonObject.put("tickets", tickets);
-                            jsonData = jsonObject.toJSONString();
-                        } catch (Exception e) {
-                            return "400";
-                        }
-                    } else
-                        return "400";
-                } else
-                    return "400";
-            }
-        } else { // /users
-            url = frontEndDetails.getUserPrimaryHost(); // change this to mc01.cs.usfca.edu
-            headerAttr[1] = headerAttr[1].replace("users", "");
-            log.debug("new :" + headerAttr[1]);
-            if (headerAttr[1].equals("/create")) { // create user
-                if (method.equals("POST")) {
-                    url += "/create";
-                } else
-                    return "400";
-            } else if (headerAttr[1].matches("/[\\d]+")) { // get a user
-                if (method.equals("GET"))
-                    url += headerAttr[1];
-                else
-                    return "400";
-            } else if (headerAttr[1].matches("/[\\d]+/tickets/transfer")) { // transfer tickets
-                if (method.equals("POST")) {
-                    url += headerAttr[1];
-                } else
-                    return "400";
-            } else if (headerAttr[1].matches("/tickets/[\\d]+/return")) { // return tickets
-                if (method.equals("POST")) {
-                    url += headerAttr[1];
-                } else
-                    return "400";
-            } else if (headerAttr[1].equals("/login")) { // login
-                if (method.equals("POST")) {
-                    url += headerAttr[1];
-                } else
-                    return "400";
-            } else if (headerAttr[1].equals("/logout")) { // logout
-                if (method.equals("POST")) {
-                    url += headerAttr[1];
-                } else
-                    return "400";
-            } else
-                return "400";
-        }
-        return sendRequest(url, method, jsonData);
-    }
-
-    /**
-     * A method that sends a request to the event/user service and return back the response
-     *
-     * @return service's response
-     */
-    private String sendRequest(String url, String method, String jsonData) {
-        try {
-            //System.out.println(url + "\t" + method + "\t" + jsonData);
-            URL obj = new URL(url);
-            HttpURLConnection con = (HttpURLConnection) obj.openConnection();
-
-            con.setRequestMethod(method); // if POST or GET
-            con.setRequestProperty("Content-Type", "application/json");
-            con.setRequestProperty("Cookie", frontEndDetails.getHost()); // send the host of the frontend as a cookie
-
-            if (method.equals("POST")) { // if post then write post body
-                String urlParameters = jsonData;
-                // Send post request
-                con.setDoOutput(true);
-                con.setDoInput(true);
-                PrintWriter pw = new PrintWriter(new OutputStreamWriter(con.getOutputStream()));
-                pw.print(urlParameters);
-                pw.flush();
-                pw.close();
-            }
-
-            int responseCode = con.getResponseCode();
-
-            StringBuffer response = new StringBuffer();
-            log.debug("Response code is " + responseCode);
-            if (responseCode == 200) {
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(con.getInputStream()));
-                String inputLine;
-
-                while ((inputLine = bufferedReader.readLine()) != null) {
-                    response.append(inputLine);
-                }
-                bufferedReader.close();
-                return response.toString(); // response got from the service events/users
-            } else
-                return "400";
-
-        } catch (Exception e) {
-            log.debug(e);
-            return "400";
-        }
-    }
-
-    /**
-     * A method that checks for certain requests like events/create, purchase, ticket transfer, and get user then checks if the
-     * user's session has timedout or not. if it is timedout then these request won't execute.
-     *
-     * @param request
-     * @return status of session (true - session still alive) , (false - session timedout)
-     */
-    private boolean session_alive(String request) {
-        try {
-            int userId = -1;
-            if (request.equals("events/create")) {
-                JSONParser parser = new JSONParser();
-                JSONObject reqJsonObject = (JSONObject) parser.parse(jsonData);
-                long id = (Long) reqJsonObject.get("userid");
-                userId = (int) id;
-            } else if (request.matches("events/update/[\\d]+")) {
-                JSONParser parser = new JSONParser();
-                JSONObject reqJsonObject = (JSONObject) parser.parse(jsonData);
-                long id = (Long) reqJsonObject.get("userid");
-                userId = (int) id;
-            } else if (request.matches("events/[\\d]+/delete")) {
-                JSONParser parser = new JSONParser();
-                JSONObject reqJsonObject = (JSONObject) parser.parse(jsonData);
-                long id = (Long) reqJsonObject.get("userid");
-                userId = (int) id;
-            } else if (request.matches("events/[\\d]+") || request.equals("events/search") || request.equals("events")) {
-                /* this condition (get events, get event, search) doesn't require log in so I am resetting the session only
-                 for logged in users so that the session don't timeout*/
-                JSONParser parser = new JSONParser();
-                JSONObject reqJsonObject = (JSONObject) parser.parse(jsonData);
-                long id = (Long) reqJsonObject.get("userid");
-                userId = (int) id;
-                sendRequest("http://mc02.cs.usfca.edu:2355/" + userId, "GET", ""); // send internal request to session
-                return true;
-            } else {
-                String[] requestArray = request.split("/");
-                if (request.matches("events/[\\d]+/purchase/[\\d]+"))
-                    userId = Integer.parseInt(requestArray[3]);
-
-                if (request.matches("users/[\\d]+"))
-                    userId = Integer.parseInt(requestArray[1]);
-
-                if (request.matches("users/[\\d]+/tickets/transfer"))
-                    userId = Integer.parseInt(requestArray[1]);
-
-                if (request.matches("users/tickets/[\\d]+/return"))
-                    userId = Integer.parseInt(requestArray[2]);
-            }
-            if (userId != -1) {
-                String result = sendRequest("http://mc02.cs.usfca.edu:2355/" + userId, "GET", ""); // send internal request to session
-                log.debug("The result is \"" + result + "\"");
-                if (result.equals("0"))
-                    return false;
-                else
-                    return true;
-            } else // request is not in the above list that's why userid didn't change so return true
-                return true;
-        } catch (Exception e) {
-            log.debug(e);
-            return false;
-        }
-    }
-}
+package FEService;
+
+import Http.PooledHttpClient;
+import Http.ReplicationChannel;
+import Http.RouteMatch;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+
+/**
+ * A class the parses the request and sends it to the appropriate service
+ *
+ * @author Hassan Chadad
+ */
+public class RequestParser {
+
+    private String method, url, jsonData;
+    private FrontEndDetails frontEndDetails;
+    private long minOperationId; // operation ID the client already saw, 0 if it didn't send one
+    private String operationId; // operation ID of the event member that answered, null if no event member answered
+    private final static Logger log = LogManager.getRootLogger(); // Log Object to print to the debug.log file
+
+    /**
+     * Constructor
+     *
+     * @param jsonData
+     * @param frontEndDetails
+     */
+    public RequestParser(String jsonData, FrontEndDetails frontEndDetails) {
+        this.jsonData = jsonData;
+        this.frontEndDetails = frontEndDetails;
+        method = "GET";
+        url = "";
+    }
+
+    /**
+     * Set method
+     *
+     * @param minOperationId - operation ID sent by the client (X-Operation-Id), the member answering a read must reach it
+     */
+    public void setMinOperationId(long minOperationId) {
+        this.minOperationId = minOperationId;
+    }
+
+    /**
+     * Get method
+     *
+     * @return operation ID of the event member that answered the request, null if no event member answered
+     */
+    public String getOperationId() {
+        return operationId;
+    }
+
+    /**
+     * A method that sends the request depending on the api to the appropriate method
+     * to excute it and returns back the response
+     *
+     * @param route - api found by the router
+     * @return response
+     */
+    public String parse(RouteMatch<Api> route) {
+        switch (route.getHandler()) {
+            case NEW_EVENT_PRIMARY: // this api is sent from the primary
+                return updateEventPrimary(jsonData);
+            case NEW_USER_PRIMARY: // this api is sent from the primary
+                return updateUserPrimary(jsonData);
+            case CHECK_FE: // this api is sent from the primary to check if FE is still alive
+                return "";
+            default: // this api is for users or events service
+                if (session_alive(route)) // check if session timed out or not
+                    return handleRequest(route);
+                JSONObject jsonObject = new JSONObject();
+                jsonObject.put("error", "User not logged in!");
+                return jsonObject.toJSONString();
+        }
+    }
+
+    /**
+     * A method that parses the jsonData to get the new primary event host and updates it in its details. Then it sends the event primary
+     * a request to update the user primary host.
+     * this method is only called when the new elected primary sends it's host to the front end to update it in its details.
+     *
+     * @param jsonData - contains primary event host
+     * @return response (empty string on successful of update, otherwise 400 if an error occured)
+     */
+    private String updateEventPrimary(String jsonData) {
+        try {
+            JSONParser parser = new JSONParser();
+            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
+            String host = (String) jsonObject.get("host");
+            frontEndDetails.setEventPrimaryHost(host);
+            sendPrimariesToHost();
+            return "";
+        } catch (Exception e) {
+            return "400";
+        }
+    }
+
+    /**
+     * A method that parses the jsonData to get the new primary user host and updates it in its details. Then it sends the user primary
+     * a request to update the event primary host.
+     * this method is only called when the new elected primary sends it's host to the front end to update it in its details.
+     *
+     * @param jsonData - contains primary user host
+     * @return response (empty string on successful of update, otherwise 400 if an error occured)
+     */
+    private String updateUserPrimary(String jsonData) {
+        try {
+            JSONParser parser = new JSONParser();
+            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
+            String host = (String) jsonObject.get("host");
+            frontEndDetails.setUserPrimaryHost(host);
+            sendPrimariesToHost();
+            return "";
+        } catch (Exception e) {
+            return "400";
+        }
+    }
+
+    /**
+     * A method that sends a primary update request to the event service to update the user primary host
+     * and to the user service to update the event primary host.
+     */
+    private void sendPrimariesToHost () {
+        /* Send to user the event primary host */
+        String api = frontEndDetails.getUserPrimaryHost() + "/setEventPrimary";
+        JSONObject jsonHost = new JSONObject();
+        jsonHost.put("host", frontEndDetails.getEventPrimaryHost());
+        sendRequest(api, "POST", jsonHost.toJSONString());
+        /* Send to event the user primary host */
+        api = frontEndDetails.getEventPrimaryHost() + "/setUserPrimary";
+        jsonHost.clear();
+        jsonHost.put("host", frontEndDetails.getUserPrimaryHost());
+        sendRequest(api, "POST", jsonHost.toJSONString());
+    }
+
+    /**
+     * A method that builds the url of the event/user service api of the route and sends the request
+     * to the service and waits for a response to return back.
+     * The event reads (list, get event and search) are sent to a secondary if the front end reads from them.
+     *
+     * @param route
+     * @return response returned from the request sent to user/event service
+     */
+    private String handleRequest(RouteMatch<Api> route) {
+        String eventHost = frontEndDetails.getEventPrimaryHost();
+        String userHost = frontEndDetails.getUserPrimaryHost();
+        method = "POST";
+        switch (route.getHandler()) {
+            case EVENTS:
+                method = "GET";
+                return sendReadRequest("/list");
+            case CREATE_EVENT:
+                url = eventHost + "/create";
+                break;
+            case SEARCH_EVENTS:
+                return sendReadRequest("/search");
+            case UPDATE_EVENT:
+                url = eventHost + "/update/" + route.getInt("eventId");
+                break;
+            case GET_EVENT:
+                method = "GET";
+                return sendReadRequest("/" + route.getInt("eventId"));
+            case DELETE_EVENT:
+                url = eventHost + "/" + route.getInt("eventId") + "/delete";
+                break;
+            case PURCHASE:
+                try {
+                    url = eventHost + "/purchase/" + route.getInt("eventId");
+                    JSONParser parser = new JSONParser();
+                    JSONObject reqJsonObject = (JSONObject) parser.parse(jsonData);
+                    long tickets = (Long) reqJsonObject.get("tickets");
+                    JSONObject jsonObject = new JSONObject();
+                    jsonObject.put("eventid", route.getInt("eventId"));
+                    jsonObject.put("userid", route.getInt("userId"));
+                    jsonObject.put("tickets", tickets);
+                    jsonData = jsonObject.toJSONString();
+                } catch (Exception e) {
+                    return "400";
+                }
+                break;
+            case CREATE_USER:
+                url = userHost + "/create";
+                break;
+            case GET_USER:
+                method = "GET";
+                url = userHost + "/" + route.getInt("userId");
+                break;
+            case TRANSFER_TICKETS:
+                url = userHost + "/" + route.getInt("userId") + "/tickets/transfer";
+                break;
+            case RETURN_TICKETS:
+                url = userHost + "/tickets/" + route.getInt("userId") + "/return";
+                break;
+            case LOGIN:
+                url = userHost + "/login";
+                break;
+            case LOGOUT:
+                url = userHost + "/logout";
+                break;
+            default:
+                return "400";
+        }
+        return sendRequest(url, method, jsonData);
+    }
+
+    /**
+     * A method that sends an event read to the next secondary and returns its response if it applied the operations
+     * the client already saw (X-Operation-Id of the secondary not below minOperationId).
+     * Otherwise, or if the secondary failed or rejected the read, the read is sent to the primary.
+     *
+     * @param path - api of the event service, ex: /list
+     * @return service's response
+     */
+    private String sendReadRequest(String path) {
+        String host = frontEndDetails.getEventReadHost(minOperationId);
+        if (host != null) {
+            try {
+                PooledHttpClient.Response response = PooledHttpClient.getInstance().send(host + path, method, jsonData, frontEndDetails.getHost());
+                String applied = response.getHeader(ReplicationChannel.OPERATION_HEADER);
+                if (response.getStatusCode() == 200 && applied != null && Long.parseLong(applied) >= minOperationId) {
+                    operationId = applied;
+                    return response.getBody();
+                }
+                log.debug(host + " can't answer the read, operation ID " + applied);
+            } catch (PooledHttpClient.PoolExhaustedException e) {
+                log.debug(e); // the secondary is alive, the read goes to the primary
+            } catch (Exception e) {
+                log.debug(e);
+                frontEndDetails.removeEventReadHost(host); // till the next refresh of the read hosts
+            }
+        }
+        return sendRequest(frontEndDetails.getEventPrimaryHost() + path, method, jsonData);
+    }
+
+    /**
+     * A method that sends a request to the event/user service and return back the response
+     *
+     * @return service's response
+     */
+    private String sendRequest(String url, String method, String jsonData) {
+        try {
+            //System.out.println(url + "\t" + method + "\t" + jsonData);
+            // keep-alive connection from the pool of the service, the host of the frontend is sent as a cookie
+            PooledHttpClient.Response response = PooledHttpClient.getInstance().send(url, method, jsonData, frontEndDetails.getHost());
+            int responseCode = response.getStatusCode();
+
+            log.debug("Response code is " + responseCode);
+            if (response.getHeader(ReplicationChannel.OPERATION_HEADER) != null) // sent by the event members, not by the user primary
+                operationId = response.getHeader(ReplicationChannel.OPERATION_HEADER);
+            if (responseCode == 200) {
+                return response.getBody(); // response got from the service events/users
+            } else if (responseCode == 503) // the service is overloaded, the client should retry later
+                return "503";
+            else
+                return "400";
+
+        } catch (PooledHttpClient.PoolExhaustedException e) { // all the connections to the service are busy
+            log.debug(e);
+            return "503";
+        } catch (Exception e) {
+            log.debug(e);
+            return "400";
+        }
+    }
+
+    /**
+     * A method that checks for certain requests like events/create, purchase, ticket transfer, and get user then checks if the
+     * user's session has timedout or not. if it is timedout then these request won't execute.
+     *
+     * @param route
+     * @return status of session (true - session still alive) , (false - session timedout)
+     */
+    private boolean session_alive(RouteMatch<Api> route) {
+        try {
+            int userId = -1;
+            switch (route.getHandler()) {
+                case CREATE_EVENT:
+                case UPDATE_EVENT:
+                case DELETE_EVENT: {
+                    JSONParser parser = new JSONParser();
+                    JSONObject reqJsonObject = (JSONObject) parser.parse(jsonData);
+                    long id = (Long) reqJsonObject.get("userid");
+                    userId = (int) id;
+                    break;
+                }
+                case GET_EVENT:
+                case SEARCH_EVENTS:
+                case EVENTS: {
+                    /* this condition (get events, get event, search) doesn't require log in so I am resetting the session only
+                     for logged in users so that the session don't timeout*/
+                    JSONParser parser = new JSONParser();
+                    JSONObject reqJsonObject = (JSONObject) parser.parse(jsonData);
+                    long id = (Long) reqJsonObject.get("userid");
+                    userId = (int) id;
+                    sendRequest("http://mc02.cs.usfca.edu:2355/" + userId, "GET", ""); // send internal request to session
+                    return true;
+                }
+                case PURCHASE:
+                case GET_USER:
+                case TRANSFER_TICKETS:
+                case RETURN_TICKETS:
+                    userId = route.getInt("userId");
+                    break;
+                default:
+                    break;
+            }
+            if (userId != -1) {
+                String result = sendRequest("http://mc02.cs.usfca.edu:2355/" + userId, "GET", ""); // send internal request to session
+                log.debug("The result is \"" + result + "\"");
+                if (result.equals("0"))
+                    return false;
+                else
+                    return true;
+            } else // request is not in the above list that's why userid didn't change so return true
+                return true;
+        } catch (Exception e) {
+            log.debug(e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package Http;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A class that decides how many secondaries must apply a replicated operation before the primary answers the client
+ * ("-ackPolicy all|majority|N"). With all (default) the primary waits for every secondary, with majority it waits
+ * till most of the members (the primary counts as one) applied the operation and with N till N secondaries applied it.
+ * The secondaries that didn't reply yet keep receiving the operation in the background, their replies are checked
+ * when they come. The operations a secondary didn't acknowledge yet are its lag, returned by /replicationLag.
+ * A secondary that doesn't reply before the deadline of the retry policy is dropped, so a client write never waits longer.
+ *
+ * @author Hassan Chadad
+ */
+public class AckPolicy {
+
+    private static final int ALL = -1;
+    private static final int MAJORITY = 0;
+
+    private static volatile int policy = ALL; // ALL, MAJORITY or a number of secondaries
+    private static final ConcurrentHashMap<String, Lag> lags = new ConcurrentHashMap<>(); // host -> lag
+
+    /**
+     * private constructor since the policy is shared by the whole service
+     */
+    private AckPolicy() {
+    }
+
+    /**
+     * A method that reads the "-ackPolicy" argument of the service, the value is "all" (default), "majority"
+     * or a number of secondaries
+     *
+     * @param args - service arguments
+     */
+    public static void configure(String[] args) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equalsIgnoreCase("-ackPolicy")) {
+                if (args[i + 1].equalsIgnoreCase("all"))
+                    policy = ALL;
+                else if (args[i + 1].equalsIgnoreCase("majority"))
+                    policy = MAJORITY;
+                else
+                    policy = Math.max(1, Integer.parseInt(args[i + 1]));
+            }
+        }
+    }
+
+    /**
+     * A method that returns the number of secondaries that must apply an operation
+     *
+     * @param secondaries - number of secondaries the operation was sent to
+     * @return acknowledgements needed
+     */
+    public static int required(int secondaries) {
+        if (policy == ALL)
+            return secondaries;
+        if (policy == MAJORITY)
+            return (secondaries + 1) / 2; // the primary and half of the others are a majority
+        return Math.min(policy, secondaries);
+    }
+
+    /**
+     * A method that returns a future that completes when enough secondaries applied the operation.
+     * The replies of the other secondaries are passed to late when they come.
+     * The future completes at most after the deadline of the retry policy (at least the read timeout of one request),
+     * then the secondaries that didn't reply get RetryPolicy.EXHAUSTED so the caller drops them instead of blocking
+     * the client.
+     *
+     * @param members - member key -> host
+     * @param replies - member key -> reply ("ok", "error" or RetryPolicy.EXHAUSTED)
+     * @param late    - checks the replies that came after the future completed
+     * @return future of the replies received so far in the order of the keys
+     */
+    public static CompletableFuture<Map<Integer, String>> await(SortedMap<Integer, String> members,
+                                                                final Map<Integer, CompletableFuture<String>> replies,
+                                                                final Consumer<Map<Integer, String>> late) {
+        for (Map.Entry<Integer, CompletableFuture<String>> entry : replies.entrySet())
+            track(members.get(entry.getKey()), entry.getValue());
+        long deadline = Math.max(RetryPolicy.getDefault().getDeadline(), PooledHttpClient.getReadTimeout());
+        if (policy == ALL)
+            return FanOut.withDeadline(FanOut.allOf(replies), replies, RetryPolicy.EXHAUSTED, deadline);
+        return FanOut.withDeadline(FanOut.quorum(replies, required(replies.size()), new Predicate<String>() {
+            @Override
+            public boolean test(String reply) {
+                return "ok".equals(reply);
+            }
+        }).thenApply(new Function<Map<Integer, String>, Map<Integer, String>>() {
+            @Override
+            public Map<Integer, String> apply(Map<Integer, String> received) {
+                for (final Map.Entry<Integer, CompletableFuture<String>> entry : replies.entrySet()) {
+                    if (received.containsKey(entry.getKey()))
+                        continue;
+                    entry.getValue().whenComplete(new BiConsumer<String, Throwable>() {
+                        @Override
+                        public void accept(String reply, Throwable error) {
+                            Map<Integer, String> lateReply = new TreeMap<>();
+                            lateReply.put(entry.getKey(), error == null ? reply : null);
+                            late.accept(lateReply);
+                        }
+                    });
+                }
+                return received;
+            }
+        }), replies, RetryPolicy.EXHAUSTED, deadline);
+    }
+
+    /**
+     * A method that counts an operation sent to a secondary till it replies
+     *
+     * @param host
+     * @param reply
+     */
+    private static void track(String host, CompletableFuture<String> reply) {
+        if (host == null)
+            return;
+        Lag lag = lags.get(host);
+        if (lag == null) {
+            Lag created = new Lag();
+            lag = lags.putIfAbsent(host, created);
+            if (lag == null)
+                lag = created;
+        }
+        final Lag memberLag = lag;
+        memberLag.sent();
+        reply.whenComplete(new BiConsumer<String, Throwable>() {
+            @Override
+            public void accept(String result, Throwable error) {
+                memberLag.acknowledged();
+            }
+        });
+    }
+
+    /**
+     * A method that forgets the lag of a secondary that was removed from the members
+     *
+     * @param host
+     */
+    public static void remove(String host) {
+        lags.remove(host);
+    }
+
+    /**
+     * Get method
+     *
+     * @param host - secondary
+     * @return ms since the oldest operation the secondary didn't acknowledge was sent, 0 if it has none
+     */
+    public static long getLagMs(String host) {
+        Lag lag = lags.get(host);
+        return lag == null ? 0 : lag.get(System.nanoTime())[1];
+    }
+
+    /**
+     * A method that returns the lag of the secondaries:
+     * {"policy":"majority","members":[{"host":"...","pending":2,"lagMs":35}]}
+     * pending is the number of operations sent and not acknowledged, lagMs the age of the oldest one
+     *
+     * @return json
+     */
+    public static String getLagJson() {
+        StringBuilder json = new StringBuilder("{\"policy\":\"");
+        json.append(policy == ALL ? "all" : policy == MAJORITY ? "majority" : policy + "").append("\",\"members\":[");
+        boolean first = true;
+        long now = System.nanoTime();
+        for (Map.Entry<String, Lag> entry : new TreeMap<>(lags).entrySet()) {
+            if (!first)
+                json.append(',');
+            first = false;
+            long[] lag = entry.getValue().get(now);
+            json.append("{\"host\":\"").append(entry.getKey()).append("\",\"pending\":").append(lag[0])
+                    .append(",\"lagMs\":").append(lag[1]).append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * A private class that holds the times the operations not acknowledged by a secondary were sent
+     */
+    private static class Lag {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ArrayDeque<Long> sent = new ArrayDeque<>(); // System.nanoTime() of each pending operation
+
+        /**
+         * A method called when an operation is sent
+         */
+        void sent() {
+            lock.lock();
+            try {
+                sent.addLast(System.nanoTime());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * A method called when an operation is acknowledged, the secondary applies them in order so it is the oldest one
+         */
+        void acknowledged() {
+            lock.lock();
+            try {
+                sent.pollFirst();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Get method
+         *
+         * @param now - System.nanoTime()
+         * @return pending operations and ms since the oldest one was sent
+         */
+        long[] get(long now) {
+            lock.lock();
+            try {
+                Long oldest = sent.peekFirst();
+                return new long[]{sent.size(), oldest == null ? 0 : TimeUnit.NANOSECONDS.toMillis(now - oldest)};
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package Http;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A Singleton class that limits the number of client requests executed at the same time by a service.
+ * A request that finds all the slots taken waits in a bounded queue for a short time, if the queue is full
+ * or the wait times out the request is rejected with 503 so the client can retry later instead of slowing
+ * everyone down. Internal requests (heartbeats, elections, replication) don't pass through it.
+ * The limit adapts to the observed latency (AIMD): it grows by one after a full window of fast requests
+ * and is cut by 10% when a request is slower than the latency target.
+ *
+ * @author Hassan Chadad
+ */
+public class AdmissionController {
+
+    private static volatile AdmissionController instance;
+    private static int maxLimit = 64; // highest number of client requests executed at the same time
+    private static int queueDepth = 64; // number of requests allowed to wait for a slot
+    private static long latencyTarget = 1000; // ms, slower requests decrease the limit
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    private final int minLimit;
+    private int limit; // current adaptive limit
+    private int inFlight; // requests being executed
+    private int waiting; // requests in the queue
+    private int fastCount; // fast requests since the limit last changed
+    private long lastDecrease; // time of the last decrease, the limit is cut once per latency target
+    private long averageLatency; // ms, moving average used for Retry-After
+
+    /**
+     * private constructor
+     */
+    private AdmissionController() {
+        minLimit = Math.max(1, Math.min(4, maxLimit));
+        limit = Math.max(minLimit, maxLimit / 2);
+        averageLatency = 0;
+    }
+
+    /**
+     * Guarantee Singleton concept
+     *
+     * @return AdmissionController class instance
+     */
+    public static AdmissionController getInstance() {
+        if (instance == null) {
+            synchronized (AdmissionController.class) {
+                if (instance == null)
+                    instance = new AdmissionController();
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * A method that reads the admission arguments of the service before the first request:
+     * "-maxConcurrency" (highest limit), "-queueDepth" and "-latencyTarget" (ms)
+     *
+     * @param args - service arguments
+     */
+    public static void configure(String[] args) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equalsIgnoreCase("-maxConcurrency"))
+                maxLimit = Math.max(1, Integer.parseInt(args[i + 1]));
+            if (args[i].equalsIgnoreCase("-queueDepth"))
+                queueDepth = Math.max(0, Integer.parseInt(args[i + 1]));
+            if (args[i].equalsIgnoreCase("-latencyTarget"))
+                latencyTarget = Math.max(1, Long.parseLong(args[i + 1]));
+        }
+    }
+
+    /**
+     * A method that takes a slot for a request. If all slots are taken the request waits in the queue
+     * at most the latency target for a slot to be freed.
+     *
+     * @return true if the request can be executed - false if it must be rejected
+     */
+    public boolean acquire() {
+        lock.lock();
+        try {
+            if (inFlight < limit) {
+                inFlight++;
+                return true;
+            }
+            if (waiting >= queueDepth) // queue is full, reject without waiting
+                return false;
+            waiting++;
+            try {
+                long nanos = TimeUnit.MILLISECONDS.toNanos(latencyTarget);
+                while (inFlight >= limit && nanos > 0)
+                    nanos = slotFreed.awaitNanos(nanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                waiting--;
+            }
+            if (inFlight >= limit)
+                return false;
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A method that frees the slot of a finished request and adapts the limit to its latency
+     *
+     * @param startTime - System.nanoTime() when the request was admitted
+     */
+    public void release(long startTime) {
+        long now = System.nanoTime();
+        long latency = TimeUnit.NANOSECONDS.toMillis(now - startTime);
+        lock.lock();
+        try {
+            inFlight--;
+            averageLatency = (averageLatency * 7 + latency) / 8;
+            if (latency > latencyTarget) {
+                fastCount = 0;
+                if (now - lastDecrease > TimeUnit.MILLISECONDS.toNanos(latencyTarget)) { // cut once per slow period
+                    limit = Math.max(minLimit, limit * 9 / 10);
+                    lastDecrease = now;
+                }
+            } else if (++fastCount >= limit) {
+                fastCount = 0;
+                if (limit < maxLimit)
+                    limit++;
+            }
+            slotFreed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A method that returns the response sent to a rejected request.
+     * Retry-After is the average latency rounded up to seconds.
+     *
+     * @return 503 response
+     */
+    public HttpResponse reject() {
+        long seconds;
+        lock.lock();
+        try {
+            seconds = Math.max(1, (averageLatency + 999) / 1000);
+        } finally {
+            lock.unlock();
+        }
+        return HttpResponse.serviceUnavailable(seconds);
+    }
+
+    /**
+     * Get method
+     *
+     * @return current limit
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
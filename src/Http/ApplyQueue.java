@@ -0,0 +1,212 @@
+package Http;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * A class that applies the operations replicated by the primary on a secondary in the order of their keys
+ * (operation IDs, or sequences of a partition). The request threads only add their operation and wait for its result,
+ * a single applier thread takes the operations from a priority queue when the smallest key is the next one to apply.
+ * An operation whose key is below the next one was already applied (sent again after a failure), it is completed
+ * without running it. If the smallest key is above the next one an operation is missing (gap), the time since the gap
+ * opened is returned by getGapMs. The applier checks the queue at least every CHECK_INTERVAL ms, so a missed signal
+ * can't stall the member.
+ *
+ * @author Hassan Chadad
+ */
+public class ApplyQueue implements Runnable {
+
+    private static final long CHECK_INTERVAL = 100; // ms
+
+    private final LongSupplier next; // key of the next operation to apply, it changes when an operation is applied
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+    private final ReentrantLock lock = new ReentrantLock(); // protects the queue and the gap
+    private final Condition changed = lock.newCondition(); // signaled when an operation is added or the next key changed
+    private long gapStart = -1; // System.nanoTime() when the smallest key became bigger than the next one, -1 if no gap
+    private long added; // number of operations added, keeps the order of the operations with the same key
+    private boolean started;
+
+    /**
+     * Constructor
+     *
+     * @param next - returns the key of the next operation to apply
+     */
+    public ApplyQueue(LongSupplier next) {
+        this.next = next;
+    }
+
+    /**
+     * A method that adds an operation and waits till the applier ran it
+     *
+     * @param key  - operation ID or sequence of the operation
+     * @param task - applies the operation
+     * @return result of the operation, empty string if it was already applied
+     * @throws Exception thrown by the operation
+     */
+    public String apply(long key, Callable<String> task) throws Exception {
+        return await(submit(key, task));
+    }
+
+    /**
+     * A method that adds an operation without waiting for it
+     *
+     * @param key  - operation ID or sequence of the operation
+     * @param task - applies the operation
+     * @return future of the result of the operation, empty string if it was already applied
+     */
+    public CompletableFuture<String> submit(long key, Callable<String> task) {
+        Entry entry;
+        lock.lock();
+        try {
+            if (!started) {
+                started = true;
+                ExecutionMode.start(this);
+            }
+            entry = new Entry(key, added++, task);
+            queue.add(entry);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        return entry.result;
+    }
+
+    /**
+     * A method that waits for the result of an operation
+     *
+     * @param result - future returned by submit
+     * @return result of the operation
+     * @throws Exception thrown by the operation
+     */
+    public static String await(CompletableFuture<String> result) throws Exception {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception)
+                throw (Exception) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * A method that wakes the applier when the next key changed without applying an operation of this queue
+     * (ex: the lists received when joining, or an operation that needs all the partitions)
+     */
+    public void wake() {
+        lock.lock();
+        try {
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Run method of the applier thread, it runs the operations one after the other in the order of their keys
+     */
+    @Override
+    public void run() {
+        while (true) {
+            Entry entry;
+            boolean applied;
+            lock.lock();
+            try {
+                while (true) {
+                    entry = queue.peek();
+                    long nextKey = next.getAsLong();
+                    if (entry != null && entry.key <= nextKey) {
+                        queue.poll();
+                        applied = entry.key < nextKey;
+                        break;
+                    }
+                    if (entry == null)
+                        gapStart = -1;
+                    else if (gapStart == -1)
+                        gapStart = System.nanoTime();
+                    try {
+                        changed.await(CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                gapStart = -1;
+            } finally {
+                lock.unlock();
+            }
+            if (applied) {
+                entry.result.complete("");
+                continue;
+            }
+            try {
+                entry.result.complete(entry.task.call());
+            } catch (Throwable e) {
+                entry.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Get method
+     *
+     * @return number of operations waiting for their turn
+     */
+    public int getQueued() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get method
+     *
+     * @return ms since the operation with the smallest key is waiting for a missing one, 0 if there is no gap
+     */
+    public long getGapMs() {
+        lock.lock();
+        try {
+            return gapStart == -1 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - gapStart);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A private class that holds an operation waiting in the queue
+     */
+    private static class Entry implements Comparable<Entry> {
+
+        private final long key;
+        private final long order;
+        private final Callable<String> task;
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+
+        /**
+         * Constructor
+         *
+         * @param key
+         * @param order - number of the operations added before it
+         * @param task
+         */
+        Entry(long key, long order, Callable<String> task) {
+            this.key = key;
+            this.order = order;
+            this.task = task;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            if (key != other.key)
+                return Long.compare(key, other.key);
+            return Long.compare(order, other.order);
+        }
+    }
+}
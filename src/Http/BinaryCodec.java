@@ -0,0 +1,911 @@
+package Http;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A class that encodes the requests sent between the members of a service, and between the Event and User primaries,
+ * in a compact binary format instead of HTTP/JSON (mode "-protocol binary"). The front ends always use HTTP/JSON.
+ * Each side of a binary connection starts with PREFACE, then every request and response is a frame:
+ * its length as a varint followed by its content. Numbers (and strings that are numeric ids) are zigzag varints,
+ * names (json keys, paths, header names and short strings) are sent once per connection, then only their index
+ * in a table that both sides of the connection build in the same order.
+ * The json bodies are transcoded directly from and to their text, so the parsers of the services still get json.
+ * A member says it accepts binary in its addMember request. A service that doesn't accept binary answers the
+ * preface with an HTTP 400, then the client uses HTTP/JSON for that host.
+ * One object keeps the tables of one connection, it is used by one thread at a time.
+ *
+ * @author Hassan Chadad
+ */
+public class BinaryCodec {
+
+    public static final String PROTOCOL = "binary"; // value of "protocol" in the addMember request
+    static final byte[] PREFACE = {0, 'T', 'P', 'B', '1', '\r', '\n'}; // a line that is not a valid HTTP request line
+
+    private static final int MAX_NAMES = 4096; // names interned per connection and direction
+    private static final int MAX_NAME_LENGTH = 64; // longer strings are sent as they are
+    private static final int MAX_FRAME_SIZE = HttpRequestParser.MAX_HEADER_SIZE + HttpRequestParser.MAX_BODY_SIZE;
+
+    /* value tags */
+    private static final int END = 0; // end of an object or array
+    private static final int NULL = 1;
+    private static final int FALSE = 2;
+    private static final int TRUE = 3;
+    private static final int LONG = 4; // zigzag varint
+    private static final int NUMBER = 5; // any other json number, as its text
+    private static final int STRING = 6; // length and UTF-8 bytes, not interned
+    private static final int NAME = 7; // length and UTF-8 bytes, added to the table
+    private static final int NAME_REF = 8; // index in the table
+    private static final int NUMERIC = 9; // string holding a long, ex: an id in a path or a header
+    private static final int OBJECT = 10; // names and values till END
+    private static final int ARRAY = 11; // values till END
+    private static final int RAW = 12; // body that is not json, ex: "ok"
+    private static final int EMPTY = 13; // no body
+
+    private static volatile boolean enabled = false;
+    private static final Set<String> peers = ConcurrentHashMap.newKeySet(); // host:port of the services accepting binary
+
+    private final Map<String, Integer> sentNames = new HashMap<>();
+    private final ArrayList<String> sentOrder = new ArrayList<>(); // to forget the names of a body that is not json
+    private final ArrayList<String> receivedNames = new ArrayList<>();
+    private boolean prefaceSent, prefaceReceived;
+    private int frameEnd;
+
+    /**
+     * A method that reads the "-protocol" argument of the service, the value is "binary" or "json" (default)
+     *
+     * @param args - service arguments
+     */
+    public static void configure(String[] args) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equalsIgnoreCase("-protocol"))
+                enabled = args[i + 1].equalsIgnoreCase(PROTOCOL);
+        }
+    }
+
+    /**
+     * Get method
+     *
+     * @return true if the service accepts and sends binary frames
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * A method that records the protocol announced by a member (in addMember or in the member list),
+     * the requests to it are binary if both sides accept binary
+     *
+     * @param url      - ex: http://localhost:2371
+     * @param protocol - "binary" or null
+     */
+    public static void negotiate(String url, String protocol) {
+        if (enabled && PROTOCOL.equals(protocol))
+            peers.add(key(url));
+        else
+            peers.remove(key(url));
+    }
+
+    /**
+     * A method that tells if the requests to a service are sent in binary
+     *
+     * @param url - ex: http://localhost:2371
+     * @return true if binary
+     */
+    public static boolean accepts(String url) {
+        return enabled && peers.contains(key(url));
+    }
+
+    /**
+     * A method that tells if the requests to a service are sent in binary
+     *
+     * @param host
+     * @param port
+     * @return true if binary
+     */
+    static boolean accepts(String host, int port) {
+        return enabled && peers.contains(host + ":" + port);
+    }
+
+    /**
+     * A method called when a service answered the preface with HTTP, the next connections to it use HTTP/JSON
+     *
+     * @param host
+     * @param port
+     */
+    static void reject(String host, int port) {
+        peers.remove(host + ":" + port);
+    }
+
+    /**
+     * A method that converts a url to host:port
+     *
+     * @param url
+     * @return host:port
+     */
+    private static String key(String url) {
+        try {
+            URL target = new URL(url);
+            return target.getHost() + ":" + (target.getPort() == -1 ? 80 : target.getPort());
+        } catch (MalformedURLException e) {
+            return url;
+        }
+    }
+
+    /**
+     * A method that checks if the bytes received on a new connection start with the preface
+     *
+     * @param view - bytes of the connection, in read mode
+     * @return true if the connection is binary and this service accepts it
+     */
+    static boolean isPreface(ByteBuffer view) {
+        if (!enabled || view.remaining() < PREFACE.length)
+            return false;
+        for (int i = 0; i < PREFACE.length; i++) {
+            if (view.get(view.position() + i) != PREFACE[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * A method that writes a request frame, preceded by the preface on the first request of the connection.
+     * The stream is not flushed.
+     *
+     * @param out
+     * @param method
+     * @param path
+     * @param cookie - host of the sender
+     * @param body   - json body, null for GET
+     * @throws IOException
+     */
+    public void writeRequest(OutputStream out, String method, String path, String cookie, String body) throws IOException {
+        Frame frame = new Frame();
+        writeString(frame, method);
+        writeString(frame, path);
+        writeString(frame, cookie == null ? "" : cookie);
+        writeBody(frame, body);
+        writeFrame(out, frame);
+    }
+
+    /**
+     * A method that writes a response frame, preceded by the preface on the first response of the connection.
+     * A streamed body is collected first, the body is never compressed.
+     *
+     * @param out
+     * @param response
+     * @throws IOException
+     */
+    public void writeResponse(OutputStream out, HttpResponse response) throws IOException {
+        Frame frame = new Frame();
+        frame.writeVarint(response.getStatusCode());
+        String lines = response.getHeaderLines();
+        int count = 0;
+        for (int i = lines.indexOf('\n'); i != -1; i = lines.indexOf('\n', i + 1))
+            count++;
+        frame.writeVarint(count);
+        for (int start = 0, end; (end = lines.indexOf('\n', start)) != -1; start = end + 1) { // "Name: value\r\n"
+            int colon = lines.indexOf(':', start);
+            writeString(frame, lines.substring(start, colon).trim());
+            writeString(frame, lines.substring(colon + 1, end).trim());
+        }
+        writeBody(frame, new String(response.getBody(), StandardCharsets.UTF_8));
+        writeFrame(out, frame);
+        out.flush();
+    }
+
+    /**
+     * A method that frames the next request of a binary connection.
+     * The request is rebuilt as HTTP/1.1 in its own buffer so the services read it like the other requests.
+     *
+     * @param view - bytes of the connection, in read mode, starting with the preface on the first request
+     * @return request or null if more bytes are needed, getFrameEnd() tells where it ends in the view
+     * @throws HttpParseException if the bytes are not a valid frame
+     */
+    public HttpRequest readRequest(ByteBuffer view) throws HttpParseException {
+        int start = view.position() + (prefaceReceived ? 0 : PREFACE.length);
+        ByteBuffer frame = view.duplicate();
+        frame.position(start);
+        long length;
+        try {
+            length = readVarint(frame);
+        } catch (BufferUnderflowException e) { // length not received yet
+            return null;
+        } catch (IllegalArgumentException e) {
+            throw new HttpParseException("Invalid frame length");
+        }
+        if (length > MAX_FRAME_SIZE)
+            throw new HttpParseException("Frame too large");
+        if (frame.remaining() < length)
+            return null;
+        frame.limit(frame.position() + (int) length);
+        int end = frame.limit();
+        String method, path, cookie, body;
+        try {
+            method = readString(frame);
+            path = readString(frame);
+            cookie = readString(frame);
+            body = readBody(frame);
+        } catch (RuntimeException e) {
+            throw new HttpParseException("Invalid frame " + e);
+        }
+        byte[] bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+        StringBuilder head = new StringBuilder();
+        head.append(method).append(' ').append(path).append(" HTTP/1.1\r\n");
+        if (!cookie.isEmpty())
+            head.append("Cookie: ").append(cookie).append("\r\n");
+        head.append("Content-Length: ").append(bodyBytes.length).append("\r\n\r\n");
+        byte[] headBytes = head.toString().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer request = ByteBuffer.allocate(headBytes.length + bodyBytes.length);
+        request.put(headBytes).put(bodyBytes).flip();
+        HttpRequest parsed = HttpRequestParser.parse(request);
+        if (parsed == null)
+            throw new HttpParseException("Invalid frame");
+        prefaceReceived = true;
+        frameEnd = end;
+        return parsed;
+    }
+
+    /**
+     * Get method
+     *
+     * @return offset in the view right after the last request returned by readRequest
+     */
+    public int getFrameEnd() {
+        return frameEnd;
+    }
+
+    /**
+     * A method that reads the next response frame, the preface is expected before the first one
+     *
+     * @param in
+     * @return response
+     * @throws IOException - Rejected if the service answered the preface with HTTP
+     */
+    public PooledHttpClient.Response readResponse(InputStream in) throws IOException {
+        if (!prefaceReceived) {
+            for (byte expected : PREFACE) {
+                int b = in.read();
+                if (b == -1)
+                    throw new EOFException("Connection closed");
+                if (b != expected)
+                    throw new Rejected();
+            }
+            prefaceReceived = true;
+        }
+        long length = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            if (b == -1)
+                throw new EOFException("Connection closed");
+            length |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+                break;
+            if (shift > 28)
+                throw new IOException("Invalid frame length");
+        }
+        if (length > MAX_FRAME_SIZE)
+            throw new IOException("Response too large");
+        byte[] bytes = new byte[(int) length];
+        int offset = 0;
+        while (offset < bytes.length) {
+            int read = in.read(bytes, offset, bytes.length - offset);
+            if (read < 0)
+                throw new EOFException("Connection closed before the end of the frame");
+            offset += read;
+        }
+        try {
+            ByteBuffer frame = ByteBuffer.wrap(bytes);
+            int statusCode = (int) readVarint(frame);
+            int count = (int) readVarint(frame);
+            Map<String, String> headers = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                String name = readString(frame);
+                headers.put(name.toLowerCase(), readString(frame));
+            }
+            return new PooledHttpClient.Response(statusCode, readBody(frame), headers, true);
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid frame " + e);
+        }
+    }
+
+    /**
+     * A method that writes the length and content of a frame
+     *
+     * @param out
+     * @param frame
+     * @throws IOException
+     */
+    private void writeFrame(OutputStream out, Frame frame) throws IOException {
+        if (!prefaceSent) {
+            out.write(PREFACE);
+            prefaceSent = true;
+        }
+        for (int length = frame.count; ; length >>>= 7) {
+            if ((length & ~0x7f) == 0) {
+                out.write(length);
+                break;
+            }
+            out.write((length & 0x7f) | 0x80);
+        }
+        out.write(frame.bytes, 0, frame.count);
+    }
+
+    /**
+     * A method that writes a body, transcoded if it is json, as it is otherwise
+     *
+     * @param frame
+     * @param body
+     */
+    private void writeBody(Frame frame, String body) {
+        if (body == null || body.isEmpty()) {
+            frame.write(EMPTY);
+            return;
+        }
+        int mark = frame.count;
+        int names = sentOrder.size();
+        try {
+            JsonText json = new JsonText(body);
+            json.skipSpaces();
+            writeValue(frame, json);
+            json.skipSpaces();
+            if (json.position != body.length())
+                throw new IllegalArgumentException("Text after the json value");
+        } catch (IllegalArgumentException e) { // not json, the other side must not learn its names
+            frame.count = mark;
+            while (sentOrder.size() > names)
+                sentNames.remove(sentOrder.remove(sentOrder.size() - 1));
+            frame.write(RAW);
+            frame.writeBytes(body.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * A method that transcodes the json value at the current position of the text
+     *
+     * @param frame
+     * @param json
+     */
+    private void writeValue(Frame frame, JsonText json) {
+        char c = json.peek();
+        if (c == '{') {
+            frame.write(OBJECT);
+            json.position++;
+            json.skipSpaces();
+            if (json.peek() == '}') {
+                json.position++;
+            } else {
+                while (true) {
+                    json.skipSpaces();
+                    writeString(frame, json.readString());
+                    json.skipSpaces();
+                    json.expect(':');
+                    json.skipSpaces();
+                    writeValue(frame, json);
+                    json.skipSpaces();
+                    if (json.peek() == ',') {
+                        json.position++;
+                        continue;
+                    }
+                    json.expect('}');
+                    break;
+                }
+            }
+            frame.write(END);
+        } else if (c == '[') {
+            frame.write(ARRAY);
+            json.position++;
+            json.skipSpaces();
+            if (json.peek() == ']') {
+                json.position++;
+            } else {
+                while (true) {
+                    json.skipSpaces();
+                    writeValue(frame, json);
+                    json.skipSpaces();
+                    if (json.peek() == ',') {
+                        json.position++;
+                        continue;
+                    }
+                    json.expect(']');
+                    break;
+                }
+            }
+            frame.write(END);
+        } else if (c == '"') {
+            writeString(frame, json.readString());
+        } else if (c == 't') {
+            json.expectWord("true");
+            frame.write(TRUE);
+        } else if (c == 'f') {
+            json.expectWord("false");
+            frame.write(FALSE);
+        } else if (c == 'n') {
+            json.expectWord("null");
+            frame.write(NULL);
+        } else if (c == '-' || (c >= '0' && c <= '9')) {
+            String number = json.readNumber();
+            if (number == null) {
+                frame.write(LONG);
+                frame.writeZigzag(json.value);
+            } else {
+                frame.write(NUMBER);
+                frame.writeBytes(number.getBytes(StandardCharsets.ISO_8859_1));
+            }
+        } else {
+            throw new IllegalArgumentException("Unexpected character " + c);
+        }
+    }
+
+    /**
+     * A method that writes a string as a varint if it is a number, as an index if it was already sent on the
+     * connection, or with its bytes (and adds it to the table if it is short)
+     *
+     * @param frame
+     * @param value
+     */
+    private void writeString(Frame frame, String value) {
+        if (isLong(value)) {
+            frame.write(NUMERIC);
+            frame.writeZigzag(Long.parseLong(value));
+            return;
+        }
+        Integer index = sentNames.get(value);
+        if (index != null) {
+            frame.write(NAME_REF);
+            frame.writeVarint(index);
+        } else if (value.length() <= MAX_NAME_LENGTH && sentOrder.size() < MAX_NAMES) {
+            frame.write(NAME);
+            frame.writeBytes(value.getBytes(StandardCharsets.UTF_8));
+            sentNames.put(value, sentOrder.size());
+            sentOrder.add(value);
+        } else {
+            frame.write(STRING);
+            frame.writeBytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * A method that reads a body and returns it as json text (or as it was sent if it is not json)
+     *
+     * @param frame
+     * @return body
+     */
+    private String readBody(ByteBuffer frame) {
+        int tag = frame.get();
+        if (tag == EMPTY)
+            return "";
+        if (tag == RAW)
+            return readUtf8(frame);
+        StringBuilder json = new StringBuilder(frame.remaining() * 2);
+        appendValue(frame, tag, json);
+        return json.toString();
+    }
+
+    /**
+     * A method that appends the json text of a value
+     *
+     * @param frame
+     * @param tag   - tag of the value, already read
+     * @param json
+     */
+    private void appendValue(ByteBuffer frame, int tag, StringBuilder json) {
+        switch (tag) {
+            case OBJECT:
+                json.append('{');
+                for (int next = frame.get(), i = 0; next != END; next = frame.get(), i++) {
+                    if (i > 0)
+                        json.append(',');
+                    appendQuoted(json, readString(frame, next));
+                    json.append(':');
+                    appendValue(frame, frame.get(), json);
+                }
+                json.append('}');
+                break;
+            case ARRAY:
+                json.append('[');
+                for (int next = frame.get(), i = 0; next != END; next = frame.get(), i++) {
+                    if (i > 0)
+                        json.append(',');
+                    appendValue(frame, next, json);
+                }
+                json.append(']');
+                break;
+            case NULL:
+                json.append("null");
+                break;
+            case TRUE:
+                json.append("true");
+                break;
+            case FALSE:
+                json.append("false");
+                break;
+            case LONG:
+                json.append(readZigzag(frame));
+                break;
+            case NUMBER:
+                byte[] number = readBytes(frame);
+                json.append(new String(number, StandardCharsets.ISO_8859_1));
+                break;
+            default:
+                appendQuoted(json, readString(frame, tag));
+        }
+    }
+
+    /**
+     * A method that reads a string value
+     *
+     * @param frame
+     * @return string
+     */
+    private String readString(ByteBuffer frame) {
+        return readString(frame, frame.get());
+    }
+
+    /**
+     * A method that reads a string value whose tag is already read
+     *
+     * @param frame
+     * @param tag
+     * @return string
+     */
+    private String readString(ByteBuffer frame, int tag) {
+        switch (tag) {
+            case NUMERIC:
+                return Long.toString(readZigzag(frame));
+            case NAME_REF:
+                return receivedNames.get((int) readVarint(frame));
+            case NAME:
+                String name = readUtf8(frame);
+                if (receivedNames.size() < MAX_NAMES)
+                    receivedNames.add(name);
+                return name;
+            case STRING:
+                return readUtf8(frame);
+            default:
+                throw new IllegalArgumentException("Unexpected tag " + tag);
+        }
+    }
+
+    /**
+     * A method that reads a length and that many UTF-8 bytes
+     *
+     * @param frame
+     * @return string
+     */
+    private static String readUtf8(ByteBuffer frame) {
+        return new String(readBytes(frame), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A method that reads a length and that many bytes
+     *
+     * @param frame
+     * @return bytes
+     */
+    private static byte[] readBytes(ByteBuffer frame) {
+        int length = (int) readVarint(frame);
+        if (length < 0 || length > frame.remaining())
+            throw new IllegalArgumentException("Invalid length " + length);
+        byte[] bytes = new byte[length];
+        frame.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * A method that reads an unsigned varint, 7 bits per byte starting with the lowest ones
+     *
+     * @param frame
+     * @return value
+     */
+    private static long readVarint(ByteBuffer frame) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = frame.get();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IllegalArgumentException("Varint too long");
+    }
+
+    /**
+     * A method that reads a zigzag varint (small negative numbers are small too)
+     *
+     * @param frame
+     * @return value
+     */
+    private static long readZigzag(ByteBuffer frame) {
+        long value = readVarint(frame);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * A method that appends a string with quotes and json escapes
+     *
+     * @param json
+     * @param value
+     */
+    private static void appendQuoted(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\')
+                json.append('\\').append(c);
+            else if (c == '\n')
+                json.append("\\n");
+            else if (c == '\r')
+                json.append("\\r");
+            else if (c == '\t')
+                json.append("\\t");
+            else if (c < 0x20)
+                json.append(String.format("\\u%04x", (int) c));
+            else
+                json.append(c);
+        }
+        json.append('"');
+    }
+
+    /**
+     * A method that checks if a string is the canonical text of a long, so it is the same after a round trip
+     *
+     * @param value
+     * @return true if it is a long
+     */
+    private static boolean isLong(String value) {
+        int length = value.length();
+        int start = length > 0 && value.charAt(0) == '-' ? 1 : 0;
+        if (length == start || length - start > 18) // at most 18 digits always fits in a long
+            return false;
+        if (value.charAt(start) == '0' && (length - start > 1 || start == 1)) // leading zero or -0
+            return false;
+        for (int i = start; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9')
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * An exception thrown when the service answered the preface with HTTP because it doesn't accept binary
+     */
+    static class Rejected extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructor
+         */
+        Rejected() {
+            super("Binary protocol rejected");
+        }
+    }
+
+    /**
+     * A private class that holds the bytes of a frame while it is built
+     */
+    private static class Frame {
+
+        private byte[] bytes = new byte[256];
+        private int count;
+
+        /**
+         * A method that adds one byte
+         *
+         * @param b
+         */
+        void write(int b) {
+            if (count == bytes.length)
+                grow(1);
+            bytes[count++] = (byte) b;
+        }
+
+        /**
+         * A method that adds a length followed by the bytes
+         *
+         * @param value
+         */
+        void writeBytes(byte[] value) {
+            writeVarint(value.length);
+            if (count + value.length > bytes.length)
+                grow(value.length);
+            System.arraycopy(value, 0, bytes, count, value.length);
+            count += value.length;
+        }
+
+        /**
+         * A method that adds an unsigned varint
+         *
+         * @param value
+         */
+        void writeVarint(long value) {
+            while ((value & ~0x7fL) != 0) {
+                write((int) ((value & 0x7f) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        /**
+         * A method that adds a signed value as a zigzag varint
+         *
+         * @param value
+         */
+        void writeZigzag(long value) {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        /**
+         * A method that makes room for more bytes
+         *
+         * @param needed
+         */
+        private void grow(int needed) {
+            byte[] bigger = new byte[Math.max(bytes.length * 2, count + needed)];
+            System.arraycopy(bytes, 0, bigger, 0, count);
+            bytes = bigger;
+        }
+    }
+
+    /**
+     * A private class that reads the tokens of a json text, it throws IllegalArgumentException if the text is not json
+     */
+    private static class JsonText {
+
+        private final String text;
+        private int position;
+        private long value; // last long read by readNumber
+
+        /**
+         * Constructor
+         *
+         * @param text
+         */
+        JsonText(String text) {
+            this.text = text;
+        }
+
+        /**
+         * A method that returns the current character
+         *
+         * @return character
+         */
+        char peek() {
+            if (position >= text.length())
+                throw new IllegalArgumentException("Unexpected end");
+            return text.charAt(position);
+        }
+
+        /**
+         * A method that skips the white spaces
+         */
+        void skipSpaces() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position)))
+                position++;
+        }
+
+        /**
+         * A method that checks the current character and moves after it
+         *
+         * @param c
+         */
+        void expect(char c) {
+            if (peek() != c)
+                throw new IllegalArgumentException("Expected " + c);
+            position++;
+        }
+
+        /**
+         * A method that checks a literal (true, false, null) and moves after it
+         *
+         * @param word
+         */
+        void expectWord(String word) {
+            if (!text.startsWith(word, position))
+                throw new IllegalArgumentException("Expected " + word);
+            position += word.length();
+        }
+
+        /**
+         * A method that reads a number. A long (at most 18 digits without leading zero) is kept in value
+         * without creating its text.
+         *
+         * @return null if the number is a long, its text otherwise
+         */
+        String readNumber() {
+            int start = position;
+            boolean negative = text.charAt(position) == '-';
+            if (negative)
+                position++;
+            int digits = position;
+            long number = 0;
+            char c;
+            while (position < text.length() && (c = text.charAt(position)) >= '0' && c <= '9') {
+                number = number * 10 + (c - '0');
+                position++;
+            }
+            int length = position - digits;
+            boolean isLong = length > 0 && length <= 18 && (text.charAt(digits) != '0' || (length == 1 && !negative));
+            while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) { // fraction or exponent
+                isLong = false;
+                position++;
+            }
+            if (isLong) {
+                value = negative ? -number : number;
+                return null;
+            }
+            return text.substring(start, position);
+        }
+
+        /**
+         * A method that reads a quoted string and decodes its escapes
+         *
+         * @return string
+         */
+        String readString() {
+            expect('"');
+            int start = position;
+            while (true) { // fast path without escapes
+                char c = peek();
+                if (c == '"') {
+                    position++;
+                    return text.substring(start, position - 1);
+                }
+                if (c == '\\')
+                    break;
+                position++;
+            }
+            StringBuilder value = new StringBuilder(text.substring(start, position));
+            while (true) {
+                char c = peek();
+                position++;
+                if (c == '"')
+                    return value.toString();
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                char escaped = peek();
+                position++;
+                switch (escaped) {
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'u':
+                        if (position + 4 > text.length())
+                            throw new IllegalArgumentException("Invalid escape");
+                        value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        position += 4;
+                        break;
+                    default:
+                        value.append(escaped); // " \ /
+                }
+            }
+        }
+    }
+}
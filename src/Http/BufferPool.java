@@ -0,0 +1,54 @@
+package Http;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread safe pool of fixed size ByteBuffers used to read requests.
+ * Buffers are reused between connections so that reading a request doesn't allocate a new buffer every time.
+ *
+ * @author Hassan Chadad
+ */
+public class BufferPool {
+
+    public static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_POOLED = 1024; // buffers above this number are left to the garbage collector
+
+    private static final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger pooled = new AtomicInteger();
+
+    /**
+     * private constructor since the pool is shared by the whole service
+     */
+    private BufferPool() {
+    }
+
+    /**
+     * A method that returns a cleared buffer from the pool or a new one if the pool is empty
+     *
+     * @return buffer of BUFFER_SIZE bytes
+     */
+    public static ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null)
+            return ByteBuffer.allocate(BUFFER_SIZE);
+        pooled.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * A method that gives a buffer back to the pool. Buffers that were grown for big requests are not pooled.
+     *
+     * @param buffer
+     */
+    public static void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.capacity() != BUFFER_SIZE)
+            return;
+        if (pooled.incrementAndGet() <= MAX_POOLED)
+            buffers.add(buffer);
+        else
+            pooled.decrementAndGet();
+    }
+}
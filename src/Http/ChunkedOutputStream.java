@@ -0,0 +1,95 @@
+package Http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An output stream that writes the body of a response with chunked transfer encoding.
+ * Bytes are collected in a fixed buffer and each time it is full it is sent as one chunk,
+ * so a body of any size is sent without knowing its length and without keeping it in memory.
+ *
+ * @author Hassan Chadad
+ */
+public class ChunkedOutputStream extends OutputStream {
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[CHUNK_SIZE];
+    private int count;
+    private boolean finished;
+
+    /**
+     * Constructor
+     *
+     * @param out - stream of the connection, it is not closed by this stream
+     */
+    public ChunkedOutputStream(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == buffer.length)
+            writeChunk();
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (count == buffer.length)
+                writeChunk();
+            int n = Math.min(length, buffer.length - count);
+            System.arraycopy(bytes, offset, buffer, count, n);
+            count += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * A method that sends the buffered bytes as a chunk and flushes the connection stream
+     *
+     * @throws IOException
+     */
+    @Override
+    public void flush() throws IOException {
+        writeChunk();
+        out.flush();
+    }
+
+    /**
+     * A method that sends the buffered bytes and the last (empty) chunk that ends the body.
+     * The connection stream stays open for the next response.
+     *
+     * @throws IOException
+     */
+    public void finish() throws IOException {
+        if (finished)
+            return;
+        writeChunk();
+        out.write('0');
+        out.write(CRLF);
+        out.write(CRLF);
+        out.flush();
+        finished = true;
+    }
+
+    /**
+     * A method that writes the buffered bytes as one chunk: size in hex, CRLF, bytes, CRLF
+     *
+     * @throws IOException
+     */
+    private void writeChunk() throws IOException {
+        if (count == 0) // an empty chunk would end the body
+            return;
+        out.write(Integer.toHexString(count).getBytes(StandardCharsets.ISO_8859_1));
+        out.write(CRLF);
+        out.write(buffer, 0, count);
+        out.write(CRLF);
+        count = 0;
+    }
+}
@@ -0,0 +1,130 @@
+package Http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import java.util.zip.Deflater;
+
+/**
+ * An output stream that compresses what is written to it in gzip or deflate (zlib) format.
+ * It uses a raw deflater from the Compression pool and writes the header and trailer of the format itself,
+ * so no deflater is created per body. finish() (or close()) must be called to write the trailer
+ * and give the deflater back, the underlying stream is not closed.
+ *
+ * @author Hassan Chadad
+ */
+public class CompressingOutputStream extends OutputStream {
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final byte[] ZLIB_HEADER = {0x78, 0x01};
+
+    private final OutputStream out;
+    private final boolean gzip;
+    private final Checksum checksum;
+    private final byte[] buffer = new byte[8192];
+    private final byte[] single = new byte[1];
+    private Deflater deflater;
+    private long size; // number of bytes before compression
+
+    /**
+     * Constructor
+     *
+     * @param out
+     * @param encoding - gzip or deflate
+     * @throws IOException
+     */
+    public CompressingOutputStream(OutputStream out, String encoding) throws IOException {
+        this.out = out;
+        gzip = encoding.equalsIgnoreCase("gzip");
+        checksum = gzip ? new CRC32() : new Adler32();
+        deflater = Compression.acquire();
+        out.write(gzip ? GZIP_HEADER : ZLIB_HEADER);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        single[0] = (byte) b;
+        write(single, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (deflater == null)
+            throw new IOException("Stream finished");
+        checksum.update(bytes, offset, length);
+        size += length;
+        deflater.setInput(bytes, offset, length);
+        while (!deflater.needsInput())
+            deflate();
+    }
+
+    /**
+     * A method that writes the rest of the compressed bytes and the trailer of the format,
+     * then gives the deflater back to the pool
+     *
+     * @throws IOException
+     */
+    public void finish() throws IOException {
+        if (deflater == null)
+            return;
+        try {
+            deflater.finish();
+            while (!deflater.finished())
+                deflate();
+            long value = checksum.getValue();
+            if (gzip) { // CRC32 and size in little endian
+                writeInt((int) value, false);
+                writeInt((int) size, false);
+            } else // Adler32 in big endian
+                writeInt((int) value, true);
+        } finally {
+            Compression.release(deflater);
+            deflater = null;
+        }
+    }
+
+    /**
+     * A method that gives the deflater back without writing the rest of the body, used when the body failed
+     */
+    void discard() {
+        if (deflater == null)
+            return;
+        Compression.release(deflater);
+        deflater = null;
+    }
+
+    /**
+     * A method that finishes the body, the underlying stream stays open
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        finish();
+    }
+
+    /**
+     * A method that writes the bytes compressed by the deflater so far
+     *
+     * @throws IOException
+     */
+    private void deflate() throws IOException {
+        int length = deflater.deflate(buffer, 0, buffer.length);
+        if (length > 0)
+            out.write(buffer, 0, length);
+    }
+
+    /**
+     * A method that writes 4 bytes of an int
+     *
+     * @param value
+     * @param bigEndian
+     * @throws IOException
+     */
+    private void writeInt(int value, boolean bigEndian) throws IOException {
+        for (int i = 0; i < 4; i++)
+            out.write(value >>> (bigEndian ? 24 - 8 * i : 8 * i));
+    }
+}
@@ -0,0 +1,190 @@
+package Http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A class that compresses and decompresses the bodies of requests and responses (gzip and deflate).
+ * Deflaters hold native memory, so they are kept in a pool and reused by all the threads of the service
+ * instead of creating a new one for each body.
+ * Bodies smaller than MIN_SIZE are sent as they are since compressing them saves almost nothing.
+ *
+ * @author Hassan Chadad
+ */
+public class Compression {
+
+    public static final int MIN_SIZE = 1024; // bodies smaller than this are not compressed
+    public static final String ACCEPT = "gzip, deflate"; // value of Accept-Encoding sent by the services
+    private static final int MAX_POOLED = 64; // deflaters above this number are ended
+    private static final int LEVEL = Deflater.BEST_SPEED; // json keys repeat a lot, the fastest level already shrinks it well
+
+    private static final ConcurrentLinkedQueue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger pooled = new AtomicInteger();
+
+    /**
+     * private constructor since the pool is shared by the whole service
+     */
+    private Compression() {
+    }
+
+    /**
+     * A method that picks the encoding of a response from the Accept-Encoding header of the request.
+     * gzip is preferred, an encoding with q=0 is not accepted. "*" accepts the encodings that are not listed,
+     * so "gzip;q=0, *" gets deflate.
+     *
+     * @param acceptEncoding - header value or null
+     * @return "gzip", "deflate" or null if the body must not be compressed
+     */
+    public static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null)
+            return null;
+        Boolean gzip = null, deflate = null; // null if not listed, false if rejected with q=0
+        boolean any = false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] values = part.split(";");
+            String name = values[0].trim();
+            boolean accepted = quality(values) > 0;
+            if (name.equalsIgnoreCase("gzip"))
+                gzip = accepted;
+            else if (name.equalsIgnoreCase("deflate"))
+                deflate = accepted;
+            else if (name.equals("*"))
+                any = accepted;
+        }
+        if (Boolean.TRUE.equals(gzip) || (any && gzip == null))
+            return "gzip";
+        if (Boolean.TRUE.equals(deflate) || (any && deflate == null))
+            return "deflate";
+        return null;
+    }
+
+    /**
+     * A method that returns the q value of an item of Accept-Encoding, parsed as a number
+     *
+     * @param values - name of the encoding followed by its parameters, ex: ["gzip", "q=0.5"]
+     * @return q value, 1 if it is missing or not a number
+     */
+    private static double quality(String[] values) {
+        for (int i = 1; i < values.length; i++) {
+            int equals = values[i].indexOf('=');
+            if (equals > 0 && values[i].substring(0, equals).trim().equalsIgnoreCase("q")) {
+                try {
+                    return Double.parseDouble(values[i].substring(equals + 1).trim());
+                } catch (NumberFormatException e) {
+                    return 1;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * A method that checks if the encoding is one of the supported ones
+     *
+     * @param encoding - value of Content-Encoding
+     * @return true for gzip and deflate
+     */
+    public static boolean isSupported(String encoding) {
+        return encoding != null && (encoding.trim().equalsIgnoreCase("gzip") || encoding.trim().equalsIgnoreCase("deflate"));
+    }
+
+    /**
+     * A method that compresses a body
+     *
+     * @param body
+     * @param encoding - gzip or deflate
+     * @return compressed bytes
+     */
+    public static byte[] compress(byte[] body, String encoding) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (CompressingOutputStream out = new CompressingOutputStream(bytes, encoding)) {
+            out.write(body);
+        } catch (IOException e) { // never thrown by a ByteArrayOutputStream
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * A method that decompresses the body of a request as a UTF-8 string.
+     * The decompressed size is limited to the maximum body size of a request.
+     *
+     * @param body
+     * @param encoding - gzip or deflate
+     * @return body string
+     * @throws IOException if the body is not valid or too big
+     */
+    public static String decompress(ByteBuffer body, String encoding) throws IOException {
+        byte[] compressed = new byte[body.remaining()];
+        body.get(compressed);
+        InputStream in = decode(new ByteArrayInputStream(compressed), encoding);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(compressed.length * 4);
+        byte[] buffer = new byte[8192];
+        int read;
+        try {
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+                if (bytes.size() > HttpRequestParser.MAX_BODY_SIZE)
+                    throw new IOException("Decompressed body too large");
+            }
+        } finally {
+            in.close();
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A method that wraps the stream of a response body with its decoder
+     *
+     * @param in
+     * @param encoding - value of Content-Encoding, null or identity leaves the stream as it is
+     * @return decoded stream
+     * @throws IOException
+     */
+    public static InputStream decode(InputStream in, String encoding) throws IOException {
+        if (encoding == null || encoding.equalsIgnoreCase("identity"))
+            return in;
+        if (encoding.equalsIgnoreCase("gzip"))
+            return new GZIPInputStream(in, 8192);
+        if (encoding.equalsIgnoreCase("deflate"))
+            return new InflaterInputStream(in);
+        throw new IOException("Unsupported encoding " + encoding);
+    }
+
+    /**
+     * A method that returns a raw deflater (no zlib header) from the pool or a new one if the pool is empty
+     *
+     * @return deflater
+     */
+    static Deflater acquire() {
+        Deflater deflater = deflaters.poll();
+        if (deflater == null)
+            return new Deflater(LEVEL, true);
+        pooled.decrementAndGet();
+        return deflater;
+    }
+
+    /**
+     * A method that resets a deflater and gives it back to the pool
+     *
+     * @param deflater
+     */
+    static void release(Deflater deflater) {
+        deflater.reset();
+        if (pooled.incrementAndGet() <= MAX_POOLED)
+            deflaters.add(deflater);
+        else {
+            pooled.decrementAndGet();
+            deflater.end();
+        }
+    }
+}
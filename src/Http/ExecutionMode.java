@@ -0,0 +1,205 @@
+package Http;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A class that creates the threads used by a service to handle requests, send requests to the other members
+ * and run background tasks like heartbeats and elections.
+ * By default platform threads are used. When the service is started with "-threads virtual" every task runs
+ * on its own virtual thread, so a request blocked on another service doesn't hold a platform thread.
+ * Virtual threads are looked up by reflection so the services still run on a JDK that doesn't have them,
+ * in that case the platform threads are used.
+ *
+ * @author Hassan Chadad
+ */
+public class ExecutionMode {
+
+    private static boolean virtual = false;
+    private static ExecutorService executor; // shared by the request handlers and the background tasks
+    private static final Map<String, ExecutorService> senders = new HashMap<>(); // host -> executor of its internal requests
+    private static int senderThreads = 16; // number of platform threads sending internal requests to one host
+    private static Method ofVirtual, unstarted; // Thread.ofVirtual() and Thread.Builder.unstarted(Runnable)
+    private final static Logger log = LogManager.getRootLogger(); // Log Object to print to the debug.log file
+
+    /**
+     * private constructor since the mode is shared by the whole service
+     */
+    private ExecutionMode() {
+    }
+
+    /**
+     * A method that reads the "-threads" argument of the service, the value is "virtual" or "platform" (default),
+     * and the "-senderThreads" argument, the number of platform threads sending internal requests to one host
+     *
+     * @param args - service arguments
+     */
+    public static void configure(String[] args) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equalsIgnoreCase("-threads"))
+                setVirtual(args[i + 1].equalsIgnoreCase("virtual"));
+            if (args[i].equalsIgnoreCase("-senderThreads"))
+                setSenderThreads(Integer.parseInt(args[i + 1]));
+        }
+    }
+
+    /**
+     * Set method
+     *
+     * @param threads - number of platform threads sending internal requests to one host
+     */
+    public static synchronized void setSenderThreads(int threads) {
+        senderThreads = threads;
+        closeSenders();
+    }
+
+    /**
+     * A method that selects virtual threads if the JDK supports them
+     *
+     * @param useVirtual
+     */
+    public static synchronized void setVirtual(boolean useVirtual) {
+        virtual = false;
+        if (useVirtual) {
+            try {
+                ofVirtual = Thread.class.getMethod("ofVirtual");
+                unstarted = ofVirtual.getReturnType().getMethod("unstarted", Runnable.class);
+                unstarted.invoke(ofVirtual.invoke(null), new Runnable() { // fails if virtual threads are a preview feature
+                    @Override
+                    public void run() {
+                    }
+                });
+                virtual = true;
+            } catch (Exception e) {
+                System.out.println("Virtual threads are not supported by this JDK, using platform threads.");
+                log.debug(e);
+            }
+        }
+        executor = null;
+        closeSenders();
+    }
+
+    /**
+     * Get method
+     *
+     * @return true if tasks run on virtual threads
+     */
+    public static boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * A method that returns the executor shared by the whole service.
+     * It creates a new thread for each task (virtual or cached platform threads), so tasks never wait for each other.
+     *
+     * @return executor
+     */
+    public static synchronized ExecutorService getExecutor() {
+        if (executor == null)
+            executor = newExecutor();
+        return executor;
+    }
+
+    /**
+     * A method that returns the executor of the internal requests sent to a host.
+     * With platform threads each host has its own fixed pool of "-senderThreads" threads, the requests above that
+     * number wait in its queue. A host that hangs only holds the threads of its own pool, the requests to the other
+     * hosts are never queued behind its requests.
+     * With virtual threads each request gets its own thread.
+     *
+     * @param url - ex: http://localhost:2371/election
+     * @return executor
+     */
+    public static synchronized ExecutorService getSenders(String url) {
+        String host = url;
+        try {
+            URL target = new URL(url);
+            host = target.getHost() + ":" + target.getPort();
+        } catch (MalformedURLException e) {
+            log.debug(e); // the url fails when it is sent, it gets the pool of the whole string
+        }
+        ExecutorService hostSenders = senders.get(host);
+        if (hostSenders == null) {
+            hostSenders = newWorkers(senderThreads);
+            senders.put(host, hostSenders);
+        }
+        return hostSenders;
+    }
+
+    /**
+     * A method that shuts down the sender pools when the mode changes, called while holding the class lock.
+     * The requests already queued are still sent.
+     */
+    private static void closeSenders() {
+        for (ExecutorService hostSenders : senders.values())
+            hostSenders.shutdown();
+        senders.clear();
+    }
+
+    /**
+     * A method that returns a new executor that runs each task on a new virtual thread,
+     * or a cached pool of platform threads.
+     *
+     * @return executor
+     */
+    public static ExecutorService newExecutor() {
+        if (virtual) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (Exception e) {
+                log.debug(e);
+            }
+        }
+        return Executors.newCachedThreadPool();
+    }
+
+    /**
+     * A method that returns the executor of the NioServer workers. With platform threads the pool is bounded,
+     * with virtual threads each request gets its own thread.
+     *
+     * @param workerThreads - number of platform workers
+     * @return executor
+     */
+    public static ExecutorService newWorkers(int workerThreads) {
+        if (virtual)
+            return newExecutor();
+        return Executors.newFixedThreadPool(workerThreads);
+    }
+
+    /**
+     * A method that creates a thread that is not started yet
+     *
+     * @param task
+     * @return virtual or platform thread
+     */
+    public static Thread newThread(Runnable task) {
+        if (virtual) {
+            try {
+                return (Thread) unstarted.invoke(ofVirtual.invoke(null), task);
+            } catch (Exception e) {
+                log.debug(e);
+            }
+        }
+        return new Thread(task);
+    }
+
+    /**
+     * A method that creates and starts a thread
+     *
+     * @param task
+     * @return started thread
+     */
+    public static Thread start(Runnable task) {
+        Thread thread = newThread(task);
+        thread.start();
+        return thread;
+    }
+}
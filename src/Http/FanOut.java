@@ -0,0 +1,186 @@
+package Http;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+
+/**
+ * A class that combines the replies of requests sent to many members (or frontends) at the same time.
+ * Each request is a CompletableFuture, the combined future completes when all the members replied (allOf)
+ * or when enough of them replied successfully (quorum), so the thread that sent the requests doesn't poll them.
+ * A future that fails counts as a reply with a null value.
+ * awaitAll and withDeadline wait for the replies with a deadline, so a stuck member can't hold the caller
+ * (election, join, client write).
+ *
+ * @author Hassan Chadad
+ */
+public class FanOut {
+
+    /**
+     * private constructor since the class only has static methods
+     */
+    private FanOut() {
+    }
+
+    /**
+     * A method that returns a future that completes when all the futures completed
+     *
+     * @param futures - key (ex: member id) -> reply
+     * @return future of the replies in the order of the keys
+     */
+    public static <K, V> CompletableFuture<Map<K, V>> allOf(Map<K, CompletableFuture<V>> futures) {
+        return quorum(futures, futures.size(), null);
+    }
+
+    /**
+     * A method that returns a future that completes as soon as "needed" replies are successful,
+     * or when all the futures completed if that never happens. The caller checks the number of successful
+     * replies in the returned map, members that didn't reply yet are not in it.
+     *
+     * @param futures - key (ex: member id) -> reply
+     * @param needed  - number of successful replies
+     * @param success - tells if a reply is successful, null means every reply counts
+     * @return future of the replies received so far in the order of the keys
+     */
+    public static <K, V> CompletableFuture<Map<K, V>> quorum(final Map<K, CompletableFuture<V>> futures, final int needed, final Predicate<V> success) {
+        final CompletableFuture<Map<K, V>> result = new CompletableFuture<>();
+        final Map<K, V> replies = new LinkedHashMap<>();
+        final ReentrantLock lock = new ReentrantLock();
+        final int[] counts = new int[2]; // replied, successful
+        if (futures.isEmpty() || needed <= 0) {
+            result.complete(replies);
+            return result;
+        }
+        for (final Map.Entry<K, CompletableFuture<V>> entry : futures.entrySet()) {
+            entry.getValue().whenComplete(new BiConsumer<V, Throwable>() {
+                @Override
+                public void accept(V reply, Throwable error) {
+                    Map<K, V> done = null;
+                    lock.lock();
+                    try {
+                        if (result.isDone())
+                            return;
+                        replies.put(entry.getKey(), error == null ? reply : null);
+                        counts[0]++;
+                        if (error == null && (success == null || success.test(reply)))
+                            counts[1]++;
+                        if (counts[1] >= needed || counts[0] == futures.size())
+                            done = ordered(futures, replies);
+                    } finally {
+                        lock.unlock();
+                    }
+                    if (done != null)
+                        result.complete(done);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * A method that waits for the replies of all the futures at most the deadline of the retry policy plus the read
+     * timeout of one request, the longest a member that works takes to reply. The members that didn't reply in time
+     * get the missing value.
+     *
+     * @param futures - key (ex: member id) -> reply
+     * @param missing - reply of a member that didn't reply in time (ex: "error", the member is handled as dead)
+     * @return replies in the order of the keys
+     */
+    public static <K, V> Map<K, V> awaitAll(Map<K, CompletableFuture<V>> futures, V missing) {
+        long timeout = RetryPolicy.getDefault().getDeadline() + PooledHttpClient.getReadTimeout();
+        try {
+            return await(allOf(futures), timeout);
+        } catch (TimeoutException e) {
+            return received(futures, missing);
+        }
+    }
+
+    /**
+     * A method that returns a future of the combined replies (allOf or quorum) that completes at most timeout ms later.
+     * If the replies are not combined in time it completes with the replies of all the futures, the members that
+     * didn't reply get the missing value.
+     *
+     * @param combined - allOf or quorum of the futures
+     * @param futures  - key (ex: member id) -> reply
+     * @param missing  - reply of a member that didn't reply in time
+     * @param timeout  - ms
+     * @return future of the replies in the order of the keys
+     */
+    public static <K, V> CompletableFuture<Map<K, V>> withDeadline(CompletableFuture<Map<K, V>> combined,
+                                                                  final Map<K, CompletableFuture<V>> futures,
+                                                                  final V missing, long timeout) {
+        return combined.orTimeout(timeout, TimeUnit.MILLISECONDS).handle(new BiFunction<Map<K, V>, Throwable, Map<K, V>>() {
+            @Override
+            public Map<K, V> apply(Map<K, V> replies, Throwable error) {
+                if (error == null)
+                    return replies;
+                if (error instanceof TimeoutException)
+                    return received(futures, missing);
+                throw new CompletionException(error);
+            }
+        });
+    }
+
+    /**
+     * A method that returns the replies of the futures that completed, the other ones get the missing value
+     *
+     * @param futures
+     * @param missing
+     * @return replies in the order of the keys
+     */
+    private static <K, V> Map<K, V> received(Map<K, CompletableFuture<V>> futures, V missing) {
+        Map<K, V> replies = new LinkedHashMap<>();
+        for (Map.Entry<K, CompletableFuture<V>> entry : futures.entrySet()) {
+            CompletableFuture<V> future = entry.getValue();
+            if (!future.isDone())
+                replies.put(entry.getKey(), missing);
+            else
+                replies.put(entry.getKey(), future.isCompletedExceptionally() ? null : future.join());
+        }
+        return replies;
+    }
+
+    /**
+     * A method that waits for a future at most timeout ms
+     *
+     * @param future
+     * @param timeout - ms
+     * @return value of the future
+     * @throws TimeoutException if the future is not completed in time
+     */
+    public static <T> T await(CompletableFuture<T> future, long timeout) throws TimeoutException {
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the replies");
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    /**
+     * A method that copies the replies in the order of the keys of the futures
+     *
+     * @param futures
+     * @param replies
+     * @return ordered replies
+     */
+    private static <K, V> Map<K, V> ordered(Map<K, CompletableFuture<V>> futures, Map<K, V> replies) {
+        Map<K, V> ordered = new LinkedHashMap<>();
+        for (K key : futures.keySet()) {
+            if (replies.containsKey(key))
+                ordered.put(key, replies.get(key));
+        }
+        return ordered;
+    }
+}
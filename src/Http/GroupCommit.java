@@ -0,0 +1,260 @@
+package Http;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * A class that groups the operations replicated by the primary (group commit, "-batchSize N").
+ * Only one replication round is in flight at a time. The operations executed by the primary while a round is
+ * in flight are collected, and when the round ends they are sent together as the next round, one request per
+ * secondary. The operations of a round are in the order the primary executed them, and the secondary applies them
+ * in that order.
+ * The operations of a round are completed together when the secondaries replied, so their clients are answered at the
+ * same time. When no round is in flight the first operation waits at most "-batchLinger" ms for others (0 by default).
+ *
+ * @author Hassan Chadad
+ */
+public class GroupCommit {
+
+    public static final String PATH = "batch"; // api of a round sent to a secondary
+
+    private static volatile int maxBatch = 1; // 1 means every operation is replicated alone
+    private static volatile long linger = 0; // ms
+
+    private final Replicator replicator;
+    private final ReentrantLock lock = new ReentrantLock(); // protects the queue and the state of the round
+    private final ArrayDeque<Operation> queue = new ArrayDeque<>(); // executed and not sent yet, in operation ID order
+    private boolean inFlight; // a round is sent and not answered yet
+    private boolean lingering; // the first operation is waiting for others
+
+    /**
+     * Constructor
+     *
+     * @param replicator - sends a round to the secondaries
+     */
+    public GroupCommit(Replicator replicator) {
+        this.replicator = replicator;
+    }
+
+    /**
+     * A method that reads the group commit arguments of the service: "-batchSize" (maximum number of operations
+     * in a round, 1 disables group commit) and "-batchLinger" (ms)
+     *
+     * @param args - service arguments
+     */
+    public static void configure(String[] args) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equalsIgnoreCase("-batchSize"))
+                maxBatch = Math.max(1, Integer.parseInt(args[i + 1]));
+            if (args[i].equalsIgnoreCase("-batchLinger"))
+                linger = Math.max(0, Long.parseLong(args[i + 1]));
+        }
+    }
+
+    /**
+     * Get method
+     *
+     * @return true if the operations are replicated in rounds
+     */
+    public static boolean isEnabled() {
+        return maxBatch > 1;
+    }
+
+    /**
+     * A method that adds an operation executed by the primary to the next round.
+     * It must be called in the order of the operation IDs.
+     *
+     * @param operationId
+     * @param path        - client api without the first slash, ex: create
+     * @param jsonData    - body with the operation ID
+     * @return future completed when the round of the operation is replicated
+     */
+    public CompletableFuture<Void> add(int operationId, String path, String jsonData) {
+        Operation operation = new Operation(operationId, path, jsonData);
+        List<Operation> round = null;
+        boolean wait = false;
+        lock.lock();
+        try {
+            queue.addLast(operation);
+            if (!inFlight) {
+                if (lingering && queue.size() >= maxBatch) { // full before the end of the linger time
+                    lingering = false;
+                    round = take();
+                } else if (!lingering && linger > 0 && queue.size() < maxBatch) {
+                    lingering = wait = true;
+                } else if (!lingering)
+                    round = take();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (wait)
+            lingerThenSend();
+        if (round != null)
+            send(round);
+        return operation.future;
+    }
+
+    /**
+     * A method that sends the collected operations after the linger time, unless they were already sent
+     */
+    private void lingerThenSend() {
+        Executor later = CompletableFuture.delayedExecutor(linger, TimeUnit.MILLISECONDS, ExecutionMode.getExecutor());
+        later.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<Operation> round = null;
+                lock.lock();
+                try {
+                    if (lingering) {
+                        lingering = false;
+                        round = take();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                if (round != null)
+                    send(round);
+            }
+        });
+    }
+
+    /**
+     * A method that removes the operations of the next round from the queue, called while holding the lock
+     *
+     * @return operations of the round, null if there is nothing to send
+     */
+    private List<Operation> take() {
+        if (queue.isEmpty()) {
+            inFlight = false;
+            return null;
+        }
+        List<Operation> round = new ArrayList<>();
+        while (!queue.isEmpty() && round.size() < maxBatch)
+            round.add(queue.pollFirst());
+        inFlight = true;
+        return round;
+    }
+
+    /**
+     * A method that sends a round, and when the secondaries replied it completes its operations and sends the
+     * operations collected meanwhile
+     *
+     * @param round
+     */
+    private void send(final List<Operation> round) {
+        CompletableFuture<?> replicated;
+        try {
+            replicated = replicator.replicate(round);
+        } catch (Exception e) {
+            replicated = CompletableFuture.completedFuture(null); // the replicator dropped the members it couldn't reach
+        }
+        replicated.whenCompleteAsync(new BiConsumer<Object, Throwable>() {
+            @Override
+            public void accept(Object result, Throwable error) {
+                for (Operation operation : round)
+                    operation.future.complete(null);
+                List<Operation> next;
+                lock.lock();
+                try {
+                    next = take();
+                } finally {
+                    lock.unlock();
+                }
+                if (next != null)
+                    send(next);
+            }
+        }, ExecutionMode.getExecutor());
+    }
+
+    /**
+     * A method that builds the body of a round: {"operations":[{"path":"create","data":{...}},...]}
+     *
+     * @param round
+     * @return json body
+     */
+    public static String toJson(List<Operation> round) {
+        int length = 20;
+        for (Operation operation : round)
+            length += operation.jsonData.length() + operation.path.length() + 20;
+        StringBuilder json = new StringBuilder(length).append("{\"operations\":[");
+        for (int i = 0; i < round.size(); i++) {
+            if (i > 0)
+                json.append(',');
+            json.append("{\"path\":\"").append(round.get(i).path).append("\",\"data\":").append(round.get(i).jsonData).append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * An interface implemented by the service to send a round to its secondaries
+     */
+    public interface Replicator {
+
+        /**
+         * A method that sends the operations to every secondary and checks their replies
+         *
+         * @param round - operations in operation ID order
+         * @return future completed when all the secondaries replied
+         * @throws Exception
+         */
+        CompletableFuture<?> replicate(List<Operation> round) throws Exception;
+    }
+
+    /**
+     * A class that holds an operation waiting for its round
+     */
+    public static class Operation {
+
+        private final int operationId;
+        private final String path;
+        private final String jsonData;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        /**
+         * Constructor
+         *
+         * @param operationId
+         * @param path
+         * @param jsonData
+         */
+        Operation(int operationId, String path, String jsonData) {
+            this.operationId = operationId;
+            this.path = path;
+            this.jsonData = jsonData;
+        }
+
+        /**
+         * Get method
+         *
+         * @return operation ID
+         */
+        public int getOperationId() {
+            return operationId;
+        }
+
+        /**
+         * Get method
+         *
+         * @return client api without the first slash
+         */
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * Get method
+         *
+         * @return body with the operation ID
+         */
+        public String getJsonData() {
+            return jsonData;
+        }
+    }
+}
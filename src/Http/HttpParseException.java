@@ -0,0 +1,22 @@
+package Http;
+
+import java.io.IOException;
+
+/**
+ * An exception thrown when the bytes received are not a valid HTTP request
+ *
+ * @author Hassan Chadad
+ */
+public class HttpParseException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor
+     *
+     * @param message
+     */
+    public HttpParseException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,298 @@
+package Http;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A class that holds one framed HTTP request so that it can be handed from the network thread to a worker thread.
+ * It doesn't copy the request, it only keeps the offsets of the method, path, headers and body inside the buffer
+ * the request was read in. So a request is only valid till its bytes are removed from that buffer.
+ *
+ * @author Hassan Chadad
+ */
+public class HttpRequest {
+
+    private final ByteBuffer buffer;
+    private final int start; // first byte of the request line
+    private final int methodEnd, pathStart, pathEnd, versionStart, versionEnd;
+    private final int[] headers; // 4 offsets per header: name start, name end, value start, value end
+    private final int headerCount;
+    private final int bodyStart, bodyLength;
+    private String path, body; // decoded when asked for the first time
+
+    /**
+     * Constructor called by HttpRequestParser
+     *
+     * @param buffer
+     * @param start
+     * @param methodEnd
+     * @param pathStart
+     * @param pathEnd
+     * @param versionStart
+     * @param versionEnd
+     * @param headers
+     * @param headerCount
+     * @param bodyStart
+     * @param bodyLength
+     */
+    HttpRequest(ByteBuffer buffer, int start, int methodEnd, int pathStart, int pathEnd, int versionStart,
+                int versionEnd, int[] headers, int headerCount, int bodyStart, int bodyLength) {
+        this.buffer = buffer;
+        this.start = start;
+        this.methodEnd = methodEnd;
+        this.pathStart = pathStart;
+        this.pathEnd = pathEnd;
+        this.versionStart = versionStart;
+        this.versionEnd = versionEnd;
+        this.headers = headers;
+        this.headerCount = headerCount;
+        this.bodyStart = bodyStart;
+        this.bodyLength = bodyLength;
+    }
+
+    /**
+     * Get method, GET and POST are returned without creating a new string
+     *
+     * @return method
+     */
+    public String getMethod() {
+        if (equalsAscii(start, methodEnd, "GET"))
+            return "GET";
+        if (equalsAscii(start, methodEnd, "POST"))
+            return "POST";
+        return ascii(start, methodEnd);
+    }
+
+    /**
+     * Get method
+     *
+     * @return path including the leading "/"
+     */
+    public String getPath() {
+        if (path == null)
+            path = ascii(pathStart, pathEnd);
+        return path;
+    }
+
+    /**
+     * A method that returns the path as a view on the request buffer without copying it
+     *
+     * @return path including the leading "/"
+     */
+    public CharSequence getPathView() {
+        return new AsciiView(pathStart, pathEnd);
+    }
+
+    /**
+     * Get method
+     *
+     * @return version ex: HTTP/1.1
+     */
+    public String getVersion() {
+        if (versionStart == versionEnd)
+            return "HTTP/1.0";
+        if (equalsAscii(versionStart, versionEnd, "HTTP/1.1"))
+            return "HTTP/1.1";
+        return ascii(versionStart, versionEnd);
+    }
+
+    /**
+     * Get method, the body is decoded as UTF-8 the first time it is asked for.
+     * A body sent with Content-Encoding gzip/deflate is decompressed first, if it is not valid the body is empty.
+     *
+     * @return json body (empty string for GET)
+     */
+    public String getBody() {
+        if (body == null) {
+            String encoding = bodyLength > 0 ? getHeader("Content-Encoding") : null;
+            if (Compression.isSupported(encoding)) {
+                try {
+                    body = Compression.decompress(getBodyBuffer(), encoding.trim());
+                } catch (IOException e) {
+                    body = "";
+                }
+            } else if (buffer.hasArray())
+                body = new String(buffer.array(), buffer.arrayOffset() + bodyStart, bodyLength, StandardCharsets.UTF_8);
+            else
+                body = StandardCharsets.UTF_8.decode(getBodyBuffer()).toString();
+        }
+        return body;
+    }
+
+    /**
+     * A method that returns the body as a read only view on the request buffer without copying it
+     *
+     * @return body bytes
+     */
+    public ByteBuffer getBodyBuffer() {
+        ByteBuffer view = buffer.duplicate();
+        view.limit(bodyStart + bodyLength);
+        view.position(bodyStart);
+        return view.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Get method
+     *
+     * @return number of bytes of the body
+     */
+    public int getContentLength() {
+        return bodyLength;
+    }
+
+    /**
+     * A method that returns the offset in the buffer right after the request (after its body),
+     * so the caller knows where the next pipelined request starts.
+     *
+     * @return end offset of the request in the buffer
+     */
+    public int getEnd() {
+        return bodyStart + bodyLength;
+    }
+
+    /**
+     * A method that returns the value of a header or null if it was not sent
+     *
+     * @param name - case insensitive
+     * @return header value
+     */
+    public String getHeader(String name) {
+        int index = findHeader(name);
+        if (index == -1)
+            return null;
+        return ascii(headers[index + 2], headers[index + 3]);
+    }
+
+    /**
+     * A method that returns the host of the service that sent the request.
+     * Services send their host in the Cookie header, ex: "Cookie: http://localhost:2370"
+     *
+     * @return client host or empty string
+     */
+    public String getCookie() {
+        String cookie = getHeader("Cookie");
+        if (cookie == null)
+            return "";
+        return cookie;
+    }
+
+    /**
+     * A method that checks if the client wants the connection to stay open after the response
+     *
+     * @return true if the connection stays open
+     */
+    public boolean isKeepAlive() {
+        return isKeepAlive(getVersion(), getHeader("Connection"));
+    }
+
+    /**
+     * A method that checks if the connection should stay open after the response.
+     * HTTP/1.1 keeps the connection open unless the client sends "Connection: close",
+     * HTTP/1.0 closes it unless the client sends "Connection: keep-alive".
+     *
+     * @param version    - version sent in the request line
+     * @param connection - value of the Connection header or null
+     * @return true if the connection stays open
+     */
+    public static boolean isKeepAlive(String version, String connection) {
+        if (connection != null) {
+            connection = connection.trim();
+            if (connection.equalsIgnoreCase("close"))
+                return false;
+            if (connection.equalsIgnoreCase("keep-alive"))
+                return true;
+        }
+        return "HTTP/1.1".equals(version);
+    }
+
+    /**
+     * A method that finds a header by comparing its name byte by byte (case insensitive)
+     *
+     * @param name
+     * @return index of the header offsets or -1
+     */
+    private int findHeader(String name) {
+        for (int i = 0; i < headerCount * 4; i += 4) {
+            if (headers[i + 1] - headers[i] != name.length())
+                continue;
+            boolean match = true;
+            for (int j = 0; j < name.length() && match; j++)
+                match = Character.toLowerCase((char) buffer.get(headers[i] + j)) == Character.toLowerCase(name.charAt(j));
+            if (match)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * A method that compares the bytes between from and to with an ascii string
+     *
+     * @param from
+     * @param to
+     * @param value
+     * @return true on match
+     */
+    private boolean equalsAscii(int from, int to, String value) {
+        if (to - from != value.length())
+            return false;
+        for (int i = 0; i < value.length(); i++) {
+            if (buffer.get(from + i) != value.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * A method that decodes the bytes between from and to as an ascii string
+     *
+     * @param from
+     * @param to
+     * @return string
+     */
+    private String ascii(int from, int to) {
+        char[] chars = new char[to - from];
+        for (int i = 0; i < chars.length; i++)
+            chars[i] = (char) (buffer.get(from + i) & 0xff);
+        return new String(chars);
+    }
+
+    /**
+     * A private class that reads ascii characters directly from the request buffer
+     */
+    private class AsciiView implements CharSequence {
+
+        private final int from, to;
+
+        /**
+         * Constructor
+         *
+         * @param from
+         * @param to
+         */
+        AsciiView(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public int length() {
+            return to - from;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(from + index) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int begin, int end) {
+            return new AsciiView(from + begin, from + end);
+        }
+
+        @Override
+        public String toString() {
+            return ascii(from, to);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package Http;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A class that frames an HTTP request directly on the bytes of a ByteBuffer.
+ * It finds the request line, the header boundaries and the body by their offsets, so no string is created per line
+ * and the body is never copied. The request is complete when the empty line and Content-Length bytes are received.
+ *
+ * @author Hassan Chadad
+ */
+public class HttpRequestParser {
+
+    public static final int MAX_HEADER_SIZE = 16 * 1024;
+    public static final int MAX_BODY_SIZE = 64 * 1024 * 1024; // allLists of a big event map can be large
+
+    /**
+     * private constructor since the class only has static methods
+     */
+    private HttpRequestParser() {
+    }
+
+    /**
+     * A method that parses the bytes between buffer position and limit.
+     * The buffer position and limit are not changed, HttpRequest.getEnd() tells where the request ends.
+     *
+     * @param buffer - bytes received, in read mode
+     * @return request - null if more bytes are needed
+     * @throws HttpParseException if the bytes are not an HTTP request
+     */
+    public static HttpRequest parse(ByteBuffer buffer) throws HttpParseException {
+        int limit = buffer.limit();
+        int start = buffer.position();
+        while (start < limit && (buffer.get(start) == '\r' || buffer.get(start) == '\n')) // skip empty lines between pipelined requests
+            start++;
+
+        /* request line */
+        int lineEnd = indexOf(buffer, (byte) '\n', start, limit);
+        if (lineEnd == -1)
+            return needMore(start, limit);
+        int contentEnd = lineEnd > start && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+        int methodEnd = indexOf(buffer, (byte) ' ', start, contentEnd);
+        if (methodEnd <= start)
+            throw new HttpParseException("No method in request line");
+        int pathStart = methodEnd + 1;
+        int pathEnd = indexOf(buffer, (byte) ' ', pathStart, contentEnd);
+        int versionStart = pathEnd + 1;
+        int versionEnd = contentEnd;
+        if (pathEnd == -1) { // HTTP/0.9 style line without version
+            pathEnd = contentEnd;
+            versionStart = contentEnd;
+        }
+        if (pathEnd == pathStart || buffer.get(pathStart) != '/')
+            throw new HttpParseException("No path in request line");
+
+        /* headers */
+        int[] headers = new int[32];
+        int headerCount = 0;
+        int contentLength = 0;
+        int lineStart = lineEnd + 1;
+        while (true) {
+            lineEnd = indexOf(buffer, (byte) '\n', lineStart, limit);
+            if (lineEnd == -1)
+                return needMore(start, limit);
+            contentEnd = lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            if (contentEnd == lineStart) // empty line, the body starts after it
+                break;
+            int colon = indexOf(buffer, (byte) ':', lineStart, contentEnd);
+            if (colon > lineStart) {
+                if (headerCount * 4 == headers.length) {
+                    int[] bigger = new int[headers.length * 2];
+                    System.arraycopy(headers, 0, bigger, 0, headers.length);
+                    headers = bigger;
+                }
+                int valueStart = colon + 1;
+                while (valueStart < contentEnd && buffer.get(valueStart) == ' ')
+                    valueStart++;
+                int valueEnd = contentEnd;
+                while (valueEnd > valueStart && buffer.get(valueEnd - 1) == ' ')
+                    valueEnd--;
+                int nameEnd = colon;
+                while (nameEnd > lineStart && buffer.get(nameEnd - 1) == ' ')
+                    nameEnd--;
+                headers[headerCount * 4] = lineStart;
+                headers[headerCount * 4 + 1] = nameEnd;
+                headers[headerCount * 4 + 2] = valueStart;
+                headers[headerCount * 4 + 3] = valueEnd;
+                headerCount++;
+                if (isContentLength(buffer, lineStart, nameEnd))
+                    contentLength = parseNumber(buffer, valueStart, valueEnd);
+            }
+            lineStart = lineEnd + 1;
+        }
+        int bodyStart = lineEnd + 1;
+        if (bodyStart - start > MAX_HEADER_SIZE)
+            throw new HttpParseException("Headers too large");
+        if (contentLength > MAX_BODY_SIZE)
+            throw new HttpParseException("Body too large");
+        if (limit - bodyStart < contentLength)
+            return null; // body is not complete yet
+        return new HttpRequest(buffer, start, methodEnd, pathStart, pathEnd, versionStart, versionEnd, headers,
+                headerCount, bodyStart, contentLength);
+    }
+
+    /**
+     * A method called when the headers are not complete. It fails if the headers are already too large.
+     *
+     * @param start
+     * @param limit
+     * @return null
+     * @throws HttpParseException
+     */
+    private static HttpRequest needMore(int start, int limit) throws HttpParseException {
+        if (limit - start > MAX_HEADER_SIZE)
+            throw new HttpParseException("Headers too large");
+        return null;
+    }
+
+    /**
+     * A method that returns the index of the first byte b between from and to or -1
+     *
+     * @param buffer
+     * @param b
+     * @param from
+     * @param to
+     * @return index
+     */
+    private static int indexOf(ByteBuffer buffer, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == b)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * A method that checks if the header name between from and to is Content-Length (case insensitive)
+     *
+     * @param buffer
+     * @param from
+     * @param to
+     * @return true on match
+     */
+    private static boolean isContentLength(ByteBuffer buffer, int from, int to) {
+        String name = "content-length";
+        if (to - from != name.length())
+            return false;
+        for (int i = 0; i < name.length(); i++) {
+            if (Character.toLowerCase((char) buffer.get(from + i)) != name.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * A method that parses the decimal number between from and to
+     *
+     * @param buffer
+     * @param from
+     * @param to
+     * @return number
+     * @throws HttpParseException if a byte is not a digit
+     */
+    private static int parseNumber(ByteBuffer buffer, int from, int to) throws HttpParseException {
+        if (from == to)
+            throw new HttpParseException("Empty number");
+        long number = 0;
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b < '0' || b > '9' || number > Integer.MAX_VALUE)
+                throw new HttpParseException("Invalid number");
+            number = number * 10 + (b - '0');
+        }
+        if (number > Integer.MAX_VALUE)
+            throw new HttpParseException("Invalid number");
+        return (int) number;
+    }
+}
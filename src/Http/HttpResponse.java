@@ -0,0 +1,295 @@
+package Http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A class that builds the HTTP response sent back by the services.
+ * The body is the string returned by the request parsers, "400" means the request failed.
+ *
+ * @author Hassan Chadad
+ */
+public class HttpResponse {
+
+    private int statusCode;
+    private String reason;
+    private byte[] body;
+    private String headers = ""; // extra header lines, ex: Retry-After
+    private JsonBody stream; // body written while it is sent, null if the body is already in bytes
+    private boolean chunked = true; // false for HTTP/1.0 clients
+    private String encoding; // gzip/deflate accepted by the client, null to send the body as it is
+
+    /**
+     * Constructor
+     *
+     * @param statusCode
+     * @param reason
+     * @param body
+     */
+    public HttpResponse(int statusCode, String reason, String body) {
+        this.statusCode = statusCode;
+        this.reason = reason;
+        this.body = body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A method that converts the result of a request parser to a response.
+     * "400" is returned by the parsers on any failure, "503" when the service the request was sent to is overloaded,
+     * anything else is a successful json body.
+     *
+     * @param result
+     * @return response
+     */
+    public static HttpResponse fromResult(String result) {
+        if (result == null || result.equals("400"))
+            return badRequest();
+        if (result.equals("503"))
+            return serviceUnavailable(1);
+        return new HttpResponse(200, "Successful", result);
+    }
+
+    /**
+     * A method that returns the response sent when the request is not found or failed
+     *
+     * @return 400 response
+     */
+    public static HttpResponse badRequest() {
+        return new HttpResponse(400, "Request not found.", "");
+    }
+
+    /**
+     * A method that returns a successful response whose json body is written to the connection while it is
+     * generated, with chunked transfer encoding, so a big body is never kept in memory
+     *
+     * @param body
+     * @return 200 response
+     */
+    public static HttpResponse stream(JsonBody body) {
+        HttpResponse response = new HttpResponse(200, "Successful", "");
+        response.stream = body;
+        return response;
+    }
+
+    /**
+     * A method that adapts the response to the request.
+     * HTTP/1.0 clients don't know chunked encoding, so a streamed body is collected first and sent with its length.
+     * The body is compressed with the encoding accepted by the client (Accept-Encoding) if it is big enough.
+     *
+     * @param request
+     * @return this response
+     */
+    public HttpResponse forRequest(HttpRequest request) {
+        chunked = !request.getVersion().equals("HTTP/1.0");
+        encoding = Compression.negotiate(request.getHeader("Accept-Encoding"));
+        return this;
+    }
+
+    /**
+     * A method that returns the response sent when the service is overloaded and rejects the request
+     *
+     * @param retryAfter - seconds the client should wait before sending the request again
+     * @return 503 response
+     */
+    public static HttpResponse serviceUnavailable(long retryAfter) {
+        return new HttpResponse(503, "Service Unavailable", "").addHeader("Retry-After", retryAfter + "");
+    }
+
+    /**
+     * A method that adds a header line to the response
+     *
+     * @param name
+     * @param value
+     * @return this response so headers can be chained
+     */
+    public HttpResponse addHeader(String name, String value) {
+        headers += name + ": " + value + "\r\n";
+        return this;
+    }
+
+    /**
+     * Get method
+     *
+     * @return status code
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Get method
+     *
+     * @return extra header lines, each one ending with CRLF
+     */
+    String getHeaderLines() {
+        return headers;
+    }
+
+    /**
+     * A method that returns the body bytes, a streamed body is collected first
+     *
+     * @return body
+     * @throws IOException
+     */
+    byte[] getBody() throws IOException {
+        if (stream != null) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            stream.writeTo(new JsonStreamWriter(bytes));
+            body = bytes.toByteArray();
+            stream = null;
+        }
+        return body;
+    }
+
+    /**
+     * A method that writes the status line, headers and body to the output stream.
+     * The body length (or the chunks of a streamed body) is always sent so the client doesn't have to wait
+     * for the socket to close.
+     *
+     * @param out
+     * @param keepAlive - false adds "Connection: close"
+     * @throws IOException
+     */
+    public void writeTo(OutputStream out, boolean keepAlive) throws IOException {
+        if (stream != null && !chunked) // collect the body to send its length
+            getBody();
+        if (stream != null) {
+            StreamedBody streamedBody = new StreamedBody(out, keepAlive);
+            try {
+                stream.writeTo(new JsonStreamWriter(streamedBody));
+                streamedBody.finish();
+            } finally {
+                streamedBody.discard();
+            }
+            return;
+        }
+        byte[] bytes = body;
+        String contentEncoding = null;
+        if (encoding != null && body.length >= Compression.MIN_SIZE) {
+            bytes = Compression.compress(body, encoding);
+            contentEncoding = encoding;
+        }
+        writeHeaders(out, keepAlive, bytes.length, contentEncoding);
+        out.write(bytes);
+        out.flush();
+    }
+
+    /**
+     * A method that writes the status line and the headers
+     *
+     * @param out
+     * @param keepAlive       - false adds "Connection: close"
+     * @param contentLength   - -1 for a chunked body
+     * @param contentEncoding - gzip/deflate or null if the body is not compressed
+     * @throws IOException
+     */
+    private void writeHeaders(OutputStream out, boolean keepAlive, long contentLength, String contentEncoding) throws IOException {
+        StringBuilder header = new StringBuilder();
+        header.append("HTTP/1.1 ").append(statusCode).append(" ").append(reason).append("\r\n");
+        if (statusCode == 200)
+            header.append("Content-Type: application/json\r\n");
+        if (contentLength < 0)
+            header.append("Transfer-Encoding: chunked\r\n");
+        else
+            header.append("Content-Length: ").append(contentLength).append("\r\n");
+        if (contentEncoding != null)
+            header.append("Content-Encoding: ").append(contentEncoding).append("\r\n");
+        if (encoding != null)
+            header.append("Vary: Accept-Encoding\r\n");
+        header.append(headers);
+        if (!keepAlive)
+            header.append("Connection: close\r\n");
+        header.append("\r\n");
+        out.write(header.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * A private class that receives a streamed body. The first MIN_SIZE bytes are kept, if the body ends before
+     * that it is sent with its length, otherwise the headers are sent and the body continues in chunks,
+     * compressed if the client accepts it.
+     */
+    private class StreamedBody extends OutputStream {
+
+        private final OutputStream out;
+        private final boolean keepAlive;
+        private final byte[] start = new byte[Compression.MIN_SIZE];
+        private int count;
+        private OutputStream sink; // null till the headers are sent
+        private ChunkedOutputStream chunks;
+        private CompressingOutputStream compressor;
+
+        /**
+         * Constructor
+         *
+         * @param out
+         * @param keepAlive
+         */
+        StreamedBody(OutputStream out, boolean keepAlive) {
+            this.out = out;
+            this.keepAlive = keepAlive;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (sink == null && count < start.length) {
+                start[count++] = (byte) b;
+                return;
+            }
+            if (sink == null)
+                open();
+            sink.write(b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (sink == null && count + length <= start.length) {
+                System.arraycopy(bytes, offset, start, count, length);
+                count += length;
+                return;
+            }
+            if (sink == null)
+                open();
+            sink.write(bytes, offset, length);
+        }
+
+        /**
+         * A method that sends the headers of a chunked body and the bytes kept so far
+         *
+         * @throws IOException
+         */
+        private void open() throws IOException {
+            writeHeaders(out, keepAlive, -1, encoding);
+            chunks = new ChunkedOutputStream(out);
+            sink = chunks;
+            if (encoding != null)
+                sink = compressor = new CompressingOutputStream(chunks, encoding);
+            sink.write(start, 0, count);
+        }
+
+        /**
+         * A method that ends the body
+         *
+         * @throws IOException
+         */
+        void finish() throws IOException {
+            if (sink == null) { // small body, send it with its length
+                writeHeaders(out, keepAlive, count, null);
+                out.write(start, 0, count);
+                out.flush();
+                return;
+            }
+            if (compressor != null)
+                compressor.finish();
+            chunks.finish();
+        }
+
+        /**
+         * A method that gives the deflater back if the body failed before it was finished
+         */
+        void discard() {
+            if (compressor != null)
+                compressor.discard();
+        }
+    }
+}
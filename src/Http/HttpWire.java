@@ -0,0 +1,220 @@
+package Http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A class that writes HTTP requests to and reads HTTP responses from the connections opened by the services
+ * to each other (PooledHttpClient and ReplicationChannel).
+ *
+ * @author Hassan Chadad
+ */
+final class HttpWire {
+
+    private static final int MAX_RESPONSE_SIZE = HttpRequestParser.MAX_BODY_SIZE;
+
+    /**
+     * private constructor since the class only has static methods
+     */
+    private HttpWire() {
+    }
+
+    /**
+     * A method that builds the headers that are the same for all the requests of a connection
+     *
+     * @param hostHeader - host:port of the target
+     * @param cookie     - host of the sender
+     * @return header lines
+     */
+    static byte[] fixedHeaders(String hostHeader, String cookie) {
+        return ("Host: " + hostHeader + "\r\nCookie: " + cookie + "\r\nContent-Type: application/json\r\n"
+                + "Accept-Encoding: " + Compression.ACCEPT + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * A method that writes a request, the stream is not flushed
+     *
+     * @param out
+     * @param method
+     * @param path
+     * @param fixedHeaders
+     * @param body         - null for GET
+     * @param compressed   - true if the body is gzip
+     * @throws IOException
+     */
+    static void writeRequest(OutputStream out, String method, String path, byte[] fixedHeaders, byte[] body, boolean compressed) throws IOException {
+        out.write((method + " " + path + " HTTP/1.1\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        out.write(fixedHeaders);
+        String length = "Content-Length: " + (body == null ? 0 : body.length) + "\r\n";
+        out.write(length.getBytes(StandardCharsets.ISO_8859_1));
+        if (compressed)
+            out.write("Content-Encoding: gzip\r\n".getBytes(StandardCharsets.ISO_8859_1));
+        out.write('\r');
+        out.write('\n');
+        if (body != null)
+            out.write(body);
+    }
+
+    /**
+     * A method that reads the headers and body of a response after its status line.
+     * The body is read with its Content-Length, in chunks or till the server closes the connection.
+     *
+     * @param in
+     * @param statusLine
+     * @param method     - method of the request
+     * @return response
+     * @throws IOException
+     */
+    static PooledHttpClient.Response readResponse(InputStream in, String statusLine, String method) throws IOException {
+        String[] parts = statusLine.split(" ", 3);
+        if (parts.length < 2 || !parts[0].startsWith("HTTP/"))
+            throw new IOException("Invalid status line " + statusLine);
+        int statusCode = Integer.parseInt(parts[1]);
+        Map<String, String> headers = new HashMap<>();
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0)
+                headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+        }
+        long contentLength = headers.containsKey("content-length") ? Long.parseLong(headers.get("content-length")) : -1;
+        boolean chunked = "chunked".equalsIgnoreCase(headers.get("transfer-encoding"));
+        String encoding = headers.get("content-encoding");
+        boolean keepAlive = HttpRequest.isKeepAlive(parts[0], headers.get("connection"));
+        byte[] body;
+        if (method.equals("HEAD") || statusCode == 204 || statusCode == 304 || (statusCode >= 100 && statusCode < 200))
+            body = new byte[0];
+        else if (chunked)
+            body = readChunked(in);
+        else if (contentLength >= 0)
+            body = readFully(in, contentLength);
+        else { // no length, the body ends when the server closes the connection
+            body = readToEnd(in);
+            keepAlive = false;
+        }
+        if (Compression.isSupported(encoding))
+            body = decode(body, encoding.trim());
+        return new PooledHttpClient.Response(statusCode, new String(body, StandardCharsets.UTF_8), headers, keepAlive);
+    }
+
+    /**
+     * A method that reads a line ending with CRLF (or LF) as ISO-8859-1
+     *
+     * @param in
+     * @return line without the line end
+     * @throws IOException - EOFException if the connection is closed
+     */
+    static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b == -1)
+                throw new EOFException("Connection closed");
+            if (line.length() >= HttpRequestParser.MAX_HEADER_SIZE)
+                throw new IOException("Line too long");
+            line.append((char) b);
+        }
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r')
+            line.setLength(length - 1);
+        return line.toString();
+    }
+
+    /**
+     * A method that decompresses a response body
+     *
+     * @param body
+     * @param encoding
+     * @return decoded body
+     * @throws IOException
+     */
+    private static byte[] decode(byte[] body, String encoding) throws IOException {
+        try (InputStream decoded = Compression.decode(new ByteArrayInputStream(body), encoding)) {
+            return readAll(decoded, body.length * 4);
+        }
+    }
+
+    /**
+     * A method that reads a chunked body, chunk extensions and trailers are skipped
+     *
+     * @param in
+     * @return body
+     * @throws IOException
+     */
+    private static byte[] readChunked(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        while (true) {
+            String sizeLine = readLine(in);
+            int semicolon = sizeLine.indexOf(';');
+            long size = Long.parseLong((semicolon == -1 ? sizeLine : sizeLine.substring(0, semicolon)).trim(), 16);
+            if (size == 0)
+                break;
+            if (bytes.size() + size > MAX_RESPONSE_SIZE)
+                throw new IOException("Response too large");
+            bytes.write(readFully(in, size));
+            readLine(in); // CRLF after the chunk
+        }
+        while (!readLine(in).isEmpty()) ; // trailers
+        return bytes.toByteArray();
+    }
+
+    /**
+     * A method that reads exactly length bytes
+     *
+     * @param in
+     * @param length
+     * @return bytes
+     * @throws IOException
+     */
+    private static byte[] readFully(InputStream in, long length) throws IOException {
+        if (length > MAX_RESPONSE_SIZE)
+            throw new IOException("Response too large");
+        byte[] bytes = new byte[(int) length];
+        int offset = 0;
+        while (offset < bytes.length) {
+            int read = in.read(bytes, offset, bytes.length - offset);
+            if (read < 0)
+                throw new EOFException("Connection closed before the end of the body");
+            offset += read;
+        }
+        return bytes;
+    }
+
+    /**
+     * A method that reads the body till the server closes the connection
+     *
+     * @param in
+     * @return bytes
+     * @throws IOException
+     */
+    private static byte[] readToEnd(InputStream in) throws IOException {
+        return readAll(in, 8192);
+    }
+
+    /**
+     * A method that reads a stream till its end, limited to the maximum response size
+     *
+     * @param in
+     * @param initialSize
+     * @return bytes
+     * @throws IOException
+     */
+    private static byte[] readAll(InputStream in, int initialSize) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(initialSize);
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+            if (bytes.size() > MAX_RESPONSE_SIZE)
+                throw new IOException("Response too large");
+        }
+        return bytes.toByteArray();
+    }
+}
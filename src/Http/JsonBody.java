@@ -0,0 +1,20 @@
+package Http;
+
+import java.io.IOException;
+
+/**
+ * An interface implemented by the apis that stream their json response.
+ * It is called by the HttpResponse after the headers are sent, so the body is written straight to the connection.
+ *
+ * @author Hassan Chadad
+ */
+public interface JsonBody {
+
+    /**
+     * A method that writes the json body of the response
+     *
+     * @param json
+     * @throws IOException
+     */
+    void writeTo(JsonStreamWriter json) throws IOException;
+}
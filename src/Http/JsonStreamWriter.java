@@ -0,0 +1,209 @@
+package Http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A class that writes json values straight to an output stream as UTF-8 bytes.
+ * It is used to send big json arrays (ex: list of events) while iterating over the data,
+ * without creating a JSONObject per element or the whole json string.
+ * Commas between the values of an array or the fields of an object are added by the writer.
+ *
+ * @author Hassan Chadad
+ */
+public class JsonStreamWriter {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    private final OutputStream out;
+    private boolean first = true; // true if the next value is the first one in the current array/object
+
+    /**
+     * Constructor
+     *
+     * @param out
+     */
+    public JsonStreamWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * A method that starts a json array
+     *
+     * @return this writer
+     * @throws IOException
+     */
+    public JsonStreamWriter beginArray() throws IOException {
+        separate();
+        out.write('[');
+        first = true;
+        return this;
+    }
+
+    /**
+     * A method that ends a json array
+     *
+     * @return this writer
+     * @throws IOException
+     */
+    public JsonStreamWriter endArray() throws IOException {
+        out.write(']');
+        first = false;
+        return this;
+    }
+
+    /**
+     * A method that starts a json object
+     *
+     * @return this writer
+     * @throws IOException
+     */
+    public JsonStreamWriter beginObject() throws IOException {
+        separate();
+        out.write('{');
+        first = true;
+        return this;
+    }
+
+    /**
+     * A method that ends a json object
+     *
+     * @return this writer
+     * @throws IOException
+     */
+    public JsonStreamWriter endObject() throws IOException {
+        out.write('}');
+        first = false;
+        return this;
+    }
+
+    /**
+     * A method that writes a field with a number value
+     *
+     * @param name
+     * @param value
+     * @return this writer
+     * @throws IOException
+     */
+    public JsonStreamWriter field(String name, long value) throws IOException {
+        name(name);
+        writeNumber(value);
+        return this;
+    }
+
+    /**
+     * A method that writes a field with a string value
+     *
+     * @param name
+     * @param value
+     * @return this writer
+     * @throws IOException
+     */
+    public JsonStreamWriter field(String name, String value) throws IOException {
+        name(name);
+        writeString(value);
+        return this;
+    }
+
+    /**
+     * A method that writes the name of a field followed by ':'
+     *
+     * @param name
+     * @throws IOException
+     */
+    private void name(String name) throws IOException {
+        separate();
+        writeString(name);
+        out.write(':');
+        first = true; // the value doesn't need a comma
+    }
+
+    /**
+     * A method that writes a comma before the value if it is not the first one
+     *
+     * @throws IOException
+     */
+    private void separate() throws IOException {
+        if (!first)
+            out.write(',');
+        first = false;
+    }
+
+    /**
+     * A method that writes a number without creating a string
+     *
+     * @param value
+     * @throws IOException
+     */
+    private void writeNumber(long value) throws IOException {
+        first = false;
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            out.write('-');
+            value = -value;
+        }
+        byte[] digits = new byte[19];
+        int i = digits.length;
+        do {
+            digits[--i] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        out.write(digits, i, digits.length - i);
+    }
+
+    /**
+     * A method that writes a quoted json string, escaping quotes, backslashes and control characters
+     * and encoding the other characters in UTF-8
+     *
+     * @param value
+     * @throws IOException
+     */
+    private void writeString(String value) throws IOException {
+        first = false;
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.write('\\');
+                out.write(c);
+            } else if (c < 0x20) {
+                out.write('\\');
+                out.write('u');
+                out.write('0');
+                out.write('0');
+                out.write(HEX[c >> 4]);
+                out.write(HEX[c & 0xF]);
+            } else if (c < 0x80) {
+                out.write(c);
+            } else if (c < 0x800) {
+                out.write(0xC0 | (c >> 6));
+                out.write(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out.write(0xF0 | (codePoint >> 18));
+                out.write(0x80 | ((codePoint >> 12) & 0x3F));
+                out.write(0x80 | ((codePoint >> 6) & 0x3F));
+                out.write(0x80 | (codePoint & 0x3F));
+            } else {
+                out.write(0xE0 | (c >> 12));
+                out.write(0x80 | ((c >> 6) & 0x3F));
+                out.write(0x80 | (c & 0x3F));
+            }
+        }
+        out.write('"');
+    }
+
+    /**
+     * A method that writes an ascii string
+     *
+     * @param value
+     * @throws IOException
+     */
+    private void writeAscii(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++)
+            out.write(value.charAt(i));
+    }
+}
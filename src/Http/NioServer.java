@@ -0,0 +1,421 @@
+package Http;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A non blocking HTTP server built on a Selector.
+ * One acceptor thread accepts the connections and hands them to a small number of event loop threads.
+ * The event loops read and frame the requests, then a complete request is passed to the worker pool that
+ * runs the service logic (RequestProcessor). Open connections that are waiting for data don't hold any thread.
+ * Connections are kept alive between requests and pipelined requests are answered in order, one at a time.
+ * Requests are parsed in place by HttpRequestParser on buffers taken from the BufferPool.
+ * A connection of another member that starts with the binary preface is framed by a BinaryCodec instead.
+ *
+ * @author Hassan Chadad
+ */
+public class NioServer {
+
+    private static final int MAX_REQUEST_SIZE = HttpRequestParser.MAX_HEADER_SIZE + HttpRequestParser.MAX_BODY_SIZE;
+    private static final long KEEP_ALIVE_TIMEOUT = 30000; // idle keep-alive connections are closed after 30 sec
+
+    private int port;
+    private EventLoop[] eventLoops;
+    private ExecutorService workers;
+    private RequestProcessor processor;
+    private final static Logger log = LogManager.getRootLogger(); // Log Object to print to the debug.log file
+
+    /**
+     * Constructor
+     *
+     * @param port
+     * @param ioThreads - number of event loop threads
+     * @param workers   - bounded pool that executes the requests
+     * @param processor - service logic
+     */
+    public NioServer(int port, int ioThreads, ExecutorService workers, RequestProcessor processor) {
+        this.port = port;
+        this.workers = workers;
+        this.processor = processor;
+        eventLoops = new EventLoop[Math.max(1, ioThreads)];
+    }
+
+    /**
+     * A method that opens the server channel, starts the event loops and the acceptor thread
+     *
+     * @throws IOException
+     */
+    public void start() throws IOException {
+        final ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        for (int i = 0; i < eventLoops.length; i++) {
+            eventLoops[i] = new EventLoop();
+            Thread thread = new Thread(eventLoops[i], "nio-loop-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        Runnable acceptTask = new Runnable() {
+
+            @Override
+            public void run() {
+                int next = 0;
+                System.out.println("Waiting for clients to connect...");
+                while (serverChannel.isOpen()) {
+                    try {
+                        SocketChannel channel = serverChannel.accept();
+                        channel.configureBlocking(false);
+                        channel.socket().setTcpNoDelay(true);
+                        eventLoops[next].register(channel); // round robin between the event loops
+                        next = (next + 1) % eventLoops.length;
+                    } catch (IOException e) {
+                        log.debug("Unable to accept client " + e);
+                    }
+                }
+            }
+        };
+        new Thread(acceptTask, "nio-acceptor").start();
+    }
+
+    /**
+     * A private class that owns a Selector and handles the reads and writes of its connections
+     */
+    private class EventLoop implements Runnable {
+
+        private final Selector selector;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>(); // work posted by other threads
+
+        /**
+         * Constructor
+         *
+         * @throws IOException
+         */
+        EventLoop() throws IOException {
+            selector = Selector.open();
+        }
+
+        /**
+         * A method that registers a new connection with this loop's selector
+         *
+         * @param channel
+         */
+        void register(final SocketChannel channel) {
+            execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                        key.attach(new Connection(channel, key, EventLoop.this));
+                    } catch (IOException e) {
+                        closeQuietly(channel);
+                    }
+                }
+            });
+        }
+
+        /**
+         * A method that posts a task to be executed by the loop thread and wakes the selector up
+         *
+         * @param task
+         */
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        /**
+         * run method that waits for ready channels and dispatches the read/write events.
+         * Every second it closes the connections that stayed idle longer than the keep-alive timeout.
+         */
+        @Override
+        public void run() {
+            long lastSweep = System.currentTimeMillis();
+            while (true) {
+                try {
+                    selector.select(1000);
+                    Runnable task;
+                    while ((task = tasks.poll()) != null)
+                        task.run();
+                    Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                    while (iterator.hasNext()) {
+                        SelectionKey key = iterator.next();
+                        iterator.remove();
+                        Connection connection = (Connection) key.attachment();
+                        if (!key.isValid() || connection == null)
+                            continue;
+                        try {
+                            if (key.isReadable())
+                                connection.onReadable();
+                            if (key.isValid() && key.isWritable())
+                                connection.onWritable();
+                        } catch (IOException e) {
+                            connection.close();
+                        }
+                    }
+                    long now = System.currentTimeMillis();
+                    if (now - lastSweep >= 1000) {
+                        lastSweep = now;
+                        for (SelectionKey key : selector.keys()) {
+                            Connection connection = (Connection) key.attachment();
+                            if (connection != null && connection.isIdle(now))
+                                connection.close();
+                        }
+                    }
+                } catch (Exception e) {
+                    log.debug("Event loop error " + e);
+                }
+            }
+        }
+    }
+
+    /**
+     * A private class that keeps the state of one client connection
+     */
+    private class Connection {
+
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final EventLoop loop;
+        private ByteBuffer in; // bytes read but not framed yet, taken from the BufferPool
+        private final Queue<ByteBuffer> out = new ArrayDeque<>(); // response bytes waiting to be written
+        private boolean closeAfterWrite;
+        private boolean busy; // true while a request of this connection is executed or its response is written
+        private int requestLength; // number of bytes of the request being executed
+        private long lastActive;
+        private BinaryCodec codec; // set when the connection starts with the binary preface of another member
+
+        /**
+         * Constructor
+         *
+         * @param channel
+         * @param key
+         * @param loop
+         */
+        Connection(SocketChannel channel, SelectionKey key, EventLoop loop) {
+            this.channel = channel;
+            this.key = key;
+            this.loop = loop;
+            in = BufferPool.acquire();
+            lastActive = System.currentTimeMillis();
+        }
+
+        /**
+         * A method that checks if the connection is waiting for a new request longer than the keep-alive timeout
+         *
+         * @param now
+         * @return true if idle
+         */
+        boolean isIdle(long now) {
+            return !busy && now - lastActive > KEEP_ALIVE_TIMEOUT;
+        }
+
+        /**
+         * A method that reads the available bytes and dispatches the request to the workers when it is complete
+         *
+         * @throws IOException
+         */
+        void onReadable() throws IOException {
+            if (!in.hasRemaining()) {
+                if (in.capacity() >= MAX_REQUEST_SIZE) { // request too big
+                    close();
+                    return;
+                }
+                ByteBuffer bigger = ByteBuffer.allocate(Math.min(in.capacity() * 2, MAX_REQUEST_SIZE));
+                in.flip();
+                bigger.put(in);
+                BufferPool.release(in); // the pooled buffer is not used by this connection anymore
+                in = bigger;
+            }
+            int read = channel.read(in);
+            if (read < 0) {
+                close();
+                return;
+            }
+            lastActive = System.currentTimeMillis();
+            dispatch();
+        }
+
+        /**
+         * A method that passes the next complete request in the buffer to the workers.
+         * Reading stops till its response is sent, so pipelined requests stay in the buffer and are answered in order.
+         */
+        private void dispatch() {
+            final HttpRequest request;
+            try {
+                request = frame();
+            } catch (HttpParseException e) {
+                log.debug("Invalid request " + e.getMessage());
+                busy = true; // the bytes left in the buffer can't be framed, answer 400 and close
+                key.interestOps(0);
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try {
+                    HttpResponse.badRequest().writeTo(bytes, false);
+                } catch (IOException ignored) {
+                }
+                send(ByteBuffer.wrap(bytes.toByteArray()), false);
+                return;
+            }
+            if (request != null) {
+                busy = true;
+                key.interestOps(0); // stop reading till the response is sent
+                workers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        respond(request);
+                    }
+                });
+            } else
+                key.interestOps(SelectionKey.OP_READ);
+        }
+
+        /**
+         * A method called by a worker thread that executes the request and posts the response to the event loop
+         *
+         * @param request
+         */
+        private void respond(HttpRequest request) {
+            HttpResponse response;
+            try {
+                response = processor.process(request);
+            } catch (Exception e) {
+                log.debug("Request failed " + e);
+                response = HttpResponse.badRequest();
+            }
+            try {
+                final boolean keepAlive = request.isKeepAlive();
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                if (codec != null)
+                    codec.writeResponse(bytes, response);
+                else
+                    response.writeTo(bytes, keepAlive);
+                final ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+                loop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        send(buffer, keepAlive);
+                    }
+                });
+            } catch (Exception e) { // a streamed body failed, the response can't be sent
+                log.debug(e);
+                loop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        busy = false;
+                        close();
+                    }
+                });
+            }
+        }
+
+        /**
+         * A method executed by the event loop that queues the response and starts writing it
+         *
+         * @param buffer
+         * @param keepAlive - false closes the connection after writing
+         */
+        private void send(ByteBuffer buffer, boolean keepAlive) {
+            out.add(buffer);
+            closeAfterWrite = !keepAlive;
+            try {
+                onWritable();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        /**
+         * A method that writes as much as the socket accepts and waits for OP_WRITE for the rest.
+         * When the response is written, the request bytes are removed from the buffer and the next request is dispatched.
+         *
+         * @throws IOException
+         */
+        void onWritable() throws IOException {
+            while (!out.isEmpty()) {
+                ByteBuffer buffer = out.peek();
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_WRITE);
+                    return;
+                }
+                out.poll();
+            }
+            if (closeAfterWrite) {
+                busy = false; // the response is written, nothing reads the buffer anymore
+                close();
+            } else if (busy) {
+                busy = false;
+                lastActive = System.currentTimeMillis();
+                in.flip();
+                in.position(requestLength);
+                in.compact(); // keep the bytes of pipelined requests
+                if (in.position() == 0 && in.capacity() != BufferPool.BUFFER_SIZE) { // give back the memory of a big request
+                    in = BufferPool.acquire();
+                }
+                dispatch();
+            }
+        }
+
+        /**
+         * A method that checks if the buffer holds a complete request (headers and Content-Length bytes of body)
+         * and returns it, otherwise it returns null to wait for more bytes.
+         * The request is a view on the buffer, it is valid till its bytes are compacted after the response is sent.
+         *
+         * @return request or null
+         * @throws HttpParseException
+         */
+        private HttpRequest frame() throws HttpParseException {
+            ByteBuffer view = in.duplicate();
+            view.flip();
+            if (codec == null && BinaryCodec.isPreface(view))
+                codec = new BinaryCodec();
+            if (codec != null) {
+                HttpRequest request = codec.readRequest(view);
+                if (request != null)
+                    requestLength = codec.getFrameEnd();
+                return request;
+            }
+            HttpRequest request = HttpRequestParser.parse(view);
+            if (request != null)
+                requestLength = request.getEnd();
+            return request;
+        }
+
+        /**
+         * A method that closes the connection
+         */
+        void close() {
+            key.cancel();
+            closeQuietly(channel);
+            if (!busy) { // a worker may still read the request of a busy connection
+                BufferPool.release(in);
+                in = null;
+            }
+        }
+    }
+
+    /**
+     * A method that closes a channel and ignores errors
+     *
+     * @param channel
+     */
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("Can't close the socket : " + e);
+        }
+    }
+}
@@ -0,0 +1,563 @@
+package Http;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * A class that appends the operations applied by a member to a file on the local disk (write-ahead log, "-wal file"),
+ * so a member restarted after the whole cluster stopped rebuilds its lists by replaying the file.
+ * A record is [length][crc32][operation ID][path length][path][json data], a record cut by a crash fails its
+ * checksum and the file is truncated there when it is replayed.
+ * The operations are appended while they hold their locks, in the order they were applied, and written to the disk
+ * later by sync after the locks are released. How sync writes them depends on "-walSync":
+ * always (default) forces the file before the client is answered, the threads that wait at the same time share one
+ * force (group commit); N forces the file every N ms in the background, a crash can lose the last N ms;
+ * none leaves it to the operating system.
+ * When a member receives the whole lists (joining, new primary) the file is replaced by one STATE record holding them.
+ * The file starts with [magic][base], base is the position of its first record: the positions are counted from the
+ * creation of the log and don't change when the records before a snapshot are removed (truncate), so a snapshot
+ * keeps pointing at the record that follows it.
+ *
+ * @author Hassan Chadad
+ */
+public class OperationLog {
+
+    public static final String STATE = "state"; // path of the record that holds the whole lists
+    public static final long ALWAYS = 0; // sync interval that forces the file for every operation
+    public static final long NONE = -1; // sync interval that never forces the file
+
+    private static final int HEADER = 8; // length and crc32
+    private static final int MAGIC = 0x54504C47; // "TPLG"
+    private static final int FILE_HEADER = 12; // magic and base
+
+    private static volatile OperationLog defaultLog; // null if the service doesn't log its operations
+
+    private final Path file;
+    private final long syncInterval; // ms, ALWAYS or NONE
+    private final ReentrantLock appendLock = new ReentrantLock(); // keeps the order of the records
+    private final ReentrantLock syncLock = new ReentrantLock(); // one force at a time, the waiting threads share the next one
+    private final AtomicLong syncs = new AtomicLong(); // number of forces, for the benchmark
+    private FileChannel channel;
+    private long base; // position of the first record of the file
+    private volatile long written; // end of the last record appended
+    private volatile long forced; // end of the last record on the disk
+    private volatile boolean closed;
+
+    /**
+     * Constructor, it opens the file and creates it if it doesn't exist
+     *
+     * @param file
+     * @param syncInterval - ALWAYS, NONE or ms between two forces
+     * @throws IOException
+     */
+    public OperationLog(Path file, long syncInterval) throws IOException {
+        this.file = file;
+        this.syncInterval = syncInterval;
+        channel = open(file, 0);
+        base = readBase(channel);
+        written = forced = toPosition(channel.size());
+        if (syncInterval > 0)
+            startSyncer();
+    }
+
+    /**
+     * A method that reads the operation log arguments of the service: "-wal" (file of the log, the operations are
+     * not logged without it) and "-walSync" (always, none or ms between two forces)
+     *
+     * @param args - service arguments
+     * @throws IOException if the file can't be opened
+     */
+    public static void configure(String[] args) throws IOException {
+        String path = null;
+        long interval = ALWAYS;
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equalsIgnoreCase("-wal"))
+                path = args[i + 1];
+            if (args[i].equalsIgnoreCase("-walSync"))
+                interval = parseSync(args[i + 1]);
+        }
+        if (path != null)
+            defaultLog = new OperationLog(Paths.get(path), interval);
+    }
+
+    /**
+     * A method that parses a sync policy
+     *
+     * @param policy - always, none or ms
+     * @return sync interval
+     */
+    public static long parseSync(String policy) {
+        if (policy.equalsIgnoreCase("always"))
+            return ALWAYS;
+        if (policy.equalsIgnoreCase("none"))
+            return NONE;
+        return Math.max(1, Long.parseLong(policy));
+    }
+
+    /**
+     * Get method
+     *
+     * @return log of the service, null if it doesn't log its operations
+     */
+    public static OperationLog getDefault() {
+        return defaultLog;
+    }
+
+    /**
+     * A method that opens a log file for appending, a new file gets the header
+     *
+     * @param file
+     * @param base - position of the first record if the file is new
+     * @return channel at the end of the file
+     * @throws IOException
+     */
+    private static FileChannel open(Path file, long base) throws IOException {
+        FileChannel opened = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (opened.size() < FILE_HEADER) { // new, or cut by a crash before its first record
+            opened.truncate(0);
+            writeFully(opened, fileHeader(base));
+            opened.force(false);
+        }
+        opened.position(opened.size());
+        return opened;
+    }
+
+    /**
+     * A method that builds the header of a log file
+     *
+     * @param base - position of the first record
+     * @return header ready to be written
+     */
+    private static ByteBuffer fileHeader(long base) {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+        header.putInt(MAGIC).putLong(base);
+        header.flip();
+        return header;
+    }
+
+    /**
+     * A method that reads the base of an opened log file
+     *
+     * @param opened
+     * @return position of the first record
+     * @throws IOException if the file is not an operation log
+     */
+    private static long readBase(FileChannel opened) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+        while (header.hasRemaining())
+            if (opened.read(header, header.position()) < 0)
+                throw new IOException("Operation log header is cut");
+        header.flip();
+        if (header.getInt() != MAGIC)
+            throw new IOException("Not an operation log");
+        return header.getLong();
+    }
+
+    /**
+     * A method that writes a whole buffer to a channel
+     *
+     * @param out
+     * @param buffer
+     * @throws IOException
+     */
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            out.write(buffer);
+    }
+
+    /**
+     * A method that converts an offset in the file to a position of the log
+     *
+     * @param offset
+     * @return position
+     */
+    private long toPosition(long offset) {
+        return base + offset - FILE_HEADER;
+    }
+
+    /**
+     * A method that converts a position of the log to an offset in the file
+     *
+     * @param position
+     * @return offset
+     */
+    private long toOffset(long position) {
+        return position - base + FILE_HEADER;
+    }
+
+    /**
+     * A method that appends an applied operation, it is not on the disk before sync is called
+     *
+     * @param operationId
+     * @param path        - client api without the first slash, ex: create
+     * @param jsonData    - body with the operation ID
+     * @return end of the record, passed to sync
+     * @throws IOException
+     */
+    public long append(int operationId, String path, String jsonData) throws IOException {
+        ByteBuffer record = encode(operationId, path, jsonData);
+        appendLock.lock();
+        try {
+            writeFully(channel, record);
+            written = toPosition(channel.position());
+            return written;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * A method that makes sure the records up to the given position are on the disk if the policy is always.
+     * The thread that forces the file writes the records of the threads waiting behind it too.
+     *
+     * @param position - returned by append
+     * @throws IOException
+     */
+    public void sync(long position) throws IOException {
+        if (syncInterval != ALWAYS || forced >= position)
+            return;
+        syncLock.lock();
+        try {
+            if (forced >= position) // forced by the thread before
+                return;
+            force();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * A method that forces the records appended so far to the disk, called while holding the sync lock
+     *
+     * @throws IOException
+     */
+    private void force() throws IOException {
+        long end = written;
+        channel.force(false);
+        forced = end;
+        syncs.incrementAndGet();
+    }
+
+    /**
+     * A method that starts the thread that forces the file every syncInterval ms
+     */
+    private void startSyncer() {
+        ExecutionMode.start(new Runnable() {
+            @Override
+            public void run() {
+                while (!closed) {
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(syncInterval);
+                        if (forced >= written)
+                            continue;
+                        syncLock.lock();
+                        try {
+                            force();
+                        } finally {
+                            syncLock.unlock();
+                        }
+                    } catch (InterruptedException e) {
+                        return;
+                    } catch (IOException e) { // closed, or replaced by reset
+                        if (closed)
+                            return;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * A method that replaces the log by one record that holds the whole lists of the member.
+     * The new file is written next to the log and moved over it, so a crash leaves the old or the new one.
+     * Its base is the end of the old log, so a snapshot taken before is older than the log and is not loaded.
+     *
+     * @param operationId - operation ID of the lists
+     * @param stateJson   - lists
+     * @throws IOException
+     */
+    public void reset(int operationId, String stateJson) throws IOException {
+        ByteBuffer record = encode(operationId, STATE, stateJson);
+        appendLock.lock();
+        syncLock.lock();
+        try {
+            replace(written, record, 0, 0);
+        } finally {
+            syncLock.unlock();
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * A method that removes the records before a position, called after a snapshot of the lists at that position
+     * was written. The records after it are copied to a new file moved over the log, the appends wait for the copy.
+     * Nothing is removed if the position is not in the log (the log was reset after the snapshot).
+     *
+     * @param position - position of the snapshot
+     * @return number of bytes removed
+     * @throws IOException
+     */
+    public long truncate(long position) throws IOException {
+        appendLock.lock();
+        syncLock.lock();
+        try {
+            if (position <= base || position > written)
+                return 0;
+            long removed = position - base;
+            replace(position, null, toOffset(position), channel.size());
+            return removed;
+        } finally {
+            syncLock.unlock();
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * A method that writes a new log file next to the log and moves it over the log,
+     * called while holding the append and sync locks
+     *
+     * @param newBase - position of the first record of the new file
+     * @param record  - record of the new file, or null
+     * @param from    - offset of the records of the current file copied to the new file
+     * @param to      - end of the copied records
+     * @throws IOException
+     */
+    private void replace(long newBase, ByteBuffer record, long from, long to) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(out, fileHeader(newBase));
+            while (from < to)
+                from += channel.transferTo(from, to - from, out);
+            if (record != null)
+                writeFully(out, record);
+            out.force(false);
+        }
+        channel.close();
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = open(file, newBase);
+        base = newBase;
+        written = forced = toPosition(channel.size());
+    }
+
+    /**
+     * A method that reads the log from the start and passes each record to the replayer, called before the member
+     * accepts requests. The file is truncated after the last complete record.
+     *
+     * @param replayer
+     * @return number of records replayed
+     * @throws Exception thrown by the replayer
+     */
+    public int replay(Replayer replayer) throws Exception {
+        return replay(base, replayer);
+    }
+
+    /**
+     * A method that reads the log from a position and passes each record to the replayer, called before the member
+     * accepts requests with the position of the snapshot it loaded. The file is truncated after the last complete record.
+     *
+     * @param position - position of the first record to replay, the start of the log if it is before it
+     * @param replayer
+     * @return number of records replayed
+     * @throws Exception thrown by the replayer
+     */
+    public int replay(long position, Replayer replayer) throws Exception {
+        int[] records = new int[1];
+        appendLock.lock();
+        try {
+            long end = toOffset(Math.max(base, Math.min(position, toPosition(channel.size()))));
+            end = readRecords(channel, end, channel.size(), replayer, records);
+            if (end < channel.size()) {
+                System.out.println("Operation log truncated after " + records[0] + " records");
+                channel.truncate(end);
+            }
+            channel.position(end);
+            written = forced = toPosition(end);
+            return records[0];
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * A method that passes the records of the log to the reader without stopping the appends, used by the primary to
+     * find the operations a member that joins again missed. The records appended after the call are not read.
+     * The file is opened again, a snapshot or a reset moves a new file over it and this one stays readable.
+     *
+     * @param reader
+     * @return number of records read
+     * @throws Exception thrown by the reader
+     */
+    public int read(Replayer reader) throws Exception {
+        int[] records = new int[1];
+        FileChannel in;
+        long end;
+        appendLock.lock();
+        try {
+            in = FileChannel.open(file, StandardOpenOption.READ);
+            end = channel.size();
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            readRecords(in, FILE_HEADER, end, reader, records);
+        } finally {
+            in.close();
+        }
+        return records[0];
+    }
+
+    /**
+     * A method that reads the complete records of a file between two offsets and passes them to the replayer
+     *
+     * @param in
+     * @param offset   - offset of the first record
+     * @param size     - offset where the reading stops
+     * @param replayer
+     * @param records  - number of records read, added to records[0]
+     * @return end of the last complete record
+     * @throws Exception thrown by the replayer
+     */
+    private static long readRecords(FileChannel in, long offset, long size, Replayer replayer, int[] records) throws Exception {
+        long end = offset; // end of the last complete record
+        in.position(offset);
+        DataInputStream stream = new DataInputStream(new BufferedInputStream(Channels.newInputStream(in), 1 << 16));
+        CRC32 crc = new CRC32();
+        while (true) {
+            byte[] payload;
+            try {
+                int length = stream.readInt();
+                int checksum = stream.readInt();
+                if (length < 6 || length > size - end - HEADER)
+                    break; // cut by a crash
+                payload = new byte[length];
+                stream.readFully(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum)
+                    break;
+            } catch (EOFException e) {
+                break;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(payload);
+            int operationId = buffer.getInt();
+            int pathLength = buffer.getShort() & 0xFFFF;
+            String path = new String(payload, 6, pathLength, StandardCharsets.UTF_8);
+            String jsonData = new String(payload, 6 + pathLength, payload.length - 6 - pathLength, StandardCharsets.UTF_8);
+            replayer.replay(operationId, path, jsonData);
+            end += HEADER + payload.length;
+            records[0]++;
+        }
+        return end;
+    }
+
+    /**
+     * A method that builds a record
+     *
+     * @param operationId
+     * @param path
+     * @param jsonData
+     * @return record ready to be written
+     */
+    private static ByteBuffer encode(int operationId, String path, String jsonData) {
+        byte[] pathBytes = path.getBytes(StandardCharsets.UTF_8);
+        byte[] data = jsonData.getBytes(StandardCharsets.UTF_8);
+        int length = 6 + pathBytes.length + data.length;
+        ByteBuffer record = ByteBuffer.allocate(HEADER + length);
+        record.putInt(length).putInt(0).putInt(operationId).putShort((short) pathBytes.length).put(pathBytes).put(data);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER, length);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+        return record;
+    }
+
+    /**
+     * Get method
+     *
+     * @return number of times the file was forced to the disk
+     */
+    public long getSyncs() {
+        return syncs.get();
+    }
+
+    /**
+     * Get method
+     *
+     * @return position of the end of the log, bytes appended since it was created
+     */
+    public long getSize() {
+        return written;
+    }
+
+    /**
+     * Get method
+     *
+     * @return position of the first record of the file
+     */
+    public long getBase() {
+        appendLock.lock();
+        try {
+            return base;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Get method
+     *
+     * @return file of the log
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * A method that forces the last records and closes the file
+     *
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        closed = true;
+        syncLock.lock();
+        try {
+            if (forced < written && syncInterval != NONE)
+                force();
+            channel.close();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * An interface implemented by the service to apply the records of the log when it starts, or to read them
+     */
+    public interface Replayer {
+
+        /**
+         * A method that applies a record
+         *
+         * @param operationId
+         * @param path        - client api without the first slash, or STATE for the whole lists
+         * @param jsonData
+         * @throws Exception
+         */
+        void replay(int operationId, String path, String jsonData) throws Exception;
+    }
+}
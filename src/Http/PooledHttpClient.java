@@ -0,0 +1,444 @@
+package Http;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A Singleton class that sends HTTP requests to the other services over keep-alive connections.
+ * Each target host has a bounded pool of open connections that are reused by all the threads of the service,
+ * so a request doesn't pay the TCP connection setup every time.
+ * Connections idle longer than IDLE_TIMEOUT are closed before the server closes them (30 sec).
+ * If a reused connection was closed by the server before the request was written, or closed or reset before any byte
+ * of the response, the request is sent again on a new connection. A read timeout is thrown to the caller, never
+ * retried, since the service may have executed the request (ex: a purchase).
+ * The connections to the members that accept binary (BinaryCodec) send frames instead of HTTP/JSON.
+ *
+ * @author Hassan Chadad
+ */
+public class PooledHttpClient {
+
+    private static volatile PooledHttpClient instance;
+    private static int connectTimeout = 2000; // ms
+    private static int readTimeout = 30000; // ms, a request waiting for the replication to all members can be slow
+    private static int maxConnections = 64; // open connections per target host
+    static final long IDLE_TIMEOUT = 20000; // ms, shorter than the keep-alive timeout of the services
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Pool> pools = new HashMap<>(); // "host:port" -> pool
+
+    /**
+     * private constructor
+     */
+    private PooledHttpClient() {
+    }
+
+    /**
+     * Guarantee Singleton concept
+     *
+     * @return PooledHttpClient class instance
+     */
+    public static PooledHttpClient getInstance() {
+        if (instance == null) {
+            synchronized (PooledHttpClient.class) {
+                if (instance == null)
+                    instance = new PooledHttpClient();
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * A method that reads the client arguments of the service before the first request:
+     * "-connectTimeout" and "-readTimeout" (ms), "-maxConnections" (per target host)
+     *
+     * @param args - service arguments
+     */
+    public static void configure(String[] args) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equalsIgnoreCase("-connectTimeout"))
+                connectTimeout = Math.max(0, Integer.parseInt(args[i + 1]));
+            if (args[i].equalsIgnoreCase("-readTimeout"))
+                readTimeout = Math.max(0, Integer.parseInt(args[i + 1]));
+            if (args[i].equalsIgnoreCase("-maxConnections"))
+                maxConnections = Math.max(1, Integer.parseInt(args[i + 1]));
+        }
+    }
+
+    /**
+     * Get method
+     *
+     * @return connect timeout in ms
+     */
+    static int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * Get method
+     *
+     * @return read timeout in ms
+     */
+    static int getReadTimeout() {
+        return readTimeout;
+    }
+
+    /**
+     * A method that sends a request and returns the response. POST bodies above Compression.MIN_SIZE are sent
+     * compressed and compressed responses are decoded.
+     *
+     * @param url    - ex: http://localhost:2370/create
+     * @param method - GET or POST
+     * @param body   - json body of a POST
+     * @param cookie - host of the sender
+     * @return response
+     * @throws PoolExhaustedException if all the connections to the service stay busy, the request is not sent
+     * @throws IOException              if the service can't be reached or didn't answer in time
+     */
+    public Response send(String url, String method, String body, String cookie) throws IOException {
+        URL target = new URL(url);
+        String host = target.getHost();
+        int port = target.getPort() == -1 ? 80 : target.getPort();
+        String path = target.getFile().isEmpty() ? "/" : target.getFile();
+        byte[] bytes = null;
+        boolean compressed = false;
+        if (method.equals("POST")) {
+            bytes = body.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length >= Compression.MIN_SIZE && !BinaryCodec.accepts(host, port)) { // big bodies (ex: allLists) are compressed
+                bytes = Compression.compress(bytes, "gzip");
+                compressed = true;
+            }
+        }
+        Pool pool = pool(host + ":" + port);
+        Connection connection = pool.acquire(host, port);
+        boolean retried = false;
+        while (true) {
+            boolean reused = connection.used;
+            try {
+                Response response = connection.exchange(method, path, bytes == null ? null : body, bytes, compressed, cookie);
+                pool.release(connection, response.keepAlive);
+                return response;
+            } catch (BinaryCodec.Rejected e) { // the service doesn't accept binary, the request wasn't executed
+                pool.release(connection, false);
+                BinaryCodec.reject(host, port);
+                if (retried)
+                    throw e;
+            } catch (IOException e) {
+                pool.release(connection, false);
+                if (retried || !reused || !connection.isClosedByServer(e)) // the service may have executed the request
+                    throw e;
+            }
+            retried = true;
+            connection = pool.acquire(host, port);
+        }
+    }
+
+    /**
+     * A method that returns the pool of a target host and creates it the first time
+     *
+     * @param key - host:port
+     * @return pool
+     */
+    private Pool pool(String key) {
+        lock.lock();
+        try {
+            Pool pool = pools.get(key);
+            if (pool == null) {
+                pool = new Pool();
+                pools.put(key, pool);
+            }
+            return pool;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A class that holds the response of a request
+     */
+    public static class Response {
+
+        private final int statusCode;
+        private final String body;
+        private final Map<String, String> headers; // lower case name -> value
+        private final boolean keepAlive;
+
+        /**
+         * Constructor
+         *
+         * @param statusCode
+         * @param body
+         * @param headers   - names in lower case
+         * @param keepAlive - false if the connection can't be reused
+         */
+        Response(int statusCode, String body, Map<String, String> headers, boolean keepAlive) {
+            this.statusCode = statusCode;
+            this.body = body;
+            this.headers = headers;
+            this.keepAlive = keepAlive;
+        }
+
+        /**
+         * Get method
+         *
+         * @return status code
+         */
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        /**
+         * Get method
+         *
+         * @return body decoded as UTF-8
+         */
+        public String getBody() {
+            return body;
+        }
+
+        /**
+         * A method that returns the value of a header
+         *
+         * @param name - case insensitive
+         * @return value or null if the response doesn't have the header
+         */
+        public String getHeader(String name) {
+            return headers.get(name.toLowerCase());
+        }
+    }
+
+    /**
+     * An exception thrown when all the connections to a target host stay busy longer than the connect timeout.
+     * The host is alive and the service is only overloaded, so the callers must not handle it like an unreachable host.
+     */
+    public static class PoolExhaustedException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructor
+         *
+         * @param message
+         */
+        PoolExhaustedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * A private class that keeps the connections to one target host.
+     * At most maxConnections are open at the same time, a thread that finds all of them busy waits
+     * at most the connect timeout for one to be released, then it fails with PoolExhaustedException.
+     */
+    private static class Pool {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition released = lock.newCondition();
+        private final ArrayDeque<Connection> idle = new ArrayDeque<>(); // most recently used first
+        private int open; // idle and busy connections
+
+        /**
+         * A method that returns an idle connection or a new one (not connected yet)
+         *
+         * @param host
+         * @param port
+         * @return connection
+         * @throws PoolExhaustedException if no connection is released in time
+         * @throws IOException             if the new connection fails
+         */
+        Connection acquire(String host, int port) throws IOException {
+            Connection connection = null;
+            lock.lock();
+            try {
+                evictIdle();
+                long nanos = TimeUnit.MILLISECONDS.toNanos(Math.max(connectTimeout, 1));
+                while (idle.isEmpty() && open >= maxConnections) {
+                    if (nanos <= 0)
+                        throw new PoolExhaustedException("No connection available to " + host + ":" + port);
+                    nanos = released.awaitNanos(nanos);
+                }
+                if (!idle.isEmpty())
+                    connection = idle.pollFirst();
+                else
+                    open++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } finally {
+                lock.unlock();
+            }
+            if (connection != null)
+                return connection;
+            connection = new Connection();
+            try {
+                connection.connect(host, port);
+            } catch (IOException e) {
+                release(connection, false);
+                throw e;
+            }
+            return connection;
+        }
+
+        /**
+         * A method that gives a connection back to the pool, or closes it if it can't be reused
+         *
+         * @param connection
+         * @param keepAlive
+         */
+        void release(Connection connection, boolean keepAlive) {
+            lock.lock();
+            try {
+                if (keepAlive) {
+                    connection.lastUsed = System.currentTimeMillis();
+                    idle.addFirst(connection);
+                } else {
+                    connection.close();
+                    open--;
+                }
+                released.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * A method that closes the connections idle longer than IDLE_TIMEOUT, they are at the end of the deque
+         */
+        private void evictIdle() {
+            long now = System.currentTimeMillis();
+            while (!idle.isEmpty() && now - idle.peekLast().lastUsed > IDLE_TIMEOUT) {
+                idle.pollLast().close();
+                open--;
+            }
+        }
+    }
+
+    /**
+     * A private class that holds one keep-alive connection to a target host.
+     * The headers that are the same for every request (Host, Cookie, Content-Type, Accept-Encoding)
+     * are built once when the connection is set up.
+     */
+    private static class Connection {
+
+        private Socket socket;
+        private InputStream in;
+        private OutputStream out;
+        private BinaryCodec codec; // null if the connection uses HTTP/JSON
+        private byte[] fixedHeaders; // built for the cookie of the connection
+        private String cookie;
+        private String hostHeader;
+        private boolean used; // true after the first request, a reused connection may have been closed by the server
+        private boolean written; // true when the current request was written and flushed
+        private boolean answered; // true when the first byte of the response of the current request arrived
+        private long lastUsed;
+
+        /**
+         * A method that opens the socket with the connect and read timeouts
+         *
+         * @param host
+         * @param port
+         * @throws IOException
+         */
+        void connect(String host, int port) throws IOException {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(host, port), connectTimeout);
+            socket.setSoTimeout(readTimeout);
+            in = new BufferedInputStream(socket.getInputStream());
+            out = new BufferedOutputStream(socket.getOutputStream());
+            hostHeader = host + ":" + port;
+            if (BinaryCodec.accepts(host, port))
+                codec = new BinaryCodec();
+        }
+
+        /**
+         * A method that sends a request and reads its response on this connection
+         *
+         * @param method
+         * @param path
+         * @param json       - json body sent on a binary connection, null for GET
+         * @param body       - json body sent on an HTTP connection, null for GET
+         * @param compressed - true if the body is gzip
+         * @param cookie
+         * @return response
+         * @throws IOException
+         */
+        Response exchange(String method, String path, String json, byte[] body, boolean compressed, String cookie) throws IOException {
+            written = false;
+            answered = false;
+            if (codec != null) {
+                codec.writeRequest(out, method, path, cookie, json);
+                out.flush();
+                written = true;
+                used = true;
+                awaitResponse();
+                return codec.readResponse(in);
+            }
+            if (fixedHeaders == null || !cookie.equals(this.cookie)) {
+                this.cookie = cookie;
+                fixedHeaders = HttpWire.fixedHeaders(hostHeader, cookie);
+            }
+            HttpWire.writeRequest(out, method, path, fixedHeaders, body, compressed);
+            out.flush();
+            written = true;
+            used = true;
+            awaitResponse();
+            return HttpWire.readResponse(in, HttpWire.readLine(in), method);
+        }
+
+        /**
+         * A method that waits for the first byte of the response of the current request without consuming it
+         *
+         * @throws IOException if the connection was closed or the service didn't answer in time
+         */
+        private void awaitResponse() throws IOException {
+            in.mark(1);
+            if (in.read() == -1)
+                throw new EOFException("Connection closed");
+            in.reset();
+            answered = true;
+        }
+
+        /**
+         * A method that checks if the current request failed because the service closed the idle connection before
+         * reading it: the request couldn't be written, or the connection was closed or reset before any byte of the
+         * response. A read timeout is never retried, the service may be executing the request.
+         *
+         * @param e - failure of the request
+         * @return true if the request can be sent again on a new connection
+         */
+        boolean isClosedByServer(IOException e) {
+            if (e instanceof SocketTimeoutException)
+                return false;
+            if (!written)
+                return true;
+            return !answered && (e instanceof EOFException || e instanceof SocketException);
+        }
+
+        /**
+         * A method that closes the socket and ignores errors
+         */
+        void close() {
+            try {
+                if (socket != null)
+                    socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
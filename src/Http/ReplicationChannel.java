@@ -0,0 +1,315 @@
+package Http;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A class that keeps one long-lived connection from the primary to a secondary and streams the operations
+ * replicated to it in the order of their operation IDs (mode "-replication stream").
+ * The operations are pipelined: each one is written as soon as the primary executed it, without waiting for the
+ * reply of the previous one. The secondary reads the requests of a connection one after the other, so it applies them
+ * in the order of the stream and sends exactly one reply per request in that order: the acknowledgements are positional,
+ * each reply acknowledges the oldest pending operation of the connection.
+ * If the connection fails the operations that are not acknowledged fail with "error", if the secondary rejects an
+ * operation it can't apply the next ones, so all of them fail with RetryPolicy.EXHAUSTED and the primary drops it.
+ * The operations are sent as binary frames (BinaryCodec) to a secondary that accepts them.
+ *
+ * @author Hassan Chadad
+ */
+public class ReplicationChannel {
+
+    public static final String OPERATION_HEADER = "X-Operation-Id"; // operation ID of a member after the request
+
+    private static volatile boolean enabled = false;
+    private static final ConcurrentHashMap<String, ReplicationChannel> channels = new ConcurrentHashMap<>(); // host -> channel
+
+    private final String host;
+    private final int port;
+    private final ReentrantLock lock = new ReentrantLock(); // keeps the order of the writes and of the pending operations
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>(); // written and not acknowledged, in operation ID order
+    private Socket socket;
+    private OutputStream out;
+    private BinaryCodec codec; // null if the secondary doesn't accept binary
+    private byte[] fixedHeaders;
+    private String cookie;
+    private long lastUsed;
+
+    /**
+     * Constructor
+     *
+     * @param host - host:port of the secondary
+     * @param port
+     */
+    private ReplicationChannel(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * A method that reads the "-replication" argument of the service, the value is "stream" or "request" (default)
+     *
+     * @param args - service arguments
+     */
+    public static void configure(String[] args) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equalsIgnoreCase("-replication"))
+                enabled = args[i + 1].equalsIgnoreCase("stream");
+        }
+    }
+
+    /**
+     * Get method
+     *
+     * @return true if the operations are replicated on the streams
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * A method that returns the channel of a secondary and creates it the first time
+     *
+     * @param url - ex: http://localhost:2371
+     * @return channel
+     * @throws IOException if the url is not valid
+     */
+    public static ReplicationChannel get(String url) throws IOException {
+        ReplicationChannel channel = channels.get(url);
+        if (channel == null) {
+            URL target = new URL(url);
+            ReplicationChannel created = new ReplicationChannel(target.getHost(), target.getPort() == -1 ? 80 : target.getPort());
+            channel = channels.putIfAbsent(url, created);
+            if (channel == null)
+                channel = created;
+        }
+        return channel;
+    }
+
+    /**
+     * A method that closes the channel of a secondary that was removed from the members
+     *
+     * @param url
+     */
+    public static void close(String url) {
+        ReplicationChannel channel = channels.remove(url);
+        if (channel != null)
+            channel.fail(null, "error");
+    }
+
+    /**
+     * A method that writes an operation to the stream without waiting for the previous ones to be acknowledged.
+     * It must be called in the order the secondary applies the operations (operation IDs, or sequences of a partition).
+     *
+     * @param path        - client api, ex: /create
+     * @param jsonData    - body with the operation ID
+     * @param cookie      - host of the primary
+     * @return future of "ok" when the secondary applied the operation, "error" if the connection failed
+     * or RetryPolicy.EXHAUSTED if the secondary rejected it
+     */
+    public CompletableFuture<String> send(String path, String jsonData, String cookie) {
+        Pending operation = new Pending();
+        Socket failed = null;
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            if (socket != null && pending.isEmpty() && now - lastUsed > PooledHttpClient.IDLE_TIMEOUT)
+                closeSocket(); // the secondary may close it soon, open a new one
+            if (socket == null)
+                open();
+            pending.addLast(operation);
+            if (codec != null)
+                codec.writeRequest(out, "POST", path, cookie, jsonData);
+            else
+                writeRequest(path, jsonData, cookie);
+            out.flush();
+            lastUsed = now;
+        } catch (IOException e) {
+            failed = socket;
+            if (failed == null) // connection refused, only this operation failed
+                operation.future.complete("error");
+        } finally {
+            lock.unlock();
+        }
+        if (failed != null)
+            fail(failed, "error");
+        return operation.future;
+    }
+
+    /**
+     * A method that opens the connection and starts the thread that reads the acknowledgements
+     *
+     * @throws IOException
+     */
+    private void open() throws IOException {
+        final Socket opened = new Socket();
+        opened.setTcpNoDelay(true);
+        opened.connect(new InetSocketAddress(host, port), PooledHttpClient.getConnectTimeout());
+        opened.setSoTimeout(PooledHttpClient.getReadTimeout());
+        out = new BufferedOutputStream(opened.getOutputStream());
+        socket = opened;
+        codec = BinaryCodec.accepts(host, port) ? new BinaryCodec() : null;
+        final InputStream in = new BufferedInputStream(opened.getInputStream());
+        final BinaryCodec reader = codec;
+        ExecutionMode.start(new Runnable() {
+            @Override
+            public void run() {
+                readAcknowledgements(opened, in, reader);
+            }
+        });
+    }
+
+    /**
+     * A method that writes an operation as an HTTP request, its body is compressed if it is big
+     *
+     * @param path
+     * @param jsonData
+     * @param cookie
+     * @throws IOException
+     */
+    private void writeRequest(String path, String jsonData, String cookie) throws IOException {
+        byte[] body = jsonData.getBytes(StandardCharsets.UTF_8);
+        boolean compressed = false;
+        if (body.length >= Compression.MIN_SIZE) {
+            body = Compression.compress(body, "gzip");
+            compressed = true;
+        }
+        if (fixedHeaders == null || !cookie.equals(this.cookie)) {
+            this.cookie = cookie;
+            fixedHeaders = HttpWire.fixedHeaders(host + ":" + port, cookie);
+        }
+        HttpWire.writeRequest(out, "POST", path, fixedHeaders, body, compressed);
+    }
+
+    /**
+     * A method run by the reader thread of a connection, it reads the replies in order and completes the
+     * operations acknowledged by each one
+     *
+     * @param connection
+     * @param in
+     * @param codec      - null if the connection uses HTTP/JSON
+     */
+    private void readAcknowledgements(Socket connection, InputStream in, BinaryCodec codec) {
+        try {
+            while (true) {
+                String statusLine = null;
+                try {
+                    if (codec != null) {
+                        in.mark(1);
+                        if (in.read() == -1)
+                            throw new EOFException("Connection closed");
+                        in.reset();
+                    } else
+                        statusLine = HttpWire.readLine(in);
+                } catch (SocketTimeoutException e) {
+                    if (hasPending(connection))
+                        throw e; // the secondary didn't answer in time
+                    continue;
+                }
+                PooledHttpClient.Response response = codec != null ? codec.readResponse(in) : HttpWire.readResponse(in, statusLine, "POST");
+                if (response.getStatusCode() != 200) {
+                    fail(connection, RetryPolicy.EXHAUSTED); // the next operations can't be applied without this one
+                    return;
+                }
+                acknowledge(connection);
+            }
+        } catch (BinaryCodec.Rejected e) { // the next connection uses HTTP/JSON
+            BinaryCodec.reject(host, port);
+            fail(connection, "error");
+        } catch (Exception e) { // closed by the secondary or by close()
+            fail(connection, "error");
+        }
+    }
+
+    /**
+     * A method that completes the oldest pending operation, the secondary sends one reply per request
+     * in the order of the requests.
+     *
+     * @param connection
+     */
+    private void acknowledge(Socket connection) {
+        Pending done = null;
+        lock.lock();
+        try {
+            if (connection == socket)
+                done = pending.pollFirst();
+        } finally {
+            lock.unlock();
+        }
+        if (done != null)
+            done.future.complete("ok");
+    }
+
+    /**
+     * A method that closes the connection and completes all the pending operations with a failure
+     *
+     * @param connection - connection that failed, null for the current one
+     * @param result     - "error" or RetryPolicy.EXHAUSTED
+     */
+    private void fail(Socket connection, String result) {
+        ArrayList<Pending> failed = new ArrayList<>();
+        lock.lock();
+        try {
+            if (connection != null && connection != socket)
+                return; // an old connection, its operations were already failed
+            failed.addAll(pending);
+            pending.clear();
+            closeSocket();
+        } finally {
+            lock.unlock();
+        }
+        for (Pending operation : failed)
+            operation.future.complete(result);
+    }
+
+    /**
+     * A method that checks if the connection is the current one and has operations waiting for a reply
+     *
+     * @param connection
+     * @return true if it has pending operations
+     */
+    private boolean hasPending(Socket connection) {
+        lock.lock();
+        try {
+            return connection == socket && !pending.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A method that closes the current connection, called while holding the lock
+     */
+    private void closeSocket() {
+        if (socket == null)
+            return;
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+        socket = null;
+        out = null;
+        codec = null;
+    }
+
+    /**
+     * A private class that holds an operation written to the stream and not acknowledged yet
+     */
+    private static class Pending {
+
+        private final CompletableFuture<String> future = new CompletableFuture<>();
+    }
+}
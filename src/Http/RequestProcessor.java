@@ -0,0 +1,18 @@
+package Http;
+
+/**
+ * An interface implemented by each service to execute a framed request and return its response.
+ * It is called by the worker threads of the NioServer.
+ *
+ * @author Hassan Chadad
+ */
+public interface RequestProcessor {
+
+    /**
+     * A method that executes the request and returns the response to send back
+     *
+     * @param request
+     * @return response
+     */
+    HttpResponse process(HttpRequest request);
+}
@@ -0,0 +1,117 @@
+package Http;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A class that reads the requests of a blocking socket one after the other with HttpRequestParser.
+ * The bytes are read in bulk into a buffer taken from the BufferPool, so a request is never copied line by line
+ * and the bytes of pipelined requests stay in the buffer for the next call.
+ * A connection that starts with the binary preface of another member is read with a BinaryCodec.
+ *
+ * @author Hassan Chadad
+ */
+public class RequestReader implements Closeable {
+
+    private final InputStream inputStream;
+    private ByteBuffer buffer; // bytes read but not consumed yet, in write mode
+    private int consumed; // number of bytes of the last returned request
+    private BinaryCodec codec; // null for an HTTP connection
+
+    /**
+     * Constructor
+     *
+     * @param inputStream - socket input stream
+     */
+    public RequestReader(InputStream inputStream) {
+        this.inputStream = inputStream;
+        buffer = BufferPool.acquire();
+    }
+
+    /**
+     * A method that returns the next request of the connection.
+     * The request returned before is not valid anymore after this call since its bytes are removed from the buffer.
+     *
+     * @return request
+     * @throws EOFException        if the client closed the connection
+     * @throws HttpParseException  if the bytes are not an HTTP request
+     * @throws IOException
+     */
+    public HttpRequest next() throws IOException {
+        if (consumed > 0) { // remove the previous request and keep the bytes of the pipelined ones
+            buffer.flip();
+            buffer.position(consumed);
+            buffer.compact();
+            consumed = 0;
+        }
+        while (true) {
+            ByteBuffer view = buffer.duplicate();
+            view.flip();
+            if (codec == null && BinaryCodec.isPreface(view))
+                codec = new BinaryCodec();
+            if (codec != null) {
+                HttpRequest request = codec.readRequest(view);
+                if (request != null) {
+                    consumed = codec.getFrameEnd();
+                    return request;
+                }
+            } else {
+                HttpRequest request = HttpRequestParser.parse(view);
+                if (request != null) {
+                    consumed = request.getEnd();
+                    return request;
+                }
+            }
+            if (!buffer.hasRemaining())
+                grow();
+            int read = inputStream.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            if (read < 0)
+                throw new EOFException();
+            buffer.position(buffer.position() + read);
+        }
+    }
+
+    /**
+     * A method that writes the response of the last request in the protocol of the connection
+     *
+     * @param response
+     * @param out
+     * @param keepAlive - false adds "Connection: close" to an HTTP response
+     * @throws IOException
+     */
+    public void write(HttpResponse response, OutputStream out, boolean keepAlive) throws IOException {
+        if (codec != null)
+            codec.writeResponse(out, response);
+        else
+            response.writeTo(out, keepAlive);
+    }
+
+    /**
+     * A method that doubles the buffer when a request doesn't fit in it
+     *
+     * @throws HttpParseException if the request is bigger than the maximum allowed
+     */
+    private void grow() throws HttpParseException {
+        int max = HttpRequestParser.MAX_HEADER_SIZE + HttpRequestParser.MAX_BODY_SIZE;
+        if (buffer.capacity() >= max)
+            throw new HttpParseException("Request too large");
+        ByteBuffer bigger = ByteBuffer.allocate(Math.min(buffer.capacity() * 2, max));
+        buffer.flip();
+        bigger.put(buffer);
+        BufferPool.release(buffer);
+        buffer = bigger;
+    }
+
+    /**
+     * A method that gives the buffer back to the pool, it doesn't close the input stream
+     */
+    @Override
+    public void close() {
+        BufferPool.release(buffer);
+        buffer = null;
+    }
+}
@@ -0,0 +1,97 @@
+package Http;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A class that decides how long to wait before sending a request again to a member that is not ready (ex: catching up).
+ * The delay doubles after each attempt up to a maximum delay, with a random jitter so the members that failed
+ * at the same time don't retry at the same time. The retries stop after a maximum number of attempts
+ * or when the deadline of the request is reached, then the sender reports EXHAUSTED to the caller.
+ *
+ * @author Hassan Chadad
+ */
+public class RetryPolicy {
+
+    public static final String EXHAUSTED = "exhausted"; // response of a request that was retried without success
+
+    private static volatile RetryPolicy defaultPolicy = new RetryPolicy(20, 2000, 10, 30000);
+
+    private final long baseDelay; // ms
+    private final long maxDelay; // ms
+    private final int maxAttempts; // including the first one
+    private final long deadline; // ms since the first attempt
+
+    /**
+     * Constructor
+     *
+     * @param baseDelay   - delay before the first retry in ms
+     * @param maxDelay    - maximum delay between 2 attempts in ms
+     * @param maxAttempts - maximum number of attempts including the first one
+     * @param deadline    - maximum time since the first attempt in ms
+     */
+    public RetryPolicy(long baseDelay, long maxDelay, int maxAttempts, long deadline) {
+        this.baseDelay = Math.max(1, baseDelay);
+        this.maxDelay = Math.max(this.baseDelay, maxDelay);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.deadline = Math.max(0, deadline);
+    }
+
+    /**
+     * A method that reads the retry arguments of the service: "-retryBaseDelay", "-retryMaxDelay",
+     * "-retryDeadline" (ms) and "-retryAttempts"
+     *
+     * @param args - service arguments
+     */
+    public static void configure(String[] args) {
+        RetryPolicy policy = defaultPolicy;
+        long base = policy.baseDelay, max = policy.maxDelay, deadline = policy.deadline;
+        int attempts = policy.maxAttempts;
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equalsIgnoreCase("-retryBaseDelay"))
+                base = Long.parseLong(args[i + 1]);
+            if (args[i].equalsIgnoreCase("-retryMaxDelay"))
+                max = Long.parseLong(args[i + 1]);
+            if (args[i].equalsIgnoreCase("-retryAttempts"))
+                attempts = Integer.parseInt(args[i + 1]);
+            if (args[i].equalsIgnoreCase("-retryDeadline"))
+                deadline = Long.parseLong(args[i + 1]);
+        }
+        defaultPolicy = new RetryPolicy(base, max, attempts, deadline);
+    }
+
+    /**
+     * Get method
+     *
+     * @return policy configured for the service
+     */
+    public static RetryPolicy getDefault() {
+        return defaultPolicy;
+    }
+
+    /**
+     * Get method
+     *
+     * @return maximum time since the first attempt in ms
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * A method that returns the delay before the next attempt: base * 2^(attempt - 1) capped at the maximum delay,
+     * half of it fixed and half random.
+     *
+     * @param attempt - number of the attempts already done (1 after the first failure)
+     * @param elapsed - ms since the first attempt
+     * @return delay in ms, or -1 if no more attempt is allowed
+     */
+    public long nextDelay(int attempt, long elapsed) {
+        if (attempt >= maxAttempts)
+            return -1;
+        long delay = Math.min(maxDelay, baseDelay << Math.min(attempt - 1, 30));
+        delay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        if (elapsed + delay > deadline)
+            return -1;
+        return delay;
+    }
+}
@@ -0,0 +1,63 @@
+package Http;
+
+/**
+ * A class returned by the Router when a request path matches a route.
+ * It holds the handler of the route and the numbers found in the path, ex: {eventId}.
+ *
+ * @param <T> - handler type of the service
+ * @author Hassan Chadad
+ */
+public class RouteMatch<T> {
+
+    private final T handler;
+    private final String path;
+    private final String[] paramNames;
+    private final int[] params;
+
+    /**
+     * Constructor
+     *
+     * @param handler
+     * @param path       - path of the request as received
+     * @param paramNames - names of the numeric segments in the order of the path
+     * @param params     - values of the numeric segments
+     */
+    RouteMatch(T handler, String path, String[] paramNames, int[] params) {
+        this.handler = handler;
+        this.path = path;
+        this.paramNames = paramNames;
+        this.params = params;
+    }
+
+    /**
+     * Get method
+     *
+     * @return handler of the route
+     */
+    public T getHandler() {
+        return handler;
+    }
+
+    /**
+     * Get method
+     *
+     * @return path of the request as received, ex: purchase/12
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * A method that returns the value of a numeric segment of the path
+     *
+     * @param name - ex: eventId for the route /purchase/{eventId}
+     * @return value
+     */
+    public int getInt(String name) {
+        for (int i = 0; i < paramNames.length; i++) {
+            if (paramNames[i].equals(name))
+                return params[i];
+        }
+        throw new IllegalArgumentException("No path parameter " + name);
+    }
+}
@@ -0,0 +1,147 @@
+package Http;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class that maps the api requests of a service to their handlers.
+ * The routes are added once at startup in a trie of path segments, ex: "/purchase/{eventId}".
+ * A segment between braces matches a number and its value is saved in the RouteMatch, so a request path
+ * is matched by walking the trie once without any regex.
+ *
+ * @param <T> - handler type of the service
+ * @author Hassan Chadad
+ */
+public class Router<T> {
+
+    private final Node<T> root = new Node<>("");
+
+    /**
+     * A method that adds a route to the trie
+     *
+     * @param method  - GET/POST or null to match any method
+     * @param pattern - ex: /{eventId}/delete
+     * @param handler
+     * @return this router so routes can be chained
+     */
+    public Router<T> add(String method, String pattern, T handler) {
+        Node<T> node = root;
+        List<String> names = new ArrayList<>();
+        for (String segment : pattern.split("/")) {
+            if (segment.isEmpty())
+                continue;
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                if (node.param == null)
+                    node.param = new Node<>(segment);
+                node = node.param;
+                names.add(segment.substring(1, segment.length() - 1));
+            } else {
+                Node<T> child = node.literal(segment, 0, segment.length());
+                if (child == null) {
+                    child = new Node<>(segment);
+                    node.children.add(child);
+                }
+                node = child;
+            }
+        }
+        node.handlers.put(method == null ? "*" : method, handler);
+        node.paramNames = names.toArray(new String[0]);
+        return this;
+    }
+
+    /**
+     * A method that finds the route of a request. Numeric segments are parsed while walking the trie.
+     *
+     * @param method - GET/POST
+     * @param path   - with or without the leading "/", ex: purchase/12
+     * @return match - null if no route matches the path and method
+     */
+    public RouteMatch<T> match(String method, CharSequence path) {
+        int[] params = new int[4];
+        int paramCount = 0;
+        Node<T> node = root;
+        int length = path.length();
+        int start = 0;
+        while (start < length) {
+            int end = start;
+            while (end < length && path.charAt(end) != '/')
+                end++;
+            if (end > start) {
+                Node<T> child = node.literal(path, start, end);
+                if (child == null && node.param != null) {
+                    long value = 0;
+                    for (int i = start; i < end && value >= 0; i++) {
+                        char c = path.charAt(i);
+                        value = c >= '0' && c <= '9' && end - start <= 10 ? value * 10 + (c - '0') : -1;
+                    }
+                    if (value < 0 || value > Integer.MAX_VALUE)
+                        return null;
+                    if (paramCount == params.length) {
+                        int[] bigger = new int[params.length * 2];
+                        System.arraycopy(params, 0, bigger, 0, params.length);
+                        params = bigger;
+                    }
+                    params[paramCount++] = (int) value;
+                    child = node.param;
+                }
+                if (child == null)
+                    return null;
+                node = child;
+            }
+            start = end + 1;
+        }
+        T handler = node.handlers.get(method);
+        if (handler == null)
+            handler = node.handlers.get("*");
+        if (handler == null)
+            return null;
+        return new RouteMatch<>(handler, path.toString(), node.paramNames, params);
+    }
+
+    /**
+     * A private class that holds one path segment of the trie
+     *
+     * @param <T>
+     */
+    private static class Node<T> {
+
+        private final String segment;
+        private final List<Node<T>> children = new ArrayList<>(); // literal segments, a service has a few per level
+        private Node<T> param; // numeric segment
+        private final Map<String, T> handlers = new HashMap<>(); // method -> handler of the route ending here
+        private String[] paramNames = new String[0];
+
+        /**
+         * Constructor
+         *
+         * @param segment
+         */
+        Node(String segment) {
+            this.segment = segment;
+        }
+
+        /**
+         * A method that finds the literal child equal to the characters between start and end of the path
+         *
+         * @param path
+         * @param start
+         * @param end
+         * @return child - null if not found
+         */
+        Node<T> literal(CharSequence path, int start, int end) {
+            for (Node<T> child : children) {
+                String segment = child.segment;
+                if (segment.length() != end - start)
+                    continue;
+                int i = 0;
+                while (i < segment.length() && segment.charAt(i) == path.charAt(start + i))
+                    i++;
+                if (i == segment.length())
+                    return child;
+            }
+            return null;
+        }
+    }
+}
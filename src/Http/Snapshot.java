@@ -0,0 +1,243 @@
+package Http;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A class that writes point-in-time snapshots of the lists of a member next to its operation log ("wal.snapshot"),
+ * so a restarted member loads the last snapshot and replays only the records appended after it.
+ * Every "-snapshotInterval" ms (default 60000, 0 never) a background thread asks the service for a copy of its lists
+ * (Source): the operations are paused only while the lists are copied in memory, the copy is then written to a
+ * temporary file in a compact binary layout, forced and moved over the last snapshot, and the records before it are
+ * removed from the log (OperationLog.truncate).
+ * The file is [magic][version][position][lists], position is the end of the log when the lists were copied.
+ * It is loaded through a MappedByteBuffer, the lists are decoded from the page cache without reading the file
+ * into the heap first. A snapshot older than the log (the log was reset after it) is not loaded.
+ *
+ * @author Hassan Chadad
+ */
+public class Snapshot {
+
+    private static final int MAGIC = 0x5450534E; // "TPSN"
+    private static final int VERSION = 1;
+
+    private static volatile long interval = 60000; // ms between two snapshots, 0 never
+    private static volatile Snapshot defaultSnapshot; // snapshot of the service, null if it doesn't log its operations
+
+    private final OperationLog operationLog;
+    private final Path file;
+    private final Source source;
+    private long lastPosition = -1; // position of the last snapshot written or loaded
+
+    /**
+     * Constructor
+     *
+     * @param operationLog - log of the service, the snapshot is written next to its file
+     * @param source       - copies the lists of the service
+     */
+    public Snapshot(OperationLog operationLog, Source source) {
+        this.operationLog = operationLog;
+        this.file = operationLog.getFile().resolveSibling(operationLog.getFile().getFileName() + ".snapshot");
+        this.source = source;
+    }
+
+    /**
+     * A method that reads the "-snapshotInterval" argument of the service (ms between two snapshots, 0 never)
+     *
+     * @param args - service arguments
+     */
+    public static void configure(String[] args) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equalsIgnoreCase("-snapshotInterval"))
+                interval = Math.max(0, Long.parseLong(args[i + 1]));
+        }
+    }
+
+    /**
+     * A method that loads the last snapshot, called before the log is replayed
+     *
+     * @param loader - restores the lists of the service
+     * @return position of the log to replay from, -1 if there is no snapshot to load (the whole log is replayed)
+     * @throws IOException if the file is not a snapshot
+     */
+    public long load(Loader loader) throws IOException {
+        if (!Files.exists(file))
+            return -1;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 16 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+                throw new IOException("Not a snapshot " + file);
+            long position = buffer.getLong();
+            if (position < operationLog.getBase()) {
+                System.out.println("Snapshot is older than the operation log, it is not loaded");
+                return -1;
+            }
+            loader.load(buffer);
+            lastPosition = position;
+            return position;
+        }
+    }
+
+    /**
+     * Get method
+     *
+     * @return snapshot of the service started by start(), null if the service doesn't log its operations
+     */
+    public static Snapshot getDefault() {
+        return defaultSnapshot;
+    }
+
+    /**
+     * A method that starts the thread that takes a snapshot every interval ms
+     */
+    public void start() {
+        defaultSnapshot = this;
+        if (interval <= 0)
+            return;
+        ExecutionMode.start(new Runnable() {
+            @Override
+            public void run() {
+                while (true) {
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(interval);
+                        take();
+                    } catch (InterruptedException e) {
+                        return;
+                    } catch (IOException e) {
+                        System.out.println("Unable to write the snapshot: " + e.getMessage());
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * A method that takes a snapshot if operations were logged since the last one,
+     * then removes the records before it from the log
+     *
+     * @return true if a snapshot was written
+     * @throws IOException
+     */
+    public synchronized boolean take() throws IOException {
+        if (operationLog.getSize() == Math.max(lastPosition, 0)) // nothing logged since the last snapshot
+            return false;
+        write();
+        return true;
+    }
+
+    /**
+     * A method that writes a snapshot even if nothing was logged since the last one (ex: the lists were replaced by
+     * the lists received from the primary), then removes the records before it from the log
+     *
+     * @throws IOException
+     */
+    public synchronized void write() throws IOException {
+        long start = System.currentTimeMillis();
+        Copy copy = source.copy();
+        long copied = System.currentTimeMillis();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(copy.position);
+            copy.writeTo(out);
+            out.flush();
+            channel.force(false);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        lastPosition = copy.position;
+        long removed = operationLog.truncate(copy.position);
+        System.out.println("Snapshot at position " + copy.position + " written in " + (System.currentTimeMillis() - start)
+                + " ms (operations paused " + (copied - start) + " ms), " + removed + " bytes removed from the operation log");
+    }
+
+    /**
+     * A method that writes a string as [length][utf-8 bytes]
+     *
+     * @param out
+     * @param value
+     * @throws IOException
+     */
+    public static void putString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * A method that reads a string written by putString
+     *
+     * @param buffer
+     * @return string
+     */
+    public static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * An interface implemented by the service to copy its lists
+     */
+    public interface Source {
+
+        /**
+         * A method that copies the lists while no operation is applied, the copy is written after the operations resumed
+         *
+         * @return copy of the lists at the current end of the log
+         */
+        Copy copy();
+    }
+
+    /**
+     * An interface implemented by the service to restore its lists from a snapshot
+     */
+    public interface Loader {
+
+        /**
+         * A method that restores the lists
+         *
+         * @param buffer - lists written by Copy.writeTo
+         * @throws IOException
+         */
+        void load(ByteBuffer buffer) throws IOException;
+    }
+
+    /**
+     * A class that holds the lists copied by the service and writes them to the snapshot
+     */
+    public abstract static class Copy {
+
+        private final long position;
+
+        /**
+         * Constructor
+         *
+         * @param position - end of the log when the lists were copied
+         */
+        protected Copy(long position) {
+            this.position = position;
+        }
+
+        /**
+         * A method that writes the copied lists
+         *
+         * @param out
+         * @throws IOException
+         */
+        public abstract void writeTo(DataOutputStream out) throws IOException;
+    }
+}
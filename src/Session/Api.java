@@ -0,0 +1,42 @@
+package Session;
+
+import Http.Router;
+
+/**
+ * An enum of all the api requests handled by the session service.
+ * The router is built once from these values and is used by the RequestHandler to find the api of a request.
+ *
+ * @author Hassan Chadad
+ */
+public enum Api {
+
+    GET_SESSION("GET", "/{userId}"),
+    START("POST", "/start"),
+    STOP("POST", "/stop");
+
+    private final String method;
+    private final String pattern;
+
+    /**
+     * Constructor
+     *
+     * @param method
+     * @param pattern
+     */
+    Api(String method, String pattern) {
+        this.method = method;
+        this.pattern = pattern;
+    }
+
+    /**
+     * A method that builds the router of all the apis
+     *
+     * @return router
+     */
+    public static Router<Api> router() {
+        Router<Api> router = new Router<>();
+        for (Api api : values())
+            router.add(api.method, api.pattern, api);
+        return router;
+    }
+}
@@ -0,0 +1,76 @@
+package UserService;
+
+import Http.Router;
+
+/**
+ * An enum of all the api requests handled by the user service.
+ * Each api has its method and path, and internal apis are the ones sent by the other services (not the clients).
+ * The router is built once from these values and is used by the GeneralRequestHandler to find the api of a request.
+ *
+ * @author Hassan Chadad
+ */
+public enum Api {
+
+    /* client apis */
+    GET_USER("GET", "/{userId}", false),
+    CREATE("POST", "/create", false),
+    LOGIN("POST", "/login", false),
+    LOGOUT("POST", "/logout", false),
+    ADD_TICKETS("POST", "/{userId}/tickets/add", false),
+    TRANSFER_TICKETS("POST", "/{userId}/tickets/transfer", false),
+    RETURN_TICKETS("POST", "/tickets/{userId}/return", false),
+    DELETE_TICKETS("POST", "/delete-tickets", false),
+    NOOP("POST", "/noop", false), // operation aborted by the primary, the secondaries only move past its ID
+
+    /* internal apis */
+    ALIVE("GET", "/alive", true),
+    ELECTION("GET", "/election", true),
+    SPREAD_USERS("GET", "/spreadUsers", true),
+    NEW_FE("GET", "/newFE", true),
+    ALL_LISTS("POST", "/allLists", true),
+    LISTS_CHUNK("POST", "/listsChunk", true), // part of the lists sent to a new member, before the last /allLists
+    ADD_MEMBER("POST", "/addMember", true),
+    NEW_PRIMARY("POST", "/newPrimary", true),
+    ADD_FRONT_END("POST", "/addFrontEnd", true),
+    UPDATE_USER_MAP("POST", "/updateUserMap", true),
+    SET_EVENT_PRIMARY("POST", "/setEventPrimary", true),
+    REPLICATION_LAG("GET", "/replicationLag", true);
+
+    private final String method;
+    private final String pattern;
+    private final boolean internal;
+
+    /**
+     * Constructor
+     *
+     * @param method
+     * @param pattern
+     * @param internal - true if the api is sent by a service
+     */
+    Api(String method, String pattern, boolean internal) {
+        this.method = method;
+        this.pattern = pattern;
+        this.internal = internal;
+    }
+
+    /**
+     * Get method
+     *
+     * @return true if the api is sent by a service
+     */
+    public boolean isInternal() {
+        return internal;
+    }
+
+    /**
+     * A method that builds the router of all the apis
+     *
+     * @return router
+     */
+    public static Router<Api> router() {
+        Router<Api> router = new Router<>();
+        for (Api api : values())
+            router.add(api.method, api.pattern, api);
+        return router;
+    }
+}
@@ -0,0 +1,138 @@
+package UserService;
+
+import Http.ExecutionMode;
+import Http.RetryPolicy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A class that sends HTTP url requests to the other members and frontends on the sender pool of their host
+ * (ExecutionMode.getSenders(url)) and returns a CompletableFuture of the reply, so a request can be sent to everyone
+ * at the same time and the replies combined with Http.FanOut.
+ * A member that is not ready is asked again after the delay given by the retry policy, no thread is held while waiting.
+ * The requests themselves are still blocking: each request in flight holds a sender thread until the member
+ * replies or the read timeout expires, so with platform threads at most "-senderThreads" requests are in flight
+ * to one host and the others wait in the queue of its pool. A member that hangs doesn't delay the requests to the others.
+ *
+ * @author Hassan Chadad
+ */
+public class AsyncRequestSender {
+
+    private static final Pattern OPERATION_ID = Pattern.compile("\\{\"id\":(\\d+)}");
+
+    /**
+     * private constructor since the class only has static methods
+     */
+    private AsyncRequestSender() {
+    }
+
+    /**
+     * A method that sends an internal request with the default retry policy
+     *
+     * @param url
+     * @param method   - POST or GET
+     * @param jsonData
+     * @return future of "ok", "error" or RetryPolicy.EXHAUSTED
+     */
+    public static CompletableFuture<String> sendInternalRequest(String url, String method, String jsonData) {
+        return sendInternalRequest(url, method, jsonData, RetryPolicy.getDefault());
+    }
+
+    /**
+     * A method that sends an internal request, it is sent again while the member answers "no" (not ready).
+     *
+     * @param url
+     * @param method   - POST or GET
+     * @param jsonData
+     * @param policy
+     * @return future of "ok" on success, "error" if the member is unreachable (dead)
+     * or RetryPolicy.EXHAUSTED if the member was never ready
+     */
+    public static CompletableFuture<String> sendInternalRequest(final String url, final String method, final String jsonData, RetryPolicy policy) {
+        return send(new Supplier<String>() {
+            @Override
+            public String get() {
+                String result = new RequestSender().sendInternalRequest(url, method, jsonData);
+                if (result.equals("no"))
+                    return null; // send again
+                if (result.equals("error"))
+                    return "error";
+                return "ok";
+            }
+        }, url, policy, System.nanoTime(), 1, ExecutionMode.getSenders(url));
+    }
+
+    /**
+     * A method that sends the newPrimary request with the default retry policy
+     *
+     * @param url
+     * @param jsonData - host of the new primary
+     * @return future of the operation ID of the member, "error", RetryPolicy.EXHAUSTED
+     * or the response if it is not an operation ID
+     */
+    public static CompletableFuture<String> sendNewPrimary(String url, String jsonData) {
+        return sendNewPrimary(url, jsonData, RetryPolicy.getDefault());
+    }
+
+    /**
+     * A method that sends the newPrimary request, the member replies with its operation ID.
+     * It is sent again while the member answers 400.
+     *
+     * @param url
+     * @param jsonData - host of the new primary
+     * @param policy
+     * @return future of the operation ID of the member, "error" if the member is unreachable (dead),
+     * RetryPolicy.EXHAUSTED if the member was never ready or the response if it is not an operation ID
+     */
+    public static CompletableFuture<String> sendNewPrimary(final String url, final String jsonData, RetryPolicy policy) {
+        return send(new Supplier<String>() {
+            @Override
+            public String get() {
+                String result = new RequestSender().sendRequestJson(url, "POST", jsonData); // get the operation ID as response
+                if (result.equals("400"))
+                    return null; // send again
+                if (result.equals("")) // member failed
+                    return "error";
+                Matcher matcher = OPERATION_ID.matcher(result);
+                if (matcher.matches()) // OK
+                    return matcher.group(1);
+                return result; // wrong data, the caller skips the member
+            }
+        }, url, policy, System.nanoTime(), 1, ExecutionMode.getSenders(url));
+    }
+
+    /**
+     * A method that runs an attempt on the executor, if the attempt returns null it is scheduled again
+     * after the delay of the policy, or completes with RetryPolicy.EXHAUSTED if the policy doesn't allow it.
+     *
+     * @param attempt  - returns the result or null to retry
+     * @param url      - url of the request, its host selects the sender pool
+     * @param policy
+     * @param start    - System.nanoTime() of the first attempt
+     * @param attempts - number of this attempt
+     * @param executor - executor of this attempt, the sender pool of the host or a delayed executor on top of it
+     * @return future of the result
+     */
+    private static CompletableFuture<String> send(final Supplier<String> attempt, final String url, final RetryPolicy policy,
+                                                  final long start, final int attempts, Executor executor) {
+        return CompletableFuture.supplyAsync(attempt, executor).thenCompose(new Function<String, CompletionStage<String>>() {
+            @Override
+            public CompletionStage<String> apply(String result) {
+                if (result != null)
+                    return CompletableFuture.completedFuture(result);
+                long delay = policy.nextDelay(attempts, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                if (delay < 0)
+                    return CompletableFuture.completedFuture(RetryPolicy.EXHAUSTED);
+                Executor later = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, ExecutionMode.getSenders(url));
+                return send(attempt, url, policy, start, attempts + 1, later);
+            }
+        });
+    }
+}
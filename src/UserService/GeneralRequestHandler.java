@@ -1,180 +1,175 @@
-package UserService;
-
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-
-import java.io.*;
-import java.net.Socket;
-import java.util.ArrayList;
-
-/**
- * A class that implements runnable and handles requests from FrontEnd or user services.
- * It handles the request and sends it to the RequestParser and returns the response.
- *
- * @author Hassan Chadad
- */
-public class GeneralRequestHandler implements Runnable {
-    private final Socket connectionSocket;
-    private String jsonData;
-    private String clientHost;
-    private final static Logger log = LogManager.getRootLogger(); // Log Object to print to the log.debug file
-
-    /**
-     * Constructor
-     *
-     * @param connectionSocket
-     */
-    public GeneralRequestHandler(Socket connectionSocket) {
-        this.connectionSocket = connectionSocket;
-        jsonData = "";
-        clientHost = "";
-    }
-
-    /**
-     * Run method that gets the request and parse it to get each line and adds it to headerRequestList,
-     * then it splits the API request to get the url and method from it.
-     * Then sends it to handleRequest method and returns the response back
-     */
-    @Override
-    public void run() {
-        //log.debug("A client connected..." + connectionSocket);
-        try (PrintWriter pw = new PrintWriter(new OutputStreamWriter(connectionSocket.getOutputStream()));
-             BufferedReader reader = new BufferedReader(new InputStreamReader(connectionSocket.getInputStream()))) {
-            ArrayList<String> headerRequestList = parseUrlRequest(reader);
-            try {
-                String[] headerAttributes = parseHeader(headerRequestList.get(0));
-
-                String responseJson = handleRequest(headerAttributes);
-                if (!responseJson.equals("400")) {
-                    String response = "HTTP/1.1 200 Successful";
-                    response += System.lineSeparator();
-                    response += "Content-Type: application/json";
-                    response += System.lineSeparator();
-                    response += System.lineSeparator();
-                    response += responseJson;
-                    pw.print(response);
-                } else
-                    pw.println("HTTP/1.1 400 Request not found.");
-                pw.flush();
-            } catch (Exception e) { // any error occurs will return 400, ex: headerReqList is null and line 29 is executed will have error
-                log.debug("General "+e);
-                pw.println("HTTP/1.1 400 Request not found.");
-                pw.flush();
-            }
-        } catch (IOException e) {
-            log.debug(e);
-        } finally {
-            try {
-                if (connectionSocket != null)
-                    connectionSocket.close();
-            } catch (IOException e) {
-                log.debug("Can't close the socket : " + e);
-            }
-        }
-    }
-
-    /**
-     * A method that parses the HTTP request and adds each line to the list
-     *
-     * @param bufferedReader
-     * @return list of http request lines
-     */
-    private ArrayList<String> parseUrlRequest(BufferedReader bufferedReader) {
-        ArrayList<String> requestList = new ArrayList<>();
-        int contentLength = 0;
-        try {
-            String input = bufferedReader.readLine();
-            log.debug("before " + input);
-            while (bufferedReader.ready() && input != null) {
-                requestList.add(input);
-                input = bufferedReader.readLine();
-                if (input.equals("")) // break when reading empty line, it means I started reading JSON body
-                    break;
-            }
-            // get client source host from cookie
-            for (String s : requestList) {
-                if (s.startsWith("Cookie") || s.startsWith("cookie")) {
-                    String[] temp = s.split(":");
-                    String ip = temp[1].trim() + ":" + temp[2];
-                    String port = temp[3].trim();
-                    clientHost = ip + ":" + port;
-                    break;
-                }
-            }
-            //log.debug("client is " + clientHost);
-            // get the number of bytes to read from the content-length property
-            for (String s : requestList) {
-                if (s.startsWith("Content-Length") || s.contains("content-length")) {
-                    String[] temp = s.split(":");
-                    String num = temp[1];
-                    num = num.replace(" ", "");
-                    num = num.trim();
-                    contentLength = Integer.parseInt(num); // skipping the "}"
-                    break;
-                }
-            }
-            requestList.add(input);
-            for (int i = 0; i < contentLength; i++) {
-                char charByte = (char) bufferedReader.read();
-                jsonData += charByte;
-            }
-            if (requestList.get(0).startsWith("POST")) {
-                try {
-                    JSONParser parser = new JSONParser();
-                    JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
-                    jsonData = jsonObject.toJSONString();
-                } catch (Exception e) {
-                    log.debug(e);
-                }
-                if (jsonData.length() < 7) // the minimum length of a json is 7 ex: {"a":0} -> length = 7. Less than 7 means not json
-                    return null;
-            }
-            return requestList;
-        } catch (Exception e) {
-            return null;
-        }
-    }
-
-    /**
-     * A method that will return the attributes of the header
-     * ex: POST /create will return [POST,create]
-     *
-     * @param header
-     * @return string array of header atttribute
-     */
-    private String[] parseHeader(String header) {
-        header = header.trim();
-        String[] headerAttr = header.split(" ");
-        headerAttr[1] = headerAttr[1].substring(1);
-        return headerAttr;
-    }
-
-
-    /**
-     * A method that checks if the request is sent from FE as a client request or as an internal request
-     * and sends it to the appropriate class and returns the response of the request.
-     *
-     * @param headerAttr
-     * @return response of the request
-     * @throws Exception
-     */
-    private String handleRequest(String[] headerAttr) throws Exception {
-        if (headerAttr[1].matches("[\\d]+") || headerAttr[1].matches("[\\d]+/tickets/add") ||
-                headerAttr[1].startsWith("create") || headerAttr[1].matches("[\\d]+/tickets/transfer") ||
-                headerAttr[1].equals("delete-tickets") || headerAttr[1].matches("tickets/[\\d]+/return") ||
-                headerAttr[1].equals("login") || headerAttr[1].equals("logout")) {
-            ClientRequestParser requestParser = new ClientRequestParser(jsonData);
-            return requestParser.parse(headerAttr);
-        } else if (headerAttr[1].equals("alive") || headerAttr[1].equals("allLists") ||
-                headerAttr[1].startsWith("newPrimary") || headerAttr[1].startsWith("election") ||
-                headerAttr[1].startsWith("addMember") || headerAttr[1].startsWith("addFrontEnd") ||
-                headerAttr[1].startsWith("spreadUsers") || headerAttr[1].startsWith("updateUserMap") ||
-                headerAttr[1].startsWith("newFE") || headerAttr[1].startsWith("setEventPrimary")) {
-            InternalRequestParser internalRequestParser = new InternalRequestParser();
-            return internalRequestParser.parseRequest(headerAttr, jsonData, clientHost);
-        } else
-            return "400";
-    }
-}
+package UserService;
+
+import Http.AdmissionController;
+import Http.HttpParseException;
+import Http.HttpRequest;
+import Http.HttpResponse;
+import Http.ReplicationChannel;
+import Http.RequestReader;
+import Http.RouteMatch;
+import Http.Router;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+
+import java.io.*;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+/**
+ * A class that implements runnable and handles requests from FrontEnd or user services.
+ * It handles the request and sends it to the RequestParser and returns the response.
+ *
+ * @author Hassan Chadad
+ */
+public class GeneralRequestHandler implements Runnable {
+    private final Socket connectionSocket;
+    private String jsonData;
+    private String clientHost;
+    private final static Router<Api> router = Api.router(); // built once and shared by all the requests
+    private final static int KEEP_ALIVE_TIMEOUT = 30000; // idle keep-alive connections are closed after 30 sec
+    private final static Logger log = LogManager.getRootLogger(); // Log Object to print to the log.debug file
+
+    /**
+     * Constructor
+     *
+     * @param connectionSocket
+     */
+    public GeneralRequestHandler(Socket connectionSocket) {
+        this.connectionSocket = connectionSocket;
+        jsonData = "";
+        clientHost = "";
+    }
+
+    /**
+     * Constructor used by the NioServer, the request is already framed so there is no socket
+     */
+    public GeneralRequestHandler() {
+        this(null);
+    }
+
+    /**
+     * Run method that keeps reading requests from the same connection while the client asks for keep-alive.
+     * Each request is parsed by the RequestReader and passed to the handle method, then the response is sent back.
+     * Pipelined requests are answered in the order they were received since they are read one after the other.
+     */
+    @Override
+    public void run() {
+        //log.debug("A client connected..." + connectionSocket);
+        try (OutputStream out = new BufferedOutputStream(connectionSocket.getOutputStream());
+             RequestReader reader = new RequestReader(connectionSocket.getInputStream())) {
+            connectionSocket.setSoTimeout(KEEP_ALIVE_TIMEOUT);
+            boolean keepAlive = true;
+            while (keepAlive) {
+                HttpRequest request;
+                try {
+                    request = reader.next();
+                } catch (EOFException | SocketTimeoutException e) { // client closed the connection or stayed idle
+                    break;
+                } catch (HttpParseException e) { // can't find where the next request starts so close after replying
+                    log.debug("General " + e);
+                    HttpResponse.badRequest().writeTo(out, false);
+                    break;
+                }
+                keepAlive = request.isKeepAlive();
+                reader.write(respond(request), out, keepAlive);
+            }
+        } catch (IOException e) {
+            log.debug(e);
+        } finally {
+            try {
+                if (connectionSocket != null)
+                    connectionSocket.close();
+            } catch (IOException e) {
+                log.debug("Can't close the socket : " + e);
+            }
+        }
+    }
+
+    /**
+     * A method that executes a parsed request and returns the HTTP response of the request.
+     * It is called for the requests of the blocking connections and the ones framed by the NioServer.
+     * Client requests received by the primary pass through the AdmissionController and are rejected with 503
+     * when the service is overloaded. Internal requests (heartbeat, election) and the requests replicated
+     * by the primary to the secondaries are never rejected, a secondary adds its operation ID to the reply.
+     *
+     * @param request
+     * @return response
+     */
+    public HttpResponse respond(HttpRequest request) {
+        CharSequence path = request.getPathView();
+        RouteMatch<Api> route = router.match(request.getMethod(), path.subSequence(1, path.length()));
+        UserServiceDetails details = UserServiceDetails.getInstance("", "", 0, "");
+        if (route == null || route.getHandler().isInternal())
+            return HttpResponse.fromResult(handle(request, route)).forRequest(request);
+        if (!details.isPrimary()) // the reply has the operation ID of the member like on the primary
+            return HttpResponse.fromResult(handle(request, route)).forRequest(request)
+                    .addHeader(ReplicationChannel.OPERATION_HEADER, details.getOperationId() + "");
+        AdmissionController admission = AdmissionController.getInstance();
+        if (!admission.acquire())
+            return admission.reject();
+        long start = System.nanoTime();
+        try {
+            return HttpResponse.fromResult(handle(request, route)).forRequest(request);
+        } finally {
+            admission.release(start);
+        }
+    }
+
+    /**
+     * A method that executes a parsed request and returns the response of the request.
+     *
+     * @param request
+     * @param route   - api found by the router, null if the request is not valid
+     * @return response of the request - 400 (failure)
+     */
+    private String handle(HttpRequest request, RouteMatch<Api> route) {
+        try {
+            jsonData = request.getBody();
+            clientHost = request.getCookie();
+            if (request.getMethod().equals("POST") && !parseJsonData())
+                return "400";
+            if (route == null)
+                return "400";
+            return handleRequest(route);
+        } catch (Exception e) {
+            log.debug("General " + e);
+            return "400";
+        }
+    }
+
+    /**
+     * A method that parses the json body of a POST request and saves it back in jsonData
+     *
+     * @return true if the body is a json object - false otherwise
+     */
+    private boolean parseJsonData() {
+        try {
+            JSONParser parser = new JSONParser();
+            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
+            jsonData = jsonObject.toJSONString();
+        } catch (Exception e) {
+            log.debug(e);
+        }
+        return jsonData.length() >= 7; // the minimum length of a json is 7 ex: {"a":0} -> length = 7. Less than 7 means not json
+    }
+
+    /**
+     * A method that checks if the request is sent from FE as a client request or as an internal request
+     * and sends it to the appropriate class and returns the response of the request.
+     *
+     * @param route - api found by the router
+     * @return response of the request
+     * @throws Exception
+     */
+    private String handleRequest(RouteMatch<Api> route) throws Exception {
+        if (!route.getHandler().isInternal()) {
+            ClientRequestParser requestParser = new ClientRequestParser(jsonData);
+            return requestParser.parse(route);
+        } else {
+            InternalRequestParser internalRequestParser = new InternalRequestParser();
+            return internalRequestParser.parseRequest(route.getHandler(), jsonData, clientHost);
+        }
+    }
+}
@@ -1,591 +1,770 @@
-package UserService;
-
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.JSONValue;
-import org.json.simple.parser.JSONParser;
-
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.SortedMap;
-import java.util.TreeMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
-/**
- * a class that parses all the requests sent internally between primary and all frontEnds and secondaries
- * like election requests, add member, add front end...etc
- *
- * @author Hassan Chadad
- */
-public class InternalRequestParser {
-
-    private static HeartBeatSender heartBeatSender;
-    private UserServiceDetails userServiceDetails;
-    private final static Logger log = LogManager.getRootLogger(); // Log Object to print to the System.out.println file
-
-    /**
-     * Constructor
-     */
-    public InternalRequestParser() {
-        heartBeatSender = new HeartBeatSender();
-        userServiceDetails = UserServiceDetails.getInstance("", "", 0, "");
-    }
-
-    /**
-     * A method that checks if the method is POST or GET and sends it to the appropriate function
-     * and returns the response of the function.
-     *
-     * @param attribute
-     * @param json
-     * @param clientHost
-     * @return response
-     */
-    public String parseRequest(String[] attribute, String json, String clientHost) {
-        if (attribute[0].equals("POST"))
-            return callPostMethod(attribute[1], json);
-        else if (attribute[0].equals("GET"))
-            return callGetMethod(attribute[1], clientHost);
-        else
-            return "400";
-    }
-
-    /**
-     * A method that handles POST requests and checks the api and calls the appropriate method and returns the response
-     *
-     * @param request
-     * @param jsonData
-     * @return response
-     */
-    private String callPostMethod(String request, String jsonData) {
-        //log.debug("Inside Internal class POST " + request);
-        if (request.equals("allLists"))
-            return parseAllLists(jsonData);
-        else if (request.equals("addMember"))
-            return addMember(jsonData);
-        else if (request.equals("newPrimary"))
-            return updateNewPrimary(jsonData);
-        else if (request.equals("addFrontEnd"))
-            return addFrontEndHost(jsonData);
-        else if (request.equals("updateUserMap"))
-            return updateNewUsersMap(jsonData);
-        else if (request.equals("setEventPrimary"))
-            return setEventPrimary(jsonData);
-        else
-            return "400";
-    }
-
-    /**
-     * A method that handles GET requests and checks the api and calls the appropriate method and returns the response
-     *
-     * @param request
-     * @param clientHost
-     * @return
-     */
-    private String callGetMethod(String request, String clientHost) {
-        //log.debug("Inside Internal class GET " + request);
-        if (request.equals("alive"))
-            return "";
-        else if (request.equals("election"))
-            return handleElectionRequest();
-        else if (request.equals("spreadUsers"))
-            return spreadUserMap();
-        else if (request.equals("newFE"))
-            return addFrontEndHost(clientHost);
-        else return "400";
-    }
-
-    /**
-     * A method that parses jsonData and gets each array, then adds the array to the SortedMap to sort the values by key
-     * Then insert the sorted values in a list to send it to the UserServiceDetails/userServiceDataStructure to update everything
-     *
-     * @param jsonData
-     * @return response
-     */
-    private String parseAllLists(String jsonData) {
-        try {
-            JSONParser parser = new JSONParser();
-            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
-
-            SortedMap<Integer, String> membersMap = new TreeMap<>();
-            SortedMap<Integer, String[]> usersDetailsMap = new TreeMap<>(); // stores users details Map
-            SortedMap<Integer, SortedMap<Integer, Integer>> usersTicketsMap = new TreeMap<>(); // stores users tickets Map
-            ArrayList<String> frontEndList = new ArrayList<>(); // stores frontEnd list
-
-            /* get members */
-            JSONArray arr = (JSONArray) jsonObject.get("members");
-            Iterator<JSONObject> iterator = arr.iterator();
-            while (iterator.hasNext()) {
-                JSONObject res = iterator.next();
-                long id = (Long) res.get("id");
-                String host = (String) res.get("memberHost");
-                membersMap.put((int) id, host);
-            }
-
-            /* get frontEnd hosts */
-            arr = (JSONArray) jsonObject.get("fe");
-            iterator = arr.iterator();
-            while (iterator.hasNext()) {
-                JSONObject res = iterator.next();
-                String host = (String) res.get("frontEndHost");
-                frontEndList.add(host);
-            }
-
-            /* get users details Map */
-            arr = (JSONArray) jsonObject.get("users");
-            iterator = arr.iterator();
-            while (iterator.hasNext()) {
-                JSONObject res = iterator.next();
-                long id = (Long) res.get("userid");
-                String userName = (String) res.get("username");
-                String password = (String) res.get("password");
-                String[] userParam = {userName, password};
-                usersDetailsMap.put((int) id, userParam);
-
-                SortedMap<Integer, Integer> ticketMap = new TreeMap<>();
-                JSONArray arr2 = (JSONArray) res.get("tickets");
-                Iterator<JSONObject> iterator2 = arr2.iterator();
-                while (iterator2.hasNext()) {
-                    JSONObject res2 = iterator2.next();
-                    long eventId = (Long) res2.get("eventid");
-                    long nbTickets = (Long) res2.get("ticketnb");
-                    ticketMap.put((int)eventId, (int) nbTickets);
-                }
-                if(ticketMap.size() > 0)
-                    usersTicketsMap.put((int) id, ticketMap);
-            }
-
-            /* get operation Id */
-            int operId = 0;
-            arr = (JSONArray) jsonObject.get("operation");
-            iterator = arr.iterator();
-            while (iterator.hasNext()) {
-                JSONObject res = iterator.next();
-                long id = (Long) res.get("id");
-                operId = (int) id;
-            }
-
-            boolean memberResult = userServiceDetails.updateMemberList(membersMap);
-            boolean frontEndResult = userServiceDetails.updateFrontEndList(frontEndList);
-            boolean userResult = userServiceDetails.updateUserMap(usersDetailsMap, usersTicketsMap);
-            userServiceDetails.setOperationId(operId);
-
-            if (memberResult && frontEndResult && userResult)
-                return ""; // success
-            else
-                return "400";
-        } catch (Exception e) {
-            return "400";
-        }
-    }
-
-    /**
-     * A method that adds new member to the primary membership list
-     * after sending all the lists to the new member and received a successful response
-     *
-     * @param jsonData
-     * @return
-     */
-    private String addMember(String jsonData) {
-        String host = "";
-        try {
-            JSONParser parser = new JSONParser();
-            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
-
-            host = (String) jsonObject.get("memberHost");
-            System.out.println("Adding the member");
-
-            /* Adding member to primary member map then sending to secondaries because I want to update the list before
-             * sending everything to the new secondary. If I updated the map after sending allLists to new member then
-             * the map will lack the new member. So if 2 members joined, 2390 2380, then I will send member map without
-             * the hosts of new members. So both members will get all members but they won't get each other's hosts.
-             */
-            if (!userServiceDetails.addNewMember(host))
-                return "400";
-            if (userServiceDetails.isPrimary()) {
-                if (!sendAllLists(host + "/allLists"))
-                    return "400";
-
-                /* if a service was failed when sending introduce member, I will still be sending it in the list
-                 * to the new member since it will delete it using heartbeat.
-                 * I will not introduce the new member unless it receives all the lists and maps from the primary.
-                 */
-                if (!introduceNewMember(jsonData))
-                    return "400";
-            }
-        } catch (Exception e) {
-            return "400";
-        }
-        return ""; // success
-    }
-
-    /**
-     * A method accessed by the primary only.
-     * It gets the FElist, operation ID, user map, and member map as a json format string
-     * and sends it to the new added member and returns true if the response wasa "ok"
-     *
-     * @param host - host of new member
-     * @return true on success - false (failure)
-     */
-    private boolean sendAllLists(String host) {
-        RequestSender requestSender = new RequestSender();
-        String jsonPar = userServiceDetails.getAllLists();
-        //log.debug("Send all list\n" + jsonPar);
-        String result = requestSender.sendInternalRequest(host, "POST", jsonPar);
-        //log.debug("did it receive all lists ? " + result);
-        if (result.equals("ok"))
-            return true;
-        else if (result.equals("no"))
-            return sendAllLists(host);
-        else
-            return false; // returning false means the member failed
-    }
-
-    /**
-     * A method that sends multiple requests to all previous members to add the new member
-     *
-     * @param jsonData
-     * @return true (success) - false (failure)
-     */
-    private boolean introduceNewMember(String jsonData) {
-        try {
-            return sendMultiRequests("/addMember", "POST", jsonData);
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
-    /**
-     * A method that adds the frontEnd to the list.
-     * If the member accessing this method is primary then the hostJson is not json format and it is a string only,
-     * so the primary will send a request to all the members to the new frontEnd then it adds it to its details upon success
-     * But if the member accessing this method is a secondary, then it just adds it to its details.
-     *
-     * @param hostJson for primary it is String host - for slave it is JSON String
-     * @return empty string (success) - 400 (failure)
-     */
-    public String addFrontEndHost(String hostJson) {
-        checkFrontEndMembers();
-        if (userServiceDetails.isPrimary()) {
-            JSONObject jsonPar = new JSONObject();
-            jsonPar.put("frontEndHost", hostJson);
-            if (sendFrontEndToEveryone(jsonPar.toJSONString())) {
-                System.out.println("Added FE " + hostJson);
-                userServiceDetails.addFrontEnd(hostJson); // add the frontend to list
-                return "";
-            }
-        } else {
-            try {
-                JSONParser parser = new JSONParser();
-                JSONObject jsonObject = (JSONObject) parser.parse(hostJson);
-                String frontEndHost = (String) jsonObject.get("frontEndHost");
-                System.out.println("Added FE " + frontEndHost);
-                userServiceDetails.addFrontEnd(frontEndHost); // add the frontend to list
-                return "";
-            } catch (Exception e) {
-                return "400";
-            }
-        }
-        return "400";
-    }
-
-    /**
-     * A method that sends a check request to all the Front Ends in the list to check which ones are still alive
-     */
-    private synchronized void checkFrontEndMembers() {
-        try {
-            ExecutorService threads = Executors.newCachedThreadPool();
-            ArrayList<String> frontEndList = userServiceDetails.getFrontEndArrayList();
-            if (frontEndList.size() > 0) { // no frontEnds yet
-                SortedMap<Integer, ThreadRequestSender> threadRequestSenderMap = new TreeMap<>();
-                for (int i = 0; i < frontEndList.size(); i++) {
-                    ThreadRequestSender threadRequestSender = new ThreadRequestSender(frontEndList.get(i) + "/primary/checkFE", "GET", "", this, "internal");
-                    threadRequestSenderMap.put(i, threadRequestSender);
-                    threads.submit(threadRequestSender);
-
-                }
-                /* Start a while loop to check the responses from all the Threads created above.
-                 * Iterate through the threads in threadRequestSenderMap and get the response, if one of the responses is still
-                 * not retrieved keep waiting till all the responses are returned then break the loop
-                 * If the response was an error, it means that the frontEnd is dead so delete it.
-                 */
-                while (true && threadRequestSenderMap.size() > 0) {
-                    boolean responded = true;
-                    for (int key : threadRequestSenderMap.keySet()) {
-                        String response = threadRequestSenderMap.get(key).getResponse();
-                        if (response.equals("no")) {
-                            responded = false;
-                            break;
-                        } else if (response.equals("error")) { // member is dead
-                            userServiceDetails.deleteFrontEndElement(frontEndList.get(key)); // delete member
-                            System.out.println(frontEndList.get(key) + " is dead.");
-                        }
-                    }
-                    if (responded)
-                        break;
-                    wait();
-                }
-            }
-            //System.out.println("All FEnd checked.");
-        } catch (Exception e) {
-            log.debug(e);
-        }
-    }
-
-    /**
-     * A method that sends multi requests to all the members to add the new frontEnd
-     * and returns the response on success
-     *
-     * @param jsonData
-     * @return
-     */
-    private boolean sendFrontEndToEveryone(String jsonData) {
-        try {
-            return sendMultiRequests("/addFrontEnd", "POST", jsonData);
-        } catch (Exception e) {
-            log.debug(e);
-            return false;
-        }
-    }
-
-    /**
-     * A method that takes the url, method, and json and creates multiples threads to send requests to members
-     * and then waits for a response and returns true on success
-     *
-     * @param url
-     * @param method
-     * @param jsonData
-     * @return true (success) - false (failure)
-     * @throws Exception
-     */
-    private synchronized boolean sendMultiRequests(String url, String method, String jsonData) throws Exception {
-        ExecutorService threads = Executors.newCachedThreadPool();
-        SortedMap<Integer, String> map = userServiceDetails.getMembershipMap();
-        if (map.size() > 1) { // one is the primary so everything after one will be secondary
-            //log.debug(url + " start sending to all members / size" + map.size());
-            SortedMap<Integer, ThreadRequestSender> threadRequestSenderMap = new TreeMap<>();
-            String myHost = userServiceDetails.getHost();
-            for (int key : map.keySet()) {
-                if (url.equals("/addMember")) {
-                /* skip sending to primary (myself) and last element (newely added member) */
-                    if (key != map.firstKey() && key != map.lastKey()) {
-                        ThreadRequestSender threadRequestSender = new ThreadRequestSender(map.get(key) + url, method, jsonData, this, "internal");
-                        threadRequestSenderMap.put(key, threadRequestSender);
-                        threads.submit(threadRequestSender);
-                    }
-                } else if (url.equals("/addFrontEnd")) {
-                    /* skip sending to primary (myself in this case) since it is the one that is sending the requests */
-                    if (key != map.firstKey()) {
-                        ThreadRequestSender threadRequestSender = new ThreadRequestSender(map.get(key) + url, method, jsonData, this, "internal");
-                        threadRequestSenderMap.put(key, threadRequestSender);
-                        threads.submit(threadRequestSender);
-                    }
-                } else { // url is updateUserMap
-                    /* skip sending to myself */
-                    if (!myHost.equals(map.get(key))) {
-                        ThreadRequestSender threadRequestSender = new ThreadRequestSender(map.get(key) + url, method, jsonData, this, "internal");
-                        threadRequestSenderMap.put(key, threadRequestSender);
-                        threads.submit(threadRequestSender);
-                    }
-                }
-            }
-            /* Start a while loop to check the responses from all the Threads created above.
-             * Iterate through the threads in threadRequestSenderMap and get the response, if one of the responses is still
-             * not retrieved keep waiting till all the responses are returned then break the loop
-             * If the response was an error, it means that the member is dead so delete it.
-             */
-            while (true && threadRequestSenderMap.size() > 0) {
-                boolean responded = true;
-                for (int key : threadRequestSenderMap.keySet()) {
-                    String response = threadRequestSenderMap.get(key).getResponse();
-                    if (response.equals("no")) {
-                        responded = false;
-                        break;
-                    } else if (response.equals("error")) { // node is dead
-                        if (url.equals("/updateUserMap")) {
-                            if (key == map.firstKey()) { // primary failed again
-                                return false;
-                            }
-                        } else
-                            userServiceDetails.deleteMember(map.get(key)); // delete member
-                        System.out.println(map.get(key) + " is dead.");
-                    }
-                }
-                if (responded)
-                    break;
-                wait();
-            }
-        }
-        //log.debug("All Members replied to " + url);
-        return true;
-    }
-
-    /**
-     * A method called to start sending heartbeat, it creates a heartbeat thread
-     */
-    public void startHeartBeat() {
-        try {
-            heartBeatSender.setHeartBeat(true);
-            Thread thread = new Thread(heartBeatSender);
-            thread.start();
-        } catch (Exception e) {
-        }
-    }
-
-    /**
-     * @param jsonData
-     * @return
-     */
-    private String updateNewPrimary(String jsonData) {
-        String host = "";
-        try {
-            JSONParser parser = new JSONParser();
-            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
-
-            host = (String) jsonObject.get("host");
-            System.out.println("Updating Primary");
-            if (!userServiceDetails.updatePrimary(host))
-                return "400";
-            else {
-                JSONObject userJson = new JSONObject();
-                userJson.put("id", userServiceDetails.getOperationId());
-                return userJson.toJSONString(); // return userId in json format
-            }
-        } catch (Exception e) {
-            return "400";
-        }
-    }
-
-    /**
-     * A method that deactivates heartbeat and calls the election class as a thread
-     *
-     * @return empty string (success) - false (failure)
-     */
-    private String handleElectionRequest() {
-        try {
-            heartBeatSender.setHeartBeat(false);
-            Election election = Election.getInstance();
-            Thread thread = new Thread(election);
-            thread.start();
-            return "";
-        } catch (Exception e) {
-            return "400";
-        }
-    }
-
-    /**
-     * A method that gets the users as a json format and sends the json to all the members
-     * by calling sendMultiRequests and waits for the response. On success if it is not a primary it starts
-     * sending heartbeat again.
-     * If sending failed (method returned false) then the primary is dead so start election again.
-     *
-     * @return
-     */
-    public String spreadUserMap() {
-        try {
-            SortedMap<String, JSONArray> jsonMap = new TreeMap<>();
-            jsonMap.put("users", userServiceDetails.getUsersJsonList());
-            String jsonData = JSONValue.toJSONString(jsonMap);
-
-            if (sendMultiRequests("/updateUserMap", "POST", jsonData)) {
-                //log.debug("Done sending to everyone");
-                if (!userServiceDetails.isPrimary())
-                    startHeartBeat();
-                return "";
-            } else { // means the primary failed
-                Election election = Election.getInstance();
-                Thread thread = new Thread(election);
-                thread.start();
-                return "400";
-            }
-        } catch (Exception e) {
-            return "400";
-        }
-    }
-
-    /**
-     * A method that gets jsonData and parse it to a map and then sends this map to updateUserMap method to
-     * update the current user map with this new user map.
-     * On success, if the member is not a primary then it starts sending heartBeat again.
-     *
-     * @param jsonData - contains user map parsed as json
-     * @return empty string (success) - 400 (failure)
-     */
-    private String updateNewUsersMap(String jsonData) {
-        try {
-            System.out.println("Updating userMap");
-
-            SortedMap<Integer, String[]> usersDetailsMap = new TreeMap<>(); // stores users details Map
-            SortedMap<Integer, SortedMap<Integer, Integer>> usersTicketsMap = new TreeMap<>(); // stores users tickets Map
-
-            JSONParser parser = new JSONParser();
-            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
-            JSONArray arr = (JSONArray) jsonObject.get("users");
-            Iterator<JSONObject> iterator = arr.iterator();
-
-            /* get users details Map */
-            while (iterator.hasNext()) {
-                JSONObject res = iterator.next();
-                long id = (Long) res.get("userid");
-                String userName = (String) res.get("username");
-                String password = (String) res.get("password");
-                String[] userParam = {userName, password};
-                usersDetailsMap.put((int) id, userParam);
-
-                SortedMap<Integer, Integer> ticketMap = new TreeMap<>();
-                JSONArray arr2 = (JSONArray) res.get("tickets");
-                Iterator<JSONObject> iterator2 = arr2.iterator();
-                while (iterator2.hasNext()) {
-                    JSONObject res2 = iterator2.next();
-                    long eventId = (Long) res2.get("eventid");
-                    long nbTickets = (Long) res2.get("ticketnb");
-                    ticketMap.put((int)eventId, (int) nbTickets);
-                }
-                if(ticketMap.size() > 0)
-                    usersTicketsMap.put((int) id, ticketMap);
-            }
-
-            //log.debug("Parsed the json and will call updateUserMap");
-            boolean userResult = userServiceDetails.updateUserMap(usersDetailsMap, usersTicketsMap);
-
-            if (userResult) {
-                if (!userServiceDetails.isPrimary())
-                    startHeartBeat();
-                return ""; // success
-            } else
-                return "400";
-        } catch (Exception e) {
-            log.debug(e);
-            return "400";
-        }
-    }
-
-    /**
-     * A method that parses the jsonData to get the new primary event host and updates it in user's details
-     *
-     * @param jsonData - contains primary event host
-     * @return response (empty string on successful of update, otherwise 400 if an error occured)
-     */
-    private String setEventPrimary(String jsonData) {
-        try {
-            JSONParser parser = new JSONParser();
-            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
-            String host = (String) jsonObject.get("host");
-            userServiceDetails.setPrimaryEventHost(host);
-            return "";
-        } catch (Exception e) {
-            return "400";
-        }
-    }
-
-    /**
-     * A method that wakes the thread up.
-     * Since thread will be in different objects then there is no way for 2 threads to be at 2 different methods
-     * at the same object, that is why notifyALL
-     */
-    public synchronized void wake() {
-        this.notifyAll();
-    }
-}
+package UserService;
+
+import Http.BinaryCodec;
+import Http.ExecutionMode;
+import Http.AckPolicy;
+import Http.FanOut;
+import Http.OperationLog;
+import Http.RetryPolicy;
+import Http.Snapshot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.json.simple.parser.JSONParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * a class that parses all the requests sent internally between primary and all frontEnds and secondaries
+ * like election requests, add member, add front end...etc
+ *
+ * @author Hassan Chadad
+ */
+public class InternalRequestParser {
+
+    private static final int CHUNK_SIZE = 5000; // users in each chunk of the lists sent to a new member
+
+    private static HeartBeatSender heartBeatSender;
+    private static long transferId = -1; // transfer of the chunks received, guarded by InternalRequestParser.class
+    private static int transferChunks; // chunks of the transfer received
+    private static SortedMap<Integer, String[]> transferUsers; // users of the chunks received
+    private static SortedMap<Integer, SortedMap<Integer, Integer>> transferTickets; // tickets of the chunks received
+    private UserServiceDetails userServiceDetails;
+    private final static Logger log = LogManager.getRootLogger(); // Log Object to print to the System.out.println file
+
+    /**
+     * Constructor
+     */
+    public InternalRequestParser() {
+        heartBeatSender = new HeartBeatSender();
+        userServiceDetails = UserServiceDetails.getInstance("", "", 0, "");
+    }
+
+    /**
+     * A method that calls the appropriate function of the api found by the router and returns the response of the function.
+     *
+     * @param api
+     * @param json
+     * @param clientHost
+     * @return response
+     */
+    public String parseRequest(Api api, String json, String clientHost) {
+        switch (api) {
+            case ALIVE:
+                return "";
+            case ELECTION:
+                return handleElectionRequest();
+            case SPREAD_USERS:
+                return spreadUserMap();
+            case NEW_FE:
+                return addFrontEndHost(clientHost);
+            case ALL_LISTS:
+                return parseAllLists(json);
+            case LISTS_CHUNK:
+                return parseListsChunk(json);
+            case ADD_MEMBER:
+                return addMember(json);
+            case NEW_PRIMARY:
+                return updateNewPrimary(json);
+            case ADD_FRONT_END:
+                return addFrontEndHost(json);
+            case UPDATE_USER_MAP:
+                return updateNewUsersMap(json);
+            case SET_EVENT_PRIMARY:
+                return setEventPrimary(json);
+            case REPLICATION_LAG: // lag of the secondaries on the primary, apply queue on a secondary
+                if (userServiceDetails.isPrimary())
+                    return AckPolicy.getLagJson();
+                return userServiceDetails.getApplyQueueJson();
+            default:
+                return "400";
+        }
+    }
+
+    /**
+     * A method that parses jsonData and gets each array, then adds the array to the SortedMap to sort the values by key
+     * Then insert the sorted values in a list to send it to the UserServiceDetails/userServiceDataStructure to update everything
+     * If the primary sent only the operations this member missed (it joined again), they are applied after the ones
+     * it replayed from its operation log instead of replacing the users map.
+     * If the primary sent the lists in chunks (transfer), the maps built from the chunks replace the users map.
+     *
+     * @param jsonData
+     * @return response
+     */
+    private String parseAllLists(String jsonData) {
+        try {
+            JSONParser parser = new JSONParser();
+            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
+
+            SortedMap<Integer, String> membersMap = new TreeMap<>();
+            ArrayList<String> frontEndList = new ArrayList<>(); // stores frontEnd list
+
+            /* get members */
+            JSONArray arr = (JSONArray) jsonObject.get("members");
+            Iterator<JSONObject> iterator = arr.iterator();
+            while (iterator.hasNext()) {
+                JSONObject res = iterator.next();
+                long id = (Long) res.get("id");
+                String host = (String) res.get("memberHost");
+                membersMap.put((int) id, host);
+                BinaryCodec.negotiate(host, (String) res.get("protocol"));
+            }
+
+            /* get frontEnd hosts */
+            arr = (JSONArray) jsonObject.get("fe");
+            iterator = arr.iterator();
+            while (iterator.hasNext()) {
+                JSONObject res = iterator.next();
+                String host = (String) res.get("frontEndHost");
+                frontEndList.add(host);
+            }
+
+            JSONArray operations = (JSONArray) jsonObject.get("operations");
+            JSONObject transfer = (JSONObject) jsonObject.get("transfer");
+            if (operations == null && transfer == null)
+                resetOperationLog(jsonObject, jsonData); // before the lists change, the next operations are logged after them
+            boolean memberResult = userServiceDetails.updateMemberList(membersMap);
+            boolean frontEndResult = userServiceDetails.updateFrontEndList(frontEndList);
+            boolean userResult;
+            if (operations != null) {
+                userResult = new ClientRequestParser("").applyOperations(operations).equals("");
+                System.out.println("Applied " + operations.size() + " missed operations, operation ID " + userServiceDetails.getOperationId());
+            } else if (transfer != null)
+                userResult = installTransfer(jsonObject, transfer);
+            else
+                userResult = restoreLists(jsonObject);
+
+            if (memberResult && frontEndResult && userResult)
+                return ""; // success
+            else
+                return "400";
+        } catch (Exception e) {
+            return "400";
+        }
+    }
+
+    /**
+     * A method that replaces the users map and the operation ID by the ones of the lists sent by the primary
+     * (or read from the operation log when the service starts)
+     *
+     * @param jsonObject - lists, the members and the front ends are not used
+     * @return true on success
+     */
+    boolean restoreLists(JSONObject jsonObject) {
+        try {
+            SortedMap<Integer, String[]> usersDetailsMap = new TreeMap<>(); // stores users details Map
+            SortedMap<Integer, SortedMap<Integer, Integer>> usersTicketsMap = new TreeMap<>(); // stores users tickets Map
+
+            /* get users details Map */
+            JSONArray arr = (JSONArray) jsonObject.get("users");
+            Iterator<JSONObject> iterator = arr.iterator();
+            while (iterator.hasNext()) {
+                JSONObject res = iterator.next();
+                long id = (Long) res.get("userid");
+                String userName = (String) res.get("username");
+                String password = (String) res.get("password");
+                String[] userParam = {userName, password};
+                usersDetailsMap.put((int) id, userParam);
+
+                SortedMap<Integer, Integer> ticketMap = new TreeMap<>();
+                JSONArray arr2 = (JSONArray) res.get("tickets");
+                Iterator<JSONObject> iterator2 = arr2.iterator();
+                while (iterator2.hasNext()) {
+                    JSONObject res2 = iterator2.next();
+                    long eventId = (Long) res2.get("eventid");
+                    long nbTickets = (Long) res2.get("ticketnb");
+                    ticketMap.put((int)eventId, (int) nbTickets);
+                }
+                if(ticketMap.size() > 0)
+                    usersTicketsMap.put((int) id, ticketMap);
+            }
+
+            /* get operation Id */
+            int operId = readOperationId(jsonObject);
+
+            boolean userResult = userServiceDetails.updateUserMap(usersDetailsMap, usersTicketsMap);
+            userServiceDetails.setOperationId(operId);
+            return userResult;
+        } catch (Exception e) {
+            log.debug(e);
+            return false;
+        }
+    }
+
+    /**
+     * A method that reads the operation ID of the lists sent by the primary
+     *
+     * @param jsonObject - lists
+     * @return operation ID
+     */
+    private static int readOperationId(JSONObject jsonObject) {
+        int operId = 0;
+        JSONArray arr = (JSONArray) jsonObject.get("operation");
+        Iterator<JSONObject> iterator = arr.iterator();
+        while (iterator.hasNext()) {
+            JSONObject res = iterator.next();
+            long id = (Long) res.get("id");
+            operId = (int) id;
+        }
+        return operId;
+    }
+
+    /**
+     * A method that adds the users and the tickets of a chunk sent by the primary to the maps of the transfer.
+     * The first chunk starts a new transfer, the other ones must come in order.
+     *
+     * @param jsonData - {"transfer", "chunk", "users", "tickets"}
+     * @return response
+     */
+    private String parseListsChunk(String jsonData) {
+        try {
+            JSONObject jsonObject = (JSONObject) new JSONParser().parse(jsonData);
+            long transfer = (Long) jsonObject.get("transfer");
+            long chunk = (Long) jsonObject.get("chunk");
+
+            SortedMap<Integer, String[]> usersDetailsMap = new TreeMap<>();
+            JSONArray arr = (JSONArray) jsonObject.get("users");
+            Iterator<JSONObject> iterator = arr.iterator();
+            while (iterator.hasNext()) {
+                JSONObject res = iterator.next();
+                long id = (Long) res.get("userid");
+                String[] userParam = {(String) res.get("username"), (String) res.get("password")};
+                usersDetailsMap.put((int) id, userParam);
+            }
+
+            SortedMap<Integer, SortedMap<Integer, Integer>> usersTicketsMap = new TreeMap<>();
+            arr = (JSONArray) jsonObject.get("tickets");
+            iterator = arr.iterator();
+            while (iterator.hasNext()) {
+                JSONObject res = iterator.next();
+                long userId = (Long) res.get("userid");
+                SortedMap<Integer, Integer> ticketMap = new TreeMap<>();
+                Iterator<JSONObject> iterator2 = ((JSONArray) res.get("tickets")).iterator();
+                while (iterator2.hasNext()) {
+                    JSONObject res2 = iterator2.next();
+                    ticketMap.put(((Long) res2.get("eventid")).intValue(), ((Long) res2.get("ticketnb")).intValue());
+                }
+                usersTicketsMap.put((int) userId, ticketMap);
+            }
+
+            synchronized (InternalRequestParser.class) {
+                if (chunk == 0) {
+                    transferId = transfer;
+                    transferChunks = 0;
+                    transferUsers = new TreeMap<>();
+                    transferTickets = new TreeMap<>();
+                } else if (transfer != transferId || chunk != transferChunks)
+                    return "400"; // a chunk is missing, the primary sends all the lists again
+                transferUsers.putAll(usersDetailsMap);
+                transferTickets.putAll(usersTicketsMap);
+                transferChunks++;
+            }
+            return ""; // success
+        } catch (Exception e) {
+            log.debug(e);
+            return "400";
+        }
+    }
+
+    /**
+     * A method that replaces the users map and the operation ID by the maps built from the chunks of a transfer.
+     * If the service logs its operations a snapshot of the new lists is written before any operation is applied,
+     * it replaces the operations logged before them.
+     *
+     * @param jsonObject - last message of the transfer with the operation ID
+     * @param transfer   - {"id", "chunks", "userid"}
+     * @return true on success - false if a chunk is missing
+     */
+    private boolean installTransfer(JSONObject jsonObject, JSONObject transfer) {
+        SortedMap<Integer, String[]> usersDetailsMap;
+        SortedMap<Integer, SortedMap<Integer, Integer>> usersTicketsMap;
+        synchronized (InternalRequestParser.class) {
+            if ((Long) transfer.get("id") != transferId || (Long) transfer.get("chunks") != transferChunks)
+                return false;
+            usersDetailsMap = transferUsers;
+            usersTicketsMap = transferTickets;
+            transferId = -1;
+            transferUsers = null;
+            transferTickets = null;
+        }
+        int operId = readOperationId(jsonObject);
+        try {
+            userServiceDetails.lockSnapshotWriteLock(); // no operation is applied before the snapshot is written
+            boolean userResult = userServiceDetails.installState(usersDetailsMap, usersTicketsMap,
+                    ((Long) transfer.get("userid")).intValue(), operId);
+            Snapshot snapshot = Snapshot.getDefault();
+            if (snapshot != null)
+                snapshot.write();
+            System.out.println("Received " + usersDetailsMap.size() + " users in " + transfer.get("chunks") + " chunks, operation ID " + operId);
+            return userResult;
+        } catch (IOException e) {
+            log.debug(e);
+            System.out.println("Unable to write the snapshot of the lists received");
+            return false;
+        } finally {
+            userServiceDetails.unlockSnapshotWriteLock();
+        }
+    }
+
+    /**
+     * A method that replaces the operation log ("-wal") by the lists a secondary received from the primary,
+     * the operations logged before them don't matter anymore
+     *
+     * @param jsonObject - lists
+     * @param jsonData   - lists as json text
+     */
+    private void resetOperationLog(JSONObject jsonObject, String jsonData) {
+        OperationLog operationLog = OperationLog.getDefault();
+        if (operationLog == null)
+            return;
+        try {
+            JSONArray operation = (JSONArray) jsonObject.get("operation");
+            int operId = operation.isEmpty() ? 0 : ((Long) ((JSONObject) operation.get(0)).get("id")).intValue();
+            operationLog.reset(operId, jsonData);
+        } catch (IOException e) {
+            log.debug(e);
+            System.out.println("Unable to reset the operation log");
+        }
+    }
+
+    /**
+     * A method that adds new member to the primary membership list
+     * after sending all the lists to the new member and received a successful response
+     *
+     * @param jsonData
+     * @return
+     */
+    private String addMember(String jsonData) {
+        String host = "";
+        try {
+            JSONParser parser = new JSONParser();
+            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
+
+            host = (String) jsonObject.get("memberHost");
+            BinaryCodec.negotiate(host, (String) jsonObject.get("protocol"));
+            System.out.println("Adding the member");
+
+            /* Adding member to primary member map then sending to secondaries because I want to update the list before
+             * sending everything to the new secondary. If I updated the map after sending allLists to new member then
+             * the map will lack the new member. So if 2 members joined, 2390 2380, then I will send member map without
+             * the hosts of new members. So both members will get all members but they won't get each other's hosts.
+             */
+            if (!userServiceDetails.addNewMember(host))
+                return "400";
+            if (userServiceDetails.isPrimary()) {
+                if (!sendMissingOperations(host + "/allLists", jsonObject) && !sendAllLists(host))
+                    return "400";
+
+                /* if a service was failed when sending introduce member, I will still be sending it in the list
+                 * to the new member since it will delete it using heartbeat.
+                 * I will not introduce the new member unless it receives all the lists and maps from the primary.
+                 */
+                if (!introduceNewMember(jsonData))
+                    return "400";
+            }
+        } catch (Exception e) {
+            return "400";
+        }
+        return ""; // success
+    }
+
+    /**
+     * A method accessed by the primary only.
+     * It copies the user map, the tickets of the users and the operation ID (the operations are paused only during the
+     * copy) and sends the copy to the new member in chunks of CHUNK_SIZE users, so the member never parses the whole
+     * lists at once. The last message has the FElist, the member map, the operation ID and the number of chunks,
+     * the member replaces its lists when it receives it. The whole transfer is sent again if the member returns "no".
+     *
+     * @param host - host of new member
+     * @return true on success - false (failure)
+     */
+    private boolean sendAllLists(String host) {
+        RequestSender requestSender = new RequestSender();
+        UserServiceDetails.Lists lists = userServiceDetails.copyState(null);
+        long transfer = System.nanoTime();
+        Iterator<Map.Entry<Integer, String[]>> users = lists.users.entrySet().iterator();
+        Iterator<Map.Entry<Integer, SortedMap<Integer, Integer>>> tickets = lists.tickets.entrySet().iterator();
+        int chunks = 0;
+        String result = "ok";
+        while (result.equals("ok") && (chunks == 0 || users.hasNext() || tickets.hasNext())) {
+            result = requestSender.sendInternalRequest(host + "/listsChunk", "POST",
+                    userServiceDetails.getListsChunk(transfer, chunks, users, tickets, CHUNK_SIZE));
+            chunks++;
+        }
+        if (result.equals("ok"))
+            result = requestSender.sendInternalRequest(host + "/allLists", "POST",
+                    userServiceDetails.getTransferLists(lists, transfer, chunks));
+        //log.debug("did it receive all lists ? " + result);
+        if (result.equals("ok"))
+            return true;
+        else if (result.equals("no"))
+            return sendAllLists(host);
+        else
+            return false; // returning false means the member failed
+    }
+
+    /**
+     * A method accessed by the primary only.
+     * A member that joins again sends the operation ID it replayed from its operation log. If the operation log of the
+     * primary still has every operation after it, only these operations are sent with the member and front end lists,
+     * the member applies them like replicated operations and keeps its own log.
+     * The operations are paused while the operation ID is read, so every operation before it is in the log,
+     * the ones after it are replicated to the member since it is in the member map already.
+     *
+     * @param host       - url of the new member
+     * @param jsonObject - addMember request with the operation ID of the member
+     * @return true on success - false if the log doesn't have all the missed operations (the gap is older than the last
+     * snapshot or the last lists received) or the member didn't apply them, the whole lists are sent then
+     */
+    private boolean sendMissingOperations(String host, JSONObject jsonObject) {
+        OperationLog operationLog = OperationLog.getDefault();
+        Long memberOperationId = (Long) jsonObject.get("operationId");
+        if (operationLog == null || memberOperationId == null)
+            return false;
+        final int operationId;
+        try {
+            userServiceDetails.lockSnapshotWriteLock();
+            operationId = userServiceDetails.getOperationId();
+        } finally {
+            userServiceDetails.unlockSnapshotWriteLock();
+        }
+        final long from = memberOperationId;
+        if (from > operationId)
+            return false; // the member is ahead of the primary
+        final int[] found = new int[1];
+        final JSONArray operations = new JSONArray();
+        try {
+            operationLog.read(new OperationLog.Replayer() {
+                @Override
+                public void replay(int recordId, String path, String jsonData) throws Exception {
+                    if (recordId < from || recordId >= operationId || OperationLog.STATE.equals(path))
+                        return;
+                    JSONObject operation = new JSONObject();
+                    operation.put("path", path);
+                    operation.put("data", new JSONParser().parse(jsonData));
+                    operations.add(operation);
+                    found[0]++;
+                }
+            });
+        } catch (Exception e) {
+            log.debug(e);
+            return false;
+        }
+        if (found[0] != operationId - from) {
+            System.out.println("The operation log doesn't have the operations " + host + " missed, sending all the lists");
+            return false;
+        }
+        System.out.println("Sending " + operations.size() + " missed operations to " + host);
+        RequestSender requestSender = new RequestSender();
+        return requestSender.sendInternalRequest(host, "POST", userServiceDetails.getCatchUpLists(operations)).equals("ok");
+    }
+
+    /**
+     * A method that sends multiple requests to all previous members to add the new member
+     *
+     * @param jsonData
+     * @return true (success) - false (failure)
+     */
+    private boolean introduceNewMember(String jsonData) {
+        try {
+            return sendMultiRequests("/addMember", "POST", jsonData);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * A method that adds the frontEnd to the list.
+     * If the member accessing this method is primary then the hostJson is not json format and it is a string only,
+     * so the primary will send a request to all the members to the new frontEnd then it adds it to its details upon success
+     * But if the member accessing this method is a secondary, then it just adds it to its details.
+     *
+     * @param hostJson for primary it is String host - for slave it is JSON String
+     * @return empty string (success) - 400 (failure)
+     */
+    public String addFrontEndHost(String hostJson) {
+        checkFrontEndMembers();
+        if (userServiceDetails.isPrimary()) {
+            JSONObject jsonPar = new JSONObject();
+            jsonPar.put("frontEndHost", hostJson);
+            if (sendFrontEndToEveryone(jsonPar.toJSONString())) {
+                System.out.println("Added FE " + hostJson);
+                userServiceDetails.addFrontEnd(hostJson); // add the frontend to list
+                return "";
+            }
+        } else {
+            try {
+                JSONParser parser = new JSONParser();
+                JSONObject jsonObject = (JSONObject) parser.parse(hostJson);
+                String frontEndHost = (String) jsonObject.get("frontEndHost");
+                System.out.println("Added FE " + frontEndHost);
+                userServiceDetails.addFrontEnd(frontEndHost); // add the frontend to list
+                return "";
+            } catch (Exception e) {
+                return "400";
+            }
+        }
+        return "400";
+    }
+
+    /**
+     * A method that sends a check request to all the Front Ends in the list to check which ones are still alive
+     */
+    private void checkFrontEndMembers() {
+        try {
+            ArrayList<String> frontEndList = userServiceDetails.getFrontEndArrayList();
+            if (frontEndList.size() > 0) { // no frontEnds yet
+                Map<Integer, CompletableFuture<String>> replies = new LinkedHashMap<>();
+                for (int i = 0; i < frontEndList.size(); i++)
+                    replies.put(i, AsyncRequestSender.sendInternalRequest(frontEndList.get(i) + "/primary/checkFE", "GET", ""));
+                /* wait till all the frontEnds reply, if the response was an error it means that the frontEnd is dead so delete it. */
+                Map<Integer, String> responses = FanOut.awaitAll(replies, "error");
+                for (int key : responses.keySet()) {
+                    if ("error".equals(responses.get(key))) { // member is dead
+                        userServiceDetails.deleteFrontEndElement(frontEndList.get(key)); // delete member
+                        System.out.println(frontEndList.get(key) + " is dead.");
+                    }
+                }
+            }
+            //System.out.println("All FEnd checked.");
+        } catch (Exception e) {
+            log.debug(e);
+        }
+    }
+
+    /**
+     * A method that sends multi requests to all the members to add the new frontEnd
+     * and returns the response on success
+     *
+     * @param jsonData
+     * @return
+     */
+    private boolean sendFrontEndToEveryone(String jsonData) {
+        try {
+            return sendMultiRequests("/addFrontEnd", "POST", jsonData);
+        } catch (Exception e) {
+            log.debug(e);
+            return false;
+        }
+    }
+
+    /**
+     * A method that takes the url, method, and json and creates multiples threads to send requests to members
+     * and then waits for a response and returns true on success
+     *
+     * @param url
+     * @param method
+     * @param jsonData
+     * @return true (success) - false (failure)
+     * @throws Exception
+     */
+    private boolean sendMultiRequests(String url, String method, String jsonData) throws Exception {
+        SortedMap<Integer, String> map = userServiceDetails.getMembershipMap();
+        if (map.size() > 1) { // one is the primary so everything after one will be secondary
+            //log.debug(url + " start sending to all members / size" + map.size());
+            Map<Integer, CompletableFuture<String>> replies = new LinkedHashMap<>();
+            String myHost = userServiceDetails.getHost();
+            for (int key : map.keySet()) {
+                if (url.equals("/addMember")) {
+                /* skip sending to primary (myself) and last element (newely added member) */
+                    if (key != map.firstKey() && key != map.lastKey())
+                        replies.put(key, AsyncRequestSender.sendInternalRequest(map.get(key) + url, method, jsonData));
+                } else if (url.equals("/addFrontEnd")) {
+                    /* skip sending to primary (myself in this case) since it is the one that is sending the requests */
+                    if (key != map.firstKey())
+                        replies.put(key, AsyncRequestSender.sendInternalRequest(map.get(key) + url, method, jsonData));
+                } else { // url is updateUserMap
+                    /* skip sending to myself */
+                    if (!myHost.equals(map.get(key)))
+                        replies.put(key, AsyncRequestSender.sendInternalRequest(map.get(key) + url, method, jsonData));
+                }
+            }
+            /* wait till all the members reply, if the response was an error it means that the member is dead so delete it,
+             * a member that was never ready (retries exhausted) is handled the same way.
+             * If the primary is dead again while sending the eventMap, it fails.
+             */
+            Map<Integer, String> responses = FanOut.awaitAll(replies, "error");
+            for (int key : responses.keySet()) {
+                String response = responses.get(key);
+                if ("error".equals(response) || RetryPolicy.EXHAUSTED.equals(response)) { // node is dead
+                    if (url.equals("/updateEventMap")) {
+                        if (key == map.firstKey()) { // primary failed again
+                            return false;
+                        }
+                    } else
+                        userServiceDetails.deleteMember(map.get(key)); // delete member
+                    System.out.println(map.get(key) + " is dead.");
+                }
+            }
+        }
+        //log.debug("All Members replied to " + url);
+        return true;
+    }
+
+    /**
+     * A method called to start sending heartbeat, it creates a heartbeat thread
+     */
+    public void startHeartBeat() {
+        try {
+            heartBeatSender.setHeartBeat(true);
+            ExecutionMode.start(heartBeatSender);
+        } catch (Exception e) {
+        }
+    }
+
+    /**
+     * @param jsonData
+     * @return
+     */
+    private String updateNewPrimary(String jsonData) {
+        String host = "";
+        try {
+            JSONParser parser = new JSONParser();
+            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
+
+            host = (String) jsonObject.get("host");
+            System.out.println("Updating Primary");
+            if (!userServiceDetails.updatePrimary(host))
+                return "400";
+            else {
+                JSONObject userJson = new JSONObject();
+                userJson.put("id", userServiceDetails.getOperationId());
+                return userJson.toJSONString(); // return userId in json format
+            }
+        } catch (Exception e) {
+            return "400";
+        }
+    }
+
+    /**
+     * A method that deactivates heartbeat and calls the election class as a thread
+     *
+     * @return empty string (success) - false (failure)
+     */
+    private String handleElectionRequest() {
+        try {
+            heartBeatSender.setHeartBeat(false);
+            Election election = Election.getInstance();
+            ExecutionMode.start(election);
+            return "";
+        } catch (Exception e) {
+            return "400";
+        }
+    }
+
+    /**
+     * A method that gets the users as a json format and sends the json to all the members
+     * by calling sendMultiRequests and waits for the response. On success if it is not a primary it starts
+     * sending heartbeat again.
+     * If sending failed (method returned false) then the primary is dead so start election again.
+     *
+     * @return
+     */
+    public String spreadUserMap() {
+        try {
+            SortedMap<String, JSONArray> jsonMap = new TreeMap<>();
+            jsonMap.put("users", userServiceDetails.getUsersJsonList());
+            String jsonData = JSONValue.toJSONString(jsonMap);
+
+            if (sendMultiRequests("/updateUserMap", "POST", jsonData)) {
+                //log.debug("Done sending to everyone");
+                if (!userServiceDetails.isPrimary())
+                    startHeartBeat();
+                return "";
+            } else { // means the primary failed
+                Election election = Election.getInstance();
+                ExecutionMode.start(election);
+                return "400";
+            }
+        } catch (Exception e) {
+            return "400";
+        }
+    }
+
+    /**
+     * A method that gets jsonData and parse it to a map and then sends this map to updateUserMap method to
+     * update the current user map with this new user map.
+     * On success, if the member is not a primary then it starts sending heartBeat again.
+     *
+     * @param jsonData - contains user map parsed as json
+     * @return empty string (success) - 400 (failure)
+     */
+    private String updateNewUsersMap(String jsonData) {
+        try {
+            System.out.println("Updating userMap");
+
+            SortedMap<Integer, String[]> usersDetailsMap = new TreeMap<>(); // stores users details Map
+            SortedMap<Integer, SortedMap<Integer, Integer>> usersTicketsMap = new TreeMap<>(); // stores users tickets Map
+
+            JSONParser parser = new JSONParser();
+            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
+            JSONArray arr = (JSONArray) jsonObject.get("users");
+            Iterator<JSONObject> iterator = arr.iterator();
+
+            /* get users details Map */
+            while (iterator.hasNext()) {
+                JSONObject res = iterator.next();
+                long id = (Long) res.get("userid");
+                String userName = (String) res.get("username");
+                String password = (String) res.get("password");
+                String[] userParam = {userName, password};
+                usersDetailsMap.put((int) id, userParam);
+
+                SortedMap<Integer, Integer> ticketMap = new TreeMap<>();
+                JSONArray arr2 = (JSONArray) res.get("tickets");
+                Iterator<JSONObject> iterator2 = arr2.iterator();
+                while (iterator2.hasNext()) {
+                    JSONObject res2 = iterator2.next();
+                    long eventId = (Long) res2.get("eventid");
+                    long nbTickets = (Long) res2.get("ticketnb");
+                    ticketMap.put((int)eventId, (int) nbTickets);
+                }
+                if(ticketMap.size() > 0)
+                    usersTicketsMap.put((int) id, ticketMap);
+            }
+
+            //log.debug("Parsed the json and will call updateUserMap");
+            boolean userResult = userServiceDetails.updateUserMap(usersDetailsMap, usersTicketsMap);
+
+            if (userResult) {
+                String lists = userServiceDetails.getAllLists(); // users of the new primary and operation ID
+                resetOperationLog((JSONObject) parser.parse(lists), lists);
+                if (!userServiceDetails.isPrimary())
+                    startHeartBeat();
+                return ""; // success
+            } else
+                return "400";
+        } catch (Exception e) {
+            log.debug(e);
+            return "400";
+        }
+    }
+
+    /**
+     * A method that parses the jsonData to get the new primary event host and updates it in user's details
+     *
+     * @param jsonData - contains primary event host
+     * @return response (empty string on successful of update, otherwise 400 if an error occured)
+     */
+    private String setEventPrimary(String jsonData) {
+        try {
+            JSONParser parser = new JSONParser();
+            JSONObject jsonObject = (JSONObject) parser.parse(jsonData);
+            String host = (String) jsonObject.get("host");
+            BinaryCodec.negotiate(host, BinaryCodec.PROTOCOL); // goes back to json if it answers with HTTP
+            userServiceDetails.setPrimaryEventHost(host);
+            return "";
+        } catch (Exception e) {
+            return "400";
+        }
+    }
+}